@@ -6,10 +6,16 @@
 package com.king.platform.net.http;
 
 
+import com.king.platform.net.http.netty.EpollOptions;
 import com.king.platform.net.http.netty.NettyChannelOptions;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import com.king.platform.net.http.netty.pool.PoolSelectionStrategy;
 
+import java.net.InetAddress;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
 
 public class ConfKeys<T> {
 	/**
@@ -38,6 +44,47 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Integer> SSL_HANDSHAKE_TIMEOUT_MILLIS = new ConfKeys<>(1000);
 
+	/**
+	 * How long in seconds a tls session can be resumed after it was created, defaults to 0 which uses the default of the ssl provider
+	 */
+	public static final ConfKeys<Integer> SSL_SESSION_TIMEOUT_SECONDS = new ConfKeys<>(0);
+
+	/**
+	 * Max number of tls sessions kept for resumption, the sessions are cached per host and port,
+	 * defaults to 0 which uses the default of the ssl provider
+	 */
+	public static final ConfKeys<Integer> SSL_SESSION_CACHE_SIZE = new ConfKeys<>(0);
+
+	/**
+	 * Should the OpenSSL/BoringSSL engine of netty-tcnative be used when it is available on the classpath, defaults to false
+	 */
+	public static final ConfKeys<Boolean> SSL_USE_OPENSSL = new ConfKeys<>(false);
+
+	/**
+	 * Negotiate HTTP/2 with https servers through ALPN, defaults to false. The keep-alive requests to a server that selects h2 are sent as
+	 * streams over one connection per server, other servers keep using pooled HTTP/1.1 connections. When the ssl provider can not do ALPN,
+	 * like the JDK provider on java 8 without an ALPN agent, all https servers are reached over HTTP/1.1.
+	 */
+	public static final ConfKeys<Boolean> HTTP2 = new ConfKeys<>(false);
+
+	/**
+	 * How long in milli seconds a HTTP/2 connection without any open streams is kept before it is closed, defaults to 60000
+	 */
+	public static final ConfKeys<Integer> HTTP2_IDLE_TIMEOUT_MILLIS = new ConfKeys<>(60000);
+
+	/**
+	 * Speak HTTP/2 without tls (h2c) with the http servers of a host, per host name, defaults to an empty map.
+	 * The requests to such a server are multiplexed over one connection like the h2 requests of {@link #HTTP2}, which does not have to be set.
+	 */
+	public static final ConfKeys<Map<String, Http2CleartextMode>> HTTP2_CLEARTEXT_PER_HOST = new ConfKeys<>(Collections.emptyMap());
+
+	/**
+	 * Pipeline the idempotent requests (GET and HEAD without a body) to the servers of a host over pooled HTTP/1.1 connections, per host name
+	 * with the max number of requests in flight on each connection, defaults to an empty map.
+	 * Only for servers known to answer pipelined requests correctly, since some servers and proxies still get it wrong.
+	 */
+	public static final ConfKeys<Map<String, Integer>> HTTP_PIPELINING_DEPTH_PER_HOST = new ConfKeys<>(Collections.emptyMap());
+
 
 	/**
 	 * Set the max initial line length for the http codec, defaults to 4096
@@ -54,6 +101,13 @@ public class ConfKeys<T> {
 	 */
 	public static final ConfKeys<Integer> HTTP_CODEC_MAX_CHUNK_SIZE = new ConfKeys<>(1024 * 1024);
 
+	/**
+	 * Consolidate the flushes of the connections, defaults to false. The flushes made while the event loop is busy are turned into one flush
+	 * on the next run of the loop, which saves write syscalls when many requests share an event loop or a HTTP/2 connection, at the cost
+	 * of a little latency for a lone request.
+	 */
+	public static final ConfKeys<Boolean> FLUSH_CONSOLIDATION = new ConfKeys<>(false);
+
 
 	/**
 	 * Should the client follow http redirects, defaults to true
@@ -73,26 +127,203 @@ public class ConfKeys<T> {
 
 
 	/**
-	 * Use epoll if available
+	 * Use epoll if available, required for servers listening on unix domain sockets (http+unix:// uris).
+	 * Ignored when {@link #TRANSPORT} is set.
 	 */
 	public static final ConfKeys<Boolean> USE_EPOLL = new ConfKeys<>(false);
 
+	/**
+	 * Name of the transport the client runs on, nio, epoll or io_uring, defaults to null which picks epoll or nio from {@link #USE_EPOLL}.
+	 * The client fails to start if the named transport is not available, see
+	 * {@link com.king.platform.net.http.netty.transport.TransportProviders#available()}.
+	 * Ignored when the client is given an event loop group, as the transport then follows the type of the group.
+	 */
+	public static final ConfKeys<String> TRANSPORT = new ConfKeys<>(null);
+
 
 	/**
 	 * Add any custom {@link io.netty.channel.ChannelOption} that will be used to populate the connection to the servers.
 	 */
 	public static final ConfKeys<NettyChannelOptions> NETTY_CHANNEL_OPTIONS = new ConfKeys<>(new NettyChannelOptions());
 
+	/**
+	 * Linux specific socket options of the http connections, only used with the epoll transport
+	 */
+	public static final ConfKeys<EpollOptions> EPOLL_HTTP_OPTIONS = new ConfKeys<>(new EpollOptions());
+
+	/**
+	 * Linux specific socket options of the web socket connections, only used with the epoll transport
+	 */
+	public static final ConfKeys<EpollOptions> EPOLL_WEB_SOCKET_OPTIONS = new ConfKeys<>(new EpollOptions());
+
+	/**
+	 * Linux specific socket options per host name, applied on top of {@link #EPOLL_HTTP_OPTIONS} and {@link #EPOLL_WEB_SOCKET_OPTIONS}
+	 * for the connections to that host, defaults to an empty map
+	 */
+	public static final ConfKeys<Map<String, EpollOptions>> EPOLL_OPTIONS_PER_HOST = new ConfKeys<>(Collections.emptyMap());
+
 	/**
 	 * Should the client accept compressed responses, defaults to false
 	 */
 	public static final ConfKeys<Boolean> ACCEPT_COMPRESSED_RESPONSE = new ConfKeys<>(false);
 
+	/**
+	 * Move the body of {@link FileResponseConsumer} responses straight from the socket into the file with splice(2),
+	 * defaults to false. Only used for plain http responses with a content length and no content encoding when the client runs the epoll
+	 * transport, other responses are written through the normal path.
+	 * Only part of the body is zero copy: when the socket is drained, the client waits for more data with a normal netty read, and the
+	 * bytes of that read go through the http decoder and are copied into the file. Only what arrives on the socket after it is spliced,
+	 * so the more the network outpaces the event loop, the larger the spliced part.
+	 * The decoder does not see the spliced bytes, so the connection is always closed after a spliced response instead of being pooled.
+	 */
+	public static final ConfKeys<Boolean> SPLICE_FILE_RESPONSES = new ConfKeys<>(false);
+
 	/**
 	 * Should the client keep the connections alive between reqCuests, defaults to true
 	 */
 	public static final ConfKeys<Boolean> KEEP_ALIVE = new ConfKeys<>(true);
 
+	/**
+	 * Max number of open pooled connections to each server (scheme, host and port), defaults to 0 (no limit).
+	 * Requests above the limit wait for a connection to be returned to the pool instead of opening a new one.
+	 */
+	public static final ConfKeys<Integer> POOL_MAX_CONNECTIONS_PER_SERVER = new ConfKeys<>(0);
+
+	/**
+	 * Max number of connection attempts in flight to each server (scheme, host and port), defaults to 0 (no limit).
+	 * Requests above the limit wait for either a connection returned to the pool or a finished connection attempt, whichever comes first.
+	 */
+	public static final ConfKeys<Integer> POOL_MAX_CONNECTING_PER_SERVER = new ConfKeys<>(0);
+
+	/**
+	 * How long a request can wait in milli seconds for a pooled connection when the server is at its connection limit, defaults to 5000
+	 */
+	public static final ConfKeys<Integer> POOL_PENDING_ACQUIRE_TIMEOUT_MILLIS = new ConfKeys<>(5000);
+
+	/**
+	 * Max age in milli seconds of a pooled connection, defaults to 0 (no limit).
+	 * Older connections are closed when their current response has completed instead of being returned to the pool.
+	 */
+	public static final ConfKeys<Integer> POOL_MAX_CONNECTION_LIFETIME_MILLIS = new ConfKeys<>(0);
+
+	/**
+	 * Max number of requests served by a pooled connection before it is closed, defaults to 0 (no limit)
+	 */
+	public static final ConfKeys<Integer> POOL_MAX_REQUESTS_PER_CONNECTION = new ConfKeys<>(0);
+
+	/**
+	 * Random jitter in percent subtracted from the max connection lifetime and max requests of each connection,
+	 * so connections opened together are not all closed at the same time, defaults to 10
+	 */
+	public static final ConfKeys<Integer> POOL_CONNECTION_ROTATION_JITTER_PERCENT = new ConfKeys<>(10);
+
+	/**
+	 * How long in milli seconds before the timeout in the Keep-Alive response header of the server a pooled connection stops being reused,
+	 * defaults to 1000
+	 */
+	public static final ConfKeys<Integer> POOL_KEEP_ALIVE_SAFETY_MARGIN_MILLIS = new ConfKeys<>(1000);
+
+	/**
+	 * Which idle pooled connection is used for the next request to a server, defaults to {@link PoolSelectionStrategy#LIFO}
+	 */
+	public static final ConfKeys<PoolSelectionStrategy> POOL_SELECTION_STRATEGY = new ConfKeys<>(PoolSelectionStrategy.LIFO);
+
+	/**
+	 * Pool selection strategy per host name, overriding {@link #POOL_SELECTION_STRATEGY} for the servers on that host, defaults to an empty map
+	 */
+	public static final ConfKeys<Map<String, PoolSelectionStrategy>> POOL_SELECTION_STRATEGY_PER_HOST = new ConfKeys<>(Collections.emptyMap());
+
+	/**
+	 * Should pooled connections to a host be spread over all the addresses its name resolves to, defaults to false.
+	 * Each resolved address gets its own pool, and new requests go to the address with the fewest outstanding requests.
+	 */
+	public static final ConfKeys<Boolean> POOL_SPREAD_OVER_RESOLVED_ADDRESSES = new ConfKeys<>(false);
+
+	/**
+	 * How long in milli seconds the resolved addresses of a host are used before the name is resolved again, defaults to 30000
+	 */
+	public static final ConfKeys<Integer> POOL_ADDRESS_REFRESH_MILLIS = new ConfKeys<>(30000);
+
+	/**
+	 * Number of consecutive failed connects or timed out requests after which a resolved address is ejected, defaults to 3
+	 */
+	public static final ConfKeys<Integer> POOL_ADDRESS_EJECTION_FAILURES = new ConfKeys<>(3);
+
+	/**
+	 * How long in milli seconds an ejected address gets no new requests, defaults to 30000
+	 */
+	public static final ConfKeys<Integer> POOL_ADDRESS_EJECTION_MILLIS = new ConfKeys<>(30000);
+
+	/**
+	 * Should host names be resolved by the non blocking dns resolver of the client instead of the resolver of the JVM, defaults to false.
+	 * Ignored when an address resolver group has been given to the builder.
+	 */
+	public static final ConfKeys<Boolean> DNS_ASYNC_RESOLVER = new ConfKeys<>(false);
+
+	/**
+	 * How long in milli seconds the async dns resolver waits for a dns server to answer, defaults to 5000
+	 */
+	public static final ConfKeys<Integer> DNS_QUERY_TIMEOUT_MILLIS = new ConfKeys<>(5000);
+
+	/**
+	 * Min time in seconds the async dns resolver caches a record, regardless of its ttl, defaults to 0
+	 */
+	public static final ConfKeys<Integer> DNS_MIN_TTL_SECONDS = new ConfKeys<>(0);
+
+	/**
+	 * Max time in seconds the async dns resolver caches a record, regardless of its ttl, defaults to Integer.MAX_VALUE
+	 */
+	public static final ConfKeys<Integer> DNS_MAX_TTL_SECONDS = new ConfKeys<>(Integer.MAX_VALUE);
+
+	/**
+	 * How long in seconds the async dns resolver caches a failed lookup, defaults to 5
+	 */
+	public static final ConfKeys<Integer> DNS_NEGATIVE_TTL_SECONDS = new ConfKeys<>(5);
+
+	/**
+	 * How much of the ttl in percent is left when a cached host that is still being looked up is resolved again in the background,
+	 * defaults to 20. 0 disables the refresh.
+	 */
+	public static final ConfKeys<Integer> DNS_REFRESH_AHEAD_PERCENT = new ConfKeys<>(20);
+
+	/**
+	 * Fixed addresses for host names, checked by the async dns resolver before the hosts file, defaults to an empty map
+	 */
+	public static final ConfKeys<Map<String, InetAddress>> DNS_HOST_OVERRIDES = new ConfKeys<>(Collections.emptyMap());
+
+	/**
+	 * Should new connections race all the resolved addresses of the host, alternating between ipv6 and ipv4 (Happy Eyeballs, RFC 8305),
+	 * instead of only connecting to the first address, defaults to false
+	 */
+	public static final ConfKeys<Boolean> HAPPY_EYEBALLS = new ConfKeys<>(false);
+
+	/**
+	 * Delay in milli seconds before the next address is tried while the previous connection attempts are still pending, defaults to 250
+	 */
+	public static final ConfKeys<Integer> HAPPY_EYEBALLS_ATTEMPT_DELAY_MILLIS = new ConfKeys<>(250);
+
+	/**
+	 * File the hottest hosts of the client are written to, and read from when the client starts to resolve and connect to them before the
+	 * first requests, defaults to null which disables the snapshot
+	 */
+	public static final ConfKeys<String> HOT_HOST_SNAPSHOT_FILE = new ConfKeys<>(null);
+
+	/**
+	 * How often in milli seconds the hot host snapshot is written, defaults to 60000. It is also written when the client shuts down.
+	 */
+	public static final ConfKeys<Integer> HOT_HOST_SNAPSHOT_INTERVAL_MILLIS = new ConfKeys<>(60000);
+
+	/**
+	 * Max number of hosts kept in the hot host snapshot, defaults to 64
+	 */
+	public static final ConfKeys<Integer> HOT_HOST_SNAPSHOT_MAX_HOSTS = new ConfKeys<>(64);
+
+	/**
+	 * Max total number of connections opened to the hosts of the snapshot when the client starts, defaults to 32.
+	 * Hosts beyond the limit are only resolved.
+	 */
+	public static final ConfKeys<Integer> HOT_HOST_SNAPSHOT_MAX_CONNECTIONS = new ConfKeys<>(32);
+
 	/**
 	 * Set default request body charset, defaults to iso-8859-1
 	 */
@@ -5,6 +5,7 @@
 
 package com.king.platform.net.http;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 /**
@@ -127,4 +128,15 @@ public interface HttpClient {
 	 * @return the builder
 	 */
 	HttpClientWebSocketRequestBuilder createWebSocket(String uri);
+
+	/**
+	 * Open pooled connections to a server ahead of the first requests, and keep at least that many idle connections to it from now on.
+	 * Connections that are closed, expired, discarded or checked out by requests are replaced in the background, within the connection limit.
+	 * The client has to be started before this method is called.
+	 *
+	 * @param uri any http or https uri on the server
+	 * @param connections the minimum number of connections to keep to the server
+	 * @return future completed when the connections have been established
+	 */
+	CompletableFuture<Void> warmUp(String uri, int connections);
 }
@@ -8,85 +8,186 @@ package com.king.platform.net.http.netty;
 
 import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.netty.eventbus.*;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import com.king.platform.net.http.netty.http2.Http2Connection;
+import com.king.platform.net.http.netty.http2.Http2ConnectionCallback;
+import com.king.platform.net.http.netty.http2.Http2Connections;
+import com.king.platform.net.http.netty.http2.Http2StreamHandler;
+import com.king.platform.net.http.netty.http2.Http2UpgradeRequest;
+import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import com.king.platform.net.http.netty.pipelining.PipelinedChannel;
+import com.king.platform.net.http.netty.pipelining.PipelinedChannels;
+import com.king.platform.net.http.netty.pool.ChannelAcquireCallback;
 import com.king.platform.net.http.netty.pool.ChannelPool;
+import com.king.platform.net.http.netty.pool.IdleChannelGuard;
+import com.king.platform.net.http.netty.pool.KeepAliveHint;
+import com.king.platform.net.http.netty.response.HttpRedirector;
 import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
+import com.king.platform.net.http.netty.response.SpliceRecvByteBufAllocator;
+import com.king.platform.net.http.netty.transport.TransportProvider;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import com.king.platform.net.http.netty.websocket.WebSocketHandler;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.websocketx.WebSocket13FrameDecoder;
 import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http2.Http2ClientUpgradeCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
 import org.slf4j.Logger;
 
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class ChannelManager {
+	// HttpHeaderNames.KEEP_ALIVE is deprecated, as the header is not part of HTTP/1.1
+	private static final AsciiString KEEP_ALIVE = AsciiString.cached("keep-alive");
+	private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+
 	private final Logger logger = getLogger(getClass());
 
 	private final EventLoopGroup eventLoopGroup;
+	private final AddressResolverGroup<InetSocketAddress> addressResolverGroup;
 	private final TimeProvider timeProvider;
 	private final ConfMap confMap;
 	private final ChannelPool channelPool;
 	private final Bootstrap httpBootstrap;
 	private final SslContext sslContext;
+	private final SslContext http2SslContext;
+	private final Http2Connections http2Connections;
+	private final Map<String, Http2CleartextMode> http2CleartextPerHost;
+	private final ChannelInitializer<Http2StreamChannel> http2StreamInitializer;
+	private final Map<String, Integer> pipeliningDepthPerHost;
+	private final PipelinedChannels pipelinedChannels;
 	private final Bootstrap wsBootstrap;
+	private final Bootstrap domainSocketBootstrap;
+	private final Map<String, EpollOptions> epollOptionsPerHost;
+	private final boolean httpTcpQuickAck;
+	private final boolean webSocketTcpQuickAck;
+	private final ResolvedAddressBalancer resolvedAddressBalancer;
+	private final RootEventBus rootEventBus;
+	private final ChannelGroup channels = new DefaultChannelGroup("king-http-client", GlobalEventExecutor.INSTANCE);
+	private final boolean happyEyeballs;
+	private final long happyEyeballsAttemptDelayMillis;
 	private Timer nettyTimer;
 
 
-	public ChannelManager(EventLoopGroup nioEventLoop, final HttpClientHandler httpClientHandler, WebSocketHandler webSocketHandler, Timer nettyTimer, TimeProvider timeProvider, ChannelPool
-		channelPool, final ConfMap confMap, RootEventBus rootEventBus) {
+	/**
+	 * @param nioEventLoop the event loops of the client
+	 * @param transport the transport the event loops run, which gives the channel classes
+	 * @param allocator the allocator of the channels, or null for the default allocator of netty
+	 */
+	public ChannelManager(EventLoopGroup nioEventLoop, TransportProvider transport, ByteBufAllocator allocator, AddressResolverGroup<InetSocketAddress>
+		addressResolverGroup, final HttpClientHandler httpClientHandler, WebSocketHandler webSocketHandler, Timer nettyTimer, TimeProvider timeProvider,
+						  ChannelPool channelPool, final ConfMap confMap, RootEventBus rootEventBus) {
 		this.eventLoopGroup = nioEventLoop;
+		this.addressResolverGroup = addressResolverGroup;
 		this.nettyTimer = nettyTimer;
 		this.timeProvider = timeProvider;
 		this.channelPool = channelPool;
 		this.confMap = confMap;
+		this.rootEventBus = rootEventBus;
 
-		final Class <? extends SocketChannel> socketChannelClass;
+		final Class <? extends SocketChannel> socketChannelClass = transport.getSocketChannelClass();
+		final boolean splice = confMap.get(ConfKeys.SPLICE_FILE_RESPONSES) && transport.supportsSplice();
 
-		if (Epoll.isAvailable() && confMap.get(ConfKeys.USE_EPOLL)) {
-			socketChannelClass = EpollSocketChannel.class;
-		} else {
-			socketChannelClass = NioSocketChannel.class;
-		}
-
-		httpBootstrap = new Bootstrap().channel(socketChannelClass).group(eventLoopGroup);
-		httpBootstrap.handler(new ChannelInitializer() {
+		ChannelInitializer httpChannelInitializer = new ChannelInitializer() {
 			@Override
 			protected void initChannel(Channel ch) throws Exception {
+				channels.add(ch);
+				if (splice) {
+					// Installed before the first read, netty keeps the read handle it creates then for the life of the channel
+					ch.config().setRecvByteBufAllocator(new SpliceRecvByteBufAllocator(ch.config().getRecvByteBufAllocator()));
+				}
 				ChannelPipeline pipeline = ch.pipeline();
 
 				addLoggingIfDesired(pipeline, confMap.get(ConfKeys.NETTY_TRACE_LOGS));
+				if (confMap.get(ConfKeys.FLUSH_CONSOLIDATION)) {
+					// Kept when the connection turns into HTTP/2, where it consolidates the flushes of all the streams.
+					// Flushes at the latest after 256 flushes, the default of netty.
+					pipeline.addLast("flushConsolidation", new FlushConsolidationHandler(256, true));
+				}
+				pipeline.addLast("idleChannelGuard", IdleChannelGuard.INSTANCE);
 				pipeline.addLast("http-codec", newHttpClientCodec());
 				pipeline.addLast("inflater", new HttpContentDecompressor());
 				pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
 				pipeline.addLast("httpClientHandler", httpClientHandler);
 
 			}
-		});
+		};
+
+		http2StreamInitializer = new ChannelInitializer<Http2StreamChannel>() {
+			@Override
+			protected void initChannel(Http2StreamChannel ch) throws Exception {
+				ChannelPipeline pipeline = ch.pipeline();
+
+				addLoggingIfDesired(pipeline, confMap.get(ConfKeys.NETTY_TRACE_LOGS));
+				pipeline.addLast("http2-stream-codec", new Http2StreamFrameToHttpObjectCodec(false));
+				pipeline.addLast("http2-stream", Http2StreamHandler.INSTANCE);
+				pipeline.addLast("inflater", new HttpContentDecompressor());
+				pipeline.addLast("chunkedWriter", new ChunkedWriteHandler());
+				pipeline.addLast("httpClientHandler", httpClientHandler);
+			}
+		};
+
+		httpBootstrap = new Bootstrap().channel(socketChannelClass).group(eventLoopGroup);
+		httpBootstrap.handler(httpChannelInitializer);
+
+		if (transport.getDomainSocketChannelClass() != null) {
+			domainSocketBootstrap = new Bootstrap().channel(transport.getDomainSocketChannelClass()).group(eventLoopGroup);
+			domainSocketBootstrap.handler(httpChannelInitializer);
+		} else {
+			domainSocketBootstrap = null;
+		}
 
 
 		wsBootstrap = new Bootstrap().channel(socketChannelClass).group(eventLoopGroup);
 		wsBootstrap.handler(new ChannelInitializer() {
 			@Override
 			protected void initChannel(Channel ch) throws Exception {
+				channels.add(ch);
 				ChannelPipeline pipeline = ch.pipeline();
 
 				addLoggingIfDesired(pipeline, confMap.get(ConfKeys.NETTY_TRACE_LOGS));
@@ -97,9 +198,31 @@ public class ChannelManager {
 		});
 
 
-		sslContext = getSslContext(confMap);
+		sslContext = getSslContext(confMap, false);
+		http2SslContext = confMap.get(ConfKeys.HTTP2) ? getHttp2SslContext(confMap) : null;
+		http2CleartextPerHost = confMap.get(ConfKeys.HTTP2_CLEARTEXT_PER_HOST);
+		if (http2SslContext != null || !http2CleartextPerHost.isEmpty()) {
+			http2Connections = new Http2Connections();
+		} else {
+			http2Connections = null;
+		}
+
+		pipeliningDepthPerHost = confMap.get(ConfKeys.HTTP_PIPELINING_DEPTH_PER_HOST);
+		pipelinedChannels = pipeliningDepthPerHost.isEmpty() ? null : new PipelinedChannels();
+
 		httpBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
 		wsBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
+		if (domainSocketBootstrap != null) {
+			domainSocketBootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, confMap.get(ConfKeys.CONNECT_TIMEOUT_MILLIS));
+		}
+
+		if (allocator != null) {
+			httpBootstrap.option(ChannelOption.ALLOCATOR, allocator);
+			wsBootstrap.option(ChannelOption.ALLOCATOR, allocator);
+			if (domainSocketBootstrap != null) {
+				domainSocketBootstrap.option(ChannelOption.ALLOCATOR, allocator);
+			}
+		}
 
 		NettyChannelOptions nettyChannelOptions = confMap.get(ConfKeys.NETTY_CHANNEL_OPTIONS);
 		for (ChannelOption channelOption : nettyChannelOptions.keys()) {
@@ -107,6 +230,30 @@ public class ChannelManager {
 			wsBootstrap.option(channelOption, nettyChannelOptions.get(channelOption));
 		}
 
+		if (transport.supportsEpollOptions()) {
+			confMap.get(ConfKeys.EPOLL_HTTP_OPTIONS).applyTo(httpBootstrap);
+			confMap.get(ConfKeys.EPOLL_WEB_SOCKET_OPTIONS).applyTo(wsBootstrap);
+			epollOptionsPerHost = confMap.get(ConfKeys.EPOLL_OPTIONS_PER_HOST);
+			httpTcpQuickAck = Boolean.TRUE.equals(confMap.get(ConfKeys.EPOLL_HTTP_OPTIONS).getTcpQuickAck());
+			webSocketTcpQuickAck = Boolean.TRUE.equals(confMap.get(ConfKeys.EPOLL_WEB_SOCKET_OPTIONS).getTcpQuickAck());
+		} else {
+			epollOptionsPerHost = Collections.emptyMap();
+			httpTcpQuickAck = false;
+			webSocketTcpQuickAck = false;
+		}
+
+		if (confMap.get(ConfKeys.POOL_SPREAD_OVER_RESOLVED_ADDRESSES)) {
+			resolvedAddressBalancer = new ResolvedAddressBalancer(confMap, timeProvider, this::resolveAll);
+			channelPool.setServerPoolListener(resolvedAddressBalancer);
+		} else {
+			resolvedAddressBalancer = null;
+		}
+
+		happyEyeballs = confMap.get(ConfKeys.HAPPY_EYEBALLS);
+		happyEyeballsAttemptDelayMillis = confMap.get(ConfKeys.HAPPY_EYEBALLS_ATTEMPT_DELAY_MILLIS);
+
+		channelPool.setChannelConnector(this::connect);
+
 		rootEventBus.subscribePermanently(Event.ERROR, new ErrorCallback());
 		rootEventBus.subscribePermanently(Event.COMPLETED, new CompletedCallback());
 		rootEventBus.subscribePermanently(Event.EXECUTE_REQUEST, new ExecuteRequestCallback());
@@ -115,7 +262,9 @@ public class ChannelManager {
 	}
 
 	private void populateServerSpecificHeaders(ServerInfo serverInfo, HttpHeaders headers) {
-		if (serverInfo.getPort() == 80 || serverInfo.getPort() == 443) {    //Don't write the ports for default ports: Host = "Host" ":" host [ ":" port ] ;
+		if (serverInfo.isDomainSocket()) {
+			headers.set(HttpHeaderNames.HOST, "localhost");
+		} else if (serverInfo.getPort() == 80 || serverInfo.getPort() == 443) {    //Don't write the ports for default ports: Host = "Host" ":" host [ ":" port ] ;
 			headers.set(HttpHeaderNames.HOST, serverInfo.getHost());
 		} else {
 			headers.set(HttpHeaderNames.HOST, serverInfo.getHost() + ":" + serverInfo.getPort());
@@ -136,14 +285,36 @@ public class ChannelManager {
 	}
 
 
-	private SslContext getSslContext(ConfMap confMap) {
+	/**
+	 * @param alpn true to offer h2 and http/1.1 through ALPN, the pooled HTTP/1.1 connections use a context without ALPN so that they
+	 *             are never upgraded by the server
+	 */
+	private SslContext getSslContext(ConfMap confMap, boolean alpn) {
 		SslContextBuilder sslContextBuilder = SslContextBuilder.forClient();
 
+		if (OpenSsl.isAvailable() && confMap.get(ConfKeys.SSL_USE_OPENSSL)) {
+			sslContextBuilder.sslProvider(SslProvider.OPENSSL);
+		} else {
+			sslContextBuilder.sslProvider(SslProvider.JDK);
+		}
+
 		if (confMap.get(ConfKeys.SSL_ALLOW_ALL_CERTIFICATES)) {
 			sslContextBuilder.trustManager(InsecureTrustManagerFactory.INSTANCE);
 		}
 
-		sslContextBuilder.sessionTimeout(confMap.get(ConfKeys.SSL_HANDSHAKE_TIMEOUT_MILLIS));
+		if (confMap.get(ConfKeys.SSL_SESSION_TIMEOUT_SECONDS) > 0) {
+			sslContextBuilder.sessionTimeout(confMap.get(ConfKeys.SSL_SESSION_TIMEOUT_SECONDS));
+		}
+
+		if (confMap.get(ConfKeys.SSL_SESSION_CACHE_SIZE) > 0) {
+			sslContextBuilder.sessionCacheSize(confMap.get(ConfKeys.SSL_SESSION_CACHE_SIZE));
+		}
+
+		if (alpn) {
+			sslContextBuilder.applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+				ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE, ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+				ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+		}
 
 		try {
 			return sslContextBuilder.build();
@@ -153,6 +324,32 @@ public class ChannelManager {
 
 	}
 
+	/**
+	 * @return the context that offers h2 through ALPN, or null when the ssl provider can not do ALPN, like the JDK provider on java 8
+	 * without an ALPN agent. The https servers are then only reached over HTTP/1.1.
+	 */
+	private SslContext getHttp2SslContext(ConfMap confMap) {
+		SslContext alpnSslContext = getSslContext(confMap, true);
+		if (!isProtocolNegotiationSupported(alpnSslContext)) {
+			logger.warn("The ssl provider does not support ALPN, HTTP/2 is only used for cleartext servers");
+			return null;
+		}
+		return alpnSslContext;
+	}
+
+	/**
+	 * The providers check the negotiation support when an engine is created, not when the context is built.
+	 */
+	static boolean isProtocolNegotiationSupported(SslContext sslContext) {
+		try {
+			ReferenceCountUtil.release(sslContext.newEngine(ByteBufAllocator.DEFAULT));
+			return true;
+		} catch (RuntimeException e) {
+			getLogger(ChannelManager.class).debug("Protocol negotiation is not supported", e);
+			return false;
+		}
+	}
+
 	private void addLoggingIfDesired(ChannelPipeline pipeline, boolean desired) {
 		if (desired) {
 			pipeline.addLast("logging", new LoggingHandler(LogLevel.TRACE));
@@ -165,36 +362,447 @@ public class ChannelManager {
 			(ConfKeys.HTTP_CODEC_MAX_CHUNK_SIZE));
 	}
 
-	public void sendOnChannel(final HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+	/**
+	 * Close all connections opened by the client: pooled, pipelined, HTTP/2 and web socket connections, and those with requests in flight.
+	 * Needed when the event loop group is shared with other clients or was given to the client, and is not shut down with it.
+	 * Waits for the requests on them to fail, so that the callbacks run before the callback executor is stopped, unless called on one of the
+	 * event loops.
+	 */
+	public void shutdown() {
+		if (http2Connections != null) {
+			http2Connections.shutdown();
+		}
+		ChannelGroupFuture closeFuture = channels.close();
 
-		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		if (eventLoopGroup.isShuttingDown()) {
+			return;
+		}
+		for (EventExecutor eventExecutor : eventLoopGroup) {
+			if (eventExecutor.inEventLoop()) {
+				return;
+			}
+		}
+
+		if (!closeFuture.awaitUninterruptibly(SHUTDOWN_TIMEOUT_MILLIS)) {
+			logger.warn("Timed out waiting for the connections of the client to close");
+			return;
+		}
+		// the requests on the closed channels are failed by channelInactive, which the close queues as a later task on the event loop of the
+		// channel. The close future completes inside the close task, so the first round waits for the close tasks to end and the second one
+		// for the channelInactive tasks they queued.
+		awaitEventLoopTasks();
+		awaitEventLoopTasks();
+	}
+
+	private void awaitEventLoopTasks() {
+		List<Future<?>> futures = new ArrayList<>();
+		for (EventExecutor eventExecutor : eventLoopGroup) {
+			futures.add(eventExecutor.submit(() -> {
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.awaitUninterruptibly(SHUTDOWN_TIMEOUT_MILLIS);
+		}
+	}
+
+	public void sendOnChannel(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
 
 		logger.trace("Sending request {} to server {}", httpRequestContext, serverInfo);
 
 		requestEventBus.triggerEvent(Event.onConnecting);
 
+		if (isHttp2Candidate(httpRequestContext)) {
+			sendOnHttp2(httpRequestContext, requestEventBus);
+		} else {
+			sendOnHttp1(httpRequestContext, requestEventBus);
+		}
+	}
+
+	private void sendOnHttp1(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
 		boolean keepAlive = httpRequestContext.isKeepAlive();
 
-		if (keepAlive && channelPool.isActive()) {
-			final Channel channel = channelPool.get(serverInfo);
-			if (channel != null) {
-				logger.trace("Got old channel {} for request {}", channel, httpRequestContext);
+		if (keepAlive && channelPool.isActive() && !serverInfo.isWebSocket()) {
+			if (isPipelineable(httpRequestContext)) {
+				sendPipelined(httpRequestContext, requestEventBus);
+				return;
+			}
+
+			final EventLoop eventLoop = selectEventLoop();
+			if (eventLoop.inEventLoop()) {
+				acquireChannel(eventLoop, httpRequestContext, requestEventBus);
+			} else {
+				eventLoop.execute(() -> acquireChannel(eventLoop, httpRequestContext, requestEventBus));
+			}
+		} else {
+			logger.trace("Sending on a new channel for request {}", httpRequestContext);
+			sendOnNewChannel(httpRequestContext, requestEventBus, null);
+		}
+
+	}
+
+	/**
+	 * @return true if the request can be pipelined, only GET and HEAD requests without a body are since they may have to be sent again
+	 */
+	private boolean isPipelineable(HttpRequestContext httpRequestContext) {
+		if (pipelinedChannels == null || !pipeliningDepthPerHost.containsKey(httpRequestContext.getServerInfo().getHost())) {
+			return false;
+		}
+
+		HttpMethod httpMethod = httpRequestContext.getHttpMethod();
+		if (!HttpMethod.GET.equals(httpMethod) && !HttpMethod.HEAD.equals(httpMethod)) {
+			return false;
+		}
+
+		return httpRequestContext.getNettyHttpClientRequest().getHttpBody() == null;
+	}
+
+	/**
+	 * Queue the request on a pipelined channel to the server. The request that finds no channel with room acquires a channel from the pool,
+	 * the requests queued meanwhile are written once the channel has been acquired.
+	 */
+	private void sendPipelined(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
+		if (pipelinedChannels.add(serverInfo, httpRequestContext, pipeliningDepthPerHost.get(serverInfo.getHost()))) {
+			logger.trace("Acquiring a channel to pipeline request {}", httpRequestContext);
+			final EventLoop eventLoop = selectEventLoop();
+			if (eventLoop.inEventLoop()) {
+				acquireChannel(eventLoop, httpRequestContext, requestEventBus);
+			} else {
+				eventLoop.execute(() -> acquireChannel(eventLoop, httpRequestContext, requestEventBus));
+			}
+			return;
+		}
+
+		PipelinedChannel pipelinedChannel = httpRequestContext.getPipelinedChannel();
+		logger.trace("Pipelining request {} on {}", httpRequestContext, pipelinedChannel);
+		requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
+		requestEventBus.triggerEvent(Event.onConnected);
+
+		if (pipelinedChannel.getChannel() != null) {
+			writePipelined(pipelinedChannel);
+		}
+	}
+
+	/**
+	 * Write the queued requests of a pipelined channel. The requests are taken on the event loop of the channel, so that they are written
+	 * in the order they were queued whichever thread queued them.
+	 */
+	private void writePipelined(final PipelinedChannel pipelinedChannel) {
+		final Channel channel = pipelinedChannel.getChannel();
+		Runnable writer = () -> {
+			// The requests are flushed together, so that a batch of small requests goes out in as few writes as possible
+			for (HttpRequestContext httpRequestContext : pipelinedChannels.takeUnwritten(pipelinedChannel)) {
+				// A failed write ahead of it may already have moved the request to another channel
+				if (httpRequestContext.getPipelinedChannel() == pipelinedChannel) {
+					writeOnChannel(channel, httpRequestContext, httpRequestContext.getRequestEventBus(), false);
+				}
+			}
+			channel.flush();
+		};
+
+		if (channel.eventLoop().inEventLoop()) {
+			writer.run();
+		} else {
+			channel.eventLoop().execute(writer);
+		}
+	}
+
+	/**
+	 * Send the requests left on a removed pipelined channel again. A request whose response had started can not be sent again, it fails.
+	 */
+	private void resendPipelined(List<HttpRequestContext> httpRequestContexts) {
+		for (HttpRequestContext httpRequestContext : httpRequestContexts) {
+			RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
+			NettyHttpClientResponse nettyHttpClientResponse = httpRequestContext.getNettyHttpClientResponse();
+
+			// The channel has been taken care of by the request that removed it
+			httpRequestContext.getAndDetachChannel();
+			httpRequestContext.setPipelinedChannel(null);
+
+			if (nettyHttpClientResponse != null && nettyHttpClientResponse.getHttpResponseStatus() != null) {
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, new ConnectionClosedException("Connection closed after a failed " +
+					"pipelined request"));
+			} else {
+				logger.trace("Sending pipelined request {} again", httpRequestContext);
+				releaseAddress(httpRequestContext, null);
+				sendOnChannel(httpRequestContext, requestEventBus);
+			}
+		}
+	}
+
+	/**
+	 * @return true if the request should be sent over HTTP/2, unless the server turns out not to support it
+	 */
+	private boolean isHttp2Candidate(HttpRequestContext httpRequestContext) {
+		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		if (http2Connections == null || !httpRequestContext.isKeepAlive() || serverInfo.isWebSocket()) {
+			return false;
+		}
+
+		if (serverInfo.isSecure() ? http2SslContext == null : !http2CleartextPerHost.containsKey(serverInfo.getHost())) {
+			return false;
+		}
+
+		return !http2Connections.isHttp1(httpRequestContext.getConnectionServerInfo());
+	}
+
+	private void sendOnHttp2(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
+		boolean connect = http2Connections.acquire(httpRequestContext.getConnectionServerInfo(), new Http2ConnectionCallback() {
+			@Override
+			public void onConnection(Http2Connection connection) {
+				logger.trace("Got HTTP/2 connection {} for request {}", connection, httpRequestContext);
 				requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
 				requestEventBus.triggerEvent(Event.onConnected);
 
+				sendOnStream(connection, httpRequestContext, requestEventBus);
+			}
+
+			@Override
+			public void onHttp1() {
+				sendOnHttp1(httpRequestContext, requestEventBus);
+			}
+
+			@Override
+			public void onFailure(Throwable throwable) {
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, throwable);
+			}
+		});
+
+		if (connect) {
+			logger.trace("Negotiating HTTP/2 with {} for request {}", serverInfo, httpRequestContext);
+			connectHttp2(httpRequestContext, requestEventBus);
+		}
+	}
+
+	private void sendOnStream(Http2Connection connection, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		connection.openStream(http2StreamInitializer).addListener((FutureListener<Http2StreamChannel>) future -> {
+			if (future.isSuccess()) {
+				sendOnChannel(future.getNow(), httpRequestContext, requestEventBus);
+			} else {
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, future.cause());
+			}
+		});
+	}
+
+	/**
+	 * Connect to the server and start HTTP/2 on the connection, through ALPN for https servers and as configured by
+	 * {@link ConfKeys#HTTP2_CLEARTEXT_PER_HOST} for http servers. A server that does not agree to HTTP/2 is marked as HTTP/1.1.
+	 */
+	private void connectHttp2(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		final ServerInfo connectionServerInfo = httpRequestContext.getConnectionServerInfo();
+		final EventLoop eventLoop = selectEventLoop();
+
+		Future<Channel> connectFuture = resolveAndConnect(newBootstrap(serverInfo, eventLoop), eventLoop, connectionServerInfo, httpRequestContext
+			.getTimeRecorder());
+
+		connectFuture.addListener((FutureListener<Channel>) future -> {
+			if (!future.isSuccess()) {
+				http2Connections.connectFailed(connectionServerInfo, future.cause());
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, future.cause());
+				return;
+			}
+
+			requestEventBus.triggerEvent(Event.CREATED_CONNECTION, serverInfo);
+			requestEventBus.triggerEvent(Event.onConnected);
+
+			Channel channel = future.getNow();
+			if (channel.remoteAddress() instanceof InetSocketAddress) {
+				requestEventBus.triggerEvent(Event.CONNECTED_ADDRESS, serverInfo, (InetSocketAddress) channel.remoteAddress());
+			}
+			channel.attr(ServerInfo.ATTRIBUTE_KEY).set(connectionServerInfo);
+
+			// an exception thrown here would be swallowed by the listener, leaving the server connecting for good
+			try {
+				if (serverInfo.isSecure()) {
+					negotiateHttp2(channel, httpRequestContext, requestEventBus);
+				} else if (http2CleartextPerHost.get(serverInfo.getHost()) == Http2CleartextMode.UPGRADE) {
+					upgradeToHttp2(channel, httpRequestContext, requestEventBus);
+				} else {
+					logger.trace("Starting h2c with prior knowledge on {}", channel);
+					startHttp2(newHttp2Connection(channel, Http2Connection.newCodec()), httpRequestContext, requestEventBus);
+				}
+			} catch (Exception e) {
+				http2NegotiationFailed(channel, e, httpRequestContext, requestEventBus);
+			}
+		});
+	}
+
+	private void negotiateHttp2(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		SslHandler sslHandler;
+		try {
+			sslHandler = addSslHandler(channel, httpRequestContext.getServerInfo(), http2SslContext, requestEventBus);
+		} catch (RuntimeException e) {
+			// the ssl provider could not start ALPN on this connection, the server is used over HTTP/1.1 instead
+			logger.warn("Failed to negotiate HTTP/2 with {}, using HTTP/1.1", httpRequestContext.getServerInfo(), e);
+			channel.close();
+			http2Connections.negotiatedHttp1(httpRequestContext.getConnectionServerInfo());
+			sendOnHttp1(httpRequestContext, requestEventBus);
+			return;
+		}
+		sslHandler.handshakeFuture().addListener((FutureListener<Channel>) sslHandshakeFuture -> {
+			if (!sslHandshakeFuture.isSuccess()) {
+				http2NegotiationFailed(channel, sslHandshakeFuture.cause(), httpRequestContext, requestEventBus);
+			} else if (ApplicationProtocolNames.HTTP_2.equals(sslHandler.applicationProtocol())) {
+				startHttp2(newHttp2Connection(channel, Http2Connection.newCodec()), httpRequestContext, requestEventBus);
+			} else {
+				http2Connections.negotiatedHttp1(httpRequestContext.getConnectionServerInfo());
 				sendOnChannel(channel, httpRequestContext, requestEventBus);
+			}
+		});
+	}
+
+	/**
+	 * Ask the server for h2c with a request of its own. A connection the server did not upgrade is closed, since the declined request
+	 * may have left the server expecting anything from a new protocol to a closed connection.
+	 */
+	private void upgradeToHttp2(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		logger.trace("Asking for h2c upgrade on {}", channel);
+		ChannelPipeline pipeline = channel.pipeline();
+		pipeline.remove("idleChannelGuard");
+		pipeline.remove("inflater");
+		pipeline.remove("chunkedWriter");
+		pipeline.remove("httpClientHandler");
+
+		Http2MultiplexCodec codec = Http2Connection.newCodec();
+		pipeline.addAfter("http-codec", "http2-upgrade", new HttpClientUpgradeHandler((HttpClientCodec) pipeline.get("http-codec"), new
+			Http2ClientUpgradeCodec(codec), confMap.get(ConfKeys.HTTP_CODEC_MAX_HEADER_SIZE)));
+
+		HttpHeaders headers = new DefaultHttpHeaders();
+		populateServerSpecificHeaders(httpRequestContext.getServerInfo(), headers);
+		Promise<Boolean> upgradePromise = channel.eventLoop().newPromise();
+		pipeline.addLast("http2-upgrade-request", new Http2UpgradeRequest(headers.get(HttpHeaderNames.HOST), upgradePromise));
+
+		upgradePromise.addListener((FutureListener<Boolean>) future -> {
+			if (!future.isSuccess()) {
+				http2NegotiationFailed(channel, future.cause(), httpRequestContext, requestEventBus);
+			} else if (future.getNow()) {
+				startHttp2(newHttp2Connection(channel, codec), httpRequestContext, requestEventBus);
 			} else {
-				logger.trace("Sending on a new channel for request {}", httpRequestContext);
-				sendOnNewChannel(httpRequestContext, requestEventBus);
+				logger.trace("Server declined the h2c upgrade on {}", channel);
+				channel.close();
+				http2Connections.negotiatedHttp1(httpRequestContext.getConnectionServerInfo());
+				sendOnHttp1(httpRequestContext, requestEventBus);
+			}
+		});
+	}
+
+	private void startHttp2(Http2Connection connection, HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		sendOnStream(connection, httpRequestContext, requestEventBus);
+		http2Connections.connected(httpRequestContext.getConnectionServerInfo(), connection);
+	}
+
+	private void http2NegotiationFailed(Channel channel, Throwable cause, HttpRequestContext httpRequestContext, RequestEventBus requestEventBus) {
+		channel.close();
+		http2Connections.connectFailed(httpRequestContext.getConnectionServerInfo(), cause);
+		requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, cause);
+	}
+
+	/**
+	 * Remove the HTTP/1.1 handlers that are left in the pipeline and add the HTTP/2 handlers.
+	 */
+	private Http2Connection newHttp2Connection(Channel channel, Http2MultiplexCodec codec) {
+		ChannelPipeline pipeline = channel.pipeline();
+		for (String name : new String[]{"idleChannelGuard", "http-codec", "inflater", "chunkedWriter", "httpClientHandler"}) {
+			if (pipeline.get(name) != null) {
+				pipeline.remove(name);
 			}
-		} else {
-			logger.trace("Sending on a new channel for request {}", httpRequestContext);
-			sendOnNewChannel(httpRequestContext, requestEventBus);
 		}
 
+		return new Http2Connection(channel, codec, confMap.get(ConfKeys.HTTP2_IDLE_TIMEOUT_MILLIS));
+	}
+
+	/**
+	 * Use the event loop of the calling thread if it belongs to the client, so requests issued from callbacks stay on their loop.
+	 * Otherwise let the group pick the next loop.
+	 */
+	private EventLoop selectEventLoop() {
+		for (EventExecutor eventExecutor : eventLoopGroup) {
+			if (eventExecutor.inEventLoop()) {
+				return (EventLoop) eventExecutor;
+			}
+		}
+		return eventLoopGroup.next();
+	}
+
+	private void acquireChannel(final EventLoop eventLoop, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
+		if (resolvedAddressBalancer == null || serverInfo.isDomainSocket()) {
+			acquirePooledChannel(eventLoop, httpRequestContext, requestEventBus);
+			return;
+		}
+
+		final TimeStampRecorder timeStampRecorder = httpRequestContext.getTimeRecorder();
+		timeStampRecorder.startResolve();
+		resolvedAddressBalancer.acquire(serverInfo).whenComplete((addressServerInfo, throwable) -> {
+			timeStampRecorder.completedResolve();
+			if (throwable != null) {
+				requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+				return;
+			}
+
+			httpRequestContext.setAddressServerInfo(addressServerInfo);
+			if (eventLoop.inEventLoop()) {
+				acquirePooledChannel(eventLoop, httpRequestContext, requestEventBus);
+			} else {
+				eventLoop.execute(() -> acquirePooledChannel(eventLoop, httpRequestContext, requestEventBus));
+			}
+		});
+	}
+
+	private void acquirePooledChannel(final EventLoop eventLoop, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+
+		try {
+			channelPool.acquire(httpRequestContext.getConnectionServerInfo(), eventLoop, new ChannelAcquireCallback() {
+				@Override
+				public void onAcquiredChannel(Channel channel) {
+					logger.trace("Got old channel {} for request {}", channel, httpRequestContext);
+					requestEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
+					requestEventBus.triggerEvent(Event.onConnected);
+
+					sendOnChannel(channel, httpRequestContext, requestEventBus);
+				}
+
+				@Override
+				public void onConnectionAllowed() {
+					logger.trace("Sending on a new pooled channel for request {}", httpRequestContext);
+					sendOnNewChannel(httpRequestContext, requestEventBus, eventLoop);
+				}
+
+				@Override
+				public void onAcquireFailed(Throwable throwable) {
+					logger.trace("Failed to acquire a channel for request {}", httpRequestContext);
+					requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, throwable);
+				}
+			});
+		} catch (Throwable throwable) {
+			requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, throwable);
+		}
 	}
 
 	private void sendOnChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+		PipelinedChannel pipelinedChannel = httpRequestContext.getPipelinedChannel();
+		if (pipelinedChannel == null) {
+			writeOnChannel(channel, httpRequestContext, requestEventBus, true);
+		} else if (pipelinedChannels.attach(pipelinedChannel, channel)) {
+			writePipelined(pipelinedChannel);
+		} else {
+			logger.trace("The requests of {} have moved on, discarding the acquired channel {}", pipelinedChannel, channel);
+			channelPool.discard(httpRequestContext.getConnectionServerInfo(), channel);
+			channel.close();
+		}
+	}
+
+	private void writeOnChannel(final Channel channel, final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus, boolean flush) {
 
 		httpRequestContext.attachedToChannel(channel);
 
@@ -203,7 +811,7 @@ public class ChannelManager {
 
 		requestEventBus.subscribe(Event.CLOSE, (payload) -> channel.close());
 
-		ChannelFuture channelFuture = channel.writeAndFlush(httpRequestContext);
+		ChannelFuture channelFuture = flush ? channel.writeAndFlush(httpRequestContext) : channel.write(httpRequestContext);
 		channelFuture.addListener(future -> {
             if (!future.isSuccess()) {
                 requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, future.cause());
@@ -234,32 +842,71 @@ public class ChannelManager {
 
 	}
 
-	private Bootstrap getBootstrap(ServerInfo serverInfo) {
-		if (serverInfo.isWebSocket()) {
-			return wsBootstrap;
-		} else {
-			return httpBootstrap;
+	/**
+	 * @return a bootstrap for the server registering the channel on the event loop,
+	 * or null for a unix domain socket server when the transport has no domain socket channel
+	 */
+	private Bootstrap newBootstrap(ServerInfo serverInfo, EventLoop eventLoop) {
+		if (serverInfo.isDomainSocket()) {
+			return domainSocketBootstrap != null ? domainSocketBootstrap.clone(eventLoop) : null;
+		}
+
+		Bootstrap bootstrap = serverInfo.isWebSocket() ? wsBootstrap.clone(eventLoop) : httpBootstrap.clone(eventLoop);
+		boolean tcpQuickAck = serverInfo.isWebSocket() ? webSocketTcpQuickAck : httpTcpQuickAck;
+		EpollOptions hostEpollOptions = epollOptionsPerHost.get(serverInfo.getHost());
+		if (hostEpollOptions != null) {
+			hostEpollOptions.applyTo(bootstrap);
+			if (hostEpollOptions.getTcpQuickAck() != null) {
+				tcpQuickAck = hostEpollOptions.getTcpQuickAck();
+			}
 		}
+
+		if (tcpQuickAck) {
+			ChannelHandler channelInitializer = bootstrap.config().handler();
+			bootstrap.handler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) throws Exception {
+					ch.pipeline().addLast("tcp-quick-ack", TcpQuickAckHandler.INSTANCE);
+					ch.pipeline().addLast(channelInitializer);
+				}
+			});
+		}
+		return bootstrap;
 	}
 
-	private void sendOnNewChannel(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus) {
+	/**
+	 * Connect a new channel for the request.
+	 * @param eventLoop the event loop a pooled connection should be registered on, or null for a connection that will not be pooled
+	 */
+	private void sendOnNewChannel(final HttpRequestContext httpRequestContext, final RequestEventBus requestEventBus, final EventLoop eventLoop) {
 		final ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		final ServerInfo connectionServerInfo = httpRequestContext.getConnectionServerInfo();
+		final boolean pooled = eventLoop != null;
+		final EventLoop connectEventLoop = pooled ? eventLoop : eventLoopGroup.next();
+
+		Bootstrap bootstrap = newBootstrap(serverInfo, connectEventLoop);
 
-		ChannelFuture channelFuture = getBootstrap(serverInfo).connect(serverInfo.getHost(), serverInfo.getPort());
+		Future<Channel> connectFuture = resolveAndConnect(bootstrap, connectEventLoop, connectionServerInfo, httpRequestContext.getTimeRecorder());
 
-		channelFuture.addListener((ChannelFutureListener) future -> {
+		connectFuture.addListener((FutureListener<Channel>) future -> {
             if (future.isSuccess()) {
 
                 requestEventBus.triggerEvent(Event.CREATED_CONNECTION, serverInfo);
                 requestEventBus.triggerEvent(Event.onConnected);
 
-                Channel channel = future.channel();
+                Channel channel = future.getNow();
+				if (channel.remoteAddress() instanceof InetSocketAddress) {
+					requestEventBus.triggerEvent(Event.CONNECTED_ADDRESS, serverInfo, (InetSocketAddress) channel.remoteAddress());
+				}
 				logger.trace("Opened a new channel {}, for request {}", channel, httpRequestContext);
-				channel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
+				channel.attr(ServerInfo.ATTRIBUTE_KEY).set(connectionServerInfo);
+
+				if (pooled) {
+					channelPool.connectionCreated(connectionServerInfo, channel);
+				}
 
                 if (serverInfo.isSecure()) {
-					SslHandler sslHandler = sslContext.newHandler(channel.alloc(), serverInfo.getHost(), serverInfo.getPort());
-					channel.pipeline().addFirst("ssl", sslHandler);
+					SslHandler sslHandler = addSslHandler(channel, serverInfo, sslContext, requestEventBus);
 
 					sslHandler.handshakeFuture().addListener((FutureListener<Channel>) sslHandshakeFuture -> {
                         if (sslHandshakeFuture.isSuccess()) {
@@ -279,6 +926,9 @@ public class ChannelManager {
 
             } else {
                 logger.trace("Failed to opened a new channel for request {}", httpRequestContext);
+				if (pooled) {
+					channelPool.connectionFailed(connectionServerInfo);
+				}
                 Throwable cause = future.cause();
                 requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, cause);
             }
@@ -286,22 +936,225 @@ public class ChannelManager {
 	}
 
 
+	/**
+	 * Resolve the host of the server with the address resolver group of the client, and connect to the resolved address.
+	 * With happy eyeballs all the resolved addresses are raced by a {@link HappyEyeballsConnector}.
+	 * Servers bound to a resolved address and unix domain socket servers are connected to directly.
+	 * @param bootstrap the bootstrap, registering the channel on the given event loop
+	 * @param timeStampRecorder records the resolve phase of a request, or null
+	 */
+	private Future<Channel> resolveAndConnect(final Bootstrap bootstrap, final EventLoop eventLoop, ServerInfo serverInfo, final TimeStampRecorder
+		timeStampRecorder) {
+		final Promise<Channel> connectPromise = eventLoop.newPromise();
+
+		if (serverInfo.isDomainSocket()) {
+			if (bootstrap == null) {
+				connectPromise.tryFailure(new IllegalStateException("Unix domain socket servers require the epoll transport, see ConfKeys.TRANSPORT"));
+				return connectPromise;
+			}
+
+			bootstrap.connect(new DomainSocketAddress(serverInfo.getHost())).addListener((ChannelFutureListener) channelFuture -> {
+				if (channelFuture.isSuccess()) {
+					connectPromise.trySuccess(channelFuture.channel());
+				} else {
+					connectPromise.tryFailure(channelFuture.cause());
+				}
+			});
+			return connectPromise;
+		}
+		final Promise<List<InetSocketAddress>> resolvePromise = eventLoop.newPromise();
+
+		final boolean resolving = serverInfo.getAddress() == null;
+		if (resolving) {
+			if (timeStampRecorder != null) {
+				timeStampRecorder.startResolve();
+			}
+			try {
+				AddressResolver<InetSocketAddress> resolver = addressResolverGroup.getResolver(eventLoop);
+				InetSocketAddress unresolvedAddress = InetSocketAddress.createUnresolved(serverInfo.getHost(), serverInfo.getPort());
+				if (happyEyeballs) {
+					resolver.resolveAll(unresolvedAddress).addListener((FutureListener<List<InetSocketAddress>>) future -> {
+						if (future.isSuccess()) {
+							resolvePromise.trySuccess(future.getNow());
+						} else {
+							resolvePromise.tryFailure(future.cause());
+						}
+					});
+				} else {
+					resolver.resolve(unresolvedAddress).addListener((FutureListener<InetSocketAddress>) future -> {
+						if (future.isSuccess()) {
+							resolvePromise.trySuccess(Collections.singletonList(future.getNow()));
+						} else {
+							resolvePromise.tryFailure(future.cause());
+						}
+					});
+				}
+			} catch (Throwable throwable) {
+				resolvePromise.tryFailure(throwable);
+			}
+		} else {
+			resolvePromise.trySuccess(Collections.singletonList(new InetSocketAddress(serverInfo.getAddress(), serverInfo.getPort())));
+		}
+
+		resolvePromise.addListener((FutureListener<List<InetSocketAddress>>) future -> {
+			if (resolving && timeStampRecorder != null) {
+				timeStampRecorder.completedResolve();
+			}
+
+			if (!future.isSuccess()) {
+				connectPromise.tryFailure(future.cause());
+				return;
+			}
+
+			List<InetSocketAddress> addresses = future.getNow();
+			if (addresses.size() > 1) {
+				new HappyEyeballsConnector(bootstrap, eventLoop, addresses, happyEyeballsAttemptDelayMillis, connectPromise).connect();
+				return;
+			}
+
+			bootstrap.connect(addresses.get(0)).addListener((ChannelFutureListener) channelFuture -> {
+				if (channelFuture.isSuccess()) {
+					connectPromise.trySuccess(channelFuture.channel());
+				} else {
+					connectPromise.tryFailure(channelFuture.cause());
+				}
+			});
+		});
+
+		return connectPromise;
+	}
+
+	CompletableFuture<InetAddress[]> resolveAll(String host) {
+		final CompletableFuture<InetAddress[]> resolveFuture = new CompletableFuture<>();
+
+		try {
+			addressResolverGroup.getResolver(eventLoopGroup.next()).resolveAll(InetSocketAddress.createUnresolved(host, 0)).addListener(
+				(FutureListener<List<InetSocketAddress>>) future -> {
+					if (!future.isSuccess()) {
+						resolveFuture.completeExceptionally(future.cause());
+						return;
+					}
+
+					List<InetSocketAddress> socketAddresses = future.getNow();
+					InetAddress[] addresses = new InetAddress[socketAddresses.size()];
+					for (int i = 0; i < addresses.length; i++) {
+						addresses[i] = socketAddresses.get(i).getAddress();
+					}
+					resolveFuture.complete(addresses);
+				});
+		} catch (Throwable throwable) {
+			resolveFuture.completeExceptionally(throwable);
+		}
+
+		return resolveFuture;
+	}
+
+	/**
+	 * Add the ssl handler to a new channel. The engine is created for the host and port of the server, so that the session of an earlier
+	 * connection to the server can be resumed. The handshake is reported as a full or resumed handshake on the event bus.
+	 */
+	private SslHandler addSslHandler(Channel channel, ServerInfo serverInfo, SslContext sslContext, RequestEventBus requestEventBus) {
+		String peerHost = serverInfo.isDomainSocket() ? "localhost" : serverInfo.getHost();
+		SslHandler sslHandler = sslContext.newHandler(channel.alloc(), peerHost, serverInfo.getPort());
+		sslHandler.setHandshakeTimeoutMillis(confMap.get(ConfKeys.SSL_HANDSHAKE_TIMEOUT_MILLIS));
+		channel.pipeline().addFirst("ssl", sslHandler);
+
+		final long handshakeStartTime = timeProvider.currentTimeInMillis();
+		final long handshakeStartWallClock = System.currentTimeMillis();
+		sslHandler.handshakeFuture().addListener((FutureListener<Channel>) future -> {
+			if (!future.isSuccess()) {
+				return;
+			}
+
+			long handshakeMillis = timeProvider.currentTimeInMillis() - handshakeStartTime;
+			SSLSession sslSession = sslHandler.engine().getSession();
+			if (sslSession != null && sslSession.getCreationTime() < handshakeStartWallClock) {
+				logger.trace("Resumed ssl session with {} in {} ms", serverInfo, handshakeMillis);
+				requestEventBus.triggerEvent(Event.RESUMED_SSL_HANDSHAKE, serverInfo, handshakeMillis);
+			} else {
+				logger.trace("Full ssl handshake with {} in {} ms", serverInfo, handshakeMillis);
+				requestEventBus.triggerEvent(Event.FULL_SSL_HANDSHAKE, serverInfo, handshakeMillis);
+			}
+		});
+
+		return sslHandler;
+	}
+
+	/**
+	 * Open a connection for the pool without any request, used to keep warm connections to a server.
+	 * The connections are spread over the event loops of the client.
+	 */
+	private CompletableFuture<Channel> connect(final ServerInfo serverInfo) {
+		final CompletableFuture<Channel> connectFuture = new CompletableFuture<>();
+
+		EventLoop eventLoop = eventLoopGroup.next();
+		resolveAndConnect(newBootstrap(serverInfo, eventLoop), eventLoop, serverInfo, null).addListener((FutureListener<Channel>) future -> {
+			if (!future.isSuccess()) {
+				connectFuture.completeExceptionally(future.cause());
+				return;
+			}
+
+			Channel channel = future.getNow();
+			logger.trace("Opened a new pooled channel {} to {}", channel, serverInfo);
+			channel.attr(ServerInfo.ATTRIBUTE_KEY).set(serverInfo);
+
+			if (serverInfo.isSecure()) {
+				addSslHandler(channel, serverInfo, sslContext, rootEventBus.createRequestEventBus()).handshakeFuture().addListener((FutureListener<Channel>) sslHandshakeFuture -> {
+					if (sslHandshakeFuture.isSuccess()) {
+						connectFuture.complete(channel);
+					} else {
+						channel.close();
+						connectFuture.completeExceptionally(sslHandshakeFuture.cause());
+					}
+				});
+			} else {
+				connectFuture.complete(channel);
+			}
+		});
+
+		return connectFuture;
+	}
+
+	private void releaseAddress(HttpRequestContext httpRequestContext, Throwable failure) {
+		ServerInfo addressServerInfo = httpRequestContext.getAndClearAddressServerInfo();
+		if (addressServerInfo != null && resolvedAddressBalancer != null) {
+			resolvedAddressBalancer.release(addressServerInfo, failure);
+		}
+	}
+
 	private class ErrorCallback implements EventBusCallback2<HttpRequestContext, Throwable> {
 
 		@Override
 		public void onEvent(HttpRequestContext httpRequestContext, Throwable throwable) {
 			ServerInfo serverInfo = httpRequestContext.getServerInfo();
+			ServerInfo connectionServerInfo = httpRequestContext.getConnectionServerInfo();
+			releaseAddress(httpRequestContext, throwable);
 
 			Channel channel = httpRequestContext.getAndDetachChannel();
 
-			if (channel != null) {
+			List<HttpRequestContext> pipelinedRequests = Collections.emptyList();
+			PipelinedChannel pipelinedChannel = httpRequestContext.getPipelinedChannel();
+			if (pipelinedChannel != null) {
+				pipelinedRequests = pipelinedChannels.failed(pipelinedChannel, httpRequestContext);
+				if (channel != null) {
+					connectionServerInfo = channel.attr(ServerInfo.ATTRIBUTE_KEY).get();
+				}
+			}
+
+			if (channel instanceof Http2StreamChannel) {
+				channel.attr(BaseHttpRequestHandler.HTTP_CLIENT_HANDLER_TRIGGERED_ERROR).set(true);
+				// Resets the stream, the connection is kept for the other streams
+				channel.close();
+			} else if (channel != null) {
 				channel.attr(BaseHttpRequestHandler.HTTP_CLIENT_HANDLER_TRIGGERED_ERROR).set(true);
 
-				channelPool.discard(serverInfo, channel);
+				channelPool.discard(connectionServerInfo, channel);
 				channel.close();
 			}
 
 			httpRequestContext.getRequestEventBus().triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
+
+			resendPipelined(pipelinedRequests);
 		}
 
 	}
@@ -313,6 +1166,18 @@ public class ChannelManager {
 			RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
 			Channel channel = httpRequestContext.getAndDetachChannel();
 			ServerInfo serverInfo = httpRequestContext.getServerInfo();
+			ServerInfo connectionServerInfo = httpRequestContext.getConnectionServerInfo();
+			releaseAddress(httpRequestContext, null);
+
+			if (channel instanceof Http2StreamChannel) {
+				channel.close();
+				if (channel.parent().isActive()) {
+					requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
+				} else {
+					requestEventBus.triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
+				}
+				return;
+			}
 
 			if (!channelPool.isActive()) {
 				if (channel != null) {
@@ -322,7 +1187,8 @@ public class ChannelManager {
 				return;
 			}
 
-			boolean keepAlive = httpRequestContext.isKeepAlive();
+			boolean keepAlive = httpRequestContext.isKeepAlive() && !httpRequestContext.shouldDiscardConnection();
+			KeepAliveHint keepAliveHint = KeepAliveHint.NONE;
 			NettyHttpClientResponse nettyHttpClientResponse = httpRequestContext.getNettyHttpClientResponse();
 			if (nettyHttpClientResponse == null || nettyHttpClientResponse.getHttpHeaders() == null) {
 				keepAlive = false;
@@ -331,17 +1197,24 @@ public class ChannelManager {
 				if (HttpHeaderValues.CLOSE.contentEqualsIgnoreCase(connection)) {
 					keepAlive = false;
 				}
+				keepAliveHint = KeepAliveHint.parse(nettyHttpClientResponse.getHttpHeaders().get(KEEP_ALIVE));
+			}
+
+			PipelinedChannel pipelinedChannel = httpRequestContext.getPipelinedChannel();
+			if (pipelinedChannel != null && channel != null) {
+				completedPipelined(pipelinedChannel, channel, httpRequestContext, keepAlive, keepAliveHint);
+				return;
 			}
 
 			if (keepAlive) {
 				if (channel != null) {
-					channelPool.offer(serverInfo, channel);
+					channelPool.offer(connectionServerInfo, channel, keepAliveHint);
 					requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
 				}
 
 			} else {
 				if (channel != null) {
-					channelPool.discard(serverInfo, channel);
+					channelPool.discard(connectionServerInfo, channel);
 					channel.close();
 				}
 				requestEventBus.triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
@@ -350,6 +1223,37 @@ public class ChannelManager {
 
 	}
 
+	/**
+	 * The response of the oldest request of a pipelined channel has been read. The channel goes back to the pool when its last request has
+	 * completed. A channel that is closed after the response takes the requests behind with it, they are sent again.
+	 * A followed redirect closes the channel too, since the body of the redirect response has not been read when the request completes.
+	 */
+	private void completedPipelined(PipelinedChannel pipelinedChannel, Channel channel, HttpRequestContext httpRequestContext, boolean keepAlive,
+									KeepAliveHint keepAliveHint) {
+		RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
+		ServerInfo serverInfo = httpRequestContext.getServerInfo();
+		ServerInfo poolServerInfo = channel.attr(ServerInfo.ATTRIBUTE_KEY).get();
+
+		if (keepAlive && httpRequestContext.isFollowRedirects() && HttpRedirector.isRedirectResponse(httpRequestContext.getNettyHttpClientResponse()
+			.getHttpResponseStatus())) {
+			keepAlive = false;
+		}
+
+		if (!keepAlive) {
+			List<HttpRequestContext> pipelinedRequests = pipelinedChannels.remove(pipelinedChannel, httpRequestContext);
+			channelPool.discard(poolServerInfo, channel);
+			channel.close();
+			requestEventBus.triggerEvent(Event.CLOSED_CONNECTION, serverInfo);
+			resendPipelined(pipelinedRequests);
+			return;
+		}
+
+		if (pipelinedChannels.completed(pipelinedChannel, httpRequestContext)) {
+			channelPool.offer(poolServerInfo, channel, keepAliveHint);
+		}
+		requestEventBus.triggerEvent(Event.POOLED_CONNECTION, serverInfo);
+	}
+
 	private class ExecuteRequestCallback implements EventBusCallback1<HttpRequestContext> {
 		@Override
 		public void onEvent(HttpRequestContext httpRequestContext) {
@@ -0,0 +1,87 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+
+/**
+ * Linux specific socket options for the tcp connections of the client, only used when the client runs the epoll transport.
+ * Options that are not set keep the defaults of the kernel and netty.
+ */
+public class EpollOptions {
+	private Boolean tcpFastOpenConnect;
+	private Boolean tcpQuickAck;
+	private Integer tcpUserTimeoutMillis;
+	private EpollMode epollMode;
+
+	/**
+	 * Send the request with the SYN of the connect when the server supports TCP Fast Open (TCP_FASTOPEN_CONNECT).
+	 * The kernel must allow client side fast open, see net.ipv4.tcp_fastopen.
+	 * @param tcpFastOpenConnect true to use fast open
+	 * @return the options
+	 */
+	public EpollOptions setTcpFastOpenConnect(boolean tcpFastOpenConnect) {
+		this.tcpFastOpenConnect = tcpFastOpenConnect;
+		return this;
+	}
+
+	/**
+	 * Acknowledge received segments immediately instead of delaying the ack (TCP_QUICKACK).
+	 * The kernel turns the option off again by itself, so the client sets it again after each read of the connection.
+	 * @param tcpQuickAck true to use quick acks
+	 * @return the options
+	 */
+	public EpollOptions setTcpQuickAck(boolean tcpQuickAck) {
+		this.tcpQuickAck = tcpQuickAck;
+		return this;
+	}
+
+	/**
+	 * Close the connection when sent data has not been acknowledged within the timeout (TCP_USER_TIMEOUT),
+	 * which detects a dead server much faster than the retransmission timeouts of the kernel.
+	 * @param tcpUserTimeoutMillis the timeout in ms, 0 for the default of the kernel
+	 * @return the options
+	 */
+	public EpollOptions setTcpUserTimeoutMillis(int tcpUserTimeoutMillis) {
+		this.tcpUserTimeoutMillis = tcpUserTimeoutMillis;
+		return this;
+	}
+
+	/**
+	 * Use edge or level triggered epoll for the connections, netty defaults to {@link EpollMode#EDGE_TRIGGERED}.
+	 * @param epollMode the mode
+	 * @return the options
+	 */
+	public EpollOptions setEpollMode(EpollMode epollMode) {
+		this.epollMode = epollMode;
+		return this;
+	}
+
+	/**
+	 * @return if quick acks are used, or null when the option is not set
+	 */
+	Boolean getTcpQuickAck() {
+		return tcpQuickAck;
+	}
+
+	void applyTo(Bootstrap bootstrap) {
+		if (tcpFastOpenConnect != null) {
+			bootstrap.option(EpollChannelOption.TCP_FASTOPEN_CONNECT, tcpFastOpenConnect);
+		}
+		if (tcpQuickAck != null) {
+			bootstrap.option(EpollChannelOption.TCP_QUICKACK, tcpQuickAck);
+		}
+		if (tcpUserTimeoutMillis != null) {
+			bootstrap.option(EpollChannelOption.TCP_USER_TIMEOUT, tcpUserTimeoutMillis);
+		}
+		if (epollMode != null) {
+			bootstrap.option(EpollChannelOption.EPOLL_MODE, epollMode);
+		}
+	}
+}
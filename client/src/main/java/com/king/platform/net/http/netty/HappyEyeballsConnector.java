@@ -0,0 +1,155 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Races connection attempts to the resolved addresses of a host as described by Happy Eyeballs (RFC 8305).
+ * The addresses are tried one at a time, alternating between the address families, and the next address is tried when the previous attempt
+ * fails or has not connected within the attempt delay. The first connected channel wins and all the other attempts are closed.
+ * All the methods must be called on the event loop the channels are registered on.
+ */
+class HappyEyeballsConnector {
+	private final Logger logger = getLogger(getClass());
+
+	private final Bootstrap bootstrap;
+	private final EventLoop eventLoop;
+	private final List<InetSocketAddress> addresses;
+	private final long attemptDelayMillis;
+	private final Promise<Channel> connectPromise;
+
+	private final List<ChannelFuture> attempts = new ArrayList<>();
+	private ScheduledFuture<?> scheduledAttempt;
+	private int failedAttempts;
+	private Throwable failure;
+
+	HappyEyeballsConnector(Bootstrap bootstrap, EventLoop eventLoop, List<InetSocketAddress> addresses, long attemptDelayMillis, Promise<Channel>
+		connectPromise) {
+		this.bootstrap = bootstrap;
+		this.eventLoop = eventLoop;
+		this.addresses = interleaveAddressFamilies(addresses);
+		this.attemptDelayMillis = attemptDelayMillis;
+		this.connectPromise = connectPromise;
+	}
+
+	void connect() {
+		startNextAttempt();
+	}
+
+	private void startNextAttempt() {
+		cancelScheduledAttempt();
+
+		if (connectPromise.isDone() || attempts.size() >= addresses.size()) {
+			return;
+		}
+
+		InetSocketAddress address = addresses.get(attempts.size());
+		logger.trace("Starting connection attempt {} of {} to {}", attempts.size() + 1, addresses.size(), address);
+
+		ChannelFuture attempt = bootstrap.connect(address);
+		attempts.add(attempt);
+		attempt.addListener((ChannelFutureListener) this::attemptCompleted);
+
+		if (attempts.size() < addresses.size() && !connectPromise.isDone()) {
+			scheduledAttempt = eventLoop.schedule(this::startNextAttempt, attemptDelayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void attemptCompleted(ChannelFuture attempt) {
+		if (attempt.isSuccess()) {
+			if (connectPromise.trySuccess(attempt.channel())) {
+				logger.trace("Connected to {}, closing the other connection attempts", attempt.channel().remoteAddress());
+				cancelScheduledAttempt();
+				closeOtherAttempts(attempt);
+			} else {
+				attempt.channel().close();
+			}
+			return;
+		}
+
+		failedAttempts++;
+		if (failure == null) {
+			failure = attempt.cause();
+		} else if (attempt.cause() != null && failure != attempt.cause()) {
+			attempt.cause().addSuppressed(failure);
+			failure = attempt.cause();
+		}
+
+		if (connectPromise.isDone()) {
+			return;
+		}
+
+		if (failedAttempts >= addresses.size()) {
+			connectPromise.tryFailure(failure);
+		} else {
+			startNextAttempt();
+		}
+	}
+
+	private void closeOtherAttempts(ChannelFuture winner) {
+		for (ChannelFuture attempt : attempts) {
+			if (attempt != winner) {
+				attempt.channel().close();
+			}
+		}
+	}
+
+	private void cancelScheduledAttempt() {
+		if (scheduledAttempt != null) {
+			scheduledAttempt.cancel(false);
+			scheduledAttempt = null;
+		}
+	}
+
+	/**
+	 * Order the addresses so that the address families alternate, starting with the family of the first address.
+	 * The order within each family is kept.
+	 */
+	static List<InetSocketAddress> interleaveAddressFamilies(List<InetSocketAddress> addresses) {
+		if (addresses.size() < 2) {
+			return addresses;
+		}
+
+		boolean firstIsIpv6 = addresses.get(0).getAddress() instanceof Inet6Address;
+		List<InetSocketAddress> preferred = new ArrayList<>();
+		List<InetSocketAddress> other = new ArrayList<>();
+		for (InetSocketAddress address : addresses) {
+			if ((address.getAddress() instanceof Inet6Address) == firstIsIpv6) {
+				preferred.add(address);
+			} else {
+				other.add(address);
+			}
+		}
+
+		List<InetSocketAddress> interleaved = new ArrayList<>(addresses.size());
+		for (int i = 0; i < Math.max(preferred.size(), other.size()); i++) {
+			if (i < preferred.size()) {
+				interleaved.add(preferred.get(i));
+			}
+			if (i < other.size()) {
+				interleaved.add(other.get(i));
+			}
+		}
+		return interleaved;
+	}
+}
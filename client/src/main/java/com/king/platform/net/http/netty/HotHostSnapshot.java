@@ -0,0 +1,175 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.util.NetUtil;
+import org.slf4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * The hosts a client sent the most requests to, persisted so that a restarted client can resolve and connect to them ahead of the first
+ * requests. The file has one host per line, hottest first, with the server uri, the number of requests, the peak number of concurrent
+ * requests and the addresses the client connected to, for example {@code https://api.example.com:443 1200 8 10.0.0.1,10.0.0.2}.
+ */
+class HotHostSnapshot {
+	private static final String HEADER = "# king-http-client hot hosts v1";
+	private static final String NO_ADDRESSES = "-";
+
+	private static final Logger logger = getLogger(HotHostSnapshot.class);
+
+	private final List<HotHost> hosts;
+
+	HotHostSnapshot(List<HotHost> hosts) {
+		this.hosts = hosts;
+	}
+
+	List<HotHost> getHosts() {
+		return hosts;
+	}
+
+	/**
+	 * Read a snapshot, skipping the lines that can not be parsed.
+	 * @param file the snapshot file
+	 * @return the snapshot, empty if the file does not exist
+	 */
+	static HotHostSnapshot read(Path file) throws IOException {
+		if (!Files.exists(file)) {
+			return new HotHostSnapshot(Collections.emptyList());
+		}
+
+		List<HotHost> hosts = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				try {
+					hosts.add(parse(line));
+				} catch (IllegalArgumentException | URISyntaxException | UnknownHostException e) {
+					logger.warn("Ignoring invalid hot host line '{}' in {}", line, file, e);
+				}
+			}
+		}
+		return new HotHostSnapshot(hosts);
+	}
+
+	/**
+	 * Write the snapshot to a temporary file next to the target and move it in place, so a reader never sees a partial snapshot.
+	 * @param file the snapshot file
+	 */
+	void write(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+				writer.write(HEADER);
+				writer.newLine();
+				for (HotHost host : hosts) {
+					writer.write(format(host));
+					writer.newLine();
+				}
+			}
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private static String format(HotHost host) {
+		StringBuilder line = new StringBuilder();
+		line.append(host.serverInfo.getScheme()).append("://").append(host.serverInfo.getHost()).append(':').append(host.serverInfo.getPort())
+			.append(' ').append(host.requests)
+			.append(' ').append(host.connections)
+			.append(' ');
+
+		if (host.addresses.isEmpty()) {
+			line.append(NO_ADDRESSES);
+		} else {
+			for (int i = 0; i < host.addresses.size(); i++) {
+				if (i > 0) {
+					line.append(',');
+				}
+				line.append(NetUtil.toAddressString(host.addresses.get(i)));
+			}
+		}
+		return line.toString();
+	}
+
+	private static HotHost parse(String line) throws URISyntaxException, UnknownHostException {
+		String[] parts = line.split(" ");
+		if (parts.length != 4) {
+			throw new IllegalArgumentException("Expected 4 fields but got " + parts.length);
+		}
+
+		ServerInfo serverInfo = ServerInfo.buildFromUri(parts[0]);
+		long requests = Long.parseLong(parts[1]);
+		int connections = Integer.parseInt(parts[2]);
+
+		List<InetAddress> addresses = new ArrayList<>();
+		if (!NO_ADDRESSES.equals(parts[3])) {
+			for (String address : parts[3].split(",")) {
+				byte[] addressBytes = NetUtil.createByteArrayFromIpAddressString(address);
+				if (addressBytes == null) {
+					throw new IllegalArgumentException("Invalid address " + address);
+				}
+				addresses.add(InetAddress.getByAddress(addressBytes));
+			}
+		}
+
+		return new HotHost(serverInfo, requests, connections, addresses);
+	}
+
+	static class HotHost {
+		private final ServerInfo serverInfo;
+		private final long requests;
+		private final int connections;
+		private final List<InetAddress> addresses;
+
+		HotHost(ServerInfo serverInfo, long requests, int connections, List<InetAddress> addresses) {
+			this.serverInfo = serverInfo;
+			this.requests = requests;
+			this.connections = connections;
+			this.addresses = addresses;
+		}
+
+		ServerInfo getServerInfo() {
+			return serverInfo;
+		}
+
+		long getRequests() {
+			return requests;
+		}
+
+		int getConnections() {
+			return connections;
+		}
+
+		List<InetAddress> getAddresses() {
+			return addresses;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.HotHostSnapshot.HotHost;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RootEventBus;
+import com.king.platform.net.http.netty.pool.ChannelPool;
+import io.netty.util.Timer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Counts the requests per host and keeps a {@link HotHostSnapshot} of the hottest hosts on disk. When the client starts the hosts of the
+ * previous snapshot are connected to, or only resolved when the connection budget is used up, so the first requests after a restart do not
+ * all pay for dns lookups and handshakes. The request counts are halved each snapshot, so hosts the client stopped talking to fall out.
+ */
+class HotHostTracker {
+	private static final Logger logger = getLogger(HotHostTracker.class);
+
+	private static final int MAX_ADDRESSES_PER_HOST = 8;
+
+	private final Map<ServerInfo, HostActivity> activities = new ConcurrentHashMap<>();
+
+	private final Path file;
+	private final int intervalMillis;
+	private final int maxHosts;
+	private final int maxConnections;
+	private final boolean spreadOverResolvedAddresses;
+
+	private final Timer timer;
+	private final ChannelPool channelPool;
+	private final ResolvedAddressBalancer.HostResolver hostResolver;
+
+	private volatile boolean running;
+
+	HotHostTracker(ConfMap confMap, RootEventBus rootEventBus, Timer timer, ChannelPool channelPool, ResolvedAddressBalancer.HostResolver
+		hostResolver) {
+		this.file = Paths.get(confMap.get(ConfKeys.HOT_HOST_SNAPSHOT_FILE));
+		this.intervalMillis = confMap.get(ConfKeys.HOT_HOST_SNAPSHOT_INTERVAL_MILLIS);
+		this.maxHosts = confMap.get(ConfKeys.HOT_HOST_SNAPSHOT_MAX_HOSTS);
+		this.maxConnections = confMap.get(ConfKeys.HOT_HOST_SNAPSHOT_MAX_CONNECTIONS);
+		this.spreadOverResolvedAddresses = confMap.get(ConfKeys.POOL_SPREAD_OVER_RESOLVED_ADDRESSES);
+		this.timer = timer;
+		this.channelPool = channelPool;
+		this.hostResolver = hostResolver;
+
+		rootEventBus.subscribePermanently(Event.CREATED_CONNECTION, this::requestStarted);
+		rootEventBus.subscribePermanently(Event.REUSED_CONNECTION, this::requestStarted);
+		rootEventBus.subscribePermanently(Event.COMPLETED, httpRequestContext -> requestDone(httpRequestContext.getServerInfo()));
+		rootEventBus.subscribePermanently(Event.ERROR, (httpRequestContext, throwable) -> requestDone(httpRequestContext.getServerInfo()));
+		rootEventBus.subscribePermanently(Event.CONNECTED_ADDRESS, (serverInfo, address) -> {
+			HostActivity activity = activityOf(serverInfo);
+			if (activity != null) {
+				activity.connectedTo(address.getAddress());
+			}
+		});
+	}
+
+	/**
+	 * Restore the previous snapshot and start writing new ones.
+	 */
+	void start() {
+		running = true;
+		restore();
+		scheduleSnapshot();
+	}
+
+	/**
+	 * Stop the periodic snapshots and write a last one.
+	 */
+	void shutdown() {
+		running = false;
+		writeSnapshot();
+	}
+
+	void restore() {
+		HotHostSnapshot snapshot;
+		try {
+			snapshot = HotHostSnapshot.read(file);
+		} catch (IOException e) {
+			logger.warn("Failed to read the hot host snapshot {}", file, e);
+			return;
+		}
+
+		int remainingConnections = maxConnections;
+		int restoredHosts = 0;
+
+		for (HotHost host : snapshot.getHosts()) {
+			ServerInfo serverInfo = host.getServerInfo();
+			if (!isTracked(serverInfo) || restoredHosts == maxHosts) {
+				continue;
+			}
+
+			activities.put(serverInfo, new HostActivity(serverInfo, host));
+			restoredHosts++;
+
+			int connections = spreadOverResolvedAddresses ? 0 : Math.min(host.getConnections(), remainingConnections);
+			if (connections > 0) {
+				remainingConnections -= connections;
+				channelPool.preConnect(serverInfo, connections).whenComplete((result, throwable) -> {
+					if (throwable != null) {
+						logger.debug("Failed to pre connect to hot host {}", serverInfo, throwable);
+					}
+				});
+			} else {
+				hostResolver.resolve(serverInfo.getHost()).whenComplete((addresses, throwable) -> {
+					if (throwable != null) {
+						logger.debug("Failed to resolve hot host {}", serverInfo, throwable);
+					}
+				});
+			}
+		}
+	}
+
+	void writeSnapshot() {
+		try {
+			snapshot().write(file);
+		} catch (IOException e) {
+			logger.warn("Failed to write the hot host snapshot {}", file, e);
+		}
+	}
+
+	/**
+	 * Roll the counters of all hosts into a new snapshot, dropping the hosts that have cooled down.
+	 */
+	HotHostSnapshot snapshot() {
+		List<HotHost> hosts = new ArrayList<>();
+		for (HostActivity activity : activities.values()) {
+			HotHost host = activity.roll();
+			if (host == null) {
+				activities.remove(activity.serverInfo, activity);
+			} else {
+				hosts.add(host);
+			}
+		}
+
+		hosts.sort(Comparator.comparingLong(HotHost::getRequests).reversed());
+		if (hosts.size() > maxHosts) {
+			for (HotHost host : hosts.subList(maxHosts, hosts.size())) {
+				activities.remove(host.getServerInfo());
+			}
+			hosts = new ArrayList<>(hosts.subList(0, maxHosts));
+		}
+
+		return new HotHostSnapshot(hosts);
+	}
+
+	private void scheduleSnapshot() {
+		timer.newTimeout(timeout -> {
+			if (!running) {
+				return;
+			}
+			writeSnapshot();
+			scheduleSnapshot();
+		}, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Every request that gets a channel either created or reused one, which also covers the requests of redirects.
+	 */
+	private void requestStarted(ServerInfo serverInfo) {
+		HostActivity activity = activityOf(serverInfo);
+		if (activity != null) {
+			activity.requestStarted();
+		}
+	}
+
+	private void requestDone(ServerInfo serverInfo) {
+		HostActivity activity = activities.get(serverInfo);
+		if (activity != null) {
+			activity.requestDone();
+		}
+	}
+
+	private HostActivity activityOf(ServerInfo serverInfo) {
+		if (!isTracked(serverInfo)) {
+			return null;
+		}
+		return activities.computeIfAbsent(serverInfo, HostActivity::new);
+	}
+
+	/**
+	 * Web socket connections are not pooled and domain socket servers have no host name, so neither gain anything from a snapshot.
+	 */
+	private static boolean isTracked(ServerInfo serverInfo) {
+		return !serverInfo.isWebSocket() && !serverInfo.isDomainSocket() && serverInfo.getAddress() == null;
+	}
+
+	private static class HostActivity {
+		private final ServerInfo serverInfo;
+
+		private long score;
+		private long requests;
+		private int inFlight;
+		private int peakInFlight;
+		private int connections;
+		private final Set<InetAddress> addresses = new LinkedHashSet<>();
+		private List<InetAddress> previousAddresses = Collections.emptyList();
+
+		HostActivity(ServerInfo serverInfo) {
+			this.serverInfo = serverInfo;
+		}
+
+		HostActivity(ServerInfo serverInfo, HotHost host) {
+			this.serverInfo = serverInfo;
+			this.score = host.getRequests();
+			this.connections = host.getConnections();
+			this.previousAddresses = host.getAddresses();
+		}
+
+		synchronized void requestStarted() {
+			requests++;
+			inFlight++;
+			peakInFlight = Math.max(peakInFlight, inFlight);
+		}
+
+		synchronized void requestDone() {
+			if (inFlight > 0) {
+				inFlight--;
+			}
+		}
+
+		synchronized void connectedTo(InetAddress address) {
+			if (addresses.size() < MAX_ADDRESSES_PER_HOST) {
+				addresses.add(address);
+			}
+		}
+
+		/**
+		 * @return the host of the snapshot, or null if it is no longer hot
+		 */
+		synchronized HotHost roll() {
+			score = score / 2 + requests;
+			if (requests > 0) {
+				connections = peakInFlight;
+			}
+			if (!addresses.isEmpty()) {
+				previousAddresses = new ArrayList<>(addresses);
+				addresses.clear();
+			}
+
+			requests = 0;
+			peakInFlight = inFlight;
+
+			if (score < 1) {
+				return null;
+			}
+			return new HotHost(serverInfo, score, connections, previousAddresses);
+		}
+	}
+}
@@ -8,6 +8,7 @@ package com.king.platform.net.http.netty;
 import com.king.platform.net.http.ResponseBodyConsumer;
 import com.king.platform.net.http.netty.eventbus.RequestEventBus;
 import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import com.king.platform.net.http.netty.pipelining.PipelinedChannel;
 import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
 import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
 import io.netty.channel.Channel;
@@ -36,6 +37,9 @@ public class HttpRequestContext<T> {
 	private long expectedContentLength;
 	private long readBytes;
 	private boolean isRedirecting;
+	private ServerInfo addressServerInfo;
+	private boolean discardConnection;
+	private PipelinedChannel pipelinedChannel;
 
 
 	public HttpRequestContext(HttpMethod httpMethod, NettyHttpClientRequest<T> nettyHttpClientRequest, RequestEventBus requestEventBus, ResponseBodyConsumer<T> responseBodyConsumer, int idleTimeoutMillis, int totalRequestTimeoutMillis, boolean followRedirects, boolean keepAlive, TimeStampRecorder timeStampRecorder) {
@@ -65,6 +69,26 @@ public class HttpRequestContext<T> {
 		return nettyHttpClientRequest.getServerInfo();
 	}
 
+	/**
+	 * @return the server bound to the resolved address the request is sent to, or the server of the request if it is not bound to an address
+	 */
+	public ServerInfo getConnectionServerInfo() {
+		if (addressServerInfo != null) {
+			return addressServerInfo;
+		}
+		return getServerInfo();
+	}
+
+	public void setAddressServerInfo(ServerInfo addressServerInfo) {
+		this.addressServerInfo = addressServerInfo;
+	}
+
+	public ServerInfo getAndClearAddressServerInfo() {
+		ServerInfo serverInfo = addressServerInfo;
+		addressServerInfo = null;
+		return serverInfo;
+	}
+
 
 	public NettyHttpClientRequest<T> getNettyHttpClientRequest() {
 		return nettyHttpClientRequest;
@@ -137,7 +161,7 @@ public class HttpRequestContext<T> {
 		return expectedContentLength;
 	}
 
-	public void addReadBytes(int readBytes) {
+	public void addReadBytes(long readBytes) {
 		this.readBytes += readBytes;
 	}
 
@@ -145,6 +169,28 @@ public class HttpRequestContext<T> {
 		return readBytes;
 	}
 
+	/**
+	 * Close the connection when the request completes instead of returning it to the pool, because its state can not be reused.
+	 */
+	public void discardConnectionOnCompletion() {
+		this.discardConnection = true;
+	}
+
+	public boolean shouldDiscardConnection() {
+		return discardConnection;
+	}
+
+	/**
+	 * @return the pipelined channel the request is queued on, or null if the request has a channel of its own
+	 */
+	public PipelinedChannel getPipelinedChannel() {
+		return pipelinedChannel;
+	}
+
+	public void setPipelinedChannel(PipelinedChannel pipelinedChannel) {
+		this.pipelinedChannel = pipelinedChannel;
+	}
+
 	public boolean isRedirecting() {
 		return isRedirecting;
 	}
@@ -8,6 +8,7 @@ package com.king.platform.net.http.netty;
 
 import com.king.platform.net.http.*;
 import com.king.platform.net.http.netty.backpressure.BackPressure;
+import com.king.platform.net.http.netty.dns.CachingDnsAddressResolverGroup;
 import com.king.platform.net.http.netty.eventbus.Event;
 import com.king.platform.net.http.netty.eventbus.EventBusCallback1;
 import com.king.platform.net.http.netty.eventbus.EventBusCallback2;
@@ -20,20 +21,24 @@ import com.king.platform.net.http.netty.requestbuilder.HttpClientSseRequestBuild
 import com.king.platform.net.http.netty.requestbuilder.HttpClientWebSocketRequestBuilderImpl;
 import com.king.platform.net.http.netty.response.HttpClientResponseHandler;
 import com.king.platform.net.http.netty.response.HttpRedirector;
+import com.king.platform.net.http.netty.transport.TransportProvider;
+import com.king.platform.net.http.netty.transport.TransportProviders;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import com.king.platform.net.http.netty.websocket.WebSocketHandler;
 import com.king.platform.net.http.netty.websocket.WebSocketResponseHandler;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.epoll.Epoll;
-import io.netty.channel.epoll.EpollEventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.DefaultAddressResolverGroup;
 import io.netty.util.Timer;
 import org.slf4j.Logger;
 
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -56,14 +61,24 @@ public class NettyHttpClient implements HttpClient {
 	private final RootEventBus rootEventBus;
 	private final ChannelPool channelPool;
 
+	private final AddressResolverGroup<InetSocketAddress> addressResolverGroup;
+	private final SharedEventLoopGroup sharedEventLoopGroup;
+	private final ByteBufAllocator allocator;
+	private final TransportProvider transportProvider;
+
 	private EventLoopGroup group;
+	private AddressResolverGroup<InetSocketAddress> ownedAddressResolverGroup;
+	private HotHostTracker hotHostTracker;
 	private BackPressure executionBackPressure;
 
 	private List<ShutdownJob> shutdownJobs = new ArrayList<>();
 	private HttpClientCallerImpl httpClientCaller;
+	private ChannelManager channelManager;
 
 	public NettyHttpClient(int nioThreads, ThreadFactory nioThreadFactory, Executor defaultHttpClientCallbackExecutor, Timer
-		cleanupTimer, TimeProvider timeProvider, final BackPressure executionBackPressure, RootEventBus rootEventBus, ChannelPool channelPool) {
+		cleanupTimer, TimeProvider timeProvider, final BackPressure executionBackPressure, RootEventBus rootEventBus, ChannelPool channelPool,
+						   AddressResolverGroup<InetSocketAddress> addressResolverGroup, SharedEventLoopGroup sharedEventLoopGroup, ByteBufAllocator allocator,
+						   TransportProvider transportProvider) {
 		this.defaultHttpClientCallbackExecutor = defaultHttpClientCallbackExecutor;
 
 		this.cleanupTimer = cleanupTimer;
@@ -73,6 +88,10 @@ public class NettyHttpClient implements HttpClient {
 		this.executionBackPressure = executionBackPressure;
 		this.rootEventBus = rootEventBus;
 		this.channelPool = channelPool;
+		this.addressResolverGroup = addressResolverGroup;
+		this.sharedEventLoopGroup = sharedEventLoopGroup;
+		this.allocator = allocator;
+		this.transportProvider = transportProvider;
 
 
 		rootEventBus.subscribePermanently(Event.COMPLETED, new EventBusCallback1<HttpRequestContext>() {
@@ -96,19 +115,51 @@ public class NettyHttpClient implements HttpClient {
 			throw new IllegalStateException("Http client has already been started!");
 		}
 
-		if (Epoll.isAvailable() && confMap.get(ConfKeys.USE_EPOLL)) {
-			group = new EpollEventLoopGroup(nioThreads, nioThreadFactory);
+		TransportProvider transport;
+		if (sharedEventLoopGroup != null) {
+			sharedEventLoopGroup.retain();
+			group = sharedEventLoopGroup.getEventLoopGroup();
+			if (transportProvider != null && transportProvider.isCompatible(group)) {
+				transport = transportProvider;
+			} else {
+				transport = sharedEventLoopGroup.getTransportProvider();
+			}
 		} else {
-			group = new NioEventLoopGroup(nioThreads, nioThreadFactory);
+			try {
+				transport = selectTransportProvider();
+			} catch (RuntimeException e) {
+				started.set(false);
+				throw e;
+			}
+			group = transport.newEventLoopGroup(nioThreads, nioThreadFactory);
+		}
+
+		logger.debug("Starting http client on the {} transport", transport.getName());
+
+		AddressResolverGroup<InetSocketAddress> resolverGroup = addressResolverGroup;
+		if (resolverGroup == null) {
+			if (confMap.get(ConfKeys.DNS_ASYNC_RESOLVER)) {
+				ownedAddressResolverGroup = new CachingDnsAddressResolverGroup(confMap, transport.getDatagramChannelClass(), timeProvider);
+				resolverGroup = ownedAddressResolverGroup;
+			} else {
+				resolverGroup = DefaultAddressResolverGroup.INSTANCE;
+			}
 		}
 
-		HttpClientResponseHandler responseHandler = new HttpClientResponseHandler(new HttpRedirector());
+		HttpClientResponseHandler responseHandler = new HttpClientResponseHandler(new HttpRedirector(), confMap.get(ConfKeys.SPLICE_FILE_RESPONSES)
+			&& transport.supportsSplice());
 		HttpClientRequestHandler requestHandler = new HttpClientRequestHandler();
 		HttpClientHandler clientHandler = new HttpClientHandler(responseHandler, requestHandler);
 		WebSocketResponseHandler webSocketResponseHandler = new WebSocketResponseHandler();
 		WebSocketHandler webSocketHandler = new WebSocketHandler(webSocketResponseHandler,  requestHandler);
 
-		ChannelManager channelManager = new ChannelManager(group, clientHandler, webSocketHandler, cleanupTimer, timeProvider, channelPool, confMap, rootEventBus);
+		channelManager = new ChannelManager(group, transport, allocator, resolverGroup, clientHandler, webSocketHandler, cleanupTimer,
+			timeProvider, channelPool, confMap, rootEventBus);
+
+		if (confMap.get(ConfKeys.HOT_HOST_SNAPSHOT_FILE) != null) {
+			hotHostTracker = new HotHostTracker(confMap, rootEventBus, cleanupTimer, channelPool, channelManager::resolveAll);
+			hotHostTracker.start();
+		}
 
 		boolean executeOnCallingThread = confMap.get(ConfKeys.EXECUTE_ON_CALLING_THREAD);
 
@@ -121,9 +172,23 @@ public class NettyHttpClient implements HttpClient {
 			throw new IllegalStateException("Http client is not running!");
 		}
 
+		if (hotHostTracker != null) {
+			hotHostTracker.shutdown();
+			hotHostTracker = null;
+		}
+
 		channelPool.shutdown();
+		channelManager.shutdown();
+		channelManager = null;
+
+		if (ownedAddressResolverGroup != null) {
+			ownedAddressResolverGroup.close();
+			ownedAddressResolverGroup = null;
+		}
 
-		if (group != null) {
+		if (sharedEventLoopGroup != null) {
+			sharedEventLoopGroup.release();
+		} else if (group != null) {
 			group.shutdownGracefully(0, 10, TimeUnit.SECONDS);
 		}
 
@@ -208,6 +273,45 @@ public class NettyHttpClient implements HttpClient {
 		return new HttpClientWebSocketRequestBuilderImpl(httpClientCaller, uri, confMap, defaultHttpClientCallbackExecutor);
 	}
 
+	@Override
+	public CompletableFuture<Void> warmUp(String uri, int connections) {
+		verifyStarted();
+
+		try {
+			ServerInfo serverInfo = ServerInfo.buildFromUri(uri);
+			if (serverInfo.isWebSocket()) {
+				throw new IllegalArgumentException("Web socket connections are not pooled");
+			}
+			return channelPool.warmUp(serverInfo, connections);
+		} catch (Exception e) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
+	}
+
+	/**
+	 * The transport given to the builder, else the one named by {@link ConfKeys#TRANSPORT}, else epoll or nio from {@link ConfKeys#USE_EPOLL}.
+	 */
+	private TransportProvider selectTransportProvider() {
+		TransportProvider transport = transportProvider;
+		if (transport == null) {
+			String transportName = confMap.get(ConfKeys.TRANSPORT);
+			if (transportName == null) {
+				if (confMap.get(ConfKeys.USE_EPOLL) && TransportProviders.EPOLL.isAvailable()) {
+					return TransportProviders.EPOLL;
+				}
+				return TransportProviders.NIO;
+			}
+			transport = TransportProviders.byName(transportName);
+		}
+
+		if (!transport.isAvailable()) {
+			throw new IllegalStateException("The " + transport.getName() + " transport is not available", transport.unavailabilityCause());
+		}
+		return transport;
+	}
+
 	private void verifyStarted() {
 		if (!started.get()) {
 			throw new IllegalStateException("Http client is not running!");
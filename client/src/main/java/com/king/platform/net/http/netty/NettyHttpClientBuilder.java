@@ -11,16 +11,23 @@ import com.king.platform.net.http.netty.backpressure.BackPressure;
 import com.king.platform.net.http.netty.backpressure.NoBackPressure;
 import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
 import com.king.platform.net.http.netty.eventbus.RootEventBus;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.metric.MetricCollector;
 import com.king.platform.net.http.netty.metric.RecordedTimeStamps;
 import com.king.platform.net.http.netty.pool.ChannelPool;
+import com.king.platform.net.http.netty.pool.PoolSelectionStrategy;
 import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.transport.TransportProvider;
 import com.king.platform.net.http.netty.util.SystemTimeProvider;
 import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.HashedWheelTimer;
 import io.netty.util.Timer;
 
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -52,6 +59,10 @@ public class NettyHttpClientBuilder {
 	private RootEventBus rootEventBus;
 	private BackPressure executionBackPressure;
 	private ChannelPool channelPool;
+	private AddressResolverGroup<InetSocketAddress> addressResolverGroup;
+	private SharedEventLoopGroup sharedEventLoopGroup;
+	private ByteBufAllocator allocator;
+	private TransportProvider transportProvider;
 
 	private MetricCallback metricCallback;
 	private int keepAliveTimeoutMS = 30_000;
@@ -171,6 +182,62 @@ public class NettyHttpClientBuilder {
 		return this;
 	}
 
+	/**
+	 * Set the resolver of host names, for example to use a custom dns client or a fixed set of addresses in tests.
+	 * Defaults to the resolver of the JVM, or to the non blocking dns resolver of the client if {@link ConfKeys#DNS_ASYNC_RESOLVER} is set.
+	 * The client does not close a given resolver group on shutdown.
+	 * @param addressResolverGroup the address resolver group to use
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setAddressResolverGroup(AddressResolverGroup<InetSocketAddress> addressResolverGroup) {
+		this.addressResolverGroup = addressResolverGroup;
+		return this;
+	}
+
+	/**
+	 * Run the client on an existing event loop group, for example one shared with a server in the same process.
+	 * The client does not shut down a given event loop group on shutdown, and the nio thread settings of the builder are ignored.
+	 * The channel classes of the client follow the type of the group, so an {@link io.netty.channel.epoll.EpollEventLoopGroup} gives epoll channels.
+	 * @param eventLoopGroup the event loop group to use
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+		this.sharedEventLoopGroup = new SharedEventLoopGroup(eventLoopGroup, false);
+		return this;
+	}
+
+	/**
+	 * Run the client on an event loop group shared with other clients.
+	 * The client holds a reference to the group while it is started, and the group is shut down when the last reference is released.
+	 * @param sharedEventLoopGroup the shared event loop group to use
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setSharedEventLoopGroup(SharedEventLoopGroup sharedEventLoopGroup) {
+		this.sharedEventLoopGroup = sharedEventLoopGroup;
+		return this;
+	}
+
+	/**
+	 * Set the allocator of the buffers of the client channels. Defaults to the default allocator of netty.
+	 * @param allocator the allocator to use
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setByteBufAllocator(ByteBufAllocator allocator) {
+		this.allocator = allocator;
+		return this;
+	}
+
+	/**
+	 * Set the transport the client runs on, for example a custom {@link TransportProvider}. Defaults to the transport named by
+	 * {@link ConfKeys#TRANSPORT}. Ignored when the client is given an event loop group the transport is not compatible with.
+	 * @param transportProvider the transport to use
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setTransportProvider(TransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+		return this;
+	}
+
 	/**
 	 * Set the timeout time in ms for keep alive connections. Defaults to 30000 ms
 	 * @param ms the time after which the connection will be closed (in ms)
@@ -184,6 +251,78 @@ public class NettyHttpClientBuilder {
 		return this;
 	}
 
+	/**
+	 * Set how idle pooled connections are picked for the servers on a host, overriding {@link ConfKeys#POOL_SELECTION_STRATEGY}.
+	 * @param host the host name, as given in the request uri
+	 * @param selectionStrategy the strategy to use for the host
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setPoolSelectionStrategy(String host, PoolSelectionStrategy selectionStrategy) {
+		Map<String, PoolSelectionStrategy> strategies = new HashMap<>();
+		Object currentStrategies = optionsMap.get(ConfKeys.POOL_SELECTION_STRATEGY_PER_HOST);
+		if (currentStrategies != null) {
+			strategies.putAll((Map<String, PoolSelectionStrategy>) currentStrategies);
+		}
+		strategies.put(host, selectionStrategy);
+		optionsMap.put(ConfKeys.POOL_SELECTION_STRATEGY_PER_HOST, strategies);
+		return this;
+	}
+
+	/**
+	 * Set the Linux specific socket options of the connections to a host, applied on top of {@link ConfKeys#EPOLL_HTTP_OPTIONS} and
+	 * {@link ConfKeys#EPOLL_WEB_SOCKET_OPTIONS}. Only used when the client runs the epoll transport.
+	 * @param host the host name, as given in the request uri
+	 * @param epollOptions the options to use for the host
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setEpollOptions(String host, EpollOptions epollOptions) {
+		Map<String, EpollOptions> hostOptions = new HashMap<>();
+		Object currentHostOptions = optionsMap.get(ConfKeys.EPOLL_OPTIONS_PER_HOST);
+		if (currentHostOptions != null) {
+			hostOptions.putAll((Map<String, EpollOptions>) currentHostOptions);
+		}
+		hostOptions.put(host, epollOptions);
+		optionsMap.put(ConfKeys.EPOLL_OPTIONS_PER_HOST, hostOptions);
+		return this;
+	}
+
+
+	/**
+	 * Speak HTTP/2 without tls with the http servers of a host, see {@link ConfKeys#HTTP2_CLEARTEXT_PER_HOST}.
+	 * @param host the host name, as given in the request uri
+	 * @param mode how HTTP/2 is started on the connections to the host
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setHttp2Cleartext(String host, Http2CleartextMode mode) {
+		Map<String, Http2CleartextMode> hostModes = new HashMap<>();
+		Object currentHostModes = optionsMap.get(ConfKeys.HTTP2_CLEARTEXT_PER_HOST);
+		if (currentHostModes != null) {
+			hostModes.putAll((Map<String, Http2CleartextMode>) currentHostModes);
+		}
+		hostModes.put(host, mode);
+		optionsMap.put(ConfKeys.HTTP2_CLEARTEXT_PER_HOST, hostModes);
+		return this;
+	}
+
+	/**
+	 * Pipeline the idempotent requests to the servers of a host, see {@link ConfKeys#HTTP_PIPELINING_DEPTH_PER_HOST}.
+	 * @param host the host name, as given in the request uri
+	 * @param depth the max number of requests in flight on each connection to the host
+	 * @return the builder
+	 */
+	public NettyHttpClientBuilder setHttpPipelining(String host, int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("The pipelining depth must be at least 1");
+		}
+		Map<String, Integer> hostDepths = new HashMap<>();
+		Object currentHostDepths = optionsMap.get(ConfKeys.HTTP_PIPELINING_DEPTH_PER_HOST);
+		if (currentHostDepths != null) {
+			hostDepths.putAll((Map<String, Integer>) currentHostDepths);
+		}
+		hostDepths.put(host, depth);
+		optionsMap.put(ConfKeys.HTTP_PIPELINING_DEPTH_PER_HOST, hostDepths);
+		return this;
+	}
 
 	/**
 	 * Configure global settings for the http client. Most of the settings can be overridden on each request. <br>
@@ -252,7 +391,11 @@ public class NettyHttpClientBuilder {
 		}
 
 		if (channelPool == null) {
-			channelPool = new PoolingChannelPool(cleanupTimer, timeProvider, keepAliveTimeoutMS, metricCallback);
+			ConfMap poolConfMap = new ConfMap();
+			for (Map.Entry<ConfKeys, Object> entry : optionsMap.entrySet()) {
+				poolConfMap.set(entry.getKey(), entry.getValue());
+			}
+			channelPool = new PoolingChannelPool(cleanupTimer, timeProvider, keepAliveTimeoutMS, poolConfMap, metricCallback);
 		}
 
 		if (executionBackPressure == null) {
@@ -260,7 +403,7 @@ public class NettyHttpClientBuilder {
 		}
 
 		NettyHttpClient nettyHttpClient = new NettyHttpClient(nioThreads, nioThreadFactory, httpCallbackExecutor, cleanupTimer, timeProvider, executionBackPressure,
-			rootEventBus, channelPool);
+			rootEventBus, channelPool, addressResolverGroup, sharedEventLoopGroup, allocator, transportProvider);
 
 		for (NettyHttpClient.ShutdownJob shutdownJob : shutdownJobs) {
 			nettyHttpClient.addShutdownJob(shutdownJob);
@@ -303,6 +446,16 @@ public class NettyHttpClientBuilder {
 
 		}
 
+		@Override
+		public void onFullSslHandshake(String host, long handshakeMillis) {
+
+		}
+
+		@Override
+		public void onResumedSslHandshake(String host, long handshakeMillis) {
+
+		}
+
 		@Override
 		public void onError(String host, RecordedTimeStamps recordedTimeStamps) {
 
@@ -332,5 +485,20 @@ public class NettyHttpClientBuilder {
 		public void onServerPoolAddedConnection(String host, int poolSize) {
 
 		}
+
+		@Override
+		public void onServerPoolStaleConnection(String host) {
+
+		}
+
+		@Override
+		public void onServerPoolQueuedRequest(String host, int queueSize) {
+
+		}
+
+		@Override
+		public void onServerPoolDequeuedRequest(String host, long waitTimeMillis, int queueSize) {
+
+		}
 	};
 }
@@ -0,0 +1,275 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.pool.PendingAcquireTimeoutException;
+import com.king.platform.net.http.netty.pool.ServerPoolListener;
+import com.king.platform.net.http.netty.util.TimeProvider;
+import org.slf4j.Logger;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Spreads the requests to a host over all the addresses its name resolves to.
+ * Each address is its own {@link ServerInfo}, so the channel pool keeps a separate pool of connections per address.
+ * Requests go to the address with the fewest outstanding requests, and an address that fails to connect or times out
+ * too many times in a row is ejected for a while. A host is forgotten once the channel pool has removed the pools of all its addresses.
+ */
+public class ResolvedAddressBalancer implements ServerPoolListener {
+	private final Logger logger = getLogger(getClass());
+
+	private final ConcurrentHashMap<ServerInfo, HostAddresses> hosts = new ConcurrentHashMap<>();
+	private final TimeProvider timeProvider;
+	private final HostResolver hostResolver;
+	private final long refreshMillis;
+	private final int ejectionFailures;
+	private final long ejectionMillis;
+
+	ResolvedAddressBalancer(ConfMap confMap, TimeProvider timeProvider, HostResolver hostResolver) {
+		this.timeProvider = timeProvider;
+		this.hostResolver = hostResolver;
+		refreshMillis = confMap.get(ConfKeys.POOL_ADDRESS_REFRESH_MILLIS);
+		ejectionFailures = confMap.get(ConfKeys.POOL_ADDRESS_EJECTION_FAILURES);
+		ejectionMillis = confMap.get(ConfKeys.POOL_ADDRESS_EJECTION_MILLIS);
+	}
+
+	/**
+	 * Pick the address the next request to the server is sent to, and count the request as outstanding on it.
+	 * The first request to a host waits for the name to be resolved. Once the addresses are older than the refresh interval
+	 * they are resolved again in the background, and requests keep using the old addresses until the new ones are known.
+	 * @param serverInfo the server of the request
+	 * @return future completed with the server bound to the picked address, or failed if the host name could not be resolved
+	 */
+	public CompletableFuture<ServerInfo> acquire(ServerInfo serverInfo) {
+		HostAddresses hostAddresses = hosts.computeIfAbsent(serverInfo, HostAddresses::new);
+		return hostAddresses.acquire();
+	}
+
+	/**
+	 * Release an outstanding request on an address.
+	 * @param addressServerInfo the server bound to the address, as returned by {@link #acquire(ServerInfo)}
+	 * @param failure the failure of the request, or null if it completed
+	 */
+	public void release(ServerInfo addressServerInfo, Throwable failure) {
+		HostAddresses hostAddresses = hosts.get(addressServerInfo.withoutAddress());
+		if (hostAddresses != null) {
+			hostAddresses.release(addressServerInfo, failure);
+		}
+	}
+
+	@Override
+	public void onServerPoolCreated(ServerInfo serverInfo) {
+		if (serverInfo.getAddress() == null) {
+			return;
+		}
+
+		HostAddresses hostAddresses = hosts.get(serverInfo.withoutAddress());
+		if (hostAddresses != null) {
+			hostAddresses.serverPoolCreated(serverInfo);
+		}
+	}
+
+	@Override
+	public void onServerPoolRemoved(ServerInfo serverInfo) {
+		if (serverInfo.getAddress() == null) {
+			return;
+		}
+
+		ServerInfo hostServerInfo = serverInfo.withoutAddress();
+		HostAddresses hostAddresses = hosts.get(hostServerInfo);
+		if (hostAddresses != null && hostAddresses.serverPoolRemoved(serverInfo)) {
+			logger.trace("Removing the addresses of {}, it has no server pools left", hostServerInfo);
+			hosts.remove(hostServerInfo, hostAddresses);
+		}
+	}
+
+	/**
+	 * A request that timed out waiting for a connection in the queue of the pool says nothing about the address.
+	 */
+	private static boolean isAddressFailure(Throwable failure) {
+		return failure instanceof ConnectException || (failure instanceof TimeoutException && !(failure instanceof PendingAcquireTimeoutException));
+	}
+
+	interface HostResolver {
+		CompletableFuture<InetAddress[]> resolve(String host);
+	}
+
+	private class HostAddresses {
+		private final ServerInfo serverInfo;
+		private List<AddressState> addresses = new ArrayList<>();
+		private final Set<ServerInfo> pooledAddresses = new HashSet<>();
+		private long resolvedTimeStamp;
+		private CompletableFuture<Void> resolveFuture;
+		private int nextIndex;
+
+		private HostAddresses(ServerInfo serverInfo) {
+			this.serverInfo = serverInfo;
+		}
+
+		private synchronized CompletableFuture<ServerInfo> acquire() {
+			long currentTime = timeProvider.currentTimeInMillis();
+			CompletableFuture<Void> pendingResolve = resolveFuture;
+			if (pendingResolve == null && (addresses.isEmpty() || currentTime - resolvedTimeStamp >= refreshMillis)) {
+				pendingResolve = resolve();
+			}
+
+			if (addresses.isEmpty()) {
+				return pendingResolve.thenApply(resolved -> select());
+			}
+
+			return CompletableFuture.completedFuture(select());
+		}
+
+		private synchronized ServerInfo select() {
+			if (addresses.isEmpty()) {
+				throw new CompletionException(new UnknownHostException(serverInfo.getHost()));
+			}
+
+			long currentTime = timeProvider.currentTimeInMillis();
+			AddressState selected = null;
+			int size = addresses.size();
+			for (int i = 0; i < size; i++) {
+				AddressState addressState = addresses.get((nextIndex + i) % size);
+				if (addressState.ejectedUntil > currentTime) {
+					continue;
+				}
+				if (selected == null || addressState.outstandingRequests < selected.outstandingRequests) {
+					selected = addressState;
+				}
+			}
+
+			if (selected == null) {
+				for (AddressState addressState : addresses) {
+					if (selected == null || addressState.ejectedUntil < selected.ejectedUntil) {
+						selected = addressState;
+					}
+				}
+				logger.trace("All addresses of {} are ejected, using {}", serverInfo, selected.serverInfo);
+			}
+
+			nextIndex = (nextIndex + 1) % size;
+			selected.outstandingRequests++;
+			return selected.serverInfo;
+		}
+
+		private synchronized void release(ServerInfo addressServerInfo, Throwable failure) {
+			for (AddressState addressState : addresses) {
+				if (addressState.serverInfo.equals(addressServerInfo)) {
+					addressState.release(failure);
+					return;
+				}
+			}
+		}
+
+		private synchronized void serverPoolCreated(ServerInfo addressServerInfo) {
+			pooledAddresses.add(addressServerInfo);
+		}
+
+		/**
+		 * @return true if the host has no server pools and no outstanding requests left
+		 */
+		private synchronized boolean serverPoolRemoved(ServerInfo addressServerInfo) {
+			pooledAddresses.remove(addressServerInfo);
+			if (!pooledAddresses.isEmpty() || resolveFuture != null) {
+				return false;
+			}
+
+			for (AddressState addressState : addresses) {
+				if (addressState.outstandingRequests > 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private CompletableFuture<Void> resolve() {
+			CompletableFuture<Void> future = hostResolver.resolve(serverInfo.getHost()).handle((resolvedAddresses, throwable) -> {
+				synchronized (this) {
+					resolveFuture = null;
+					resolvedTimeStamp = timeProvider.currentTimeInMillis();
+
+					if (throwable != null) {
+						if (addresses.isEmpty()) {
+							throw throwable instanceof CompletionException ? (CompletionException) throwable : new CompletionException(throwable);
+						}
+						logger.warn("Failed to resolve {}, keeping the previous addresses", serverInfo.getHost(), throwable);
+						return null;
+					}
+
+					update(resolvedAddresses);
+					return null;
+				}
+			});
+
+			if (!future.isDone()) {
+				resolveFuture = future;
+			}
+			return future;
+		}
+
+		private void update(InetAddress[] resolvedAddresses) {
+			List<AddressState> refreshedAddresses = new ArrayList<>(resolvedAddresses.length);
+			for (InetAddress resolvedAddress : resolvedAddresses) {
+				AddressState addressState = null;
+				for (AddressState previousState : addresses) {
+					if (previousState.serverInfo.getAddress().equals(resolvedAddress)) {
+						addressState = previousState;
+						break;
+					}
+				}
+				refreshedAddresses.add(addressState != null ? addressState : new AddressState(serverInfo.withAddress(resolvedAddress)));
+			}
+
+			logger.trace("Resolved {} to {} addresses", serverInfo.getHost(), refreshedAddresses.size());
+			addresses = refreshedAddresses;
+		}
+	}
+
+	private class AddressState {
+		private final ServerInfo serverInfo;
+		private int outstandingRequests;
+		private int consecutiveFailures;
+		private long ejectedUntil;
+
+		private AddressState(ServerInfo serverInfo) {
+			this.serverInfo = serverInfo;
+		}
+
+		private void release(Throwable failure) {
+			if (outstandingRequests > 0) {
+				outstandingRequests--;
+			}
+
+			if (failure == null) {
+				consecutiveFailures = 0;
+				return;
+			}
+
+			if (!isAddressFailure(failure)) {
+				return;
+			}
+
+			if (++consecutiveFailures >= ejectionFailures) {
+				ejectedUntil = timeProvider.currentTimeInMillis() + ejectionMillis;
+				consecutiveFailures = 0;
+				logger.warn("Ejected {} for {} ms after repeated failures", serverInfo, ejectionMillis);
+			}
+		}
+	}
+}
@@ -8,43 +8,64 @@ package com.king.platform.net.http.netty;
 
 import io.netty.util.AttributeKey;
 
+import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 public class ServerInfo {
 	public static final AttributeKey<ServerInfo> ATTRIBUTE_KEY = AttributeKey.valueOf("HttpNetty__ServerInfo");
 
+	private static final String DOMAIN_SOCKET_SCHEME_SUFFIX = "+unix";
+
 	private final String scheme;
 	private final String host;
 	private final int port;
 
 	private final boolean isSecure;
 	private final boolean isWebSocket;
+	private final InetAddress address;
 
 	public ServerInfo(String scheme, String host, int port, boolean isSecure, boolean isWebSocket) {
+		this(scheme, host, port, isSecure, isWebSocket, null);
+	}
+
+	private ServerInfo(String scheme, String host, int port, boolean isSecure, boolean isWebSocket, InetAddress address) {
 		this.scheme = scheme;
 		this.host = host;
 		this.port = port;
 		this.isSecure = isSecure;
 		this.isWebSocket = isWebSocket;
+		this.address = address;
 	}
 
+	/**
+	 * Build the server of an uri. Servers listening on a unix domain socket use the http+unix or https+unix scheme with the url encoded path
+	 * of the socket as host, for example http+unix://%2Fvar%2Frun%2Fproxy.sock/path.
+	 */
 	public static ServerInfo buildFromUri(String uriString) throws URISyntaxException {
 		URI uri = new URI(uriString);
 		String host = uri.getHost();
 		String scheme = uri.getScheme();
 		int port = uri.getPort();
 
-		if (host == null) {
-			throw new URISyntaxException(uriString, "Host is null");
-		}
-
 		if (scheme == null) {
 			throw new URISyntaxException(uriString, "Scheme is null");
 		}
 
 		scheme = scheme.toLowerCase();
 
+		if ("http+unix".equals(scheme) || "https+unix".equals(scheme)) {
+			String socketPath = uri.getAuthority();
+			if (socketPath == null || socketPath.isEmpty()) {
+				throw new URISyntaxException(uriString, "Socket path is null");
+			}
+			return new ServerInfo(scheme, socketPath, 0, "https+unix".equals(scheme), false);
+		}
+
+		if (host == null) {
+			throw new URISyntaxException(uriString, "Host is null");
+		}
+
 		boolean isSecure = false;
 
 		if ("https".equals(scheme) || "wss".equals(scheme)) {
@@ -80,6 +101,39 @@ public class ServerInfo {
 		return scheme;
 	}
 
+	/**
+	 * @return true if the server listens on a unix domain socket, the path of the socket is the host of the server
+	 */
+	public boolean isDomainSocket() {
+		return scheme != null && scheme.endsWith(DOMAIN_SOCKET_SCHEME_SUFFIX);
+	}
+
+	/**
+	 * @return the resolved address connections to this server are opened to, or null if the host name is resolved on each connect
+	 */
+	public InetAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * Create the server bound to one of the resolved addresses of the host, which gets its own pool of connections.
+	 * @param address the resolved address
+	 * @return the server bound to the address
+	 */
+	public ServerInfo withAddress(InetAddress address) {
+		return new ServerInfo(scheme, host, port, isSecure, isWebSocket, address);
+	}
+
+	/**
+	 * @return the server not bound to any resolved address
+	 */
+	public ServerInfo withoutAddress() {
+		if (address == null) {
+			return this;
+		}
+		return new ServerInfo(scheme, host, port, isSecure, isWebSocket, null);
+	}
+
 
 	@Override
 	public boolean equals(Object o) {
@@ -96,6 +150,8 @@ public class ServerInfo {
 			return false;
 		if (scheme != null ? !scheme.equals(that.scheme) : that.scheme != null)
 			return false;
+		if (address != null ? !address.equals(that.address) : that.address != null)
+			return false;
 
 		return true;
 	}
@@ -105,11 +161,18 @@ public class ServerInfo {
 		int result = scheme != null ? scheme.hashCode() : 0;
 		result = 31 * result + (host != null ? host.hashCode() : 0);
 		result = 31 * result + port;
+		result = 31 * result + (address != null ? address.hashCode() : 0);
 		return result;
 	}
 
 	@Override
 	public String toString() {
+		if (address != null) {
+			return "Server {" + scheme + "://" + host + ":" + port + " at " + address.getHostAddress() + "}";
+		}
+		if (isDomainSocket()) {
+			return "Server {" + scheme + "://" + host + "}";
+		}
 		return "Server {" + scheme + "://" + host + ":" + port + "}";
 	}
 
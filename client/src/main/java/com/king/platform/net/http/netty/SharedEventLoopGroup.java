@@ -0,0 +1,71 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.netty.transport.TransportProvider;
+import com.king.platform.net.http.netty.transport.TransportProviders;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCounted;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference counted event loop group that can be shared by several http clients.
+ * The creator holds the first reference, and each client holds one reference while it is started.
+ * The group is shut down when the last reference is released, so the creator should release its reference once the group has been given
+ * to the clients.
+ *
+ * <p>Example on how to share one group between two clients.
+ * <pre>{@code
+ * SharedEventLoopGroup sharedEventLoopGroup = new SharedEventLoopGroup(new NioEventLoopGroup(4));
+ * HttpClient first = new NettyHttpClientBuilder().setSharedEventLoopGroup(sharedEventLoopGroup).createHttpClient();
+ * HttpClient second = new NettyHttpClientBuilder().setSharedEventLoopGroup(sharedEventLoopGroup).createHttpClient();
+ * first.start();
+ * second.start();
+ * sharedEventLoopGroup.release();
+ * }</pre>
+ */
+public class SharedEventLoopGroup extends AbstractReferenceCounted {
+	private final EventLoopGroup eventLoopGroup;
+	private final boolean shutdownOnLastRelease;
+
+	/**
+	 * @param eventLoopGroup the group, shut down when the last reference is released
+	 */
+	public SharedEventLoopGroup(EventLoopGroup eventLoopGroup) {
+		this(eventLoopGroup, true);
+	}
+
+	SharedEventLoopGroup(EventLoopGroup eventLoopGroup, boolean shutdownOnLastRelease) {
+		this.eventLoopGroup = eventLoopGroup;
+		this.shutdownOnLastRelease = shutdownOnLastRelease;
+	}
+
+	public EventLoopGroup getEventLoopGroup() {
+		return eventLoopGroup;
+	}
+
+	/**
+	 * @return the transport of the group, which gives the channel classes of the clients
+	 */
+	public TransportProvider getTransportProvider() {
+		return TransportProviders.of(eventLoopGroup);
+	}
+
+	@Override
+	protected void deallocate() {
+		if (shutdownOnLastRelease) {
+			eventLoopGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Override
+	public ReferenceCounted touch(Object hint) {
+		return this;
+	}
+}
@@ -0,0 +1,45 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.epoll.EpollSocketChannelConfig;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Sets TCP_QUICKACK again after each read of the channel. The kernel clears the option by itself, typically after the first few segments
+ * of the connection, so setting it once at connect only changes the acks of the start of the first response.
+ */
+@Sharable
+class TcpQuickAckHandler extends ChannelInboundHandlerAdapter {
+	static final TcpQuickAckHandler INSTANCE = new TcpQuickAckHandler();
+
+	private final Logger logger = getLogger(getClass());
+
+	private TcpQuickAckHandler() {
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		ChannelConfig config = ctx.channel().config();
+		if (config instanceof EpollSocketChannelConfig) {
+			try {
+				((EpollSocketChannelConfig) config).setTcpQuickAck(true);
+			} catch (ChannelException e) {
+				logger.trace("Failed to set TCP_QUICKACK on {}", ctx.channel(), e);
+			}
+		}
+
+		ctx.fireChannelReadComplete();
+	}
+}
@@ -0,0 +1,110 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.ConfMap;
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.channel.ChannelFactory;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.resolver.NameResolver;
+import io.netty.resolver.dns.DnsAddressResolverGroup;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.DnsServerAddressStreamProvider;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Non blocking dns resolution on the event loops of the client, with one {@link RefreshAheadDnsCache} shared by all the loops
+ * and the configured host overrides checked before the hosts file.
+ */
+public class CachingDnsAddressResolverGroup extends DnsAddressResolverGroup {
+	private final Logger logger = getLogger(getClass());
+
+	private final RefreshAheadDnsCache dnsCache;
+	private final DnsNameResolverBuilder refreshResolverBuilder;
+	private DnsNameResolver refreshResolver;
+	private EventLoop refreshEventLoop;
+
+	public CachingDnsAddressResolverGroup(ConfMap confMap, Class<? extends DatagramChannel> datagramChannelClass, TimeProvider timeProvider) {
+		this(createDnsCache(confMap, timeProvider), confMap, datagramChannelClass);
+	}
+
+	private CachingDnsAddressResolverGroup(RefreshAheadDnsCache dnsCache, ConfMap confMap, Class<? extends DatagramChannel> datagramChannelClass) {
+		super(createBuilder(dnsCache, confMap, datagramChannelClass));
+		this.dnsCache = dnsCache;
+		this.refreshResolverBuilder = createBuilder(dnsCache, confMap, datagramChannelClass).resolveCache(dnsCache.refreshView());
+
+		if (confMap.get(ConfKeys.DNS_REFRESH_AHEAD_PERCENT) > 0) {
+			dnsCache.setRefresher(this::refresh);
+		}
+	}
+
+	private static RefreshAheadDnsCache createDnsCache(ConfMap confMap, TimeProvider timeProvider) {
+		return new RefreshAheadDnsCache(confMap.get(ConfKeys.DNS_MIN_TTL_SECONDS), confMap.get(ConfKeys.DNS_MAX_TTL_SECONDS), confMap.get(ConfKeys
+			.DNS_NEGATIVE_TTL_SECONDS), confMap.get(ConfKeys.DNS_REFRESH_AHEAD_PERCENT), timeProvider);
+	}
+
+	private static DnsNameResolverBuilder createBuilder(RefreshAheadDnsCache dnsCache, ConfMap confMap, Class<? extends DatagramChannel>
+		datagramChannelClass) {
+		return new DnsNameResolverBuilder()
+			.channelType(datagramChannelClass)
+			.resolveCache(dnsCache)
+			.queryTimeoutMillis(confMap.get(ConfKeys.DNS_QUERY_TIMEOUT_MILLIS))
+			.hostsFileEntriesResolver(new HostOverridesResolver(confMap.get(ConfKeys.DNS_HOST_OVERRIDES)));
+	}
+
+	@Override
+	protected NameResolver<InetAddress> newNameResolver(EventLoop eventLoop, ChannelFactory<? extends DatagramChannel> channelFactory,
+														DnsServerAddressStreamProvider nameServerProvider) throws Exception {
+		synchronized (this) {
+			if (refreshResolver == null) {
+				refreshResolver = refreshResolverBuilder.eventLoop(eventLoop).build();
+				refreshEventLoop = eventLoop;
+			}
+		}
+		return super.newNameResolver(eventLoop, channelFactory, nameServerProvider);
+	}
+
+	private void refresh(String hostname) {
+		final DnsNameResolver resolver;
+		final EventLoop eventLoop;
+		synchronized (this) {
+			resolver = refreshResolver;
+			eventLoop = refreshEventLoop;
+		}
+
+		if (resolver == null) {
+			dnsCache.refreshCompleted(hostname);
+			return;
+		}
+
+		logger.trace("Refreshing dns entries of {} before they expire", hostname);
+		eventLoop.execute(() -> resolver.resolveAll(hostname).addListener(future -> {
+			if (!future.isSuccess()) {
+				logger.trace("Failed to refresh dns entries of {}", hostname, future.cause());
+			}
+			dnsCache.refreshCompleted(hostname);
+		}));
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		synchronized (this) {
+			if (refreshResolver != null) {
+				refreshResolver.close();
+				refreshResolver = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import io.netty.resolver.HostsFileEntriesResolver;
+import io.netty.resolver.ResolvedAddressTypes;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hosts file lookup where the configured host overrides are checked before the hosts file of the system.
+ * Host names are matched case insensitively.
+ */
+public class HostOverridesResolver implements HostsFileEntriesResolver {
+	private final Map<String, InetAddress> overrides = new HashMap<>();
+	private final HostsFileEntriesResolver hostsFileEntriesResolver;
+
+	public HostOverridesResolver(Map<String, InetAddress> overrides) {
+		this(overrides, HostsFileEntriesResolver.DEFAULT);
+	}
+
+	public HostOverridesResolver(Map<String, InetAddress> overrides, HostsFileEntriesResolver hostsFileEntriesResolver) {
+		for (Map.Entry<String, InetAddress> entry : overrides.entrySet()) {
+			this.overrides.put(entry.getKey().toLowerCase(Locale.ENGLISH), entry.getValue());
+		}
+		this.hostsFileEntriesResolver = hostsFileEntriesResolver;
+	}
+
+	@Override
+	public InetAddress address(String inetHost, ResolvedAddressTypes resolvedAddressTypes) {
+		InetAddress address = overrides.get(inetHost.toLowerCase(Locale.ENGLISH));
+		if (address != null) {
+			return address;
+		}
+		return hostsFileEntriesResolver.address(inetHost, resolvedAddressTypes);
+	}
+}
@@ -0,0 +1,175 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DefaultDnsCache;
+import io.netty.resolver.dns.DnsCache;
+import io.netty.resolver.dns.DnsCacheEntry;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * TTL respecting dns cache that refreshes entries which are still being looked up when they get close to their expiry.
+ * The refresh resolves the host through {@link #refreshView()}, which never returns cached entries, and replaces the entries of the host
+ * when the new records arrive. Lookups keep getting the old entries until then, so a hot host never has to wait for a dns query.
+ * Hosts that are not looked up close to the expiry are simply dropped by the underlying {@link DefaultDnsCache}.
+ */
+public class RefreshAheadDnsCache implements DnsCache {
+	private final DefaultDnsCache delegate;
+	private final TimeProvider timeProvider;
+	private final int refreshAheadPercent;
+
+	private final ConcurrentHashMap<String, Long> refreshTimeStamps = new ConcurrentHashMap<>();
+	private final Set<String> refreshingHosts = ConcurrentHashMap.newKeySet();
+	private final Set<String> replacedHosts = ConcurrentHashMap.newKeySet();
+	private final DnsCache refreshView = new RefreshView();
+
+	private volatile Consumer<String> refresher;
+
+	/**
+	 * @param minTtl              the min ttl in seconds of cached records
+	 * @param maxTtl              the max ttl in seconds of cached records
+	 * @param negativeTtl         the ttl in seconds of failed lookups
+	 * @param refreshAheadPercent how much of the ttl is left when a looked up entry is refreshed, 0 disables refresh ahead
+	 * @param timeProvider        the time provider
+	 */
+	public RefreshAheadDnsCache(int minTtl, int maxTtl, int negativeTtl, int refreshAheadPercent, TimeProvider timeProvider) {
+		this.delegate = new DefaultDnsCache(minTtl, maxTtl, negativeTtl);
+		this.refreshAheadPercent = refreshAheadPercent;
+		this.timeProvider = timeProvider;
+	}
+
+	/**
+	 * Set the function that starts a refresh of a host. The refresh must resolve the host through {@link #refreshView()} and
+	 * call {@link #refreshCompleted(String)} when it is done, successful or not.
+	 * @param refresher the refresh function
+	 */
+	public void setRefresher(Consumer<String> refresher) {
+		this.refresher = refresher;
+	}
+
+	/**
+	 * @return the cache used by the resolver doing the refreshes
+	 */
+	public DnsCache refreshView() {
+		return refreshView;
+	}
+
+	public void refreshCompleted(String hostname) {
+		replacedHosts.remove(hostname);
+		refreshingHosts.remove(hostname);
+	}
+
+	@Override
+	public void clear() {
+		refreshTimeStamps.clear();
+		delegate.clear();
+	}
+
+	@Override
+	public boolean clear(String hostname) {
+		refreshTimeStamps.remove(hostname);
+		return delegate.clear(hostname);
+	}
+
+	@Override
+	public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+		List<? extends DnsCacheEntry> entries = delegate.get(hostname, additionals);
+		if (hasAddresses(entries)) {
+			refreshIfExpiring(hostname);
+		} else {
+			// The entries have expired, the next lookup starts over with the ttl of its own records
+			refreshTimeStamps.remove(hostname);
+		}
+		return entries;
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+		if (refreshAheadPercent > 0) {
+			long ttlMillis = Math.max(delegate.minTtl(), Math.min(delegate.maxTtl(), originalTtl)) * 1000L;
+			long refreshTimeStamp = timeProvider.currentTimeInMillis() + ttlMillis * (100 - refreshAheadPercent) / 100;
+			if (hasAddresses(delegate.get(hostname, additionals))) {
+				refreshTimeStamps.merge(hostname, refreshTimeStamp, Math::min);
+			} else {
+				refreshTimeStamps.put(hostname, refreshTimeStamp);
+			}
+		}
+		return delegate.cache(hostname, additionals, address, originalTtl, loop);
+	}
+
+	@Override
+	public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+		return delegate.cache(hostname, additionals, cause, loop);
+	}
+
+	private static boolean hasAddresses(List<? extends DnsCacheEntry> entries) {
+		return entries != null && !entries.isEmpty() && entries.get(0).cause() == null;
+	}
+
+	private void refreshIfExpiring(String hostname) {
+		Consumer<String> currentRefresher = refresher;
+		if (currentRefresher == null) {
+			return;
+		}
+
+		Long refreshTimeStamp = refreshTimeStamps.get(hostname);
+		if (refreshTimeStamp == null || timeProvider.currentTimeInMillis() < refreshTimeStamp) {
+			return;
+		}
+
+		if (refreshingHosts.add(hostname)) {
+			replacedHosts.add(hostname);
+			currentRefresher.accept(hostname);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RefreshAheadDnsCache{" + delegate + ", refreshAheadPercent=" + refreshAheadPercent + '}';
+	}
+
+	/**
+	 * Forces the refreshing resolver to query the dns servers, and swaps in the new records once the first one arrives.
+	 * A failed refresh leaves the old entries in place until they expire.
+	 */
+	private class RefreshView implements DnsCache {
+		@Override
+		public void clear() {
+		}
+
+		@Override
+		public boolean clear(String hostname) {
+			return false;
+		}
+
+		@Override
+		public List<? extends DnsCacheEntry> get(String hostname, DnsRecord[] additionals) {
+			return null;
+		}
+
+		@Override
+		public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, InetAddress address, long originalTtl, EventLoop loop) {
+			if (replacedHosts.remove(hostname)) {
+				RefreshAheadDnsCache.this.clear(hostname);
+			}
+			return RefreshAheadDnsCache.this.cache(hostname, additionals, address, originalTtl, loop);
+		}
+
+		@Override
+		public DnsCacheEntry cache(String hostname, DnsRecord[] additionals, Throwable cause, EventLoop loop) {
+			return null;
+		}
+	}
+}
@@ -16,6 +16,8 @@ import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 
+import java.net.InetSocketAddress;
+
 public interface Event {
 	Event2<HttpRequestContext, Throwable> ERROR = new Event2<>("Error");
 	Event1<HttpRequestContext> COMPLETED = new Event1<>("Completed");
@@ -27,9 +29,12 @@ public interface Event {
 	Event2<ServerInfo, HttpHeaders> POPULATE_CONNECTION_SPECIFIC_HEADERS = new Event2<>("PopulateConnectionSpecificHeaders");
 
 	Event1<ServerInfo> CREATED_CONNECTION = new Event1<>("CreatedConnection");
+	Event2<ServerInfo, InetSocketAddress> CONNECTED_ADDRESS = new Event2<>("ConnectedAddress");
 	Event1<ServerInfo> REUSED_CONNECTION = new Event1<>("ReusedConnection");
 	Event1<ServerInfo> POOLED_CONNECTION = new Event1<>("PooledConnection");
 	Event1<ServerInfo> CLOSED_CONNECTION = new Event1<>("CloseConnection");
+	Event2<ServerInfo, Long> FULL_SSL_HANDSHAKE = new Event2<>("FullSslHandshake");
+	Event2<ServerInfo, Long> RESUMED_SSL_HANDSHAKE = new Event2<>("ResumedSslHandshake");
 
 	Event1<Void> onConnecting = new Event1<>("onConnecting");
 	Event1<Void> onConnected = new Event1<>("onConnected");
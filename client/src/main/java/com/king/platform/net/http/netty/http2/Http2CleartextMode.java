@@ -0,0 +1,22 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+/**
+ * How HTTP/2 is started on a plain http connection (h2c).
+ */
+public enum Http2CleartextMode {
+	/**
+	 * The server is known to speak HTTP/2, every connection starts with the HTTP/2 connection preface.
+	 */
+	PRIOR_KNOWLEDGE,
+
+	/**
+	 * A new connection first sends an {@code OPTIONS *} request with {@code Upgrade: h2c}.
+	 * If the server declines, the connection is closed and the host is used over HTTP/1.1 from then on.
+	 */
+	UPGRADE
+}
@@ -0,0 +1,239 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import org.slf4j.Logger;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A HTTP/2 connection to a server, every request is sent on a stream channel of its own.
+ * Streams above the SETTINGS_MAX_CONCURRENT_STREAMS of the server wait until earlier streams have closed. Until the settings of the server
+ * have been read only one stream is opened, so that the first burst of requests can not exceed a limit that is not yet known.
+ * All the stream bookkeeping runs on the event loop of the connection.
+ * The connection is closed once it has been without open streams for the idle timeout.
+ */
+public class Http2Connection {
+	private final Logger logger = getLogger(getClass());
+
+	private final Channel channel;
+	private final Http2MultiplexCodec codec;
+	private final Queue<PendingStream> pendingStreams = new ArrayDeque<>();
+	private volatile int openStreams;
+
+	/**
+	 * Add the HTTP/2 codec to the pipeline of a connection that has negotiated h2. The pipeline must not have any HTTP/1.1 handlers left.
+	 * @param channel the connection
+	 * @param idleTimeoutMillis how long the connection may stay without open streams, or 0 to keep it until the server closes it
+	 */
+	public Http2Connection(Channel channel, long idleTimeoutMillis) {
+		this(channel, newCodec(), idleTimeoutMillis);
+	}
+
+	/**
+	 * @param channel the connection
+	 * @param codec the codec of the connection, added to the pipeline unless it has already been installed by a h2c upgrade
+	 * @param idleTimeoutMillis how long the connection may stay without open streams, or 0 to keep it until the server closes it
+	 */
+	public Http2Connection(Channel channel, Http2MultiplexCodec codec, long idleTimeoutMillis) {
+		this.channel = channel;
+		this.codec = codec;
+
+		if (channel.pipeline().context(codec) == null) {
+			channel.pipeline().addLast("http2-codec", codec);
+		}
+		channel.pipeline().addLast("http2-pending-streams", new PendingStreamOpener());
+		if (idleTimeoutMillis > 0) {
+			channel.pipeline().addLast("http2-idle", new IdleConnectionCloser(idleTimeoutMillis));
+		}
+
+		channel.closeFuture().addListener(future -> failPendingStreams());
+	}
+
+	/**
+	 * @return a client codec that refuses pushed streams, and drops the response to the request of a h2c upgrade
+	 */
+	public static Http2MultiplexCodec newCodec() {
+		return Http2MultiplexCodecBuilder.forClient(RejectPushedStreams.INSTANCE)
+			.withUpgradeStreamHandler(DiscardUpgradeResponse.INSTANCE)
+			.initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+			.build();
+	}
+
+	public Channel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return true if new streams can be opened, the connection is open and the server has not sent GOAWAY
+	 */
+	public boolean isUsable() {
+		return channel.isActive() && !codec.connection().goAwayReceived();
+	}
+
+	/**
+	 * @return the number of stream channels that have been opened and not yet closed
+	 */
+	public int getOpenStreams() {
+		return openStreams;
+	}
+
+	/**
+	 * @return the SETTINGS_MAX_CONCURRENT_STREAMS of the server, unbounded until the server has sent its settings
+	 */
+	public int getMaxConcurrentStreams() {
+		return codec.connection().local().maxActiveStreams();
+	}
+
+	/**
+	 * Open a stream channel for a request, once the connection has room for another stream.
+	 * @param streamInitializer the handler setting up the pipeline of the stream
+	 * @return future completed with the stream channel
+	 */
+	public Future<Http2StreamChannel> openStream(ChannelHandler streamInitializer) {
+		Promise<Http2StreamChannel> promise = channel.eventLoop().newPromise();
+		PendingStream pendingStream = new PendingStream(streamInitializer, promise);
+
+		if (channel.eventLoop().inEventLoop()) {
+			openOrQueue(pendingStream);
+		} else {
+			channel.eventLoop().execute(() -> openOrQueue(pendingStream));
+		}
+		return promise;
+	}
+
+	private void openOrQueue(PendingStream pendingStream) {
+		if (!channel.isActive()) {
+			pendingStream.promise.tryFailure(new ClosedChannelException());
+			return;
+		}
+
+		pendingStreams.add(pendingStream);
+		openPendingStreams();
+	}
+
+	private boolean hasRoomForStream() {
+		if (!codec.decoder().prefaceReceived()) {
+			return openStreams == 0;
+		}
+		return openStreams < getMaxConcurrentStreams();
+	}
+
+	private void openPendingStreams() {
+		while (!pendingStreams.isEmpty() && hasRoomForStream()) {
+			open(pendingStreams.poll());
+		}
+	}
+
+	private void open(PendingStream pendingStream) {
+		openStreams++;
+
+		new Http2StreamChannelBootstrap(channel).handler(pendingStream.streamInitializer).open().addListener((FutureListener<Http2StreamChannel>)
+			future -> {
+				if (future.isSuccess()) {
+					future.getNow().closeFuture().addListener(closeFuture -> streamClosed());
+					pendingStream.promise.trySuccess(future.getNow());
+				} else {
+					streamClosed();
+					pendingStream.promise.tryFailure(future.cause());
+				}
+			});
+	}
+
+	private void streamClosed() {
+		openStreams--;
+		// The child channel closes before the codec has retired the stream, so wait for the codec before opening the next one
+		channel.eventLoop().execute(this::openPendingStreams);
+	}
+
+	private void failPendingStreams() {
+		PendingStream pendingStream;
+		while ((pendingStream = pendingStreams.poll()) != null) {
+			pendingStream.promise.tryFailure(new ClosedChannelException());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Http2Connection{channel=" + channel + ", openStreams=" + openStreams + ", pendingStreams=" + pendingStreams.size() + "}";
+	}
+
+	private static class PendingStream {
+		private final ChannelHandler streamInitializer;
+		private final Promise<Http2StreamChannel> promise;
+
+		private PendingStream(ChannelHandler streamInitializer, Promise<Http2StreamChannel> promise) {
+			this.streamInitializer = streamInitializer;
+			this.promise = promise;
+		}
+	}
+
+	/**
+	 * The codec does not pass on the settings of the server, so the waiting streams are looked at after every read from the server.
+	 */
+	private class PendingStreamOpener extends ChannelInboundHandlerAdapter {
+		@Override
+		public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+			openPendingStreams();
+			super.channelReadComplete(ctx);
+		}
+	}
+	@ChannelHandler.Sharable
+	private static class RejectPushedStreams extends ChannelInboundHandlerAdapter {
+		private static final RejectPushedStreams INSTANCE = new RejectPushedStreams();
+
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			ReferenceCountUtil.release(msg);
+			ctx.close();
+		}
+	}
+
+	@ChannelHandler.Sharable
+	private static class DiscardUpgradeResponse extends ChannelInboundHandlerAdapter {
+		private static final DiscardUpgradeResponse INSTANCE = new DiscardUpgradeResponse();
+
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	private class IdleConnectionCloser extends IdleStateHandler {
+		private IdleConnectionCloser(long idleTimeoutMillis) {
+			super(0, 0, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) throws Exception {
+			if (openStreams == 0) {
+				logger.trace("Closing idle HTTP/2 connection {}", ctx.channel());
+				ctx.close();
+			}
+		}
+	}
+}
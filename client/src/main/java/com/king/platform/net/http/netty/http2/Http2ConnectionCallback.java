@@ -0,0 +1,29 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+/**
+ * Callback used by {@link Http2Connections#acquire} to hand out the outcome of an acquire.
+ * Exactly one of the methods will be called for each acquire that did not ask the caller to connect.
+ */
+public interface Http2ConnectionCallback {
+	/**
+	 * The server has a HTTP/2 connection, or one was established while this acquire was waiting.
+	 * @param connection the connection to open a stream on
+	 */
+	void onConnection(Http2Connection connection);
+
+	/**
+	 * The server did not select h2, the request should be sent over a HTTP/1.1 connection.
+	 */
+	void onHttp1();
+
+	/**
+	 * The connection the acquire was waiting for could not be established.
+	 * @param throwable the cause
+	 */
+	void onFailure(Throwable throwable);
+}
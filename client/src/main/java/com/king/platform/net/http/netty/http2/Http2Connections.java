@@ -0,0 +1,184 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+
+import com.king.platform.net.http.netty.ConnectionClosedException;
+import com.king.platform.net.http.netty.ServerInfo;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * The HTTP/2 connections of the client, one per server. A server is marked as HTTP/1.1 when it does not select h2, and is not asked again.
+ * Requests arriving while the connection to a server is being established wait for the outcome of that connect.
+ */
+public class Http2Connections {
+	private final Logger logger = getLogger(getClass());
+
+	private final Map<ServerInfo, Server> servers = new HashMap<>();
+
+	/**
+	 * Acquire the connection of a server.
+	 * @param serverInfo the server
+	 * @param callback the callback receiving the outcome, unless the caller is asked to connect
+	 * @return true if the caller has to connect to the server and report the outcome through {@link #connected}, {@link #negotiatedHttp1}
+	 * or {@link #connectFailed}, the callback is then not used
+	 */
+	public boolean acquire(ServerInfo serverInfo, Http2ConnectionCallback callback) {
+		Http2Connection connection;
+		synchronized (servers) {
+			Server server = servers.computeIfAbsent(serverInfo, key -> new Server());
+			if (server.http1) {
+				connection = null;
+			} else if (server.connection != null && server.connection.isUsable()) {
+				connection = server.connection;
+			} else if (server.connecting) {
+				server.waiting.add(callback);
+				return false;
+			} else {
+				server.connection = null;
+				server.connecting = true;
+				return true;
+			}
+		}
+
+		if (connection != null) {
+			callback.onConnection(connection);
+		} else {
+			callback.onHttp1();
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the server has not selected h2
+	 */
+	public boolean isHttp1(ServerInfo serverInfo) {
+		synchronized (servers) {
+			Server server = servers.get(serverInfo);
+			return server != null && server.http1;
+		}
+	}
+
+	/**
+	 * The connection to the server has negotiated h2, hand it to the waiting acquires.
+	 */
+	public void connected(ServerInfo serverInfo, Http2Connection connection) {
+		List<Http2ConnectionCallback> waiting;
+		synchronized (servers) {
+			Server server = servers.computeIfAbsent(serverInfo, key -> new Server());
+			server.connecting = false;
+			server.connection = connection;
+			waiting = server.drainWaiting();
+		}
+
+		logger.trace("HTTP/2 connection {} established to {}, handing it to {} waiting requests", connection, serverInfo, waiting.size());
+		connection.getChannel().closeFuture().addListener(future -> closed(serverInfo, connection));
+
+		for (Http2ConnectionCallback callback : waiting) {
+			callback.onConnection(connection);
+		}
+	}
+
+	/**
+	 * The server selected HTTP/1.1, the waiting acquires and all later requests to the server go over HTTP/1.1.
+	 */
+	public void negotiatedHttp1(ServerInfo serverInfo) {
+		List<Http2ConnectionCallback> waiting;
+		synchronized (servers) {
+			Server server = servers.computeIfAbsent(serverInfo, key -> new Server());
+			server.connecting = false;
+			server.http1 = true;
+			waiting = server.drainWaiting();
+		}
+
+		logger.trace("{} did not select h2, falling back to HTTP/1.1", serverInfo);
+		for (Http2ConnectionCallback callback : waiting) {
+			callback.onHttp1();
+		}
+	}
+
+	/**
+	 * The connect failed, the waiting acquires fail with the same cause. The next acquire connects again.
+	 */
+	public void connectFailed(ServerInfo serverInfo, Throwable cause) {
+		List<Http2ConnectionCallback> waiting;
+		synchronized (servers) {
+			Server server = servers.computeIfAbsent(serverInfo, key -> new Server());
+			server.connecting = false;
+			waiting = server.drainWaiting();
+		}
+
+		for (Http2ConnectionCallback callback : waiting) {
+			callback.onFailure(cause);
+		}
+	}
+
+	/**
+	 * @return the current connection of the server, or null
+	 */
+	public Http2Connection get(ServerInfo serverInfo) {
+		synchronized (servers) {
+			Server server = servers.get(serverInfo);
+			return server != null ? server.connection : null;
+		}
+	}
+
+	/**
+	 * Close the connections to all servers, the acquires waiting for a connect fail.
+	 */
+	public void shutdown() {
+		List<Http2Connection> connections = new ArrayList<>();
+		List<Http2ConnectionCallback> waiting = new ArrayList<>();
+		synchronized (servers) {
+			for (Server server : servers.values()) {
+				if (server.connection != null) {
+					connections.add(server.connection);
+				}
+				waiting.addAll(server.drainWaiting());
+			}
+			servers.clear();
+		}
+
+		for (Http2Connection connection : connections) {
+			connection.getChannel().close();
+		}
+
+		ConnectionClosedException cause = new ConnectionClosedException("The http client has been shut down");
+		for (Http2ConnectionCallback callback : waiting) {
+			callback.onFailure(cause);
+		}
+	}
+
+	private void closed(ServerInfo serverInfo, Http2Connection connection) {
+		synchronized (servers) {
+			Server server = servers.get(serverInfo);
+			if (server != null && server.connection == connection) {
+				server.connection = null;
+			}
+		}
+		logger.trace("HTTP/2 connection {} to {} closed", connection, serverInfo);
+	}
+
+	private static class Server {
+		private boolean http1;
+		private boolean connecting;
+		private Http2Connection connection;
+		private List<Http2ConnectionCallback> waiting = new ArrayList<>();
+
+		private List<Http2ConnectionCallback> drainWaiting() {
+			List<Http2ConnectionCallback> drained = waiting;
+			waiting = new ArrayList<>();
+			return drained;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpScheme;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * Lets the HTTP/1.1 handlers of the client run on a HTTP/2 stream channel, placed after the {@code Http2StreamFrameToHttpObjectCodec}.
+ * Requests are written as frames by this handler, since the codec does not take the raw buffers the request bodies are written as,
+ * and leaves out the :authority of requests with a relative path. A full request without a body ends the stream with its headers frame.
+ * Responses without a body are split into the response and its last content, as the response handler expects.
+ */
+@ChannelHandler.Sharable
+public class Http2StreamHandler extends ChannelDuplexHandler {
+	public static final Http2StreamHandler INSTANCE = new Http2StreamHandler();
+
+	private Http2StreamHandler() {
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof FullHttpRequest) {
+			FullHttpRequest fullHttpRequest = (FullHttpRequest) msg;
+			Http2Headers headers = toHttp2Headers(ctx.channel(), fullHttpRequest);
+			if (!fullHttpRequest.content().isReadable() && fullHttpRequest.trailingHeaders().isEmpty()) {
+				fullHttpRequest.release();
+				ctx.write(new DefaultHttp2HeadersFrame(headers, true), promise);
+			} else {
+				ctx.write(new DefaultHttp2HeadersFrame(headers, false));
+				LastHttpContent lastHttpContent = new DefaultLastHttpContent(fullHttpRequest.content(), false);
+				lastHttpContent.trailingHeaders().set(fullHttpRequest.trailingHeaders());
+				write(ctx, lastHttpContent, promise);
+			}
+		} else if (msg instanceof HttpRequest) {
+			ctx.write(new DefaultHttp2HeadersFrame(toHttp2Headers(ctx.channel(), (HttpRequest) msg), false), promise);
+		} else if (msg instanceof LastHttpContent) {
+			LastHttpContent lastHttpContent = (LastHttpContent) msg;
+			if (lastHttpContent.trailingHeaders().isEmpty()) {
+				ctx.write(new DefaultHttp2DataFrame(lastHttpContent.content(), true), promise);
+			} else {
+				if (lastHttpContent.content().isReadable()) {
+					ctx.write(new DefaultHttp2DataFrame(lastHttpContent.content(), false));
+				} else {
+					lastHttpContent.release();
+				}
+				ctx.write(new DefaultHttp2HeadersFrame(HttpConversionUtil.toHttp2Headers(lastHttpContent.trailingHeaders(), false), true), promise);
+			}
+		} else if (msg instanceof HttpContent) {
+			ctx.write(new DefaultHttp2DataFrame(((HttpContent) msg).content(), false), promise);
+		} else if (msg instanceof ByteBuf) {
+			ctx.write(new DefaultHttp2DataFrame((ByteBuf) msg, false), promise);
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof HttpResponse) {
+			((HttpResponse) msg).headers().remove(HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text());
+		}
+
+		if (msg instanceof FullHttpResponse) {
+			FullHttpResponse fullHttpResponse = (FullHttpResponse) msg;
+			ctx.fireChannelRead(new DefaultHttpResponse(fullHttpResponse.protocolVersion(), fullHttpResponse.status(), fullHttpResponse.headers()));
+
+			LastHttpContent lastHttpContent = new DefaultLastHttpContent(fullHttpResponse.content(), false);
+			lastHttpContent.trailingHeaders().set(fullHttpResponse.trailingHeaders());
+			ctx.fireChannelRead(lastHttpContent);
+			return;
+		}
+
+		ctx.fireChannelRead(msg);
+	}
+
+	private static Http2Headers toHttp2Headers(Channel channel, HttpRequest request) {
+		boolean secure = channel.parent() != null && channel.parent().pipeline().get(SslHandler.class) != null;
+
+		Http2Headers headers = new DefaultHttp2Headers()
+			.method(request.method().asciiName())
+			.path(request.uri())
+			.scheme(secure ? HttpScheme.HTTPS.name() : HttpScheme.HTTP.name());
+
+		String host = request.headers().get(HttpHeaderNames.HOST);
+		if (host != null) {
+			headers.authority(host);
+		}
+
+		HttpConversionUtil.toHttp2Headers(request.headers(), headers);
+		headers.remove(HttpHeaderNames.HOST);
+		return headers;
+	}
+}
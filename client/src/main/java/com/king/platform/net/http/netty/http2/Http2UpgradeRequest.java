@@ -0,0 +1,81 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+
+import com.king.platform.net.http.netty.ConnectionClosedException;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpClientUpgradeHandler;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Asks the server to upgrade a new plain http connection to h2c with an {@code OPTIONS *} request, placed last in the pipeline after a
+ * {@link HttpClientUpgradeHandler}. The request carries no user data, so nothing has to be replayed whichever way the server answers.
+ * The promise is completed with true once the connection speaks HTTP/2, or false if the server declined.
+ */
+public class Http2UpgradeRequest extends ChannelInboundHandlerAdapter {
+	private final String host;
+	private final Promise<Boolean> upgradePromise;
+
+	/**
+	 * @param host the value of the Host header
+	 * @param upgradePromise completed with the outcome of the upgrade
+	 */
+	public Http2UpgradeRequest(String host, Promise<Boolean> upgradePromise) {
+		this.host = host;
+		this.upgradePromise = upgradePromise;
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.OPTIONS, "*");
+		request.headers().set(HttpHeaderNames.HOST, host);
+
+		ctx.writeAndFlush(request).addListener((ChannelFutureListener) future -> {
+			if (!future.isSuccess()) {
+				upgradePromise.tryFailure(future.cause());
+			}
+		});
+	}
+
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+		if (evt == HttpClientUpgradeHandler.UpgradeEvent.UPGRADE_SUCCESSFUL) {
+			ctx.pipeline().remove(this);
+			upgradePromise.trySuccess(true);
+		} else if (evt == HttpClientUpgradeHandler.UpgradeEvent.UPGRADE_REJECTED) {
+			upgradePromise.trySuccess(false);
+		} else {
+			ctx.fireUserEventTriggered(evt);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		// The response of a declined upgrade, the connection is closed by the owner of the promise
+		ReferenceCountUtil.release(msg);
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		upgradePromise.tryFailure(new ConnectionClosedException("Connection closed during the h2c upgrade"));
+		super.channelInactive(ctx);
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		upgradePromise.tryFailure(cause);
+		ctx.close();
+	}
+}
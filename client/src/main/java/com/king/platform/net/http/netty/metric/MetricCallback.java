@@ -13,6 +13,12 @@ public interface MetricCallback {
 
 	void onReusedConnectionTo(String host);
 
+	default void onFullSslHandshake(String host, long handshakeMillis) {
+	}
+
+	default void onResumedSslHandshake(String host, long handshakeMillis) {
+	}
+
 	void onError(String host, RecordedTimeStamps timeStampRecorder);
 
 	void onCompletedRequest(String host, RecordedTimeStamps recordedTimeStamps);
@@ -24,4 +30,13 @@ public interface MetricCallback {
 	void onServerPoolClosedConnection(String host, int poolSize);
 
 	void onServerPoolAddedConnection(String host, int poolSize);
+
+	default void onServerPoolStaleConnection(String host) {
+	}
+
+	default void onServerPoolQueuedRequest(String host, int queueSize) {
+	}
+
+	default void onServerPoolDequeuedRequest(String host, long waitTimeMillis, int queueSize) {
+	}
 }
@@ -23,6 +23,13 @@ public class MetricCollector {
 		rootEventBus.subscribePermanently(Event.CLOSED_CONNECTION, (payload) -> metricCallback.onClosedConnectionTo(payload.getHost()));
 
 
+		rootEventBus.subscribePermanently(Event.FULL_SSL_HANDSHAKE, (payload1, payload2) -> metricCallback.onFullSslHandshake(payload1.getHost(), payload2));
+
+
+		rootEventBus.subscribePermanently(Event.RESUMED_SSL_HANDSHAKE, (payload1, payload2) -> metricCallback.onResumedSslHandshake(payload1.getHost(),
+			payload2));
+
+
 		rootEventBus.subscribePermanently(Event.ERROR, (payload1, payload2) -> metricCallback.onError(payload1.getServerInfo().getHost(), payload1.getTimeRecorder()));
 
 
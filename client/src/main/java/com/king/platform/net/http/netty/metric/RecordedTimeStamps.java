@@ -15,6 +15,16 @@ public interface RecordedTimeStamps {
 	 */
 	long getCreatedRequest();
 
+	/**
+	 * @return the ts for when the client started to resolve the host name of the server, 0 if a pooled connection was used
+	 */
+	long getStartResolve();
+
+	/**
+	 * @return the ts for when the client had resolved the host name of the server, 0 if a pooled connection was used
+	 */
+	long getCompletedResolve();
+
 	/**
 	 * @return the ts for when the client started to write headers to the server
 	 */
@@ -60,6 +70,11 @@ public interface RecordedTimeStamps {
 	 */
 	long getCompleteRequestTime();
 
+	/**
+	 * @return the calculated time it took to resolve the host name of the server
+	 */
+	long getResolveTime();
+
 	/**
 	 * @return the calculated time for the request part
 	 */
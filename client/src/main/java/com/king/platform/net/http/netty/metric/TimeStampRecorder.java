@@ -11,6 +11,8 @@ import com.king.platform.net.http.netty.util.TimeProvider;
 public class TimeStampRecorder implements RecordedTimeStamps {
 	private final TimeProvider timeProvider;
 	private long createdRequest;
+	private long startResolve;
+	private long completedResolve;
 	private long startWriteHeaders;
 	private long completedWriteHeaders;
 	private long startWriteBody;
@@ -28,6 +30,14 @@ public class TimeStampRecorder implements RecordedTimeStamps {
 		createdRequest = timeProvider.currentTimeInMillis();
 	}
 
+	public void startResolve() {
+		startResolve = timeProvider.currentTimeInMillis();
+	}
+
+	public void completedResolve() {
+		completedResolve = timeProvider.currentTimeInMillis();
+	}
+
 	public void startWriteHeaders() {
 		startWriteHeaders = timeProvider.currentTimeInMillis();
 	}
@@ -65,6 +75,16 @@ public class TimeStampRecorder implements RecordedTimeStamps {
 		return createdRequest;
 	}
 
+	@Override
+	public long getStartResolve() {
+		return startResolve;
+	}
+
+	@Override
+	public long getCompletedResolve() {
+		return completedResolve;
+	}
+
 	@Override
 	public long getStartWriteHeaders() {
 		return startWriteHeaders;
@@ -111,6 +131,11 @@ public class TimeStampRecorder implements RecordedTimeStamps {
 		return responseBodyCompleted - createdRequest;
 	}
 
+	@Override
+	public long getResolveTime() {
+		return completedResolve - startResolve;
+	}
+
 	@Override
 	public long getRequestTime() {
 		return completedWriteLastBody - startWriteHeaders;
@@ -128,7 +153,8 @@ public class TimeStampRecorder implements RecordedTimeStamps {
 
 	@Override
 	public String toString() {
-		return "TimeStampRecorder{" + "createdRequest=" + createdRequest + ", startWriteHeaders=" + startWriteHeaders + ", completedWriteHeaders=" +
+		return "TimeStampRecorder{" + "createdRequest=" + createdRequest + ", startResolve=" + startResolve + ", completedResolve=" +
+			completedResolve + ", startWriteHeaders=" + startWriteHeaders + ", completedWriteHeaders=" +
 			completedWriteHeaders + ", startWriteBody=" + startWriteBody + ", completedWriteBody=" + completedWriteBody + ", completedWriteLastBody=" +
 			completedWriteLastBody + ", readResponseHttpHeaders=" + readResponseHttpHeaders + ", responseBodyStart=" + responseBodyStart + ", " +
 			"responseBodyCompleted=" + responseBodyCompleted + '}';
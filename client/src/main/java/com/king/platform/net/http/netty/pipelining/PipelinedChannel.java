@@ -0,0 +1,128 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pipelining;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.HttpRequestContext;
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pooled HTTP/1.1 channel that requests are written to without waiting for the responses of the earlier requests, see
+ * {@link ConfKeys#HTTP_PIPELINING_DEPTH_PER_HOST}. The server answers in the order of the requests, so the response read from the channel
+ * belongs to the oldest request in flight, which is the request the {@link HttpRequestContext#HTTP_REQUEST_ATTRIBUTE_KEY} of the channel
+ * points at. Requests queued while the channel is acquired from the pool are written once it has been attached.
+ * The state is guarded by the {@link PipelinedChannels} holding the channel.
+ */
+public class PipelinedChannel {
+	public static final AttributeKey<PipelinedChannel> ATTRIBUTE_KEY = AttributeKey.valueOf("__PipelinedChannel");
+
+	private final ServerInfo serverInfo;
+	private final HttpRequestContext acquiringRequest;
+	private final ArrayDeque<HttpRequestContext> requests = new ArrayDeque<>();
+	private final ArrayDeque<HttpRequestContext> unwritten = new ArrayDeque<>();
+	private volatile Channel channel;
+	private boolean removed;
+
+	PipelinedChannel(ServerInfo serverInfo, HttpRequestContext acquiringRequest) {
+		this.serverInfo = serverInfo;
+		this.acquiringRequest = acquiringRequest;
+		add(acquiringRequest);
+	}
+
+	/**
+	 * @return the channel, or null while it is acquired from the pool
+	 */
+	public Channel getChannel() {
+		return channel;
+	}
+
+	ServerInfo getServerInfo() {
+		return serverInfo;
+	}
+
+	boolean isRemoved() {
+		return removed;
+	}
+
+	int size() {
+		return requests.size();
+	}
+
+	boolean isUsable() {
+		return channel == null || channel.isActive();
+	}
+
+	void add(HttpRequestContext httpRequestContext) {
+		httpRequestContext.setPipelinedChannel(this);
+		requests.addLast(httpRequestContext);
+		unwritten.addLast(httpRequestContext);
+	}
+
+	void attach(Channel channel) {
+		this.channel = channel;
+		channel.attr(ATTRIBUTE_KEY).set(this);
+		pointAtHead();
+	}
+
+	List<HttpRequestContext> takeUnwritten() {
+		List<HttpRequestContext> taken = new ArrayList<>(unwritten);
+		unwritten.clear();
+		return taken;
+	}
+
+	boolean isUnwritten(HttpRequestContext httpRequestContext) {
+		return unwritten.contains(httpRequestContext);
+	}
+
+	boolean isAcquiring(HttpRequestContext httpRequestContext) {
+		return channel == null && httpRequestContext == acquiringRequest;
+	}
+
+	void remove(HttpRequestContext httpRequestContext) {
+		requests.remove(httpRequestContext);
+		unwritten.remove(httpRequestContext);
+	}
+
+	/**
+	 * @return the requests left on the channel, in order
+	 */
+	List<HttpRequestContext> removeAll() {
+		removed = true;
+		List<HttpRequestContext> left = new ArrayList<>(requests);
+		requests.clear();
+		unwritten.clear();
+		if (channel != null) {
+			channel.attr(ATTRIBUTE_KEY).set(null);
+		}
+		return left;
+	}
+
+	/**
+	 * Point the channel at the oldest request, the next response read from the channel belongs to it.
+	 */
+	void pointAtHead() {
+		HttpRequestContext head = requests.peekFirst();
+		if (head != null && channel != null) {
+			channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(head);
+		}
+	}
+
+	HttpRequestContext getHead() {
+		return requests.peekFirst();
+	}
+
+	@Override
+	public String toString() {
+		return "PipelinedChannel{" + channel + ", " + requests.size() + " requests}";
+	}
+}
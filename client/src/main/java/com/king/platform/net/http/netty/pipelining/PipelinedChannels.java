@@ -0,0 +1,161 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pipelining;
+
+
+import com.king.platform.net.http.netty.HttpRequestContext;
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.eventbus.Event;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * The pipelined channels of the client, per server. A channel is borrowed from the pool by the request that finds no channel with room,
+ * takes further requests up to the pipelining depth, and is handed back to the pool once its last request has completed.
+ */
+public class PipelinedChannels {
+	private final Logger logger = getLogger(getClass());
+
+	private final Map<ServerInfo, List<PipelinedChannel>> servers = new HashMap<>();
+
+	/**
+	 * Queue the request on the channel to the server with the fewest requests in flight, if any has room for it.
+	 * The channel is set as the pipelined channel of the request.
+	 * @param serverInfo the server
+	 * @param httpRequestContext the request
+	 * @param depth the max number of requests in flight on a channel
+	 * @return true if the request is queued on a new pipelined channel, the caller then has to acquire a channel from the pool and
+	 * {@link #attach} it, or report the failure to {@link #failed}
+	 */
+	public boolean add(ServerInfo serverInfo, HttpRequestContext httpRequestContext, int depth) {
+		synchronized (servers) {
+			List<PipelinedChannel> channels = servers.computeIfAbsent(serverInfo, key -> new ArrayList<>());
+
+			PipelinedChannel leastLoaded = null;
+			for (PipelinedChannel pipelinedChannel : channels) {
+				if (pipelinedChannel.isUsable() && pipelinedChannel.size() < depth && (leastLoaded == null || pipelinedChannel.size() < leastLoaded
+					.size())) {
+					leastLoaded = pipelinedChannel;
+				}
+			}
+
+			if (leastLoaded != null) {
+				leastLoaded.add(httpRequestContext);
+				return false;
+			}
+
+			channels.add(new PipelinedChannel(serverInfo, httpRequestContext));
+			return true;
+		}
+	}
+
+	/**
+	 * Attach the channel acquired from the pool to a new pipelined channel.
+	 * @return false if the pipelined channel has been removed meanwhile, the channel is then not used
+	 */
+	public boolean attach(PipelinedChannel pipelinedChannel, Channel channel) {
+		synchronized (servers) {
+			if (pipelinedChannel.isRemoved()) {
+				return false;
+			}
+			pipelinedChannel.attach(channel);
+		}
+		logger.trace("Pipelining requests on {}", pipelinedChannel);
+		return true;
+	}
+
+	/**
+	 * @return the requests queued on the channel that have not been written yet, they have to be written in that order
+	 */
+	public List<HttpRequestContext> takeUnwritten(PipelinedChannel pipelinedChannel) {
+		synchronized (servers) {
+			return pipelinedChannel.takeUnwritten();
+		}
+	}
+
+	/**
+	 * The response of the oldest request of the channel has been read, point the channel at the next request.
+	 * @return true if the channel has no requests left and has been removed, so that it can be offered back to the pool
+	 */
+	public boolean completed(PipelinedChannel pipelinedChannel, HttpRequestContext httpRequestContext) {
+		HttpRequestContext head;
+		synchronized (servers) {
+			if (pipelinedChannel.isRemoved()) {
+				return false;
+			}
+
+			pipelinedChannel.remove(httpRequestContext);
+			if (pipelinedChannel.size() == 0) {
+				pipelinedChannel.removeAll();
+				removeChannel(pipelinedChannel);
+				return true;
+			}
+
+			pipelinedChannel.pointAtHead();
+			head = pipelinedChannel.getHead();
+		}
+
+		// The idle timeout of the next request starts over, it has been waiting for the earlier responses
+		head.getRequestEventBus().triggerEvent(Event.TOUCH);
+		return false;
+	}
+
+	/**
+	 * A request of the channel has failed. A request that has not been written is dropped from the channel, unless it was acquiring it.
+	 * Otherwise the channel can not be trusted with the requests behind the failed one, and it is removed.
+	 * @return the other requests of the channel if it was removed, in order, otherwise an empty list
+	 */
+	public List<HttpRequestContext> failed(PipelinedChannel pipelinedChannel, HttpRequestContext httpRequestContext) {
+		synchronized (servers) {
+			if (pipelinedChannel.isRemoved()) {
+				return Collections.emptyList();
+			}
+
+			if (pipelinedChannel.isUnwritten(httpRequestContext) && !pipelinedChannel.isAcquiring(httpRequestContext)) {
+				pipelinedChannel.remove(httpRequestContext);
+				return Collections.emptyList();
+			}
+
+			return remove(pipelinedChannel, httpRequestContext);
+		}
+	}
+
+	/**
+	 * Remove the channel, because it is closed after the response of the request.
+	 * @return the other requests of the channel, in order
+	 */
+	public List<HttpRequestContext> remove(PipelinedChannel pipelinedChannel, HttpRequestContext httpRequestContext) {
+		synchronized (servers) {
+			if (pipelinedChannel.isRemoved()) {
+				return Collections.emptyList();
+			}
+
+			pipelinedChannel.remove(httpRequestContext);
+			List<HttpRequestContext> left = pipelinedChannel.removeAll();
+			removeChannel(pipelinedChannel);
+			logger.trace("Removed {}, {} requests left on it", pipelinedChannel, left.size());
+			return left;
+		}
+	}
+
+	private void removeChannel(PipelinedChannel pipelinedChannel) {
+		List<PipelinedChannel> channels = servers.get(pipelinedChannel.getServerInfo());
+		if (channels != null) {
+			channels.remove(pipelinedChannel);
+			if (channels.isEmpty()) {
+				servers.remove(pipelinedChannel.getServerInfo());
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import io.netty.channel.Channel;
+
+/**
+ * Callback used by {@link ChannelPool#acquire} to hand out the outcome of an acquire.
+ * Exactly one of the methods will be called for each acquire.
+ */
+public interface ChannelAcquireCallback {
+	/**
+	 * A pooled channel was available, or was handed back by a completed request while this acquire was waiting.
+	 * @param channel the channel to send on
+	 */
+	void onAcquiredChannel(Channel channel);
+
+	/**
+	 * No pooled channel was available but the server is below its connection limit, so a new connection may be opened.
+	 * The caller has to report the outcome through {@link ChannelPool#connectionCreated} or {@link ChannelPool#connectionFailed}.
+	 */
+	void onConnectionAllowed();
+
+	/**
+	 * The acquire could not be completed, for example because it has waited too long for a channel.
+	 * @param throwable the cause
+	 */
+	void onAcquireFailed(Throwable throwable);
+}
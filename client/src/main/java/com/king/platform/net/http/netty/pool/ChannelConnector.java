@@ -0,0 +1,24 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.channel.Channel;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opens connections on behalf of the pool, used to keep the minimum number of connections to a server warm.
+ */
+public interface ChannelConnector {
+	/**
+	 * Open a new connection to the server, including the ssl handshake for secure servers.
+	 * @param serverInfo the server
+	 * @return future completed with the connected channel
+	 */
+	CompletableFuture<Channel> connect(ServerInfo serverInfo);
+}
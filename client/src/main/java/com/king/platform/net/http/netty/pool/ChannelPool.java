@@ -8,14 +8,78 @@ package com.king.platform.net.http.netty.pool;
 
 import com.king.platform.net.http.netty.ServerInfo;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface ChannelPool {
 	Channel get(ServerInfo serverInfo);
 
+	/**
+	 * Acquire a channel for the server. The callback is either given a pooled channel, allowed to open a new connection,
+	 * or queued until a channel is offered back or a connection slot is released.
+	 * Idle channels registered on the event loop are preferred, so the request can be written without handing it over to another thread.
+	 * @param serverInfo the server
+	 * @param eventLoop the event loop the request has been dispatched to
+	 * @param callback the callback receiving the outcome
+	 */
+	void acquire(ServerInfo serverInfo, EventLoop eventLoop, ChannelAcquireCallback callback);
+
 	void offer(ServerInfo serverInfo, Channel channel);
 
+	/**
+	 * Offer a channel back to the pool, honoring the Keep-Alive parameters the server sent with the response.
+	 * @param serverInfo the server
+	 * @param channel the channel
+	 * @param keepAliveHint the parsed Keep-Alive response header
+	 */
+	void offer(ServerInfo serverInfo, Channel channel, KeepAliveHint keepAliveHint);
+
 	void discard(ServerInfo serverInfo, Channel channel);
 
+	/**
+	 * Should be called when a connection allowed by {@link ChannelAcquireCallback#onConnectionAllowed()} has been established.
+	 * @param serverInfo the server
+	 * @param channel the new channel
+	 */
+	void connectionCreated(ServerInfo serverInfo, Channel channel);
+
+	/**
+	 * Should be called when a connection allowed by {@link ChannelAcquireCallback#onConnectionAllowed()} failed to connect.
+	 * @param serverInfo the server
+	 */
+	void connectionFailed(ServerInfo serverInfo);
+
+	/**
+	 * Set the connector used by the pool to open connections on its own, for example to keep warm connections to a server.
+	 * @param channelConnector the connector
+	 */
+	void setChannelConnector(ChannelConnector channelConnector);
+
+	/**
+	 * Open connections to the server and keep at least that many idle pooled connections to it from now on.
+	 * @param serverInfo the server
+	 * @param connections the minimum number of connections
+	 * @return future completed when the connections opened by this call have been established
+	 */
+	CompletableFuture<Void> warmUp(ServerInfo serverInfo, int connections);
+
+	/**
+	 * Open connections to the server once, until it has the given number of connections. Unlike {@link #warmUp(ServerInfo, int)}
+	 * the connections are not replaced when they close.
+	 * @param serverInfo the server
+	 * @param connections the number of connections to open up to
+	 * @return future completed when the connections opened by this call have been established
+	 */
+	CompletableFuture<Void> preConnect(ServerInfo serverInfo, int connections);
+
+	/**
+	 * Set the listener told when the pools of the servers are created and removed.
+	 * @param serverPoolListener the listener
+	 */
+	default void setServerPoolListener(ServerPoolListener serverPoolListener) {
+	}
+
 	boolean isActive();
 
 	void shutdown();
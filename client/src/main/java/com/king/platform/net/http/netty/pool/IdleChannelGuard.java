@@ -0,0 +1,54 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Closes pooled channels that receive data while they are idle in the pool.
+ * A server has no reason to send anything on an idle keep-alive connection, so the connection can not be trusted with a new request.
+ * The close is picked up by the server pool, which evicts the channel right away.
+ */
+@Sharable
+public class IdleChannelGuard extends ChannelInboundHandlerAdapter {
+	public static final IdleChannelGuard INSTANCE = new IdleChannelGuard();
+
+	static final AttributeKey<Boolean> IDLE_IN_POOL = AttributeKey.valueOf("__IdleChannelGuard_IdleInPool");
+
+	private final Logger logger = getLogger(getClass());
+
+	private IdleChannelGuard() {
+	}
+
+	static void setIdle(Channel channel, boolean idle) {
+		channel.attr(IDLE_IN_POOL).set(idle);
+	}
+
+	static boolean isIdle(Channel channel) {
+		return Boolean.TRUE.equals(channel.attr(IDLE_IN_POOL).get());
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (isIdle(ctx.channel())) {
+			logger.trace("Received unexpected data on idle pooled channel {}, closing it", ctx.channel());
+			ReferenceCountUtil.release(msg);
+			ctx.close();
+			return;
+		}
+
+		ctx.fireChannelRead(msg);
+	}
+}
@@ -0,0 +1,155 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Lock free LIFO stack of idle channels.
+ * Each node carries a linked flag, and a node is only taken out of the stack by the thread that wins the CAS of that flag from linked
+ * to unlinked. The order of the nodes is kept in a ConcurrentLinkedDeque. A removed node is taken out of the deque right away; a stale
+ * entry that a race between push and remove leaves behind has its flag cleared, and is dropped by the next poll or scan that reaches it.
+ */
+class IdleChannelStack<T extends IdleChannelStack.Node> {
+	private static final AtomicIntegerFieldUpdater<Node> LINKED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Node.class, "linked");
+
+	private final ConcurrentLinkedDeque<T> deque = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	public void push(T node) {
+		if (node.linked == 1 && unlink(node)) {
+			deque.removeFirstOccurrence(node);
+		}
+
+		if (LINKED_UPDATER.compareAndSet(node, 0, 1)) {
+			size.incrementAndGet();
+			deque.offerFirst(node);
+		}
+	}
+
+	public T poll() {
+		T node;
+		while ((node = deque.pollFirst()) != null) {
+			if (unlink(node)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	public T pollLast() {
+		T node;
+		while ((node = deque.pollLast()) != null) {
+			if (unlink(node)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Poll the node with the lowest value, walking from the top of the stack so ties go to the most recently pushed node.
+	 * The scan holds no lock; if another thread takes the picked node first, the stack is scanned again.
+	 */
+	public T pollMin(ToIntFunction<? super T> valueFunction) {
+		while (true) {
+			T min = null;
+			int minValue = 0;
+			for (T node : deque) {
+				if (node.linked == 0) {
+					continue;
+				}
+
+				int value = valueFunction.applyAsInt(node);
+				if (min == null || value < minValue) {
+					min = node;
+					minValue = value;
+				}
+			}
+
+			if (min == null) {
+				return null;
+			}
+
+			if (unlink(min)) {
+				deque.removeFirstOccurrence(min);
+				return min;
+			}
+		}
+	}
+
+	public boolean remove(T node) {
+		if (!unlink(node)) {
+			return false;
+		}
+		deque.removeFirstOccurrence(node);
+		return true;
+	}
+
+	public boolean remove(T node, Predicate<T> predicate) {
+		if (node.linked == 0 || !predicate.test(node)) {
+			return false;
+		}
+		return remove(node);
+	}
+
+	public boolean contains(T node) {
+		return node.linked == 1;
+	}
+
+	public List<T> removeIf(Predicate<T> predicate) {
+		List<T> removed = new ArrayList<>();
+		Iterator<T> iterator = deque.iterator();
+		while (iterator.hasNext()) {
+			T node = iterator.next();
+			if (node.linked == 0) {
+				iterator.remove();
+			} else if (predicate.test(node) && unlink(node)) {
+				iterator.remove();
+				removed.add(node);
+			}
+		}
+		return removed;
+	}
+
+	public List<T> snapshot() {
+		List<T> nodes = new ArrayList<>(size());
+		for (T node : deque) {
+			if (node.linked == 1 && !nodes.contains(node)) {
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	private boolean unlink(Node node) {
+		if (LINKED_UPDATER.compareAndSet(node, 1, 0)) {
+			size.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	static class Node {
+		volatile int linked;
+	}
+}
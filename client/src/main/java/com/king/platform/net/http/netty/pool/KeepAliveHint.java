@@ -0,0 +1,84 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+/**
+ * The parameters of a Keep-Alive response header, for example <code>Keep-Alive: timeout=5, max=100</code>.
+ * The timeout is how long the server keeps an idle connection open, and max is how many more requests it will accept on it.
+ */
+public final class KeepAliveHint {
+	public static final KeepAliveHint NONE = new KeepAliveHint(-1, -1);
+
+	private final long timeoutMillis;
+	private final int maxRequests;
+
+	public KeepAliveHint(long timeoutMillis, int maxRequests) {
+		this.timeoutMillis = timeoutMillis;
+		this.maxRequests = maxRequests;
+	}
+
+	/**
+	 * Parse the value of a Keep-Alive header. Unknown or malformed parameters are ignored.
+	 * @param headerValue the header value, may be null
+	 * @return the parsed hint, or {@link #NONE} if there was nothing to parse
+	 */
+	public static KeepAliveHint parse(String headerValue) {
+		if (headerValue == null || headerValue.isEmpty()) {
+			return NONE;
+		}
+
+		long timeoutMillis = -1;
+		int maxRequests = -1;
+
+		for (String parameter : headerValue.split(",")) {
+			int separator = parameter.indexOf('=');
+			if (separator < 0) {
+				continue;
+			}
+
+			String name = parameter.substring(0, separator).trim();
+			String value = parameter.substring(separator + 1).trim();
+
+			try {
+				if ("timeout".equalsIgnoreCase(name)) {
+					timeoutMillis = Long.parseLong(value) * 1000;
+				} else if ("max".equalsIgnoreCase(name)) {
+					maxRequests = Integer.parseInt(value);
+				}
+			} catch (NumberFormatException ignored) {
+			}
+		}
+
+		if (timeoutMillis < 0 && maxRequests < 0) {
+			return NONE;
+		}
+
+		return new KeepAliveHint(timeoutMillis, maxRequests);
+	}
+
+	/**
+	 * @return the idle timeout of the server in milli seconds, or -1 if not given
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @return the number of requests the server will still accept on the connection, or -1 if not given
+	 */
+	public int getMaxRequests() {
+		return maxRequests;
+	}
+
+	@Override
+	public String toString() {
+		return "KeepAliveHint{" +
+			"timeoutMillis=" + timeoutMillis +
+			", maxRequests=" + maxRequests +
+			'}';
+	}
+}
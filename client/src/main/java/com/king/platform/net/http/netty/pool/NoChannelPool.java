@@ -8,6 +8,9 @@ package com.king.platform.net.http.netty.pool;
 
 import com.king.platform.net.http.netty.ServerInfo;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+
+import java.util.concurrent.CompletableFuture;
 
 public class NoChannelPool implements ChannelPool {
 
@@ -16,16 +19,51 @@ public class NoChannelPool implements ChannelPool {
 		return null;
 	}
 
+	@Override
+	public void acquire(ServerInfo serverInfo, EventLoop eventLoop, ChannelAcquireCallback callback) {
+		callback.onConnectionAllowed();
+	}
+
 	@Override
 	public void offer(ServerInfo serverInfo, Channel channel) {
 		channel.close();
 	}
 
+	@Override
+	public void offer(ServerInfo serverInfo, Channel channel, KeepAliveHint keepAliveHint) {
+		channel.close();
+	}
+
 	@Override
 	public void discard(ServerInfo serverInfo, Channel channel) {
 		channel.close();
 	}
 
+	@Override
+	public void connectionCreated(ServerInfo serverInfo, Channel channel) {
+
+	}
+
+	@Override
+	public void connectionFailed(ServerInfo serverInfo) {
+
+	}
+
+	@Override
+	public void setChannelConnector(ChannelConnector channelConnector) {
+
+	}
+
+	@Override
+	public CompletableFuture<Void> warmUp(ServerInfo serverInfo, int connections) {
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public CompletableFuture<Void> preConnect(ServerInfo serverInfo, int connections) {
+		return CompletableFuture.completedFuture(null);
+	}
+
 	@Override
 	public boolean isActive() {
 		return false;
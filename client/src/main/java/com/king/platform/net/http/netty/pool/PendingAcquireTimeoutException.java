@@ -0,0 +1,18 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.TimeoutException;
+
+/**
+ * A request timed out in the queue of a server pool, waiting for a connection to the server.
+ */
+public class PendingAcquireTimeoutException extends TimeoutException {
+	public PendingAcquireTimeoutException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,31 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+/**
+ * How the server pool picks which idle connection to hand out next.
+ */
+public enum PoolSelectionStrategy {
+	/**
+	 * The most recently returned connection is used first.
+	 * Keeps a small hot set of connections busy and lets the rest expire when the load goes down.
+	 */
+	LIFO,
+
+	/**
+	 * The connection that has been idle the longest is used first, round-robin over all pooled connections.
+	 * Spreads the load evenly, for example over connections that end up on different backends behind a proxy,
+	 * but keeps every connection in use so idle connections rarely expire.
+	 */
+	FIFO,
+
+	/**
+	 * The connection that has served the fewest requests is used first, ties go to the most recently returned connection.
+	 * Evens out the request count per connection, at the cost of a scan over the idle connections on each acquire.
+	 */
+	LEAST_REQUESTS
+}
@@ -6,14 +6,16 @@
 package com.king.platform.net.http.netty.pool;
 
 
+import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
 import io.netty.util.Timer;
 import org.slf4j.Logger;
 
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -25,34 +27,49 @@ public class PoolingChannelPool implements ChannelPool {
 
 	private final ConcurrentHashMap<ServerInfo, ServerPool> serverPoolMap = new ConcurrentHashMap<>();
 
+	private final Timer timer;
 	private final TimeProvider timeProvider;
 	private final MetricCallback metricCallback;
 
-	public PoolingChannelPool(final Timer cleanupTimer, TimeProvider timeProvider, long timeoutInMilliseconds, final MetricCallback metricCallback) {
-		this.timeProvider = timeProvider;
-		this.metricCallback = metricCallback;
+	private final ConfMap confMap;
 
-		maxTtl = timeoutInMilliseconds;
+	private volatile ChannelConnector channelConnector;
+	private volatile ServerPoolListener serverPoolListener;
 
-		cleanupTimer.newTimeout(timeout -> {
+	public PoolingChannelPool(final Timer cleanupTimer, TimeProvider timeProvider, long timeoutInMilliseconds, final MetricCallback metricCallback) {
+		this(cleanupTimer, timeProvider, timeoutInMilliseconds, new ConfMap(), metricCallback);
+	}
 
-            for (Map.Entry<ServerInfo, ServerPool> poolEntry : serverPoolMap.entrySet()) {
-                ServerPool serverPool = poolEntry.getValue();
-                ServerInfo serverInfo = poolEntry.getKey();
+	public PoolingChannelPool(final Timer cleanupTimer, TimeProvider timeProvider, long timeoutInMilliseconds, ConfMap confMap, final MetricCallback
+		metricCallback) {
+		this.timer = cleanupTimer;
+		this.timeProvider = timeProvider;
+		this.metricCallback = metricCallback;
 
-                serverPool.cleanExpiredConnections();
-                if (serverPool.shouldRemovePool()) {
-                    ServerPool remove = serverPoolMap.remove(serverInfo);
-                    if (remove != null) {
-                        metricCallback.onRemovedServerPool(serverInfo.getHost());
-                    }
-                }
+		this.confMap = confMap;
 
-            }
+		maxTtl = timeoutInMilliseconds;
+	}
 
-            cleanupTimer.newTimeout(timeout.task(), maxTtl, TimeUnit.MILLISECONDS);
+	/**
+	 * Idle channels are expired by their own timeouts in the server pool, so the pool itself only needs a cheap check every ttl
+	 * to see if it can be removed.
+	 */
+	private void scheduleServerPoolRemoval(final ServerInfo serverInfo, final ServerPool serverPool) {
+		timer.newTimeout(timeout -> {
+			if (serverPool.shouldRemovePool()) {
+				if (serverPoolMap.remove(serverInfo, serverPool)) {
+					metricCallback.onRemovedServerPool(serverInfo.getHost());
+					ServerPoolListener listener = serverPoolListener;
+					if (listener != null) {
+						listener.onServerPoolRemoved(serverInfo);
+					}
+				}
+			} else if (serverPoolMap.get(serverInfo) == serverPool) {
+				timer.newTimeout(timeout.task(), maxTtl, TimeUnit.MILLISECONDS);
+			}
 
-        }, maxTtl, TimeUnit.MILLISECONDS);
+		}, maxTtl, TimeUnit.MILLISECONDS);
 	}
 
 
@@ -66,21 +83,39 @@ public class PoolingChannelPool implements ChannelPool {
 		return serverPool.poll();
 	}
 
+	@Override
+	public void acquire(ServerInfo serverInfo, EventLoop eventLoop, ChannelAcquireCallback callback) {
+		getOrCreateServerPool(serverInfo).acquire(eventLoop, callback);
+	}
+
 	@Override
 	public void offer(ServerInfo serverInfo, Channel channel) {
+		getOrCreateServerPool(serverInfo).offer(channel);
+	}
+
+	@Override
+	public void offer(ServerInfo serverInfo, Channel channel, KeepAliveHint keepAliveHint) {
+		getOrCreateServerPool(serverInfo).offer(channel, keepAliveHint);
+	}
+
+	private ServerPool getOrCreateServerPool(ServerInfo serverInfo) {
 		ServerPool serverPool = serverPoolMap.get(serverInfo);
 		if (serverPool == null) {
-			serverPool = new ServerPool(serverInfo, maxTtl, TimeUnit.MILLISECONDS, timeProvider, metricCallback);
+			serverPool = new ServerPool(serverInfo, maxTtl, TimeUnit.MILLISECONDS, confMap, timer, timeProvider, metricCallback);
 			ServerPool old = serverPoolMap.putIfAbsent(serverInfo, serverPool);
 			if (old != null) {
 				serverPool = old;
 			} else {
 				metricCallback.onCreatedServerPool(serverInfo.getHost());
+				ServerPoolListener listener = serverPoolListener;
+				if (listener != null) {
+					listener.onServerPoolCreated(serverInfo);
+				}
+				scheduleServerPoolRemoval(serverInfo, serverPool);
 
 			}
 		}
-
-		serverPool.offer(channel);
+		return serverPool;
 	}
 
 	@Override
@@ -93,6 +128,50 @@ public class PoolingChannelPool implements ChannelPool {
 		serverPool.discard(channel);
 	}
 
+	@Override
+	public void connectionCreated(ServerInfo serverInfo, Channel channel) {
+		getOrCreateServerPool(serverInfo).connectionCreated(channel);
+	}
+
+	@Override
+	public void connectionFailed(ServerInfo serverInfo) {
+		getOrCreateServerPool(serverInfo).connectionFailed();
+	}
+
+	@Override
+	public void setChannelConnector(ChannelConnector channelConnector) {
+		this.channelConnector = channelConnector;
+	}
+
+	@Override
+	public void setServerPoolListener(ServerPoolListener serverPoolListener) {
+		this.serverPoolListener = serverPoolListener;
+	}
+
+	@Override
+	public CompletableFuture<Void> warmUp(ServerInfo serverInfo, int connections) {
+		ChannelConnector connector = channelConnector;
+		if (connector == null) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("No channel connector has been set on the pool"));
+			return future;
+		}
+
+		return getOrCreateServerPool(serverInfo).warmUp(connections, connector);
+	}
+
+	@Override
+	public CompletableFuture<Void> preConnect(ServerInfo serverInfo, int connections) {
+		ChannelConnector connector = channelConnector;
+		if (connector == null) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("No channel connector has been set on the pool"));
+			return future;
+		}
+
+		return getOrCreateServerPool(serverInfo).preConnect(connections, connector);
+	}
+
 	@Override
 	public boolean isActive() {
 		return true;
@@ -6,54 +6,306 @@
 package com.king.platform.net.http.netty.pool;
 
 
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.util.TimeProvider;
 import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
 import org.slf4j.Logger;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class ServerPool {
+	static final AttributeKey<Long> CONNECTED_TIME_STAMP = AttributeKey.valueOf("__ServerPoolConnectedTimeStamp");
+	private static final long REPLENISH_RETRY_DELAY_MILLIS = 1000;
+
 	private final Logger logger = getLogger(getClass());
 	private final ServerInfo server;
-	private final long maxTTL;
-	private final TimeUnit ttlTimeUnit;
+	private final long maxTTLMillis;
 
 	private final AtomicInteger idGenerator = new AtomicInteger();
-	private final ConcurrentLinkedDeque<PooledChannel> pooledChannels = new ConcurrentLinkedDeque<>();
+	private final ConcurrentHashMap<EventLoop, IdleChannelStack<PooledChannel>> pooledChannels = new ConcurrentHashMap<>();
 	private final ConcurrentHashMap<Channel, PooledChannel> channelsMap = new ConcurrentHashMap<>();
 	private final TimeProvider timeProvider;
 	private final MetricCallback metricCallback;
 
+	private final int maxConnections;
+	private final int maxConnecting;
+	private final boolean limited;
+	private final long pendingAcquireTimeoutMillis;
+	private final Timer timer;
+	private final long maxLifetimeMillis;
+	private final int maxRequestsPerConnection;
+	private final int rotationJitterPercent;
+	private final long keepAliveSafetyMarginMillis;
+	private final PoolSelectionStrategy selectionStrategy;
+
+	private final Object connectionLock = new Object();
+	private final ArrayDeque<PendingAcquire> pendingAcquires = new ArrayDeque<>();
+	private int openConnections;
+	private int connectingConnections;
+
 	private volatile long lastOfferedConnectionTime;
 
+	private volatile int minConnections;
+	private volatile ChannelConnector channelConnector;
+	private final AtomicInteger pendingConnects = new AtomicInteger();
+	private volatile boolean shutdown;
+
 	public ServerPool(ServerInfo server, long maxTTL, TimeUnit ttlTimeUnit, TimeProvider timeProvider, MetricCallback metricCallback) {
+		this(server, maxTTL, ttlTimeUnit, new ConfMap(), null, timeProvider, metricCallback);
+	}
+
+	public ServerPool(ServerInfo server, long maxTTL, TimeUnit ttlTimeUnit, ConfMap confMap, Timer timer, TimeProvider timeProvider, MetricCallback
+		metricCallback) {
 		this.timeProvider = timeProvider;
 		this.metricCallback = metricCallback;
 		lastOfferedConnectionTime = timeProvider.currentTimeInMillis();
 		this.server = server;
-		this.maxTTL = maxTTL;
-		this.ttlTimeUnit = ttlTimeUnit;
+		this.maxTTLMillis = ttlTimeUnit.toMillis(maxTTL);
+		this.timer = timer;
+
+		maxConnections = confMap.get(ConfKeys.POOL_MAX_CONNECTIONS_PER_SERVER);
+		maxConnecting = confMap.get(ConfKeys.POOL_MAX_CONNECTING_PER_SERVER);
+		limited = maxConnections > 0 || maxConnecting > 0;
+		pendingAcquireTimeoutMillis = confMap.get(ConfKeys.POOL_PENDING_ACQUIRE_TIMEOUT_MILLIS);
+		maxLifetimeMillis = confMap.get(ConfKeys.POOL_MAX_CONNECTION_LIFETIME_MILLIS);
+		maxRequestsPerConnection = confMap.get(ConfKeys.POOL_MAX_REQUESTS_PER_CONNECTION);
+		rotationJitterPercent = confMap.get(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT);
+		keepAliveSafetyMarginMillis = confMap.get(ConfKeys.POOL_KEEP_ALIVE_SAFETY_MARGIN_MILLIS);
+
+		PoolSelectionStrategy hostSelectionStrategy = confMap.get(ConfKeys.POOL_SELECTION_STRATEGY_PER_HOST).get(server.getHost());
+		selectionStrategy = hostSelectionStrategy != null ? hostSelectionStrategy : confMap.get(ConfKeys.POOL_SELECTION_STRATEGY);
+	}
+
+	public void acquire(ChannelAcquireCallback callback) {
+		acquire(null, callback);
+	}
+
+	/**
+	 * Acquire a channel, preferring idle channels registered on the given event loop.
+	 * @param eventLoop the event loop the request is dispatched to, or null if any channel will do
+	 * @param callback the callback receiving the outcome
+	 */
+	public void acquire(EventLoop eventLoop, ChannelAcquireCallback callback) {
+		if (!limited) {
+			Channel channel = poll(eventLoop);
+			if (channel != null) {
+				callback.onAcquiredChannel(channel);
+			} else {
+				callback.onConnectionAllowed();
+			}
+			return;
+		}
+
+		Channel channel;
+		boolean connectionAllowed = false;
+		PendingAcquire pendingAcquire = null;
+		int queueSize = 0;
+
+		synchronized (connectionLock) {
+			channel = pollChannel(eventLoop);
+			if (channel == null) {
+				if (reserveConnect()) {
+					connectionAllowed = true;
+				} else {
+					pendingAcquire = new PendingAcquire(callback, timeProvider.currentTimeInMillis());
+					pendingAcquires.add(pendingAcquire);
+					queueSize = pendingAcquires.size();
+				}
+			}
+		}
+
+		if (channel != null) {
+			if (minConnections > 0) {
+				replenish();
+			}
+			callback.onAcquiredChannel(channel);
+		} else if (connectionAllowed) {
+			callback.onConnectionAllowed();
+		} else {
+			logger.trace("Server {} is at its limit of {} connections or {} connection attempts, queued acquire as number {}", server, maxConnections,
+				maxConnecting, queueSize);
+			metricCallback.onServerPoolQueuedRequest(server.getHost(), queueSize);
+			schedulePendingAcquireTimeout(pendingAcquire);
+		}
+	}
+
+	private void schedulePendingAcquireTimeout(final PendingAcquire pendingAcquire) {
+		if (timer == null || pendingAcquireTimeoutMillis <= 0) {
+			return;
+		}
+
+		pendingAcquire.timeout = timer.newTimeout(timeout -> {
+			int queueSize;
+			synchronized (connectionLock) {
+				if (!pendingAcquires.remove(pendingAcquire)) {
+					return;
+				}
+				queueSize = pendingAcquires.size();
+			}
+
+			long waitTime = timeProvider.currentTimeInMillis() - pendingAcquire.queuedTimeStamp;
+			metricCallback.onServerPoolDequeuedRequest(server.getHost(), waitTime, queueSize);
+			pendingAcquire.callback.onAcquireFailed(new PendingAcquireTimeoutException("Timed out after " + waitTime + " ms waiting for a connection to " +
+				server));
+
+		}, pendingAcquireTimeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private PendingAcquire pollPendingAcquire() {
+		PendingAcquire pendingAcquire = pendingAcquires.poll();
+		if (pendingAcquire != null) {
+			long waitTime = timeProvider.currentTimeInMillis() - pendingAcquire.queuedTimeStamp;
+			metricCallback.onServerPoolDequeuedRequest(server.getHost(), waitTime, pendingAcquires.size());
+			if (pendingAcquire.timeout != null) {
+				pendingAcquire.timeout.cancel();
+			}
+		}
+		return pendingAcquire;
+	}
+
+	/**
+	 * Reserve a connection slot and a connection attempt slot, must be called holding the connection lock.
+	 * @return true if a new connection may be opened
+	 */
+	private boolean reserveConnect() {
+		if (maxConnections > 0 && openConnections >= maxConnections) {
+			return false;
+		}
+		if (maxConnecting > 0 && connectingConnections >= maxConnecting) {
+			return false;
+		}
+
+		openConnections++;
+		connectingConnections++;
+		return true;
+	}
+
+	public void connectionCreated(Channel channel) {
+		if (channel != null) {
+			// The max lifetime of the connection counts from here, not from when it is first offered to the pool
+			channel.attr(CONNECTED_TIME_STAMP).set(timeProvider.currentTimeInMillis());
+		}
+
+		if (!limited) {
+			return;
+		}
+
+		if (channel != null) {
+			channel.closeFuture().addListener(future -> releaseConnection(false));
+		}
+		connectAttemptCompleted();
+	}
+
+	public void connectionFailed() {
+		if (!limited) {
+			return;
+		}
+
+		releaseConnection(true);
+	}
+
+	private void connectAttemptCompleted() {
+		PendingAcquire pendingAcquire = null;
+		synchronized (connectionLock) {
+			connectingConnections--;
+			if (!pendingAcquires.isEmpty() && reserveConnect()) {
+				pendingAcquire = pollPendingAcquire();
+			}
+		}
+
+		if (pendingAcquire != null) {
+			logger.trace("Connection attempt to {} completed, letting a queued acquire open a new connection", server);
+			pendingAcquire.callback.onConnectionAllowed();
+		}
+	}
+
+	private void releaseConnection(boolean connectAttempt) {
+		PendingAcquire pendingAcquire = null;
+		synchronized (connectionLock) {
+			openConnections--;
+			if (connectAttempt) {
+				connectingConnections--;
+			}
+			if (!pendingAcquires.isEmpty() && reserveConnect()) {
+				pendingAcquire = pollPendingAcquire();
+			}
+		}
+
+		if (pendingAcquire != null) {
+			logger.trace("Connection slot to {} released, letting a queued acquire open a new connection", server);
+			pendingAcquire.callback.onConnectionAllowed();
+		}
 	}
 
 	public Channel poll() {
+		return poll(null);
+	}
+
+	/**
+	 * Poll an idle channel from the sub pool of the event loop, and steal one from the other event loops if that sub pool is empty.
+	 * @param eventLoop the preferred event loop, or null to take the first idle channel found
+	 * @return an active channel or null if there are no idle channels
+	 */
+	public Channel poll(EventLoop eventLoop) {
+		Channel channel = pollChannel(eventLoop);
+		if (channel != null && minConnections > 0) {
+			// Keep the warm connections idle while this one serves a request
+			replenish();
+		}
+		return channel;
+	}
+
+	private Channel pollChannel(EventLoop eventLoop) {
+		if (eventLoop != null) {
+			IdleChannelStack<PooledChannel> localChannels = pooledChannels.get(eventLoop);
+			if (localChannels != null) {
+				Channel channel = pollValid(localChannels);
+				if (channel != null) {
+					return channel;
+				}
+			}
+		}
+
+		for (IdleChannelStack<PooledChannel> idleChannels : pooledChannels.values()) {
+			Channel channel = pollValid(idleChannels);
+			if (channel != null) {
+				if (eventLoop != null) {
+					logger.trace("Stole channel {} registered on another event loop for server {}", channel, server);
+				}
+				return channel;
+			}
+		}
+
+		return null;
+	}
+
+	private Channel pollValid(IdleChannelStack<PooledChannel> idleChannels) {
 		PooledChannel pooledChannel;
 
-		while ((pooledChannel = pooledChannels.poll()) != null) {
+		while ((pooledChannel = pollIdle(idleChannels)) != null) {
 			if (isValidConnection(pooledChannel)) {
 				logger.trace("Found active channel for server {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
+				IdleChannelGuard.setIdle(pooledChannel.channel, false);
 				return pooledChannel.channel;
 			} else {
 				channelsMap.remove(pooledChannel.channel);
+				pooledChannel.cancelExpiry();
 				pooledChannel.channel.close();
 				logger.trace("Channel to {} with id {} created at {} is dead!", server, pooledChannel.id, pooledChannel.creationTimeStamp);
 				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
@@ -64,6 +316,21 @@ public class ServerPool {
 
 	}
 
+	private PooledChannel pollIdle(IdleChannelStack<PooledChannel> idleChannels) {
+		switch (selectionStrategy) {
+			case FIFO:
+				return idleChannels.pollLast();
+			case LEAST_REQUESTS:
+				return idleChannels.pollMin(pooledChannel -> pooledChannel.servedRequests);
+			default:
+				return idleChannels.poll();
+		}
+	}
+
+	public PoolSelectionStrategy getSelectionStrategy() {
+		return selectionStrategy;
+	}
+
 	private boolean isValidConnection(PooledChannel pooledChannel) {
 		if (pooledChannel == null) {
 			return false;
@@ -72,7 +339,7 @@ public class ServerPool {
 		Channel channel = pooledChannel.channel;
 		long currentTime = timeProvider.currentTimeInMillis();
 
-		if (pooledChannel.lastUsedTimeStamp + maxTTL <= currentTime) {  //TTL for this connection has expired
+		if (getExpiryTimeStamp(pooledChannel) <= currentTime) {  //TTL or max lifetime for this connection has expired
 			return false;
 		}
 
@@ -84,6 +351,19 @@ public class ServerPool {
 	}
 
 	public void offer(Channel channel) {
+		offer(channel, KeepAliveHint.NONE);
+	}
+
+	/**
+	 * Offer a channel back to the pool after a completed response.
+	 * @param channel the channel
+	 * @param keepAliveHint the Keep-Alive parameters of the response, the channel is retired a safety margin before the server would close it
+	 */
+	public void offer(Channel channel, KeepAliveHint keepAliveHint) {
+		offer(channel, keepAliveHint, true);
+	}
+
+	private void offer(Channel channel, KeepAliveHint keepAliveHint, boolean completedRequest) {
 		if (channel == null) {
 			return;
 		}
@@ -100,11 +380,24 @@ public class ServerPool {
 		}
 
 		if (pooledChannel == null) {
-			pooledChannel = new PooledChannel(idGenerator.incrementAndGet(), timeProvider.currentTimeInMillis(), channel);
+			IdleChannelStack<PooledChannel> idleChannels = getIdleChannels(channel.eventLoop());
+			Long connectedTimeStamp = channel.attr(CONNECTED_TIME_STAMP).get();
+			long creationTimeStamp = connectedTimeStamp != null ? connectedTimeStamp : timeProvider.currentTimeInMillis();
+			pooledChannel = new PooledChannel(idGenerator.incrementAndGet(), creationTimeStamp, channel, idleChannels);
+			if (maxLifetimeMillis > 0) {
+				pooledChannel.lifetimeEndTimeStamp = creationTimeStamp + withJitter(maxLifetimeMillis);
+			}
+			if (maxRequestsPerConnection > 0) {
+				pooledChannel.maxRequests = withJitter(maxRequestsPerConnection);
+			}
 			PooledChannel oldValue = channelsMap.putIfAbsent(channel, pooledChannel);
 			if (oldValue == null) {
 				logger.trace("Adding new active channel for server {} with id {} created at {}", server, pooledChannel.id, pooledChannel.creationTimeStamp);
 				metricCallback.onServerPoolAddedConnection(server.getHost(), channelsMap.size());
+				final PooledChannel closedChannel = pooledChannel;
+				channel.closeFuture().addListener(future -> onChannelClosed(closedChannel));
+			} else {
+				pooledChannel = oldValue;
 			}
 
 		}
@@ -112,7 +405,253 @@ public class ServerPool {
 
 		lastOfferedConnectionTime = timeProvider.currentTimeInMillis();
 		pooledChannel.lastUsedTimeStamp = timeProvider.currentTimeInMillis();
-		pooledChannels.addFirst(pooledChannel);
+		if (completedRequest) {
+			pooledChannel.servedRequests++;
+			applyKeepAliveHint(pooledChannel, keepAliveHint);
+		}
+
+		if (shouldRetire(pooledChannel)) {
+			logger.trace("Retiring channel for server {} with id {} created at {} after {} requests", server, pooledChannel.id, pooledChannel
+				.creationTimeStamp, pooledChannel.servedRequests);
+			channelsMap.remove(channel);
+			channel.close();
+			metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+			return;
+		}
+
+		if (!limited) {
+			IdleChannelGuard.setIdle(channel, true);
+			pooledChannel.idleChannels.push(pooledChannel);
+			scheduleExpiry(pooledChannel);
+			return;
+		}
+
+		PendingAcquire pendingAcquire;
+		synchronized (connectionLock) {
+			pendingAcquire = pollPendingAcquire();
+			if (pendingAcquire == null) {
+				IdleChannelGuard.setIdle(channel, true);
+				pooledChannel.idleChannels.push(pooledChannel);
+			}
+		}
+
+		if (pendingAcquire != null) {
+			logger.trace("Handing channel with id {} directly to a queued acquire for server {}", pooledChannel.id, server);
+			pendingAcquire.callback.onAcquiredChannel(channel);
+		} else {
+			scheduleExpiry(pooledChannel);
+		}
+	}
+
+	/**
+	 * Evicts the channel as soon as it is closed. A channel closed while idle in the pool was closed by the server,
+	 * or by the {@link IdleChannelGuard} after unexpected data, and is reported as a stale connection.
+	 */
+	private void onChannelClosed(PooledChannel pooledChannel) {
+		boolean wasIdle = pooledChannel.idleChannels.remove(pooledChannel);
+		boolean removed = channelsMap.remove(pooledChannel.channel, pooledChannel);
+		pooledChannel.cancelExpiry();
+
+		if (wasIdle) {
+			logger.trace("Idle channel to {} with id {} was closed by the server", server, pooledChannel.id);
+			metricCallback.onServerPoolStaleConnection(server.getHost());
+			if (removed) {
+				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+			}
+		}
+
+		if (minConnections > 0) {
+			replenish();
+		}
+	}
+
+	/**
+	 * Open connections to the server, and keep at least that many idle connections in the pool until the pool is shut down.
+	 * Connections that are closed, expired, discarded or checked out are replaced in the background.
+	 * @param connections the minimum number of connections
+	 * @param channelConnector the connector used to open the connections
+	 * @return future completed when the connections opened by this call have been established
+	 */
+	public CompletableFuture<Void> warmUp(int connections, ChannelConnector channelConnector) {
+		this.channelConnector = channelConnector;
+		this.minConnections = connections;
+
+		List<CompletableFuture<Channel>> connects = replenish();
+		return CompletableFuture.allOf(connects.toArray(new CompletableFuture[connects.size()]));
+	}
+
+	/**
+	 * Open connections to the server until it has the given number of connections, without keeping that many connections afterwards.
+	 * @param connections the number of connections to open up to
+	 * @param channelConnector the connector used to open the connections
+	 * @return future completed when the connections opened by this call have been established
+	 */
+	public CompletableFuture<Void> preConnect(int connections, ChannelConnector channelConnector) {
+		List<CompletableFuture<Channel>> connects = openConnections(connections, channelConnector);
+		return CompletableFuture.allOf(connects.toArray(new CompletableFuture[connects.size()]));
+	}
+
+	private List<CompletableFuture<Channel>> replenish() {
+		return openConnections(minConnections, channelConnector);
+	}
+
+	private List<CompletableFuture<Channel>> openConnections(int connections, ChannelConnector connector) {
+		List<CompletableFuture<Channel>> connects = new ArrayList<>();
+		if (connector == null || shutdown) {
+			return connects;
+		}
+
+		while (true) {
+			// Only idle connections are warm, a pool with all its connections checked out opens new ones
+			int pending = pendingConnects.get();
+			if (getPoolSize() + pending >= connections) {
+				break;
+			}
+
+			if (!pendingConnects.compareAndSet(pending, pending + 1)) {
+				continue;
+			}
+
+			if (!reserveConnection()) {
+				pendingConnects.decrementAndGet();
+				break;
+			}
+
+			logger.trace("Opening warm connection to {}", server);
+			CompletableFuture<Channel> connect = connector.connect(server).whenComplete((channel, throwable) -> {
+				if (throwable != null) {
+					logger.trace("Failed to open warm connection to {}", server, throwable);
+					pendingConnects.decrementAndGet();
+					connectionFailed();
+					scheduleReplenish();
+					return;
+				}
+
+				connectionCreated(channel);
+				if (shutdown) {
+					channel.close();
+				} else {
+					offer(channel, KeepAliveHint.NONE, false);
+				}
+				pendingConnects.decrementAndGet();
+			});
+			connects.add(connect);
+
+			if (connect.isCompletedExceptionally()) {
+				// the retry is already scheduled, do not spin on a connector that fails right away
+				break;
+			}
+		}
+
+		return connects;
+	}
+
+	private boolean reserveConnection() {
+		if (!limited) {
+			return true;
+		}
+
+		synchronized (connectionLock) {
+			return reserveConnect();
+		}
+	}
+
+	private void scheduleReplenish() {
+		if (timer == null || shutdown) {
+			return;
+		}
+
+		timer.newTimeout(timeout -> replenish(), REPLENISH_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private long getExpiryTimeStamp(PooledChannel pooledChannel) {
+		long expiryTimeStamp = pooledChannel.lastUsedTimeStamp + maxTTLMillis;
+		if (pooledChannel.lifetimeEndTimeStamp > 0 && pooledChannel.lifetimeEndTimeStamp < expiryTimeStamp) {
+			expiryTimeStamp = pooledChannel.lifetimeEndTimeStamp;
+		}
+		return Math.min(expiryTimeStamp, pooledChannel.serverIdleDeadline);
+	}
+
+	/**
+	 * Each idle channel has at most one expiry timeout on the timer, so no periodic scan over the pool is needed.
+	 * The timeout is not cancelled when the channel is polled; if the channel has been used since, it is rescheduled when it fires.
+	 */
+	private void scheduleExpiry(final PooledChannel pooledChannel) {
+		if (timer == null) {
+			return;
+		}
+
+		synchronized (pooledChannel) {
+			if (pooledChannel.expiryTimeout != null) {
+				return;
+			}
+
+			long delay = Math.max(0, getExpiryTimeStamp(pooledChannel) - timeProvider.currentTimeInMillis());
+			pooledChannel.expiryTimeout = timer.newTimeout(timeout -> expire(pooledChannel), delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void expire(PooledChannel pooledChannel) {
+		synchronized (pooledChannel) {
+			pooledChannel.expiryTimeout = null;
+		}
+
+		if (pooledChannel.idleChannels.remove(pooledChannel, expiredChannel -> !isValidConnection(expiredChannel))) {
+			PooledChannel remove = channelsMap.remove(pooledChannel.channel);
+			logger.trace("Expired idle connection {}", pooledChannel.channel);
+			pooledChannel.channel.close();
+			if (remove != null) {
+				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
+			}
+
+		} else if (pooledChannel.idleChannels.contains(pooledChannel)) {
+			scheduleExpiry(pooledChannel);
+		}
+	}
+
+	private void applyKeepAliveHint(PooledChannel pooledChannel, KeepAliveHint keepAliveHint) {
+		if (keepAliveHint.getTimeoutMillis() >= 0) {
+			pooledChannel.serverIdleDeadline = pooledChannel.lastUsedTimeStamp + keepAliveHint.getTimeoutMillis() - keepAliveSafetyMarginMillis;
+		} else {
+			pooledChannel.serverIdleDeadline = Long.MAX_VALUE;
+		}
+		pooledChannel.serverRemainingRequests = keepAliveHint.getMaxRequests();
+	}
+
+	private boolean shouldRetire(PooledChannel pooledChannel) {
+		if (pooledChannel.maxRequests > 0 && pooledChannel.servedRequests >= pooledChannel.maxRequests) {
+			return true;
+		}
+
+		if (pooledChannel.serverRemainingRequests == 0 || pooledChannel.serverIdleDeadline <= pooledChannel.lastUsedTimeStamp) {
+			return true;
+		}
+
+		return pooledChannel.lifetimeEndTimeStamp > 0 && pooledChannel.lifetimeEndTimeStamp <= pooledChannel.lastUsedTimeStamp;
+	}
+
+	private long withJitter(long limit) {
+		long maxJitter = limit * rotationJitterPercent / 100;
+		if (maxJitter <= 0) {
+			return limit;
+		}
+		return limit - ThreadLocalRandom.current().nextLong(maxJitter + 1);
+	}
+
+	private int withJitter(int limit) {
+		return Math.max(1, (int) withJitter((long) limit));
+	}
+
+	private IdleChannelStack<PooledChannel> getIdleChannels(EventLoop eventLoop) {
+		IdleChannelStack<PooledChannel> idleChannels = pooledChannels.get(eventLoop);
+		if (idleChannels == null) {
+			idleChannels = new IdleChannelStack<>();
+			IdleChannelStack<PooledChannel> old = pooledChannels.putIfAbsent(eventLoop, idleChannels);
+			if (old != null) {
+				idleChannels = old;
+			}
+		}
+		return idleChannels;
 	}
 
 	public void discard(Channel channel) {
@@ -120,31 +659,32 @@ public class ServerPool {
 			return;
 		}
 
-		channel.close();
 		PooledChannel remove = channelsMap.remove(channel);
 		if (remove != null) {
-			//pooledChannels.remove(remove); we don't want to do remove since its expensive on a linkedList
+			remove.idleChannels.remove(remove);
+			remove.cancelExpiry();
 			//discard should not log an metric call for this since an event is triggerd by the calling method
 			//metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
 		}
+		channel.close();
 
 	}
 
+	/**
+	 * Sweep all idle channels and remove the expired and closed ones.
+	 * Idle channels are normally evicted individually by their expiry timeouts, so this is not scheduled by the pool.
+	 */
 	public void cleanExpiredConnections() {
-		HashSet<PooledChannel> currentPooledChannels = new HashSet<>(pooledChannels);
-
 		List<PooledChannel> closedChannels = new ArrayList<>();
-		for (PooledChannel pooledChannel : currentPooledChannels) {
-			if (!isValidConnection(pooledChannel)) {
-				closedChannels.add(pooledChannel);
-			}
+		for (IdleChannelStack<PooledChannel> idleChannels : pooledChannels.values()) {
+			closedChannels.addAll(idleChannels.removeIf(pooledChannel -> !isValidConnection(pooledChannel)));
 		}
 
 		for (PooledChannel closedChannel : closedChannels) {
-			pooledChannels.remove(closedChannel);
 			PooledChannel remove = channelsMap.remove(closedChannel.channel);
 
 			logger.trace("Cleaned expired connection {}", closedChannel.channel);
+			closedChannel.cancelExpiry();
 			if (remove != null) {
 				remove.channel.close();
 				metricCallback.onServerPoolClosedConnection(server.getHost(), channelsMap.size());
@@ -166,34 +706,111 @@ public class ServerPool {
 
 
 	public boolean shouldRemovePool() {
-		return pooledChannels.isEmpty() && lastOfferedConnectionTime + ttlTimeUnit.toMillis(maxTTL) <= timeProvider.currentTimeInMillis();
+		if (minConnections > 0) {
+			return false;
+		}
+
+		if (limited) {
+			synchronized (connectionLock) {
+				if (openConnections > 0 || !pendingAcquires.isEmpty()) {
+					return false;
+				}
+			}
+		}
+
+		return getPoolSize() == 0 && lastOfferedConnectionTime + maxTTLMillis <= timeProvider.currentTimeInMillis();
 	}
 
 	public int getPoolSize() {
-		return pooledChannels.size();
+		int poolSize = 0;
+		for (IdleChannelStack<PooledChannel> idleChannels : pooledChannels.values()) {
+			poolSize += idleChannels.size();
+		}
+		return poolSize;
 	}
 
 	public int getChannelSize() {
 		return channelsMap.size();
 	}
 
+	public int getOpenConnections() {
+		synchronized (connectionLock) {
+			return openConnections;
+		}
+	}
+
+	public int getConnectingConnections() {
+		synchronized (connectionLock) {
+			return connectingConnections;
+		}
+	}
+
+	public int getPendingAcquireSize() {
+		synchronized (connectionLock) {
+			return pendingAcquires.size();
+		}
+	}
+
 	public void shutdown() {
-		for (PooledChannel pooledChannel : pooledChannels) {
-			pooledChannel.channel.close().awaitUninterruptibly();
+		shutdown = true;
+
+		List<PendingAcquire> failedAcquires = new ArrayList<>();
+		synchronized (connectionLock) {
+			PendingAcquire pendingAcquire;
+			while ((pendingAcquire = pollPendingAcquire()) != null) {
+				failedAcquires.add(pendingAcquire);
+			}
+		}
+
+		for (PendingAcquire failedAcquire : failedAcquires) {
+			failedAcquire.callback.onAcquireFailed(new IllegalStateException("Channel pool has been shut down"));
+		}
+
+		for (IdleChannelStack<PooledChannel> idleChannels : pooledChannels.values()) {
+			for (PooledChannel pooledChannel : idleChannels.removeIf(pooledChannel -> true)) {
+				pooledChannel.cancelExpiry();
+				pooledChannel.channel.close().awaitUninterruptibly();
+			}
 		}
 	}
 
+	private static class PendingAcquire {
+		private final ChannelAcquireCallback callback;
+		private final long queuedTimeStamp;
+		private volatile Timeout timeout;
 
-	private static class PooledChannel {
+		public PendingAcquire(ChannelAcquireCallback callback, long queuedTimeStamp) {
+			this.callback = callback;
+			this.queuedTimeStamp = queuedTimeStamp;
+		}
+	}
+
+
+	private static class PooledChannel extends IdleChannelStack.Node {
 		private int id;
 		private long creationTimeStamp;
-		private long lastUsedTimeStamp;
+		private volatile long lastUsedTimeStamp;
+		private long lifetimeEndTimeStamp;
+		private int maxRequests;
+		private volatile int servedRequests;
+		private volatile long serverIdleDeadline = Long.MAX_VALUE;
+		private int serverRemainingRequests = -1;
 		private Channel channel;
+		private final IdleChannelStack<PooledChannel> idleChannels;
+		private Timeout expiryTimeout;
 
-		public PooledChannel(int id, long creationTimeStamp, Channel channel) {
+		public PooledChannel(int id, long creationTimeStamp, Channel channel, IdleChannelStack<PooledChannel> idleChannels) {
 			this.id = id;
 			this.creationTimeStamp = creationTimeStamp;
 			this.channel = channel;
+			this.idleChannels = idleChannels;
+		}
+
+		private synchronized void cancelExpiry() {
+			if (expiryTimeout != null) {
+				expiryTimeout.cancel();
+				expiryTimeout = null;
+			}
 		}
 	}
 }
@@ -0,0 +1,18 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+
+/**
+ * Told when the pool creates the pool of a server, and when it removes it after the server has not been used for a while.
+ */
+public interface ServerPoolListener {
+	void onServerPoolCreated(ServerInfo serverInfo);
+
+	void onServerPoolRemoved(ServerInfo serverInfo);
+}
@@ -7,6 +7,7 @@ package com.king.platform.net.http.netty.request;
 
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 
@@ -26,8 +27,14 @@ public class ByteArrayHttpBody implements HttpBody {
 
 	@Override
 	public ChannelFuture writeContent(ChannelHandlerContext ctx, boolean isSecure) {
-		ByteBuf byteBuf = ctx.alloc().buffer(content.length).writeBytes(content);
-		return ctx.write(byteBuf, ctx.newProgressivePromise());
+		return ctx.write(newContentBuffer(ctx.alloc()), ctx.newProgressivePromise());
+	}
+
+	/**
+	 * @return a new buffer holding the content, for writing it as part of a full request
+	 */
+	public ByteBuf newContentBuffer(ByteBufAllocator allocator) {
+		return allocator.buffer(content.length).writeBytes(content);
 	}
 
 	@Override
@@ -11,10 +11,17 @@ import com.king.platform.net.http.netty.HttpRequestContext;
 import com.king.platform.net.http.netty.eventbus.Event;
 import com.king.platform.net.http.netty.eventbus.RequestEventBus;
 import com.king.platform.net.http.netty.eventbus.RunOnceCallback1;
+import com.king.platform.net.http.netty.pipelining.PipelinedChannel;
 import com.king.platform.net.http.netty.response.NettyHttpClientResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http2.Http2StreamChannel;
 import io.netty.util.Attribute;
 import org.slf4j.Logger;
 
@@ -43,7 +50,10 @@ public class HttpClientRequestHandler {
 
 			NettyHttpClientRequest request = httpRequestContext.getNettyHttpClientRequest();
 
-			ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(httpRequestContext);
+			// A pipelined channel points at the oldest request in flight, the responses are read in the order of the requests
+			if (ctx.channel().attr(PipelinedChannel.ATTRIBUTE_KEY).get() == null) {
+				ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).set(httpRequestContext);
+			}
 
 			RequestEventBus requestEventBus = httpRequestContext.getRequestEventBus();
 
@@ -52,6 +62,11 @@ public class HttpClientRequestHandler {
 
 			requestEventBus.triggerEvent(Event.POPULATE_CONNECTION_SPECIFIC_HEADERS, httpRequestContext.getServerInfo(), request.getNettyRequest().headers());
 
+			if (isFullyBuffered(request)) {
+				writeFullRequest(ctx, httpRequestContext, request, requestEventBus);
+				return;
+			}
+
 			writeHeaders(ctx, httpRequestContext, request.getNettyRequest(), requestEventBus);
 
 			if (request.isDontWriteBodyBecauseExpectContinue()) {
@@ -87,6 +102,57 @@ public class HttpClientRequestHandler {
 		}
 	}
 
+	/**
+	 * Requests without a body or with a byte array body are written as one {@link FullHttpRequest}, which the http codec encodes into
+	 * a single buffer when the body is small, instead of writing the headers, body and last content one by one.
+	 */
+	private boolean isFullyBuffered(NettyHttpClientRequest request) {
+		HttpBody httpBody = request.getHttpBody();
+		return !request.isDontWriteBodyBecauseExpectContinue() && (httpBody == null || httpBody instanceof ByteArrayHttpBody);
+	}
+
+	private void writeFullRequest(ChannelHandlerContext ctx, final HttpRequestContext httpRequestContext, NettyHttpClientRequest request, final
+		RequestEventBus requestEventBus) {
+		HttpRequest httpRequest = request.getNettyRequest();
+		final ByteArrayHttpBody httpBody = (ByteArrayHttpBody) request.getHttpBody();
+
+		httpRequestContext.getTimeRecorder().startWriteHeaders();
+		ByteBuf content = Unpooled.EMPTY_BUFFER;
+		if (httpBody != null) {
+			httpRequestContext.getTimeRecorder().startWriteBody();
+			content = httpBody.newContentBuffer(ctx.alloc());
+		}
+
+		FullHttpRequest fullHttpRequest = new DefaultFullHttpRequest(httpRequest.protocolVersion(), httpRequest.method(), httpRequest.uri(), content,
+			httpRequest.headers(), EmptyHttpHeaders.INSTANCE);
+
+		// Flushed by the writer of the request context
+		ChannelFuture channelFuture = ctx.write(fullHttpRequest);
+		channelFuture.addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				logger.trace("Wrote full request operation completed, future: {}", future);
+
+				if (future.isSuccess()) {
+					requestEventBus.triggerEvent(Event.onWroteHeaders);
+					httpRequestContext.getTimeRecorder().completedWriteHeaders();
+					if (httpBody != null) {
+						// The events of a body written on its own, the whole body is written at once
+						long contentLength = httpBody.getContentLength();
+						requestEventBus.triggerEvent(Event.onWroteContentStarted, contentLength);
+						requestEventBus.triggerEvent(Event.onWroteContentProgressed, contentLength, contentLength);
+						httpRequestContext.getTimeRecorder().completedWriteBody();
+					}
+					requestEventBus.triggerEvent(Event.onWroteContentCompleted);
+					requestEventBus.triggerEvent(Event.TOUCH);
+					httpRequestContext.getTimeRecorder().completedWriteLastBody();
+
+				} else {
+					requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, future.cause());
+				}
+			}
+		});
+	}
 
 	private void writeHeaders(ChannelHandlerContext ctx, final HttpRequestContext httpRequestContext, HttpRequest httpRequest, final RequestEventBus
 		requestEventBus) {
@@ -114,7 +180,9 @@ public class HttpClientRequestHandler {
 		try {
 			httpRequestContext.getTimeRecorder().startWriteBody();
 			requestEventBus.triggerEvent(Event.onWroteContentStarted, httpBody.getContentLength());
-			ChannelFuture channelFuture = httpBody.writeContent(ctx, httpRequestContext.getServerInfo().isSecure());
+			// Stream channels only take frames, so file bodies are read into buffers as they are for ssl connections
+			boolean zeroCopyUnsupported = httpRequestContext.getServerInfo().isSecure() || ctx.channel() instanceof Http2StreamChannel;
+			ChannelFuture channelFuture = httpBody.writeContent(ctx, zeroCopyUnsupported);
 
 			channelFuture.addListener(new ChannelProgressiveFutureListener() {
 				@Override
@@ -11,12 +11,10 @@ import com.king.platform.net.http.HttpResponse;
 import com.king.platform.net.http.netty.CustomCallbackSubscriber;
 import com.king.platform.net.http.netty.HttpClientCaller;
 import com.king.platform.net.http.netty.ResponseFuture;
-import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.eventbus.ExternalEventTrigger;
 import com.king.platform.net.http.netty.request.HttpBody;
 import com.king.platform.net.http.netty.request.NettyHttpClientRequest;
 import com.king.platform.net.http.util.Param;
-import com.king.platform.net.http.util.UriUtil;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.HttpMethod;
 
@@ -66,6 +64,8 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 
 	private CustomCallbackSubscriber customCallbackSubscriber;
 
+	private volatile RequestTemplate requestTemplate;
+
 
 	public BuiltNettyClientRequest(HttpClientCaller httpClientCaller, HttpVersion httpVersion, HttpMethod httpMethod, String uri, String defaultUserAgent, int idleTimeoutMillis, int totalRequestTimeoutMillis, boolean followRedirects, boolean acceptCompressedResponse, boolean keepAlive, RequestBodyBuilder requestBodyBuilder, String contentType, Charset bodyCharset, List<Param> queryParameters, List<Param> headerParameters, Executor callbackExecutor, Supplier<ResponseBodyConsumer<T>> responseBodyConsumer) {
 		this.httpClientCaller = httpClientCaller;
@@ -154,19 +154,13 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 	public CompletableFuture<HttpResponse<T>> execute() {
 		HttpCallback<T> httpCallback = getHttpCallback();
 
-		String completeUri = UriUtil.getUriWithParameters(uri, queryParameters);
-
-		ServerInfo serverInfo = null;
-		try {
-			serverInfo = ServerInfo.buildFromUri(completeUri);
-		} catch (URISyntaxException e) {
-			return dispatchError(httpCallback, e);
+		RequestTemplate requestTemplate = getRequestTemplate();
+		if (requestTemplate.getUriSyntaxException() != null) {
+			return dispatchError(httpCallback, requestTemplate.getUriSyntaxException());
 		}
 
-		String relativePath = UriUtil.getRelativeUri(completeUri);
-
-
-		DefaultHttpRequest defaultHttpRequest = new DefaultHttpRequest(httpVersion, httpMethod, relativePath);
+		HttpHeaders headers = requestTemplate.newHeaders();
+		DefaultHttpRequest defaultHttpRequest = new DefaultHttpRequest(httpVersion, httpMethod, requestTemplate.getRelativePath(), headers);
 
 		HttpBody httpBody = null;
 
@@ -174,18 +168,7 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 			httpBody = requestBodyBuilder.createHttpBody(contentType, bodyCharset);
 		}
 
-		NettyHttpClientRequest<T> nettyHttpClientRequest = new NettyHttpClientRequest<>(serverInfo, defaultHttpRequest, httpBody);
-
-		HttpHeaders headers = nettyHttpClientRequest.getNettyHeaders();
-
-		for (Param headerParameter : headerParameters) {
-			headers.add(headerParameter.getName(), headerParameter.getValue());
-		}
-
-
-		if (acceptCompressedResponse && !headers.contains(HttpHeaderNames.ACCEPT_ENCODING)) {
-			headers.set(HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderValues.GZIP + "," + HttpHeaderValues.DEFLATE);
-		}
+		NettyHttpClientRequest<T> nettyHttpClientRequest = new NettyHttpClientRequest<>(requestTemplate.getServerInfo(), defaultHttpRequest, httpBody);
 
 		if (httpBody != null) {
 			if (httpBody.getContentLength() < 0) {
@@ -205,24 +188,25 @@ public class BuiltNettyClientRequest<T> implements BuiltClientRequest<T>, BuiltC
 
 		}
 
-
-		if (!headers.contains(HttpHeaderNames.ACCEPT)) {
-			headers.set(HttpHeaderNames.ACCEPT, "*/*");
-		}
-
-		if (!headers.contains(HttpHeaderNames.USER_AGENT)) {
-			headers.set(HttpHeaderNames.USER_AGENT, defaultUserAgent);
-		}
-
-		if (!serverInfo.isWebSocket()) {
-			nettyHttpClientRequest.setKeepAlive(keepAlive);
-		}
-
 		return httpClientCaller.execute(httpMethod, nettyHttpClientRequest, httpCallback, getNioCallback(), getUploadCallback(), responseBodyConsumer.get(),
 			callbackExecutor, getExternalEventTrigger(), customCallbackSubscriber, idleTimeoutMillis, totalRequestTimeoutMillis, followRedirects, keepAlive);
 	}
 
 
+	/**
+	 * The uri, the query parameters and the headers of a built request never change, so they are parsed and encoded on the first execution
+	 * only. Concurrent first executions may compile it more than once, which is harmless as the template is immutable.
+	 */
+	private RequestTemplate getRequestTemplate() {
+		RequestTemplate requestTemplate = this.requestTemplate;
+		if (requestTemplate == null) {
+			requestTemplate = RequestTemplate.compile(httpVersion, uri, queryParameters, headerParameters, defaultUserAgent, acceptCompressedResponse,
+				keepAlive);
+			this.requestTemplate = requestTemplate;
+		}
+		return requestTemplate;
+	}
+
 	private NioCallback getNioCallback() {
 		NioCallback nioCallback = this.nioCallback;
 		if (nioCallbackSupplier != null) {
@@ -0,0 +1,116 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.requestbuilder;
+
+
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.util.Param;
+import com.king.platform.net.http.util.UriUtil;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+
+import java.net.URISyntaxException;
+import java.util.List;
+
+/**
+ * The parts of a built request that are the same on every execution: the parsed server, the relative path with the query parameters
+ * and the headers that do not depend on the body. It is compiled once per {@link BuiltNettyClientRequest}, and each execution starts
+ * from a copy of the headers. The ascii header names and values are kept as {@link AsciiString}s, which the http codec copies into
+ * the request buffer as they are instead of encoding them char by char.
+ */
+class RequestTemplate {
+	private static final AsciiString ACCEPT_COMPRESSED = AsciiString.of(HttpHeaderValues.GZIP + "," + HttpHeaderValues.DEFLATE);
+	private static final AsciiString ACCEPT_ALL = AsciiString.of("*/*");
+
+	private final ServerInfo serverInfo;
+	private final URISyntaxException uriSyntaxException;
+	private final String relativePath;
+	private final HttpHeaders headers;
+
+	private RequestTemplate(ServerInfo serverInfo, URISyntaxException uriSyntaxException, String relativePath, HttpHeaders headers) {
+		this.serverInfo = serverInfo;
+		this.uriSyntaxException = uriSyntaxException;
+		this.relativePath = relativePath;
+		this.headers = headers;
+	}
+
+	static RequestTemplate compile(HttpVersion httpVersion, String uri, List<Param> queryParameters, List<Param> headerParameters, String
+		defaultUserAgent, boolean acceptCompressedResponse, boolean keepAlive) {
+		String completeUri = UriUtil.getUriWithParameters(uri, queryParameters);
+
+		ServerInfo serverInfo;
+		try {
+			serverInfo = ServerInfo.buildFromUri(completeUri);
+		} catch (URISyntaxException e) {
+			return new RequestTemplate(null, e, null, null);
+		}
+
+		HttpHeaders headers = new DefaultHttpHeaders();
+		for (Param headerParameter : headerParameters) {
+			headers.add(toAscii(headerParameter.getName()), toAscii(headerParameter.getValue()));
+		}
+
+		if (acceptCompressedResponse && !headers.contains(HttpHeaderNames.ACCEPT_ENCODING)) {
+			headers.set(HttpHeaderNames.ACCEPT_ENCODING, ACCEPT_COMPRESSED);
+		}
+
+		if (!headers.contains(HttpHeaderNames.ACCEPT)) {
+			headers.set(HttpHeaderNames.ACCEPT, ACCEPT_ALL);
+		}
+
+		if (!headers.contains(HttpHeaderNames.USER_AGENT)) {
+			headers.set(HttpHeaderNames.USER_AGENT, toAscii(defaultUserAgent));
+		}
+
+		if (!serverInfo.isWebSocket()) {
+			HttpUtil.setKeepAlive(headers, httpVersion, keepAlive);
+		}
+
+		return new RequestTemplate(serverInfo, null, UriUtil.getRelativeUri(completeUri), headers);
+	}
+
+	/**
+	 * Header values outside of ascii are left as they are, to be encoded by the codec like before.
+	 */
+	private static CharSequence toAscii(CharSequence value) {
+		if (value == null || value instanceof AsciiString) {
+			return value;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 127) {
+				return value;
+			}
+		}
+		return new AsciiString(value);
+	}
+
+	/**
+	 * @return the parsing error of the uri, or null if the uri was valid
+	 */
+	URISyntaxException getUriSyntaxException() {
+		return uriSyntaxException;
+	}
+
+	ServerInfo getServerInfo() {
+		return serverInfo;
+	}
+
+	String getRelativePath() {
+		return relativePath;
+	}
+
+	/**
+	 * @return a copy of the headers, for one execution of the request
+	 */
+	HttpHeaders newHeaders() {
+		return headers.copy();
+	}
+}
@@ -6,6 +6,7 @@
 package com.king.platform.net.http.netty.response;
 
 
+import com.king.platform.net.http.FileResponseConsumer;
 import com.king.platform.net.http.ResponseBodyConsumer;
 import com.king.platform.net.http.netty.BaseHttpRequestHandler;
 import com.king.platform.net.http.netty.ConnectionClosedException;
@@ -13,12 +14,18 @@ import com.king.platform.net.http.netty.HttpRequestContext;
 import com.king.platform.net.http.netty.ResponseHandler;
 import com.king.platform.net.http.netty.eventbus.Event;
 import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import com.king.platform.net.http.netty.pipelining.PipelinedChannel;
 import com.king.platform.net.http.netty.util.StringUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
@@ -26,11 +33,23 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 public class HttpClientResponseHandler implements ResponseHandler {
 
+	private static final AttributeKey<SplicedFileDownload> SPLICED_FILE_DOWNLOAD_ATTRIBUTE_KEY = AttributeKey.valueOf("__SplicedFileDownload");
+
 	private final Logger logger = getLogger(getClass());
 	private final HttpRedirector httpRedirector;
+	private final boolean spliceFileResponses;
 
 	public HttpClientResponseHandler(HttpRedirector httpRedirector) {
+		this(httpRedirector, false);
+	}
+
+	/**
+	 * @param spliceFileResponses true to splice the bodies of plain http file responses from the socket to the file, see
+	 * {@link com.king.platform.net.http.ConfKeys#SPLICE_FILE_RESPONSES}
+	 */
+	public HttpClientResponseHandler(HttpRedirector httpRedirector, boolean spliceFileResponses) {
 		this.httpRedirector = httpRedirector;
+		this.spliceFileResponses = spliceFileResponses;
 	}
 
 	@Override
@@ -81,7 +100,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 				if (httpRequestContext.getHttpMethod().equals(HttpMethod.HEAD)) {
 					httpRequestContext.getTimeRecorder().responseBodyStart();
 					httpRequestContext.getTimeRecorder().responseBodyCompleted();
-					handleCompletedTransfer(httpRequestContext, requestEventBus, nettyHttpClientResponse);
+					handleCompletedTransfer(ctx, httpRequestContext, requestEventBus, nettyHttpClientResponse);
 					return;
 				}
 
@@ -111,6 +130,10 @@ public class HttpClientResponseHandler implements ResponseHandler {
 
 				httpRequestContext.getTimeRecorder().responseBodyStart();
 
+				if (isSpliceable(ctx, response, responseBodyConsumer, httpRequestContext.getExpectedContentLength())) {
+					startSplicedDownload(ctx, httpRequestContext, (FileResponseConsumer) responseBodyConsumer);
+				}
+
 			} else if (msg instanceof HttpContent) {
 				logger.trace("read HttpContent");
 				requestEventBus.triggerEvent(Event.TOUCH);
@@ -137,10 +160,15 @@ public class HttpClientResponseHandler implements ResponseHandler {
 
 				int readableBytes = content.readableBytes();
 
-				if (readableBytes > 0) {
-					ByteBuffer byteBuffer = content.nioBuffer();
+				SplicedFileDownload splicedFileDownload = ctx.channel().attr(SPLICED_FILE_DOWNLOAD_ATTRIBUTE_KEY).get();
 
-					responseBodyConsumer.onReceivedContentPart(byteBuffer);
+				if (readableBytes > 0) {
+					if (splicedFileDownload != null) {
+						splicedFileDownload.write(content);
+					} else {
+						ByteBuffer byteBuffer = content.nioBuffer();
+						responseBodyConsumer.onReceivedContentPart(byteBuffer);
+					}
 					requestEventBus.triggerEvent(Event.onReceivedContentPart, readableBytes, content);
 					httpRequestContext.addReadBytes(readableBytes);
 				}
@@ -157,16 +185,114 @@ public class HttpClientResponseHandler implements ResponseHandler {
 						return;
 					}
 
-					handleCompletedTransfer(httpRequestContext, requestEventBus, nettyHttpClientResponse);
+					handleCompletedTransfer(ctx, httpRequestContext, requestEventBus, nettyHttpClientResponse);
+				} else if (splicedFileDownload != null) {
+					scheduleSplice(ctx, httpRequestContext, splicedFileDownload);
 				}
 			}
 		} catch (Throwable e) {
+			closeSplicedDownload(ctx);
+			requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, e);
+		}
+	}
+
+	/**
+	 * Splicing needs the raw socket, so it is only used for plain http responses over epoll with a known length and an unencoded body.
+	 * Only the plain {@link FileResponseConsumer} is spliced, since a subclass may want to see the content parts.
+	 */
+	private boolean isSpliceable(ChannelHandlerContext ctx, HttpResponse response, ResponseBodyConsumer<?> responseBodyConsumer, long contentLength) {
+		if (!spliceFileResponses || contentLength <= 0 || responseBodyConsumer.getClass() != FileResponseConsumer.class) {
+			return false;
+		}
+
+		if (!(ctx.channel() instanceof EpollSocketChannel) || ctx.pipeline().get(SslHandler.class) != null) {
+			return false;
+		}
+
+		// The responses of the pipelined requests behind this one follow the body on the socket
+		if (ctx.channel().attr(PipelinedChannel.ATTRIBUTE_KEY).get() != null) {
+			return false;
+		}
+
+		String contentEncoding = response.headers().get(HttpHeaderNames.CONTENT_ENCODING);
+		if (contentEncoding != null && !HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(contentEncoding)) {
+			return false;
+		}
+
+		return !HttpUtil.isTransferEncodingChunked(response);
+	}
+
+	private void startSplicedDownload(ChannelHandlerContext ctx, HttpRequestContext<?> httpRequestContext, FileResponseConsumer fileResponseConsumer)
+		throws IOException {
+		SplicedFileDownload splicedFileDownload = new SplicedFileDownload((EpollSocketChannel) ctx.channel(), fileResponseConsumer.getBody(),
+			httpRequestContext.getExpectedContentLength());
+		logger.trace("Splicing {} bytes into {}", httpRequestContext.getExpectedContentLength(), fileResponseConsumer.getBody());
+
+		ctx.channel().attr(SPLICED_FILE_DOWNLOAD_ATTRIBUTE_KEY).set(splicedFileDownload);
+		httpRequestContext.discardConnectionOnCompletion();
+
+		// Body bytes that arrived with the headers are still in the decoder, they are delivered as content before the scheduled splice runs
+		ctx.channel().config().setAutoRead(false);
+		setSplicing(ctx, true);
+		scheduleSplice(ctx, httpRequestContext, splicedFileDownload);
+	}
+
+	private void scheduleSplice(ChannelHandlerContext ctx, HttpRequestContext<?> httpRequestContext, SplicedFileDownload splicedFileDownload) {
+		if (splicedFileDownload.markSpliceScheduled()) {
+			ctx.channel().eventLoop().execute(() -> splice(ctx, httpRequestContext, splicedFileDownload));
+		}
+	}
+
+	private void splice(ChannelHandlerContext ctx, HttpRequestContext<?> httpRequestContext, SplicedFileDownload splicedFileDownload) {
+		splicedFileDownload.spliceStarted();
+		if (ctx.channel().attr(SPLICED_FILE_DOWNLOAD_ATTRIBUTE_KEY).get() != splicedFileDownload) {
+			return;
+		}
+
+		NettyHttpClientResponse<?> nettyHttpClientResponse = httpRequestContext.getNettyHttpClientResponse();
+		RequestEventBus requestEventBus = nettyHttpClientResponse.getRequestEventBus();
+
+		try {
+			long splicedBytes = splicedFileDownload.spliceAvailable();
+			if (splicedBytes > 0) {
+				httpRequestContext.addReadBytes(splicedBytes);
+				requestEventBus.triggerEvent(Event.TOUCH);
+			}
+
+			if (splicedFileDownload.isComplete()) {
+				handleCompletedTransfer(ctx, httpRequestContext, requestEventBus, nettyHttpClientResponse);
+			} else {
+				// Wait for more data, the next read goes through the decoder and schedules a new splice
+				ctx.read();
+			}
+		} catch (Throwable e) {
+			closeSplicedDownload(ctx);
 			requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, e);
 		}
 	}
 
-	private void handleCompletedTransfer(HttpRequestContext httpRequestContext, RequestEventBus requestEventBus, NettyHttpClientResponse
-		nettyHttpClientResponse) throws Exception {
+	private void closeSplicedDownload(ChannelHandlerContext ctx) {
+		SplicedFileDownload splicedFileDownload = ctx.channel().attr(SPLICED_FILE_DOWNLOAD_ATTRIBUTE_KEY).getAndSet(null);
+		if (splicedFileDownload != null) {
+			setSplicing(ctx, false);
+			splicedFileDownload.close();
+		}
+	}
+
+	/**
+	 * While splicing, the reads that wait for more data only read a tiny buffer through the decoder and leave the rest for the splice.
+	 */
+	private void setSplicing(ChannelHandlerContext ctx, boolean splicing) {
+		RecvByteBufAllocator recvByteBufAllocator = ctx.channel().config().getRecvByteBufAllocator();
+		if (recvByteBufAllocator instanceof SpliceRecvByteBufAllocator) {
+			((SpliceRecvByteBufAllocator) recvByteBufAllocator).setSplicing(splicing);
+		}
+	}
+
+	private void handleCompletedTransfer(ChannelHandlerContext ctx, HttpRequestContext httpRequestContext, RequestEventBus requestEventBus,
+										 NettyHttpClientResponse nettyHttpClientResponse) throws Exception {
+		closeSplicedDownload(ctx);
+
 		ResponseBodyConsumer responseBodyConsumer = nettyHttpClientResponse.getResponseBodyConsumer();
 		HttpResponseStatus httpResponseStatus = nettyHttpClientResponse.getHttpResponseStatus();
 		HttpHeaders httpHeaders = nettyHttpClientResponse.getHttpHeaders();
@@ -189,6 +315,8 @@ public class HttpClientResponseHandler implements ResponseHandler {
 
 	@Override
 	public void handleChannelInactive(ChannelHandlerContext ctx) {
+		closeSplicedDownload(ctx);
+
 		HttpRequestContext httpRequestContext = ctx.channel().attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).get();
 
 		if (httpRequestContext == null) {
@@ -223,7 +351,7 @@ public class HttpClientResponseHandler implements ResponseHandler {
 		}
 
 		try {
-			handleCompletedTransfer(httpRequestContext, requestEventBus, nettyHttpClientResponse);
+			handleCompletedTransfer(ctx, httpRequestContext, requestEventBus, nettyHttpClientResponse);
 		} catch (Exception e) {
 			requestEventBus.triggerEvent(Event.ERROR, httpRequestContext, e);
 		}
@@ -0,0 +1,131 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.response;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.MaxMessagesRecvByteBufAllocator;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.util.UncheckedBooleanSupplier;
+
+/**
+ * Read allocator of a channel that may splice response bodies. While a splice is active the reads that wait for more data of the body
+ * read a single tiny buffer, so the data on the socket is left for the splice instead of being drained through the http decoder.
+ * The allocator is per channel, since netty creates the read handle of a channel once and keeps it for the life of the channel.
+ * It must therefore be installed before the first read, and the splicing flag must only be changed on the event loop of the channel.
+ */
+public class SpliceRecvByteBufAllocator implements MaxMessagesRecvByteBufAllocator {
+	private static final int WAKE_UP_READ_SIZE = 64;
+
+	private final RecvByteBufAllocator delegate;
+	private final RecvByteBufAllocator wakeUpAllocator = new FixedRecvByteBufAllocator(WAKE_UP_READ_SIZE).maxMessagesPerRead(1);
+	private boolean splicing;
+
+	public SpliceRecvByteBufAllocator(RecvByteBufAllocator delegate) {
+		this.delegate = delegate;
+	}
+
+	void setSplicing(boolean splicing) {
+		this.splicing = splicing;
+	}
+
+	@Override
+	public Handle newHandle() {
+		return new SpliceHandle((ExtendedHandle) delegate.newHandle(), (ExtendedHandle) wakeUpAllocator.newHandle());
+	}
+
+	@Override
+	public int maxMessagesPerRead() {
+		return maxMessagesDelegate().maxMessagesPerRead();
+	}
+
+	@Override
+	public MaxMessagesRecvByteBufAllocator maxMessagesPerRead(int maxMessagesPerRead) {
+		maxMessagesDelegate().maxMessagesPerRead(maxMessagesPerRead);
+		return this;
+	}
+
+	private MaxMessagesRecvByteBufAllocator maxMessagesDelegate() {
+		if (!(delegate instanceof MaxMessagesRecvByteBufAllocator)) {
+			throw new IllegalStateException(delegate.getClass().getName() + " does not limit the messages per read");
+		}
+		return (MaxMessagesRecvByteBufAllocator) delegate;
+	}
+
+	/**
+	 * Picks the handle when a read starts, and keeps it until the read is done.
+	 */
+	private class SpliceHandle implements ExtendedHandle {
+		private final ExtendedHandle readHandle;
+		private final ExtendedHandle wakeUpHandle;
+		private ExtendedHandle current;
+
+		private SpliceHandle(ExtendedHandle readHandle, ExtendedHandle wakeUpHandle) {
+			this.readHandle = readHandle;
+			this.wakeUpHandle = wakeUpHandle;
+			this.current = readHandle;
+		}
+
+		@Override
+		public void reset(ChannelConfig config) {
+			current = splicing ? wakeUpHandle : readHandle;
+			current.reset(config);
+		}
+
+		@Override
+		public ByteBuf allocate(ByteBufAllocator alloc) {
+			return current.allocate(alloc);
+		}
+
+		@Override
+		public int guess() {
+			return current.guess();
+		}
+
+		@Override
+		public void incMessagesRead(int numMessages) {
+			current.incMessagesRead(numMessages);
+		}
+
+		@Override
+		public void lastBytesRead(int bytes) {
+			current.lastBytesRead(bytes);
+		}
+
+		@Override
+		public int lastBytesRead() {
+			return current.lastBytesRead();
+		}
+
+		@Override
+		public void attemptedBytesRead(int bytes) {
+			current.attemptedBytesRead(bytes);
+		}
+
+		@Override
+		public int attemptedBytesRead() {
+			return current.attemptedBytesRead();
+		}
+
+		@Override
+		public boolean continueReading() {
+			return current.continueReading();
+		}
+
+		@Override
+		public boolean continueReading(UncheckedBooleanSupplier maybeMoreDataSupplier) {
+			return current.continueReading(maybeMoreDataSupplier);
+		}
+
+		@Override
+		public void readComplete() {
+			current.readComplete();
+		}
+	}
+}
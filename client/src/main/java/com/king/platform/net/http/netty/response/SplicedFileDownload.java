@@ -0,0 +1,126 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.response;
+
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.Native;
+import io.netty.channel.unix.FileDescriptor;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Moves the body of a response from the socket into a file with splice(2), without copying the bytes into user space.
+ * The body bytes the http decoder has already read are written to the file, and the rest is spliced from the socket through a pipe
+ * into the file. Both continue at the file position of the same descriptor, so the parts end up in the order they were received.
+ * The channel waits for more data with reads of a single tiny buffer, see {@link SpliceRecvByteBufAllocator}. The bytes of those reads
+ * are written from the decoder, and the rest of the data on the socket is spliced.
+ * The spliced bytes never pass the http decoder, so the connection can not be reused for another request afterwards.
+ * All the methods must be called on the event loop of the channel.
+ */
+class SplicedFileDownload {
+	private static final int PIPE_CAPACITY = 65536;
+
+	private final Logger logger = getLogger(getClass());
+
+	private final int socketFd;
+	private final long contentLength;
+	private final FileDescriptor fileDescriptor;
+	private final FileDescriptor pipeIn;
+	private final FileDescriptor pipeOut;
+
+	private long position;
+	private boolean spliceScheduled;
+
+	SplicedFileDownload(EpollSocketChannel channel, File file, long contentLength) throws IOException {
+		this.socketFd = channel.fd().intValue();
+		this.contentLength = contentLength;
+
+		fileDescriptor = FileDescriptor.from(file);
+		FileDescriptor[] pipe = FileDescriptor.pipe();
+		pipeIn = pipe[0];
+		pipeOut = pipe[1];
+	}
+
+	/**
+	 * Write body bytes that were read through the http decoder.
+	 */
+	void write(ByteBuf content) throws IOException {
+		ByteBuffer buffer = content.nioBuffer();
+		if (!buffer.isDirect()) {
+			ByteBuffer directBuffer = ByteBuffer.allocateDirect(buffer.remaining());
+			directBuffer.put(buffer).flip();
+			buffer = directBuffer;
+		}
+
+		while (buffer.hasRemaining()) {
+			int written = fileDescriptor.write(buffer, buffer.position(), buffer.limit());
+			buffer.position(buffer.position() + written);
+			position += written;
+		}
+	}
+
+	/**
+	 * Splice the body bytes that are available on the socket into the file.
+	 * @return the number of spliced bytes, 0 if the socket had no data
+	 */
+	long spliceAvailable() throws IOException {
+		long spliced = 0;
+		while (position < contentLength) {
+			int splicedIn = Native.splice(socketFd, -1, pipeOut.intValue(), -1, Math.min(PIPE_CAPACITY, contentLength - position));
+			if (splicedIn == 0) {
+				break;
+			}
+
+			while (splicedIn > 0) {
+				int splicedOut = Native.splice(pipeIn.intValue(), -1, fileDescriptor.intValue(), -1, splicedIn);
+				position += splicedOut;
+				spliced += splicedOut;
+				splicedIn -= splicedOut;
+			}
+		}
+		return spliced;
+	}
+
+	boolean isComplete() {
+		return position >= contentLength;
+	}
+
+	/**
+	 * @return true if the caller should schedule a splice, false if one is already scheduled
+	 */
+	boolean markSpliceScheduled() {
+		if (spliceScheduled) {
+			return false;
+		}
+		spliceScheduled = true;
+		return true;
+	}
+
+	void spliceStarted() {
+		spliceScheduled = false;
+	}
+
+	void close() {
+		closeQuietly(pipeIn);
+		closeQuietly(pipeOut);
+		closeQuietly(fileDescriptor);
+	}
+
+	private void closeQuietly(FileDescriptor descriptor) {
+		try {
+			descriptor.close();
+		} catch (IOException e) {
+			logger.trace("Failed to close file descriptor {}", descriptor, e);
+		}
+	}
+}
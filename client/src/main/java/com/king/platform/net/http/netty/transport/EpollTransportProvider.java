@@ -0,0 +1,76 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+class EpollTransportProvider implements TransportProvider {
+	@Override
+	public String getName() {
+		return "epoll";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return Epoll.isAvailable();
+	}
+
+	@Override
+	public Throwable unavailabilityCause() {
+		return Epoll.unavailabilityCause();
+	}
+
+	@Override
+	public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+		return new EpollEventLoopGroup(threads, threadFactory);
+	}
+
+	@Override
+	public boolean isCompatible(EventLoopGroup eventLoopGroup) {
+		return eventLoopGroup instanceof EpollEventLoopGroup;
+	}
+
+	@Override
+	public Class<? extends SocketChannel> getSocketChannelClass() {
+		return EpollSocketChannel.class;
+	}
+
+	@Override
+	public Class<? extends DatagramChannel> getDatagramChannelClass() {
+		return EpollDatagramChannel.class;
+	}
+
+	@Override
+	public Class<? extends Channel> getDomainSocketChannelClass() {
+		return EpollDomainSocketChannel.class;
+	}
+
+	@Override
+	public boolean supportsEpollOptions() {
+		return true;
+	}
+
+	@Override
+	public boolean supportsSplice() {
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
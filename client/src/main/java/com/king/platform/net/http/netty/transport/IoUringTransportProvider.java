@@ -0,0 +1,135 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The io_uring transport of the netty incubator (io.netty.incubator:netty-incubator-transport-native-io_uring). The incubator is not a
+ * dependency of the client, so the transport is looked up by class name and is only available when the application puts it on the class
+ * path, together with a netty version it supports, and runs on a kernel with io_uring.
+ */
+class IoUringTransportProvider implements TransportProvider {
+	private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+	private final Class<? extends EventLoopGroup> eventLoopGroupClass;
+	private final Class<? extends SocketChannel> socketChannelClass;
+	private final Class<? extends DatagramChannel> datagramChannelClass;
+	private final Throwable unavailabilityCause;
+
+	IoUringTransportProvider() {
+		Class<? extends EventLoopGroup> eventLoopGroupClass = null;
+		Class<? extends SocketChannel> socketChannelClass = null;
+		Class<? extends DatagramChannel> datagramChannelClass = null;
+		Throwable unavailabilityCause;
+
+		try {
+			ClassLoader classLoader = IoUringTransportProvider.class.getClassLoader();
+			Class<?> ioUringClass = Class.forName(PACKAGE + "IOUring", true, classLoader);
+			unavailabilityCause = (Throwable) ioUringClass.getMethod("unavailabilityCause").invoke(null);
+			if (unavailabilityCause == null) {
+				eventLoopGroupClass = Class.forName(PACKAGE + "IOUringEventLoopGroup", true, classLoader).asSubclass(EventLoopGroup.class);
+				socketChannelClass = Class.forName(PACKAGE + "IOUringSocketChannel", true, classLoader).asSubclass(SocketChannel.class);
+				datagramChannelClass = Class.forName(PACKAGE + "IOUringDatagramChannel", true, classLoader).asSubclass(DatagramChannel.class);
+			}
+		} catch (InvocationTargetException e) {
+			unavailabilityCause = e.getCause();
+		} catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+			unavailabilityCause = e;
+		}
+
+		if (unavailabilityCause != null) {
+			eventLoopGroupClass = null;
+			socketChannelClass = null;
+			datagramChannelClass = null;
+		}
+
+		this.eventLoopGroupClass = eventLoopGroupClass;
+		this.socketChannelClass = socketChannelClass;
+		this.datagramChannelClass = datagramChannelClass;
+		this.unavailabilityCause = unavailabilityCause;
+	}
+
+	@Override
+	public String getName() {
+		return "io_uring";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return unavailabilityCause == null;
+	}
+
+	@Override
+	public Throwable unavailabilityCause() {
+		return unavailabilityCause;
+	}
+
+	@Override
+	public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+		ensureAvailability();
+
+		try {
+			Constructor<? extends EventLoopGroup> constructor = eventLoopGroupClass.getConstructor(int.class, ThreadFactory.class);
+			return constructor.newInstance(threads, threadFactory);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException("Failed to create the io_uring event loops", e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Failed to create the io_uring event loops", e);
+		}
+	}
+
+	@Override
+	public boolean isCompatible(EventLoopGroup eventLoopGroup) {
+		return eventLoopGroupClass != null && eventLoopGroupClass.isInstance(eventLoopGroup);
+	}
+
+	@Override
+	public Class<? extends SocketChannel> getSocketChannelClass() {
+		ensureAvailability();
+		return socketChannelClass;
+	}
+
+	@Override
+	public Class<? extends DatagramChannel> getDatagramChannelClass() {
+		ensureAvailability();
+		return datagramChannelClass;
+	}
+
+	@Override
+	public Class<? extends Channel> getDomainSocketChannelClass() {
+		return null;
+	}
+
+	@Override
+	public boolean supportsEpollOptions() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsSplice() {
+		return false;
+	}
+
+	private void ensureAvailability() {
+		if (unavailabilityCause != null) {
+			throw new IllegalStateException("The io_uring transport is not available", unavailabilityCause);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
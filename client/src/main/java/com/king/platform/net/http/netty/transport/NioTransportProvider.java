@@ -0,0 +1,74 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+class NioTransportProvider implements TransportProvider {
+	@Override
+	public String getName() {
+		return "nio";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public Throwable unavailabilityCause() {
+		return null;
+	}
+
+	@Override
+	public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+		return new NioEventLoopGroup(threads, threadFactory);
+	}
+
+	@Override
+	public boolean isCompatible(EventLoopGroup eventLoopGroup) {
+		return eventLoopGroup instanceof NioEventLoopGroup;
+	}
+
+	@Override
+	public Class<? extends SocketChannel> getSocketChannelClass() {
+		return NioSocketChannel.class;
+	}
+
+	@Override
+	public Class<? extends DatagramChannel> getDatagramChannelClass() {
+		return NioDatagramChannel.class;
+	}
+
+	@Override
+	public Class<? extends Channel> getDomainSocketChannelClass() {
+		return null;
+	}
+
+	@Override
+	public boolean supportsEpollOptions() {
+		return false;
+	}
+
+	@Override
+	public boolean supportsSplice() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
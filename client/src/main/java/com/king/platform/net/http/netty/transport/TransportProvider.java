@@ -0,0 +1,63 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The netty transport the client runs on, creating the event loops and naming the channel classes that can be registered on them.
+ * The built in providers are found in {@link TransportProviders}.
+ */
+public interface TransportProvider {
+	/**
+	 * @return the name of the transport, as used by {@link com.king.platform.net.http.ConfKeys#TRANSPORT}
+	 */
+	String getName();
+
+	/**
+	 * @return true if the transport can be used on this host
+	 */
+	boolean isAvailable();
+
+	/**
+	 * @return the reason the transport can not be used, or null if it is available
+	 */
+	Throwable unavailabilityCause();
+
+	EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+	/**
+	 * @param eventLoopGroup the group
+	 * @return true if the channels of this transport can be registered on the group
+	 */
+	boolean isCompatible(EventLoopGroup eventLoopGroup);
+
+	Class<? extends SocketChannel> getSocketChannelClass();
+
+	Class<? extends DatagramChannel> getDatagramChannelClass();
+
+	/**
+	 * @return the channel class for unix domain sockets, or null if the transport does not support them
+	 */
+	Class<? extends Channel> getDomainSocketChannelClass();
+
+	/**
+	 * @return true if the {@link com.king.platform.net.http.netty.EpollOptions} apply to the channels of the transport
+	 */
+	boolean supportsEpollOptions();
+
+	/**
+	 * @return true if response bodies can be spliced from the socket into a file, see
+	 * {@link com.king.platform.net.http.ConfKeys#SPLICE_FILE_RESPONSES}
+	 */
+	boolean supportsSplice();
+}
@@ -0,0 +1,75 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+
+import io.netty.channel.EventLoopGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The built in transports, and the lookups used to select one from the configuration of the client.
+ */
+public final class TransportProviders {
+	public static final TransportProvider NIO = new NioTransportProvider();
+	public static final TransportProvider EPOLL = new EpollTransportProvider();
+	public static final TransportProvider IO_URING = new IoUringTransportProvider();
+
+	private static final List<TransportProvider> ALL = Collections.unmodifiableList(Arrays.asList(IO_URING, EPOLL, NIO));
+
+	private TransportProviders() {
+	}
+
+	/**
+	 * @return all the built in transports, the native ones first
+	 */
+	public static List<TransportProvider> all() {
+		return ALL;
+	}
+
+	/**
+	 * @return the built in transports that can be used on this host, the native ones first
+	 */
+	public static List<TransportProvider> available() {
+		List<TransportProvider> available = new ArrayList<>();
+		for (TransportProvider transportProvider : ALL) {
+			if (transportProvider.isAvailable()) {
+				available.add(transportProvider);
+			}
+		}
+		return available;
+	}
+
+	/**
+	 * @param name the name of the transport, nio, epoll or io_uring
+	 * @return the transport
+	 * @throws IllegalArgumentException if there is no transport with the name
+	 */
+	public static TransportProvider byName(String name) {
+		for (TransportProvider transportProvider : ALL) {
+			if (transportProvider.getName().equalsIgnoreCase(name)) {
+				return transportProvider;
+			}
+		}
+		throw new IllegalArgumentException("Unknown transport " + name);
+	}
+
+	/**
+	 * @param eventLoopGroup the group
+	 * @return the transport the group runs, nio for groups of unknown types
+	 */
+	public static TransportProvider of(EventLoopGroup eventLoopGroup) {
+		for (TransportProvider transportProvider : ALL) {
+			if (transportProvider.isCompatible(eventLoopGroup)) {
+				return transportProvider;
+			}
+		}
+		return NIO;
+	}
+}
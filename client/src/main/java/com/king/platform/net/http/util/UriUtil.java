@@ -35,6 +35,14 @@ public class UriUtil {
 			offset = 6;
 		}
 
+		if (completeUri.startsWith("http+unix://")) {
+			offset = 12;
+		}
+
+		if (completeUri.startsWith("https+unix://")) {
+			offset = 13;
+		}
+
 		int slashIndex = completeUri.indexOf("/", offset);
 		int paramIndex = completeUri.indexOf("?", offset);
 
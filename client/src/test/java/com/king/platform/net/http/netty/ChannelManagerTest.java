@@ -0,0 +1,49 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.DelegatingSslContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import org.junit.Test;
+
+import javax.net.ssl.SSLEngine;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChannelManagerTest {
+
+	@Test
+	public void supportedAlpnShouldBeDetected() throws Exception {
+		assertTrue(ChannelManager.isProtocolNegotiationSupported(jdkSslContext(ApplicationProtocolConfig.Protocol.ALPN)));
+	}
+
+	@Test
+	public void unsupportedAlpnShouldBeDetected() throws Exception {
+		// Fails the engine creation like the JDK provider does on java 8 without an ALPN agent
+		SslContext sslContext = new DelegatingSslContext(jdkSslContext(ApplicationProtocolConfig.Protocol.ALPN)) {
+			@Override
+			protected void initEngine(SSLEngine engine) {
+				throw new RuntimeException("ALPN unsupported. Is your classpath configured correctly?");
+			}
+		};
+
+		assertFalse(ChannelManager.isProtocolNegotiationSupported(sslContext));
+	}
+
+	private SslContext jdkSslContext(ApplicationProtocolConfig.Protocol protocol) throws Exception {
+		return SslContextBuilder.forClient()
+			.sslProvider(SslProvider.JDK)
+			.applicationProtocolConfig(new ApplicationProtocolConfig(protocol, ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+				ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT, ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1))
+			.build();
+	}
+}
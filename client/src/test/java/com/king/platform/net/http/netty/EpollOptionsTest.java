@@ -0,0 +1,51 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EpollOptionsTest {
+
+	@Test
+	public void unsetOptionsShouldNotBeApplied() throws Exception {
+		Bootstrap bootstrap = new Bootstrap();
+		new EpollOptions().applyTo(bootstrap);
+
+		assertTrue(bootstrap.config().options().isEmpty());
+	}
+
+	@Test
+	public void setOptionsShouldBeApplied() throws Exception {
+		Bootstrap bootstrap = new Bootstrap();
+		new EpollOptions()
+			.setTcpFastOpenConnect(true)
+			.setTcpQuickAck(true)
+			.setTcpUserTimeoutMillis(5000)
+			.setEpollMode(EpollMode.LEVEL_TRIGGERED)
+			.applyTo(bootstrap);
+
+		assertEquals(Boolean.TRUE, bootstrap.config().options().get(EpollChannelOption.TCP_FASTOPEN_CONNECT));
+		assertEquals(Boolean.TRUE, bootstrap.config().options().get(EpollChannelOption.TCP_QUICKACK));
+		assertEquals(5000, bootstrap.config().options().get(EpollChannelOption.TCP_USER_TIMEOUT));
+		assertEquals(EpollMode.LEVEL_TRIGGERED, bootstrap.config().options().get(EpollChannelOption.EPOLL_MODE));
+	}
+
+	@Test
+	public void hostOptionsShouldOverrideTheBootstrapOptions() throws Exception {
+		Bootstrap bootstrap = new Bootstrap();
+		new EpollOptions().setTcpQuickAck(false).setTcpUserTimeoutMillis(1000).applyTo(bootstrap);
+		new EpollOptions().setTcpQuickAck(true).applyTo(bootstrap);
+
+		assertEquals(Boolean.TRUE, bootstrap.config().options().get(EpollChannelOption.TCP_QUICKACK));
+		assertEquals(1000, bootstrap.config().options().get(EpollChannelOption.TCP_USER_TIMEOUT));
+	}
+}
@@ -0,0 +1,53 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class HappyEyeballsConnectorTest {
+	private final InetSocketAddress ipv6First = address(new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1});
+	private final InetSocketAddress ipv6Second = address(new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2});
+	private final InetSocketAddress ipv4First = address(new byte[]{10, 0, 0, 1});
+	private final InetSocketAddress ipv4Second = address(new byte[]{10, 0, 0, 2});
+
+	private static InetSocketAddress address(byte[] address) {
+		try {
+			return new InetSocketAddress(InetAddress.getByAddress(address), 80);
+		} catch (Exception e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	@Test
+	public void addressFamiliesShouldAlternateStartingWithTheFirstAddress() throws Exception {
+		List<InetSocketAddress> ordered = HappyEyeballsConnector.interleaveAddressFamilies(Arrays.asList(ipv6First, ipv6Second, ipv4First,
+			ipv4Second));
+
+		assertEquals(Arrays.asList(ipv6First, ipv4First, ipv6Second, ipv4Second), ordered);
+	}
+
+	@Test
+	public void ipv4FirstShouldBeKept() throws Exception {
+		List<InetSocketAddress> ordered = HappyEyeballsConnector.interleaveAddressFamilies(Arrays.asList(ipv4First, ipv6First, ipv6Second));
+
+		assertEquals(Arrays.asList(ipv4First, ipv6First, ipv6Second), ordered);
+	}
+
+	@Test
+	public void singleFamilyShouldKeepTheResolvedOrder() throws Exception {
+		List<InetSocketAddress> ordered = HappyEyeballsConnector.interleaveAddressFamilies(Arrays.asList(ipv4Second, ipv4First));
+
+		assertEquals(Arrays.asList(ipv4Second, ipv4First), ordered);
+	}
+}
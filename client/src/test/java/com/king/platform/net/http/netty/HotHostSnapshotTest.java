@@ -0,0 +1,79 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.netty.HotHostSnapshot.HotHost;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotHostSnapshotTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void writtenSnapshotShouldBeReadBack() throws Exception {
+		Path file = temporaryFolder.getRoot().toPath().resolve("hot-hosts");
+		InetAddress ipv4 = InetAddress.getByAddress(new byte[]{10, 0, 0, 1});
+		InetAddress ipv6 = InetAddress.getByName("::1");
+
+		new HotHostSnapshot(Arrays.asList(
+			new HotHost(ServerInfo.buildFromUri("https://someserver/"), 120, 4, Arrays.asList(ipv4, ipv6)),
+			new HotHost(ServerInfo.buildFromUri("http://[::1]:8081/"), 7, 1, Collections.emptyList())
+		)).write(file);
+
+		List<HotHost> hosts = HotHostSnapshot.read(file).getHosts();
+
+		assertEquals(2, hosts.size());
+		assertEquals(ServerInfo.buildFromUri("https://someserver:443/"), hosts.get(0).getServerInfo());
+		assertEquals(120, hosts.get(0).getRequests());
+		assertEquals(4, hosts.get(0).getConnections());
+		assertEquals(Arrays.asList(ipv4, ipv6), hosts.get(0).getAddresses());
+
+		assertEquals(ServerInfo.buildFromUri("http://[::1]:8081/"), hosts.get(1).getServerInfo());
+		assertEquals(7, hosts.get(1).getRequests());
+		assertTrue(hosts.get(1).getAddresses().isEmpty());
+	}
+
+	@Test
+	public void invalidLinesShouldBeSkipped() throws Exception {
+		Path file = temporaryFolder.getRoot().toPath().resolve("hot-hosts");
+		Files.write(file, Arrays.asList(
+			"# king-http-client hot hosts v1",
+			"http://someserver:80 10 2 10.0.0.1",
+			"http://otherserver:80 ten 2 -",
+			"http://otherserver:80 10 2 not-an-address",
+			"someserver 10 2 -",
+			"http://otherserver:80 10",
+			"",
+			"https://otherserver:443 3 1 -"
+		), StandardCharsets.UTF_8);
+
+		List<HotHost> hosts = HotHostSnapshot.read(file).getHosts();
+
+		assertEquals(2, hosts.size());
+		assertEquals("someserver", hosts.get(0).getServerInfo().getHost());
+		assertEquals("otherserver", hosts.get(1).getServerInfo().getHost());
+	}
+
+	@Test
+	public void missingFileShouldGiveAnEmptySnapshot() throws Exception {
+		Path file = temporaryFolder.getRoot().toPath().resolve("missing");
+
+		assertTrue(HotHostSnapshot.read(file).getHosts().isEmpty());
+	}
+}
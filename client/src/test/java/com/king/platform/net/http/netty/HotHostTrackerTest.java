@@ -0,0 +1,163 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.HotHostSnapshot.HotHost;
+import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.pool.ChannelPool;
+import io.netty.util.Timer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static se.mockachino.Mockachino.*;
+import static se.mockachino.matchers.Matchers.any;
+import static se.mockachino.matchers.Matchers.anyInt;
+
+public class HotHostTrackerTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path file;
+	private ConfMap confMap;
+	private DefaultEventBus rootEventBus;
+	private ChannelPool channelPool;
+	private List<String> resolvedHosts;
+
+	private ServerInfo someServer;
+	private ServerInfo otherServer;
+
+	@Before
+	public void setUp() throws Exception {
+		file = temporaryFolder.getRoot().toPath().resolve("hot-hosts");
+
+		confMap = new ConfMap();
+		confMap.set(ConfKeys.HOT_HOST_SNAPSHOT_FILE, file.toString());
+		confMap.set(ConfKeys.HOT_HOST_SNAPSHOT_MAX_CONNECTIONS, 5);
+
+		rootEventBus = new DefaultEventBus();
+		channelPool = mock(ChannelPool.class);
+		when(channelPool.preConnect(any(ServerInfo.class), anyInt())).thenReturn(CompletableFuture.completedFuture(null));
+		resolvedHosts = new ArrayList<>();
+
+		someServer = ServerInfo.buildFromUri("http://someserver/");
+		otherServer = ServerInfo.buildFromUri("http://otherserver/");
+	}
+
+	@Test
+	public void hottestHostsShouldBeFirstInTheSnapshot() throws Exception {
+		HotHostTracker tracker = newTracker();
+
+		execute(otherServer);
+		execute(someServer);
+		execute(someServer);
+		rootEventBus.triggerEvent(Event.CONNECTED_ADDRESS, someServer, new InetSocketAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 1}), 80));
+
+		List<HotHost> hosts = tracker.snapshot().getHosts();
+
+		assertEquals(2, hosts.size());
+		assertEquals(someServer, hosts.get(0).getServerInfo());
+		assertEquals(2, hosts.get(0).getRequests());
+		assertEquals(2, hosts.get(0).getConnections());
+		assertEquals(Collections.singletonList(InetAddress.getByAddress(new byte[]{10, 0, 0, 1})), hosts.get(0).getAddresses());
+		assertEquals(otherServer, hosts.get(1).getServerInfo());
+	}
+
+	@Test
+	public void idleHostsShouldCoolDownAndBeDropped() throws Exception {
+		HotHostTracker tracker = newTracker();
+
+		HttpRequestContext httpRequestContext = execute(someServer);
+		execute(someServer);
+		execute(someServer);
+		execute(someServer);
+		rootEventBus.triggerEvent(Event.COMPLETED, httpRequestContext);
+
+		assertEquals(4, tracker.snapshot().getHosts().get(0).getRequests());
+		assertEquals(2, tracker.snapshot().getHosts().get(0).getRequests());
+		assertEquals(1, tracker.snapshot().getHosts().get(0).getRequests());
+		assertTrue(tracker.snapshot().getHosts().isEmpty());
+	}
+
+	@Test
+	public void webSocketsShouldNotBeTracked() throws Exception {
+		HotHostTracker tracker = newTracker();
+
+		execute(ServerInfo.buildFromUri("ws://someserver/"));
+
+		assertTrue(tracker.snapshot().getHosts().isEmpty());
+	}
+
+	@Test
+	public void restoreShouldPreConnectWithinTheConnectionLimit() throws Exception {
+		new HotHostSnapshot(Arrays.asList(
+			new HotHost(someServer, 100, 4, Collections.emptyList()),
+			new HotHost(otherServer, 50, 4, Collections.emptyList()),
+			new HotHost(ServerInfo.buildFromUri("http://thirdserver/"), 10, 1, Collections.emptyList())
+		)).write(file);
+
+		HotHostTracker tracker = newTracker();
+		tracker.restore();
+
+		verifyOnce().on(channelPool).preConnect(someServer, 4);
+		verifyOnce().on(channelPool).preConnect(otherServer, 1);
+		verifyExactly(2).on(channelPool).preConnect(any(ServerInfo.class), anyInt());
+		assertEquals(Collections.singletonList("thirdserver"), resolvedHosts);
+
+		assertEquals(3, tracker.snapshot().getHosts().size());
+	}
+
+	@Test
+	public void restoreShouldOnlyResolveWhenSpreadOverResolvedAddresses() throws Exception {
+		confMap.set(ConfKeys.POOL_SPREAD_OVER_RESOLVED_ADDRESSES, true);
+		new HotHostSnapshot(Collections.singletonList(new HotHost(someServer, 100, 4, Collections.emptyList()))).write(file);
+
+		newTracker().restore();
+
+		verifyNever().on(channelPool).preConnect(any(ServerInfo.class), anyInt());
+		assertEquals(Collections.singletonList("someserver"), resolvedHosts);
+	}
+
+	@Test
+	public void shutdownShouldWriteTheSnapshot() throws Exception {
+		HotHostTracker tracker = newTracker();
+
+		execute(someServer);
+		tracker.shutdown();
+
+		List<HotHost> hosts = HotHostSnapshot.read(file).getHosts();
+		assertEquals(1, hosts.size());
+		assertEquals(someServer, hosts.get(0).getServerInfo());
+	}
+
+	private HotHostTracker newTracker() {
+		return new HotHostTracker(confMap, rootEventBus, mock(Timer.class), channelPool, host -> {
+			resolvedHosts.add(host);
+			return CompletableFuture.completedFuture(new InetAddress[0]);
+		});
+	}
+
+	private HttpRequestContext execute(ServerInfo serverInfo) {
+		HttpRequestContext httpRequestContext = mock(HttpRequestContext.class);
+		when(httpRequestContext.getServerInfo()).thenReturn(serverInfo);
+		rootEventBus.triggerEvent(Event.REUSED_CONNECTION, serverInfo);
+		return httpRequestContext;
+	}
+}
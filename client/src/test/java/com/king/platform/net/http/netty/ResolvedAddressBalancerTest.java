@@ -0,0 +1,217 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.pool.PendingAcquireTimeoutException;
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class ResolvedAddressBalancerTest {
+	private TimeProviderForTesting timeProvider;
+	private ServerInfo serverInfo;
+	private InetAddress firstAddress;
+	private InetAddress secondAddress;
+	private InetAddress[] resolvedAddresses;
+	private int resolveCount;
+	private ResolvedAddressBalancer resolvedAddressBalancer;
+
+	@Before
+	public void setUp() throws Exception {
+		timeProvider = new TimeProviderForTesting();
+		serverInfo = ServerInfo.buildFromUri("http://someserver/");
+		firstAddress = InetAddress.getByAddress("someserver", new byte[]{10, 0, 0, 1});
+		secondAddress = InetAddress.getByAddress("someserver", new byte[]{10, 0, 0, 2});
+		resolvedAddresses = new InetAddress[]{firstAddress, secondAddress};
+
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_ADDRESS_REFRESH_MILLIS, 1000);
+		confMap.set(ConfKeys.POOL_ADDRESS_EJECTION_FAILURES, 2);
+		confMap.set(ConfKeys.POOL_ADDRESS_EJECTION_MILLIS, 5000);
+
+		resolvedAddressBalancer = new ResolvedAddressBalancer(confMap, timeProvider, host -> {
+			resolveCount++;
+			CompletableFuture<InetAddress[]> future = new CompletableFuture<>();
+			if (resolvedAddresses == null) {
+				future.completeExceptionally(new UnknownHostException(host));
+			} else {
+				future.complete(resolvedAddresses);
+			}
+			return future;
+		});
+	}
+
+	@Test
+	public void requestsShouldBeSpreadOverTheAddresses() throws Exception {
+		ServerInfo first = acquire();
+		ServerInfo second = acquire();
+
+		assertEquals(firstAddress, first.getAddress());
+		assertEquals(secondAddress, second.getAddress());
+		assertEquals(1, resolveCount);
+	}
+
+	@Test
+	public void addressWithFewestOutstandingRequestsShouldBePicked() throws Exception {
+		ServerInfo first = acquire();
+		ServerInfo second = acquire();
+		acquire();
+		resolvedAddressBalancer.release(second, null);
+
+		assertEquals(firstAddress, first.getAddress());
+		assertEquals(secondAddress, acquire().getAddress());
+		assertEquals(secondAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void addressShouldBeEjectedAfterRepeatedFailures() throws Exception {
+		resolvedAddressBalancer.release(acquire(), new ConnectException("Connection refused"));
+		acquire();
+		resolvedAddressBalancer.release(acquire(), new TimeoutException("Request timed out"));
+
+		timeProvider.forwardMillis(500);
+		assertEquals(secondAddress, acquire().getAddress());
+		assertEquals(secondAddress, acquire().getAddress());
+
+		timeProvider.forwardMillis(5000);
+		assertEquals(firstAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void completedRequestShouldResetTheFailures() throws Exception {
+		resolvedAddressBalancer.release(acquire(), new ConnectException("Connection refused"));
+		resolvedAddressBalancer.release(acquire(), null);
+		resolvedAddressBalancer.release(acquire(), null);
+		resolvedAddressBalancer.release(acquire(), null);
+		resolvedAddressBalancer.release(acquire(), new ConnectException("Connection refused"));
+
+		assertEquals(secondAddress, acquire().getAddress());
+		assertEquals(firstAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void otherFailuresShouldNotEjectTheAddress() throws Exception {
+		resolvedAddressBalancer.release(acquire(), new IllegalStateException("Bad response"));
+		acquire();
+		resolvedAddressBalancer.release(acquire(), new IllegalStateException("Bad response"));
+
+		assertEquals(firstAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void timeoutInThePoolQueueShouldNotEjectTheAddress() throws Exception {
+		resolvedAddressBalancer.release(acquire(), new PendingAcquireTimeoutException("Timed out waiting for a connection"));
+		acquire();
+		resolvedAddressBalancer.release(acquire(), new PendingAcquireTimeoutException("Timed out waiting for a connection"));
+
+		assertEquals(firstAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void ejectedAddressShouldBeUsedWhenAllAddressesAreEjected() throws Exception {
+		resolvedAddresses = new InetAddress[]{firstAddress};
+		resolvedAddressBalancer.release(acquire(), new ConnectException("Connection refused"));
+		resolvedAddressBalancer.release(acquire(), new ConnectException("Connection refused"));
+
+		assertEquals(firstAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void addressesShouldBeResolvedAgainAfterTheRefreshInterval() throws Exception {
+		acquire();
+		timeProvider.forwardMillis(1000);
+		resolvedAddresses = new InetAddress[]{secondAddress};
+
+		assertEquals(secondAddress, acquire().getAddress());
+		assertEquals(secondAddress, acquire().getAddress());
+		assertEquals(2, resolveCount);
+	}
+
+	@Test
+	public void previousAddressesShouldBeKeptWhenResolveFails() throws Exception {
+		acquire();
+		timeProvider.forwardMillis(1000);
+		resolvedAddresses = null;
+
+		assertEquals(secondAddress, acquire().getAddress());
+	}
+
+	@Test
+	public void hostShouldBeForgottenWhenItsServerPoolsAreRemoved() throws Exception {
+		ServerInfo first = acquire();
+		ServerInfo second = acquire();
+		resolvedAddressBalancer.onServerPoolCreated(first);
+		resolvedAddressBalancer.onServerPoolCreated(second);
+		resolvedAddressBalancer.release(first, null);
+		resolvedAddressBalancer.release(second, null);
+
+		resolvedAddressBalancer.onServerPoolRemoved(first);
+		ServerInfo third = acquire();
+		assertEquals(1, resolveCount);
+
+		resolvedAddressBalancer.release(third, null);
+		resolvedAddressBalancer.onServerPoolRemoved(second);
+		acquire();
+		assertEquals(2, resolveCount);
+	}
+
+	@Test
+	public void hostWithOutstandingRequestsShouldNotBeForgotten() throws Exception {
+		ServerInfo first = acquire();
+		resolvedAddressBalancer.onServerPoolCreated(first);
+		resolvedAddressBalancer.onServerPoolRemoved(first);
+
+		acquire();
+		assertEquals(1, resolveCount);
+	}
+
+	@Test
+	public void unknownHostShouldFail() throws Exception {
+		resolvedAddresses = null;
+		CompletableFuture<ServerInfo> future = resolvedAddressBalancer.acquire(serverInfo);
+
+		assertTrue(future.isCompletedExceptionally());
+		try {
+			future.join();
+			fail();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof UnknownHostException);
+		}
+	}
+
+	@Test
+	public void pendingResolveShouldBeSharedByTheWaitingRequests() throws Exception {
+		CompletableFuture<InetAddress[]> resolveFuture = new CompletableFuture<>();
+		ConfMap confMap = new ConfMap();
+		ResolvedAddressBalancer asyncBalancer = new ResolvedAddressBalancer(confMap, timeProvider, host -> {
+			resolveCount++;
+			return resolveFuture;
+		});
+
+		CompletableFuture<ServerInfo> first = asyncBalancer.acquire(serverInfo);
+		CompletableFuture<ServerInfo> second = asyncBalancer.acquire(serverInfo);
+		assertFalse(first.isDone());
+
+		resolveFuture.complete(resolvedAddresses);
+
+		assertEquals(firstAddress, first.get().getAddress());
+		assertEquals(secondAddress, second.get().getAddress());
+		assertEquals(1, resolveCount);
+	}
+
+	private ServerInfo acquire() throws Exception {
+		return resolvedAddressBalancer.acquire(serverInfo).get();
+	}
+}
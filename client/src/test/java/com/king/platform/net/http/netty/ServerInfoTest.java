@@ -7,11 +7,13 @@ package com.king.platform.net.http.netty;
 
 import org.junit.Test;
 
+import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 public class ServerInfoTest {
 
@@ -62,5 +64,40 @@ public class ServerInfoTest {
 
 	}
 
+	@Test
+	public void buildFromUnixDomainSocketUri() throws Exception {
+		ServerInfo serverInfo = ServerInfo.buildFromUri("http+unix://%2Fvar%2Frun%2Fproxy.sock/foo/bar");
+		assertEquals("/var/run/proxy.sock", serverInfo.getHost());
+		assertEquals("http+unix", serverInfo.getScheme());
+		assertEquals(true, serverInfo.isDomainSocket());
+		assertEquals(false, serverInfo.isSecure());
+		assertEquals(false, ServerInfo.buildFromUri("http://someserver/foo/bar").isDomainSocket());
+	}
+
+	@Test
+	public void buildFromSecureUnixDomainSocketUri() throws Exception {
+		ServerInfo serverInfo = ServerInfo.buildFromUri("https+unix://%2Ftmp%2Fproxy.sock/");
+		assertEquals("/tmp/proxy.sock", serverInfo.getHost());
+		assertEquals(true, serverInfo.isDomainSocket());
+		assertEquals(true, serverInfo.isSecure());
+	}
+
+	@Test(expected = URISyntaxException.class)
+	public void unixDomainSocketUriWithoutPathShouldFail() throws Exception {
+		ServerInfo.buildFromUri("http+unix:///foo/bar");
+	}
+
+	@Test
+	public void serverBoundToAnAddressShouldBeADifferentServer() throws Exception {
+		ServerInfo serverInfo = ServerInfo.buildFromUri("http://someserver/foo/bar");
+		ServerInfo addressServerInfo = serverInfo.withAddress(InetAddress.getByAddress("someserver", new byte[]{10, 0, 0, 1}));
+
+		assertEquals("someserver", addressServerInfo.getHost());
+		assertEquals(80, addressServerInfo.getPort());
+		assertNotEquals(serverInfo, addressServerInfo);
+		assertEquals(serverInfo, addressServerInfo.withoutAddress());
+		assertEquals(addressServerInfo, serverInfo.withAddress(InetAddress.getByAddress(new byte[]{10, 0, 0, 1})));
+	}
+
 
 }
@@ -0,0 +1,70 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import com.king.platform.net.http.netty.transport.TransportProviders;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SharedEventLoopGroupTest {
+	private EventLoopGroup eventLoopGroup;
+
+	@Before
+	public void setUp() throws Exception {
+		eventLoopGroup = new DefaultEventLoopGroup(1);
+	}
+
+	@Test
+	public void groupShouldBeShutDownWhenTheLastReferenceIsReleased() throws Exception {
+		SharedEventLoopGroup sharedEventLoopGroup = new SharedEventLoopGroup(eventLoopGroup);
+		sharedEventLoopGroup.retain();
+
+		assertFalse(sharedEventLoopGroup.release());
+		assertFalse(eventLoopGroup.isShuttingDown());
+
+		assertTrue(sharedEventLoopGroup.release());
+		assertTrue(eventLoopGroup.isShuttingDown());
+	}
+
+	@Test
+	public void unmanagedGroupShouldNotBeShutDown() throws Exception {
+		SharedEventLoopGroup sharedEventLoopGroup = new SharedEventLoopGroup(eventLoopGroup, false);
+
+		assertTrue(sharedEventLoopGroup.release());
+		assertFalse(eventLoopGroup.isShuttingDown());
+	}
+
+	@Test
+	public void defaultEventLoopGroupShouldUseTheNioTransport() throws Exception {
+		assertSame(TransportProviders.NIO, new SharedEventLoopGroup(eventLoopGroup).getTransportProvider());
+	}
+
+	@Test
+	public void epollEventLoopGroupShouldUseTheEpollTransport() throws Exception {
+		assumeTrue(Epoll.isAvailable());
+
+		EpollEventLoopGroup epollEventLoopGroup = new EpollEventLoopGroup(1);
+		try {
+			assertSame(TransportProviders.EPOLL, new SharedEventLoopGroup(epollEventLoopGroup).getTransportProvider());
+		} finally {
+			epollEventLoopGroup.shutdownGracefully();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		eventLoopGroup.shutdownGracefully();
+	}
+}
@@ -0,0 +1,35 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty;
+
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class TcpQuickAckHandlerTest {
+
+	@Test
+	public void readCompleteShouldBePassedOn() throws Exception {
+		AtomicInteger readCompletes = new AtomicInteger();
+		EmbeddedChannel channel = new EmbeddedChannel(TcpQuickAckHandler.INSTANCE, new ChannelInboundHandlerAdapter() {
+			@Override
+			public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+				readCompletes.incrementAndGet();
+			}
+		});
+
+		channel.pipeline().fireChannelReadComplete();
+		channel.pipeline().fireChannelReadComplete();
+
+		assertEquals(2, readCompletes.get());
+	}
+}
@@ -0,0 +1,44 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import io.netty.resolver.HostsFileEntriesResolver;
+import io.netty.resolver.ResolvedAddressTypes;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HostOverridesResolverTest {
+	private InetAddress overriddenAddress;
+	private InetAddress hostsFileAddress;
+	private HostOverridesResolver hostOverridesResolver;
+
+	@Before
+	public void setUp() throws Exception {
+		overriddenAddress = InetAddress.getByAddress("service.test", new byte[]{10, 0, 0, 1});
+		hostsFileAddress = InetAddress.getByAddress("other.test", new byte[]{10, 0, 0, 2});
+
+		HostsFileEntriesResolver hostsFile = (inetHost, resolvedAddressTypes) -> "other.test".equals(inetHost) ? hostsFileAddress : null;
+		hostOverridesResolver = new HostOverridesResolver(Collections.singletonMap("Service.Test", overriddenAddress), hostsFile);
+	}
+
+	@Test
+	public void overriddenHostShouldBeMatchedIgnoringCase() throws Exception {
+		assertEquals(overriddenAddress, hostOverridesResolver.address("service.TEST", ResolvedAddressTypes.IPV4_ONLY));
+	}
+
+	@Test
+	public void otherHostsShouldBeLookedUpInTheHostsFile() throws Exception {
+		assertEquals(hostsFileAddress, hostOverridesResolver.address("other.test", ResolvedAddressTypes.IPV4_ONLY));
+		assertNull(hostOverridesResolver.address("unknown.test", ResolvedAddressTypes.IPV4_ONLY));
+	}
+}
@@ -0,0 +1,143 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.dns;
+
+
+import com.king.platform.net.http.netty.util.TimeProviderForTesting;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.resolver.dns.DnsCacheEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RefreshAheadDnsCacheTest {
+	private static final DnsRecord[] NO_ADDITIONALS = new DnsRecord[0];
+
+	private TimeProviderForTesting timeProvider;
+	private EventLoop eventLoop;
+	private List<String> refreshedHosts;
+	private InetAddress firstAddress;
+	private InetAddress secondAddress;
+
+	@Before
+	public void setUp() throws Exception {
+		timeProvider = new TimeProviderForTesting();
+		eventLoop = new DefaultEventLoop();
+		refreshedHosts = new ArrayList<>();
+		firstAddress = InetAddress.getByAddress("service.test", new byte[]{10, 0, 0, 1});
+		secondAddress = InetAddress.getByAddress("service.test", new byte[]{10, 0, 0, 2});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		eventLoop.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+	}
+
+	private RefreshAheadDnsCache createCache(int refreshAheadPercent) {
+		RefreshAheadDnsCache dnsCache = new RefreshAheadDnsCache(0, Integer.MAX_VALUE, 0, refreshAheadPercent, timeProvider);
+		dnsCache.setRefresher(refreshedHosts::add);
+		return dnsCache;
+	}
+
+	@Test
+	public void freshEntryShouldNotBeRefreshed() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(20);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 100, eventLoop);
+
+		timeProvider.forwardSeconds(79);
+
+		assertEquals(1, dnsCache.get("service.test", NO_ADDITIONALS).size());
+		assertTrue(refreshedHosts.isEmpty());
+	}
+
+	@Test
+	public void expiringEntryShouldBeRefreshedOnce() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(20);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 100, eventLoop);
+
+		timeProvider.forwardSeconds(80);
+
+		assertEquals(firstAddress, dnsCache.get("service.test", NO_ADDITIONALS).get(0).address());
+		dnsCache.get("service.test", NO_ADDITIONALS);
+
+		assertEquals(1, refreshedHosts.size());
+		assertEquals("service.test", refreshedHosts.get(0));
+	}
+
+	@Test
+	public void refreshViewShouldReplaceTheEntries() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(20);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 100, eventLoop);
+		timeProvider.forwardSeconds(80);
+		dnsCache.get("service.test", NO_ADDITIONALS);
+
+		assertNull(dnsCache.refreshView().get("service.test", NO_ADDITIONALS));
+		dnsCache.refreshView().cache("service.test", NO_ADDITIONALS, secondAddress, 100, eventLoop);
+		dnsCache.refreshCompleted("service.test");
+
+		List<? extends DnsCacheEntry> entries = dnsCache.get("service.test", NO_ADDITIONALS);
+		assertEquals(1, entries.size());
+		assertEquals(secondAddress, entries.get(0).address());
+		assertEquals(1, refreshedHosts.size());
+	}
+
+	@Test
+	public void failedRefreshShouldKeepTheEntries() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(20);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 100, eventLoop);
+		timeProvider.forwardSeconds(80);
+		dnsCache.get("service.test", NO_ADDITIONALS);
+
+		dnsCache.refreshView().cache("service.test", NO_ADDITIONALS, new UnknownHostException("service.test"), eventLoop);
+		dnsCache.refreshCompleted("service.test");
+
+		assertEquals(firstAddress, dnsCache.get("service.test", NO_ADDITIONALS).get(0).address());
+		assertEquals(2, refreshedHosts.size());
+	}
+
+	@Test
+	public void hostResolvedAgainAfterExpiryShouldNotBeRefreshed() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(20);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 1, eventLoop);
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (dnsCache.get("service.test", NO_ADDITIONALS) != null && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertNull(dnsCache.get("service.test", NO_ADDITIONALS));
+		timeProvider.forwardSeconds(2);
+
+		dnsCache.cache("service.test", NO_ADDITIONALS, secondAddress, 100, eventLoop);
+
+		assertEquals(secondAddress, dnsCache.get("service.test", NO_ADDITIONALS).get(0).address());
+		assertTrue(refreshedHosts.isEmpty());
+
+		timeProvider.forwardSeconds(80);
+		dnsCache.get("service.test", NO_ADDITIONALS);
+		assertEquals(1, refreshedHosts.size());
+	}
+
+	@Test
+	public void refreshAheadShouldBeDisabledByZeroPercent() throws Exception {
+		RefreshAheadDnsCache dnsCache = createCache(0);
+		dnsCache.cache("service.test", NO_ADDITIONALS, firstAddress, 100, eventLoop);
+
+		timeProvider.forwardSeconds(99);
+		dnsCache.get("service.test", NO_ADDITIONALS);
+
+		assertTrue(refreshedHosts.isEmpty());
+	}
+}
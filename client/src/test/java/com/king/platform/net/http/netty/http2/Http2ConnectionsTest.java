@@ -0,0 +1,123 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.http2;
+
+import com.king.platform.net.http.netty.ConnectionClosedException;
+import com.king.platform.net.http.netty.ServerInfo;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static se.mockachino.Mockachino.*;
+import static se.mockachino.matchers.Matchers.any;
+
+
+public class Http2ConnectionsTest {
+	private Http2Connections http2Connections;
+	private ServerInfo serverInfo;
+	private Http2ConnectionCallback callback;
+
+	@Before
+	public void setUp() throws Exception {
+		http2Connections = new Http2Connections();
+		serverInfo = ServerInfo.buildFromUri("https://localhost/");
+		callback = mock(Http2ConnectionCallback.class);
+	}
+
+	@Test
+	public void firstAcquireShouldConnect() throws Exception {
+		assertTrue(http2Connections.acquire(serverInfo, callback));
+		verifyNever().on(callback).onConnection(any(Http2Connection.class));
+	}
+
+	@Test
+	public void acquiresDuringConnectShouldWaitForTheConnection() throws Exception {
+		assertTrue(http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class)));
+		assertFalse(http2Connections.acquire(serverInfo, callback));
+		verifyNever().on(callback).onConnection(any(Http2Connection.class));
+
+		Http2Connection connection = new Http2Connection(new EmbeddedChannel(), 0);
+		http2Connections.connected(serverInfo, connection);
+
+		verifyOnce().on(callback).onConnection(connection);
+		assertSame(connection, http2Connections.get(serverInfo));
+	}
+
+	@Test
+	public void acquireShouldReuseTheConnection() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		Http2Connection connection = new Http2Connection(new EmbeddedChannel(), 0);
+		http2Connections.connected(serverInfo, connection);
+
+		assertFalse(http2Connections.acquire(serverInfo, callback));
+		verifyOnce().on(callback).onConnection(connection);
+	}
+
+	@Test
+	public void closedConnectionShouldBeReplaced() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		EmbeddedChannel channel = new EmbeddedChannel();
+		http2Connections.connected(serverInfo, new Http2Connection(channel, 0));
+
+		channel.close();
+
+		assertNull(http2Connections.get(serverInfo));
+		assertTrue(http2Connections.acquire(serverInfo, callback));
+	}
+
+	@Test
+	public void serverWithoutH2ShouldStayOnHttp1() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		http2Connections.acquire(serverInfo, callback);
+
+		http2Connections.negotiatedHttp1(serverInfo);
+		verifyOnce().on(callback).onHttp1();
+		assertTrue(http2Connections.isHttp1(serverInfo));
+
+		Http2ConnectionCallback laterCallback = mock(Http2ConnectionCallback.class);
+		assertFalse(http2Connections.acquire(serverInfo, laterCallback));
+		verifyOnce().on(laterCallback).onHttp1();
+		assertFalse(http2Connections.isHttp1(ServerInfo.buildFromUri("https://otherhost/")));
+	}
+
+	@Test
+	public void failedConnectShouldFailTheWaitingAcquires() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		http2Connections.acquire(serverInfo, callback);
+
+		IOException cause = new IOException("Connection refused");
+		http2Connections.connectFailed(serverInfo, cause);
+
+		verifyOnce().on(callback).onFailure(cause);
+		assertFalse(http2Connections.isHttp1(serverInfo));
+		assertTrue(http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class)));
+	}
+
+	@Test
+	public void shutdownShouldCloseTheConnections() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		EmbeddedChannel channel = new EmbeddedChannel();
+		http2Connections.connected(serverInfo, new Http2Connection(channel, 0));
+
+		http2Connections.shutdown();
+
+		assertFalse(channel.isOpen());
+		assertNull(http2Connections.get(serverInfo));
+	}
+
+	@Test
+	public void shutdownShouldFailTheWaitingAcquires() throws Exception {
+		http2Connections.acquire(serverInfo, mock(Http2ConnectionCallback.class));
+		http2Connections.acquire(serverInfo, callback);
+
+		http2Connections.shutdown();
+
+		verifyOnce().on(callback).onFailure(any(ConnectionClosedException.class));
+	}
+}
@@ -56,6 +56,18 @@ public class MetricCollectorTest {
 		verifyOnce().on(metricCallback).onClosedConnectionTo(host);
 	}
 
+	@Test
+	public void fullSslHandshake() throws Exception {
+		rootEventBus.triggerEvent(Event.FULL_SSL_HANDSHAKE, serverInfo, 12L);
+		verifyOnce().on(metricCallback).onFullSslHandshake(host, 12L);
+	}
+
+	@Test
+	public void resumedSslHandshake() throws Exception {
+		rootEventBus.triggerEvent(Event.RESUMED_SSL_HANDSHAKE, serverInfo, 3L);
+		verifyOnce().on(metricCallback).onResumedSslHandshake(host, 3L);
+	}
+
 	@Test
 	public void error() throws Exception {
 		rootEventBus.triggerEvent(Event.ERROR, httpRequestContext, new Throwable());
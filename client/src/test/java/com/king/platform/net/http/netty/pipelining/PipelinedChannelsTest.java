@@ -0,0 +1,160 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pipelining;
+
+import com.king.platform.net.http.netty.HttpRequestContext;
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static se.mockachino.Mockachino.*;
+
+
+public class PipelinedChannelsTest {
+	private PipelinedChannels pipelinedChannels;
+	private ServerInfo serverInfo;
+	private EmbeddedChannel channel;
+
+	@Before
+	public void setUp() throws Exception {
+		pipelinedChannels = new PipelinedChannels();
+		serverInfo = ServerInfo.buildFromUri("http://localhost/");
+		channel = new EmbeddedChannel();
+	}
+
+	@Test
+	public void requestsShouldBeQueuedOnTheAcquiringChannelUpToTheDepth() throws Exception {
+		assertTrue(pipelinedChannels.add(serverInfo, request(), 2));
+		assertFalse(pipelinedChannels.add(serverInfo, request(), 2));
+		assertTrue(pipelinedChannels.add(serverInfo, request(), 2));
+		assertTrue(pipelinedChannels.add(ServerInfo.buildFromUri("http://localhost:8080/"), request(), 2));
+	}
+
+	@Test
+	public void requestsShouldBeQueuedOnTheLeastLoadedChannel() throws Exception {
+		HttpRequestContext first = request();
+		pipelinedChannels.add(serverInfo, first, 3);
+		pipelinedChannels.add(serverInfo, request(), 3);
+		pipelinedChannels.add(serverInfo, request(), 3);
+		HttpRequestContext fourth = request();
+		assertTrue(pipelinedChannels.add(serverInfo, fourth, 3));
+
+		PipelinedChannel firstChannel = attach(first);
+		PipelinedChannel secondChannel = fourth.getPipelinedChannel();
+		pipelinedChannels.attach(secondChannel, new EmbeddedChannel());
+		pipelinedChannels.takeUnwritten(secondChannel);
+		pipelinedChannels.completed(firstChannel, first);
+
+		HttpRequestContext fifth = request();
+		assertFalse(pipelinedChannels.add(serverInfo, fifth, 3));
+		assertSame(secondChannel, fifth.getPipelinedChannel());
+		assertEquals(Collections.singletonList(fifth), pipelinedChannels.failed(secondChannel, fourth));
+	}
+
+	@Test
+	public void attachedChannelShouldPointAtTheOldestRequest() throws Exception {
+		HttpRequestContext first = request();
+		HttpRequestContext second = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		pipelinedChannels.add(serverInfo, second, 5);
+
+		PipelinedChannel pipelinedChannel = attach(first);
+
+		assertSame(pipelinedChannel, channel.attr(PipelinedChannel.ATTRIBUTE_KEY).get());
+		assertSame(first, channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).get());
+		assertEquals(Arrays.asList(first, second), pipelinedChannels.takeUnwritten(pipelinedChannel));
+		assertEquals(Collections.emptyList(), pipelinedChannels.takeUnwritten(pipelinedChannel));
+	}
+
+	@Test
+	public void completedRequestShouldHandTheChannelToTheNextRequest() throws Exception {
+		HttpRequestContext first = request();
+		HttpRequestContext second = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		pipelinedChannels.add(serverInfo, second, 5);
+		PipelinedChannel pipelinedChannel = attach(first);
+
+		assertFalse(pipelinedChannels.completed(pipelinedChannel, first));
+		assertSame(second, channel.attr(HttpRequestContext.HTTP_REQUEST_ATTRIBUTE_KEY).get());
+		verifyOnce().on(second.getRequestEventBus()).triggerEvent(Event.TOUCH);
+
+		assertTrue(pipelinedChannels.completed(pipelinedChannel, second));
+		assertNull(channel.attr(PipelinedChannel.ATTRIBUTE_KEY).get());
+		assertTrue(pipelinedChannels.add(serverInfo, request(), 5));
+	}
+
+	@Test
+	public void failedUnwrittenRequestShouldOnlyLeaveTheQueue() throws Exception {
+		HttpRequestContext first = request();
+		HttpRequestContext second = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		PipelinedChannel pipelinedChannel = attach(first);
+		pipelinedChannels.takeUnwritten(pipelinedChannel);
+		pipelinedChannels.add(serverInfo, second, 5);
+
+		assertEquals(Collections.emptyList(), pipelinedChannels.failed(pipelinedChannel, second));
+		assertTrue(pipelinedChannels.completed(pipelinedChannel, first));
+	}
+
+	@Test
+	public void failedWrittenRequestShouldRemoveTheChannel() throws Exception {
+		HttpRequestContext first = request();
+		HttpRequestContext second = request();
+		HttpRequestContext third = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		pipelinedChannels.add(serverInfo, second, 5);
+		PipelinedChannel pipelinedChannel = attach(first);
+		pipelinedChannels.takeUnwritten(pipelinedChannel);
+		pipelinedChannels.add(serverInfo, third, 5);
+
+		assertEquals(Arrays.asList(first, third), pipelinedChannels.failed(pipelinedChannel, second));
+		assertEquals(Collections.emptyList(), pipelinedChannels.failed(pipelinedChannel, first));
+		assertFalse(pipelinedChannels.completed(pipelinedChannel, first));
+		assertTrue(pipelinedChannels.add(serverInfo, request(), 5));
+	}
+
+	@Test
+	public void failedAcquireShouldReleaseTheQueuedRequests() throws Exception {
+		HttpRequestContext first = request();
+		HttpRequestContext second = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		pipelinedChannels.add(serverInfo, second, 5);
+		PipelinedChannel pipelinedChannel = first.getPipelinedChannel();
+
+		assertEquals(Collections.singletonList(second), pipelinedChannels.failed(pipelinedChannel, first));
+		assertFalse(pipelinedChannels.attach(pipelinedChannel, channel));
+	}
+
+	@Test
+	public void closedChannelShouldNotTakeNewRequests() throws Exception {
+		HttpRequestContext first = request();
+		pipelinedChannels.add(serverInfo, first, 5);
+		attach(first);
+
+		channel.close();
+
+		assertTrue(pipelinedChannels.add(serverInfo, request(), 5));
+	}
+
+	private HttpRequestContext request() {
+		return new HttpRequestContext(HttpMethod.GET, null, mock(RequestEventBus.class), null, 0, 0, false, true, mock(TimeStampRecorder.class));
+	}
+
+	private PipelinedChannel attach(HttpRequestContext acquiringRequest) {
+		PipelinedChannel pipelinedChannel = acquiringRequest.getPipelinedChannel();
+		assertTrue(pipelinedChannels.attach(pipelinedChannel, channel));
+		return pipelinedChannel;
+	}
+}
@@ -0,0 +1,58 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IdleChannelGuardTest {
+	private EmbeddedChannel channel;
+
+	@Before
+	public void setUp() throws Exception {
+		channel = new EmbeddedChannel(IdleChannelGuard.INSTANCE);
+	}
+
+	@Test
+	public void dataOnChannelInUseShouldPassThrough() throws Exception {
+		ByteBuf data = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+		channel.writeInbound(data);
+
+		assertTrue(channel.isOpen());
+		assertSame(data, channel.readInbound());
+		data.release();
+	}
+
+	@Test
+	public void dataOnIdleChannelShouldCloseIt() throws Exception {
+		IdleChannelGuard.setIdle(channel, true);
+
+		ByteBuf data = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+		channel.writeInbound(data);
+
+		assertFalse(channel.isOpen());
+		assertNull(channel.readInbound());
+		assertEquals(0, data.refCnt());
+	}
+
+	@Test
+	public void dataAfterChannelIsPolledShouldPassThrough() throws Exception {
+		IdleChannelGuard.setIdle(channel, true);
+		IdleChannelGuard.setIdle(channel, false);
+
+		ByteBuf data = Unpooled.copiedBuffer(new byte[]{1, 2, 3});
+		channel.writeInbound(data);
+
+		assertTrue(channel.isOpen());
+		assertSame(data, channel.readInbound());
+		data.release();
+	}
+}
@@ -0,0 +1,169 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class IdleChannelStackTest {
+	private IdleChannelStack<TestNode> stack;
+
+	@Before
+	public void setUp() throws Exception {
+		stack = new IdleChannelStack<>();
+	}
+
+	@Test
+	public void pollShouldReturnTheLastPushedNode() throws Exception {
+		TestNode first = new TestNode(1);
+		TestNode second = new TestNode(2);
+		stack.push(first);
+		stack.push(second);
+
+		assertEquals(2, stack.size());
+		assertSame(second, stack.poll());
+		assertSame(first, stack.poll());
+		assertNull(stack.poll());
+		assertTrue(stack.isEmpty());
+	}
+
+	@Test
+	public void pollLastShouldReturnTheFirstPushedNode() throws Exception {
+		TestNode first = new TestNode(1);
+		TestNode second = new TestNode(2);
+		stack.push(first);
+		stack.push(second);
+
+		assertSame(first, stack.pollLast());
+		assertSame(second, stack.pollLast());
+		assertNull(stack.pollLast());
+		assertTrue(stack.isEmpty());
+	}
+
+	@Test
+	public void pollMinShouldReturnTheLowestNodeAndPreferTheTopOnTies() throws Exception {
+		TestNode first = new TestNode(1);
+		TestNode second = new TestNode(2);
+		TestNode third = new TestNode(1);
+		stack.push(first);
+		stack.push(second);
+		stack.push(third);
+
+		assertSame(third, stack.pollMin(node -> node.value));
+		assertSame(first, stack.pollMin(node -> node.value));
+		assertSame(second, stack.pollMin(node -> node.value));
+		assertNull(stack.pollMin(node -> node.value));
+	}
+
+	@Test
+	public void removeShouldUnlinkNodeInTheMiddle() throws Exception {
+		TestNode first = new TestNode(1);
+		TestNode second = new TestNode(2);
+		TestNode third = new TestNode(3);
+		stack.push(first);
+		stack.push(second);
+		stack.push(third);
+
+		assertTrue(stack.remove(second));
+		assertFalse(stack.remove(second));
+
+		assertEquals(2, stack.size());
+		assertSame(third, stack.poll());
+		assertSame(first, stack.poll());
+	}
+
+	@Test
+	public void pushOfALinkedNodeShouldMoveItToTheTop() throws Exception {
+		TestNode first = new TestNode(1);
+		TestNode second = new TestNode(2);
+		stack.push(first);
+		stack.push(second);
+		stack.push(first);
+
+		assertEquals(2, stack.size());
+		assertSame(first, stack.poll());
+		assertSame(second, stack.poll());
+	}
+
+	@Test
+	public void removeIfShouldReturnRemovedNodes() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			stack.push(new TestNode(i));
+		}
+
+		List<TestNode> removed = stack.removeIf(node -> node.value % 2 == 0);
+
+		assertEquals(3, removed.size());
+		assertEquals(2, stack.size());
+		assertEquals(3, stack.poll().value);
+		assertEquals(1, stack.poll().value);
+	}
+
+	@Test
+	public void concurrentPollAndPushShouldNeitherLoseNorDuplicateNodes() throws Exception {
+		List<TestNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			TestNode node = new TestNode(i);
+			nodes.add(node);
+			stack.push(node);
+		}
+
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(8);
+		for (int t = 0; t < 8; t++) {
+			final int thread = t;
+			new Thread(() -> {
+				try {
+					for (int i = 0; i < 20000; i++) {
+						TestNode node;
+						if (i % 3 == 0) {
+							node = stack.pollLast();
+						} else if (i % 3 == 1 && thread % 2 == 0) {
+							node = stack.pollMin(testNode -> testNode.value);
+						} else {
+							node = stack.poll();
+						}
+						if (node != null) {
+							if (stack.contains(node)) {
+								failures.incrementAndGet();
+							}
+							stack.push(node);
+						}
+					}
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+
+		assertEquals(0, failures.get());
+		assertEquals(nodes.size(), stack.size());
+		IdentityHashMap<TestNode, Boolean> polled = new IdentityHashMap<>();
+		TestNode node;
+		while ((node = stack.poll()) != null) {
+			assertNull(polled.put(node, Boolean.TRUE));
+		}
+		assertEquals(nodes.size(), polled.size());
+		assertTrue(stack.isEmpty());
+	}
+
+	private static class TestNode extends IdleChannelStack.Node {
+		private final int value;
+
+		private TestNode(int value) {
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.pool;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeepAliveHintTest {
+
+	@Test
+	public void parseTimeoutAndMax() throws Exception {
+		KeepAliveHint keepAliveHint = KeepAliveHint.parse("timeout=5, max=100");
+		assertEquals(5000, keepAliveHint.getTimeoutMillis());
+		assertEquals(100, keepAliveHint.getMaxRequests());
+	}
+
+	@Test
+	public void parseOnlyTimeout() throws Exception {
+		KeepAliveHint keepAliveHint = KeepAliveHint.parse("Timeout=15");
+		assertEquals(15000, keepAliveHint.getTimeoutMillis());
+		assertEquals(-1, keepAliveHint.getMaxRequests());
+	}
+
+	@Test
+	public void missingHeaderShouldReturnNone() throws Exception {
+		assertSame(KeepAliveHint.NONE, KeepAliveHint.parse(null));
+		assertSame(KeepAliveHint.NONE, KeepAliveHint.parse(""));
+	}
+
+	@Test
+	public void malformedParametersShouldBeIgnored() throws Exception {
+		assertSame(KeepAliveHint.NONE, KeepAliveHint.parse("timeout=abc, foo, =3"));
+
+		KeepAliveHint keepAliveHint = KeepAliveHint.parse("timeout=abc, max=3");
+		assertEquals(-1, keepAliveHint.getTimeoutMillis());
+		assertEquals(3, keepAliveHint.getMaxRequests());
+	}
+}
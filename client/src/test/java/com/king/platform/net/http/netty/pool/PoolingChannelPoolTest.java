@@ -9,9 +9,13 @@ import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.util.TimeProviderForTesting;
 import io.netty.channel.Channel;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.DefaultAttributeMap;
 import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -22,8 +26,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
-import static se.mockachino.Mockachino.mock;
-import static se.mockachino.Mockachino.when;
+import static se.mockachino.Mockachino.*;
 
 public class PoolingChannelPoolTest {
 
@@ -34,9 +37,12 @@ public class PoolingChannelPoolTest {
 	private Channel activeChannel;
 	private Channel inactiveChannel;
 	private Channel closedChannel;
+	private EventLoop eventLoop;
 
 	@Before
 	public void setUp() throws Exception {
+		eventLoop = mock(EventLoop.class);
+
 		activeChannel = getActiveChannelMock();
 
 		inactiveChannel = getActiveChannelMock();
@@ -59,6 +65,11 @@ public class PoolingChannelPoolTest {
 		Channel channel = mock(Channel.class);
 		when(channel.isActive()).thenReturn(true);
 		when(channel.isOpen()).thenReturn(true);
+		when(channel.eventLoop()).thenReturn(eventLoop);
+		when(channel.closeFuture()).thenReturn(new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE));
+		DefaultAttributeMap attributes = new DefaultAttributeMap();
+		when(channel.attr(IdleChannelGuard.IDLE_IN_POOL)).thenReturn(attributes.attr(IdleChannelGuard.IDLE_IN_POOL));
+		when(channel.attr(ServerPool.CONNECTED_TIME_STAMP)).thenReturn(attributes.attr(ServerPool.CONNECTED_TIME_STAMP));
 		return channel;
 	}
 
@@ -189,19 +200,53 @@ public class PoolingChannelPoolTest {
 
 	}
 
+	@Test
+	public void timerShouldRescheduleExpiryOfReusedChannels() throws Exception {
+		Channel channel = getActiveChannelMock();
+		poolingChannelPool.offer(serverInfo, channel);
+		timeProvider.forwardSeconds(10);
+
+		assertSame(channel, poolingChannelPool.get(serverInfo));
+		poolingChannelPool.offer(serverInfo, channel);
+
+		timeProvider.forwardSeconds(10);
+		timer.invoke();
+		assertEquals(1, poolingChannelPool.getPoolSize(serverInfo));
+
+		timeProvider.forwardSeconds(5);
+		timer.invoke();
+		assertEquals(0, poolingChannelPool.getPoolSize(serverInfo));
+	}
+
+	@Test
+	public void timerShouldRemoveEmptyServerPools() throws Exception {
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		poolingChannelPool = new PoolingChannelPool(timer, timeProvider, 15 * 1000, metricCallback);
+
+		poolingChannelPool.offer(serverInfo, getActiveChannelMock());
+		timeProvider.forwardSeconds(15);
+		timer.invoke();
+		verifyNever().on(metricCallback).onRemovedServerPool(serverInfo.getHost());
+
+		timeProvider.forwardSeconds(15);
+		timer.invoke();
+		verifyOnce().on(metricCallback).onRemovedServerPool(serverInfo.getHost());
+	}
+
 	@Test
 	public void discard() throws Exception {
 
 
 	}
 
-	private static class TestTimer implements Timer {
-		private final List<TimerTask> tasks = new ArrayList<>();
+	private class TestTimer implements Timer {
+		private final List<TestTimeout> timeouts = new ArrayList<>();
 
 		@Override
 		public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
-			tasks.add(task);
-			return mock(Timeout.class);
+			TestTimeout timeout = new TestTimeout(this, task, timeProvider.currentTimeInMillis() + unit.toMillis(delay));
+			timeouts.add(timeout);
+			return timeout;
 		}
 
 		@Override
@@ -210,11 +255,55 @@ public class PoolingChannelPoolTest {
 		}
 
 		public void invoke() throws Exception {
+			for (TestTimeout timeout : new ArrayList<>(timeouts)) {
+				if (timeout.deadline <= timeProvider.currentTimeInMillis()) {
+					timeouts.remove(timeout);
+					if (!timeout.cancelled) {
+						timeout.expired = true;
+						timeout.task.run(timeout);
+					}
+				}
+			}
+		}
+	}
+
+	private static class TestTimeout implements Timeout {
+		private final Timer timer;
+		private final TimerTask task;
+		private final long deadline;
+		private boolean expired;
+		private boolean cancelled;
+
+		private TestTimeout(Timer timer, TimerTask task, long deadline) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
 
-			TimerTask timerTask = tasks.get(0);
-			Timeout timeout = mock(Timeout.class);
-			when(timeout.task()).thenReturn(timerTask);
-			timerTask.run(timeout);
+		@Override
+		public Timer timer() {
+			return timer;
+		}
+
+		@Override
+		public TimerTask task() {
+			return task;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return expired;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean cancel() {
+			cancelled = true;
+			return true;
 		}
 	}
 }
@@ -5,31 +5,64 @@
 
 package com.king.platform.net.http.netty.pool;
 
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.ServerInfo;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.util.TimeProviderForTesting;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.DefaultAttributeMap;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import org.junit.Before;
 import org.junit.Test;
 import se.mockachino.CallHandler;
 import se.mockachino.MethodCall;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 import static se.mockachino.Mockachino.*;
+import static se.mockachino.matchers.Matchers.any;
 
 
 public class ServerPoolTest {
 	private ServerPool serverPool;
+	private ServerPool limitedServerPool;
 	private TimeProviderForTesting timeProvider;
+	private TestTimer timer;
+	private MetricCallback metricCallback;
+	private EventLoop eventLoop;
+	private EventLoop otherEventLoop;
 
 	@Before
 	public void setUp() throws Exception {
+		eventLoop = mock(EventLoop.class);
+		otherEventLoop = mock(EventLoop.class);
 		timeProvider = new TimeProviderForTesting();
+		timer = new TestTimer();
+		metricCallback = mock(MetricCallback.class);
 		serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, timeProvider, mock(MetricCallback.class));
 
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_CONNECTIONS_PER_SERVER, 1);
+		confMap.set(ConfKeys.POOL_PENDING_ACQUIRE_TIMEOUT_MILLIS, 500);
+		limitedServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, confMap, timer, timeProvider,
+			metricCallback);
+
 	}
 
 	@Test
@@ -55,7 +88,7 @@ public class ServerPoolTest {
 		serverPool.discard(validChannel);
 
 		assertEquals(0, serverPool.getChannelSize());
-		assertEquals(1, serverPool.getPoolSize()); //the channel should still be in the pool since its not removed from the queue
+		assertEquals(0, serverPool.getPoolSize());
 		verifyOnce().on(validChannel)
 			.close();
 	}
@@ -66,7 +99,387 @@ public class ServerPoolTest {
 		serverPool.offer(validChannel);
 		serverPool.discard(validChannel);
 		serverPool.cleanExpiredConnections();
-		assertEquals(0, serverPool.getPoolSize()); //the pool is now empty since it was explicitly cleaned
+		assertEquals(0, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void discardingAPolledChannelShouldNotAffectIdleChannels() throws Exception {
+		Channel polledChannel = createStateFullChannel();
+		Channel idleChannel = createStateFullChannel();
+		serverPool.offer(polledChannel);
+		assertSame(polledChannel, serverPool.poll());
+		serverPool.offer(idleChannel);
+
+		serverPool.discard(polledChannel);
+
+		assertEquals(1, serverPool.getPoolSize());
+		assertSame(idleChannel, serverPool.poll());
+	}
+
+	@Test
+	public void offeringTheSameChannelTwiceShouldOnlyPoolItOnce() throws Exception {
+		Channel channel = createStateFullChannel();
+		serverPool.offer(channel);
+		serverPool.offer(channel);
+
+		assertEquals(1, serverPool.getPoolSize());
+		assertSame(channel, serverPool.poll());
+		assertNull(serverPool.poll());
+	}
+
+	@Test
+	public void pollShouldPreferChannelsOnTheSameEventLoop() throws Exception {
+		Channel localChannel = createStateFullChannel(eventLoop);
+		Channel otherChannel = createStateFullChannel(otherEventLoop);
+		serverPool.offer(localChannel);
+		serverPool.offer(otherChannel);
+
+		assertSame(localChannel, serverPool.poll(eventLoop));
+		assertEquals(1, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void pollShouldStealFromOtherEventLoopsWhenLocalPoolIsEmpty() throws Exception {
+		Channel otherChannel = createStateFullChannel(otherEventLoop);
+		serverPool.offer(otherChannel);
+
+		assertSame(otherChannel, serverPool.poll(eventLoop));
+		assertEquals(0, serverPool.getPoolSize());
+		assertNull(serverPool.poll(eventLoop));
+	}
+
+	@Test
+	public void acquireShouldPreferChannelsOnTheSameEventLoop() throws Exception {
+		Channel localChannel = createStateFullChannel(eventLoop);
+		Channel otherChannel = createStateFullChannel(otherEventLoop);
+		limitedServerPool.offer(otherChannel);
+		limitedServerPool.offer(localChannel);
+
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		limitedServerPool.acquire(otherEventLoop, callback);
+
+		assertSame(otherChannel, callback.channel);
+	}
+
+	@Test
+	public void discardShouldRemoveChannelFromItsEventLoopPool() throws Exception {
+		Channel localChannel = createStateFullChannel(eventLoop);
+		Channel otherChannel = createStateFullChannel(otherEventLoop);
+		serverPool.offer(localChannel);
+		serverPool.offer(otherChannel);
+
+		serverPool.discard(otherChannel);
+
+		assertEquals(1, serverPool.getPoolSize());
+		assertSame(localChannel, serverPool.poll(otherEventLoop));
+	}
+
+	@Test
+	public void fifoSelectionShouldRotateOverIdleChannels() throws Exception {
+		ServerPool fifoServerPool = createServerPool(PoolSelectionStrategy.FIFO);
+		Channel first = createStateFullChannel();
+		Channel second = createStateFullChannel();
+		fifoServerPool.offer(first);
+		fifoServerPool.offer(second);
+
+		assertSame(first, fifoServerPool.poll());
+		fifoServerPool.offer(first);
+		assertSame(second, fifoServerPool.poll());
+		fifoServerPool.offer(second);
+		assertSame(first, fifoServerPool.poll());
+	}
+
+	@Test
+	public void leastRequestsSelectionShouldPreferTheLeastUsedChannel() throws Exception {
+		ServerPool leastRequestsServerPool = createServerPool(PoolSelectionStrategy.LEAST_REQUESTS);
+		Channel lessUsed = createStateFullChannel();
+		Channel moreUsed = createStateFullChannel();
+		leastRequestsServerPool.offer(lessUsed);
+		leastRequestsServerPool.offer(moreUsed);
+		assertSame(moreUsed, leastRequestsServerPool.poll());
+		leastRequestsServerPool.offer(moreUsed);
+
+		assertSame(lessUsed, leastRequestsServerPool.poll());
+	}
+
+	@Test
+	public void selectionStrategyOfTheHostShouldOverrideTheDefault() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_SELECTION_STRATEGY, PoolSelectionStrategy.LEAST_REQUESTS);
+		confMap.set(ConfKeys.POOL_SELECTION_STRATEGY_PER_HOST, Collections.singletonMap("localhost", PoolSelectionStrategy.FIFO));
+
+		assertEquals(PoolSelectionStrategy.FIFO, new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, confMap, timer,
+			timeProvider, metricCallback).getSelectionStrategy());
+		assertEquals(PoolSelectionStrategy.LEAST_REQUESTS, new ServerPool(ServerInfo.buildFromUri("http://otherhost/"), 100, TimeUnit.SECONDS, confMap,
+			timer, timeProvider, metricCallback).getSelectionStrategy());
+		assertEquals(PoolSelectionStrategy.LIFO, serverPool.getSelectionStrategy());
+	}
+
+	@Test
+	public void channelShouldBeClosedWhenItHasServedMaxRequests() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_REQUESTS_PER_CONNECTION, 2);
+		confMap.set(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT, 0);
+		ServerPool rotatingServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		Channel channel = createStateFullChannel();
+		rotatingServerPool.offer(channel);
+		assertSame(channel, rotatingServerPool.poll());
+
+		rotatingServerPool.offer(channel);
+		assertEquals(0, rotatingServerPool.getPoolSize());
+		assertEquals(0, rotatingServerPool.getChannelSize());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void idleChannelShouldNotBeReusedAfterMaxLifetime() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_CONNECTION_LIFETIME_MILLIS, 1000);
+		confMap.set(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT, 0);
+		ServerPool rotatingServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		Channel channel = createStateFullChannel();
+		rotatingServerPool.offer(channel);
+		timeProvider.forwardMillis(500);
+		assertSame(channel, rotatingServerPool.poll());
+		rotatingServerPool.offer(channel);
+
+		timeProvider.forwardMillis(600);
+		assertNull(rotatingServerPool.poll());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void channelInUseShouldBeClosedWhenReturnedAfterMaxLifetime() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_CONNECTION_LIFETIME_MILLIS, 1000);
+		confMap.set(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT, 0);
+		ServerPool rotatingServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		Channel channel = createStateFullChannel();
+		rotatingServerPool.offer(channel);
+		assertSame(channel, rotatingServerPool.poll());
+
+		timeProvider.forwardMillis(1500);
+		verifyNever().on(channel).close();
+		rotatingServerPool.offer(channel);
+
+		assertEquals(0, rotatingServerPool.getPoolSize());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void maxLifetimeShouldCountFromTheConnect() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_CONNECTION_LIFETIME_MILLIS, 1000);
+		confMap.set(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT, 0);
+		ServerPool rotatingServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		Channel channel = createStateFullChannel();
+		rotatingServerPool.connectionCreated(channel);
+		timeProvider.forwardMillis(800);
+		rotatingServerPool.offer(channel);
+		assertSame(channel, rotatingServerPool.poll());
+		rotatingServerPool.offer(channel);
+
+		timeProvider.forwardMillis(300);
+		assertNull(rotatingServerPool.poll());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void maxRequestsShouldBeJitteredWithinTheConfiguredPercent() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_REQUESTS_PER_CONNECTION, 10);
+		confMap.set(ConfKeys.POOL_CONNECTION_ROTATION_JITTER_PERCENT, 50);
+		ServerPool rotatingServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		for (int i = 0; i < 20; i++) {
+			Channel channel = createStateFullChannel();
+			int servedRequests = 0;
+			while (channel.isOpen()) {
+				rotatingServerPool.offer(channel);
+				servedRequests++;
+				rotatingServerPool.poll();
+			}
+			assertTrue("Served " + servedRequests + " requests", servedRequests >= 5 && servedRequests <= 10);
+		}
+	}
+
+	@Test
+	public void idleChannelClosedByServerShouldBeEvictedImmediately() throws Exception {
+		ServerPool pool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+		pool.offer(channel);
+
+		channel.close();
+
+		assertEquals(0, pool.getPoolSize());
+		assertEquals(0, pool.getChannelSize());
+		verifyOnce().on(metricCallback).onServerPoolStaleConnection("localhost");
+	}
+
+	@Test
+	public void channelClosedWhileInUseShouldNotBeCountedAsStale() throws Exception {
+		ServerPool pool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+		pool.offer(channel);
+		assertSame(channel, pool.poll());
+
+		channel.close();
+
+		assertEquals(0, pool.getChannelSize());
+		verifyNever().on(metricCallback).onServerPoolStaleConnection("localhost");
+	}
+
+	@Test
+	public void discardedChannelShouldNotBeCountedAsStale() throws Exception {
+		ServerPool pool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, timeProvider, metricCallback);
+		Channel channel = createStateFullChannel();
+		pool.offer(channel);
+
+		pool.discard(channel);
+
+		verifyNever().on(metricCallback).onServerPoolStaleConnection("localhost");
+	}
+
+	@Test
+	public void channelShouldNotBeReusedAfterKeepAliveTimeoutMinusMargin() throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_KEEP_ALIVE_SAFETY_MARGIN_MILLIS, 1000);
+		ServerPool keepAliveServerPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100000, TimeUnit.MILLISECONDS, confMap, timer,
+			timeProvider, metricCallback);
+
+		Channel channel = createStateFullChannel();
+		keepAliveServerPool.offer(channel, KeepAliveHint.parse("timeout=5"));
+
+		timeProvider.forwardMillis(3500);
+		assertSame(channel, keepAliveServerPool.poll());
+		keepAliveServerPool.offer(channel, KeepAliveHint.parse("timeout=5"));
+
+		timeProvider.forwardMillis(4000);
+		assertNull(keepAliveServerPool.poll());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void channelShouldBeRetiredWhenServerAllowsNoMoreRequests() throws Exception {
+		Channel channel = createStateFullChannel();
+		serverPool.offer(channel, KeepAliveHint.parse("timeout=5, max=1"));
+		assertSame(channel, serverPool.poll());
+
+		serverPool.offer(channel, KeepAliveHint.parse("timeout=5, max=0"));
+
+		assertEquals(0, serverPool.getPoolSize());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void channelShouldNotBePooledWhenKeepAliveTimeoutIsWithinMargin() throws Exception {
+		Channel channel = createStateFullChannel();
+		serverPool.offer(channel, KeepAliveHint.parse("timeout=1"));
+
+		assertEquals(0, serverPool.getPoolSize());
+		verifyOnce().on(channel).close();
+	}
+
+	@Test
+	public void warmUpShouldOpenAndPoolConnections() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		CompletableFuture<Void> future = serverPool.warmUp(2, connector);
+
+		assertTrue(future.isDone());
+		assertEquals(2, connector.connects);
+		assertEquals(2, serverPool.getPoolSize());
+		assertFalse(serverPool.shouldRemovePool());
+	}
+
+	@Test
+	public void closedWarmConnectionShouldBeReplaced() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		serverPool.warmUp(2, connector);
+
+		serverPool.poll().close();
+
+		assertEquals(3, connector.connects);
+		assertEquals(2, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void checkedOutWarmConnectionsShouldBeReplaced() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		serverPool.warmUp(2, connector);
+
+		Channel first = serverPool.poll();
+		Channel second = serverPool.poll();
+
+		assertEquals(4, connector.connects);
+		assertEquals(2, serverPool.getPoolSize());
+		assertEquals(4, serverPool.getChannelSize());
+
+		serverPool.offer(first);
+		serverPool.offer(second);
+		assertEquals(4, connector.connects);
+		assertEquals(4, serverPool.getPoolSize());
+	}
+
+	@Test
+	public void checkedOutWarmConnectionShouldBeReplacedWithinTheConnectionLimit() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		limitedServerPool.warmUp(1, connector);
+
+		ChannelAcquireCallback callback = mock(ChannelAcquireCallback.class);
+		limitedServerPool.acquire(eventLoop, callback);
+
+		verifyOnce().on(callback).onAcquiredChannel(any(Channel.class));
+		assertEquals(1, connector.connects);
+		assertEquals(0, limitedServerPool.getPoolSize());
+	}
+
+	@Test
+	public void failedWarmConnectionShouldBeRetried() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		connector.fail = true;
+		CompletableFuture<Void> future = limitedServerPool.warmUp(1, connector);
+
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(0, limitedServerPool.getOpenConnections());
+
+		connector.fail = false;
+		timer.invoke();
+
+		assertEquals(2, connector.connects);
+		assertEquals(1, limitedServerPool.getPoolSize());
+	}
+
+	@Test
+	public void warmUpShouldRespectConnectionLimit() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		limitedServerPool.warmUp(3, connector);
+
+		assertEquals(1, connector.connects);
+		assertEquals(1, limitedServerPool.getOpenConnections());
+	}
+
+	@Test
+	public void preConnectShouldOpenConnectionsOnce() throws Exception {
+		RecordingChannelConnector connector = new RecordingChannelConnector();
+		CompletableFuture<Void> future = serverPool.preConnect(2, connector);
+
+		assertTrue(future.isDone());
+		assertEquals(2, connector.connects);
+		assertEquals(2, serverPool.getPoolSize());
+
+		serverPool.poll().close();
+
+		assertEquals(2, connector.connects);
+		assertEquals(1, serverPool.getPoolSize());
 	}
 
 	@Test
@@ -156,10 +569,224 @@ public class ServerPoolTest {
 	}
 
 
+	@Test
+	public void acquireBelowLimitShouldAllowNewConnection() throws Exception {
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		limitedServerPool.acquire(callback);
+
+		assertTrue(callback.connectionAllowed);
+		assertEquals(1, limitedServerPool.getOpenConnections());
+		assertEquals(0, limitedServerPool.getPendingAcquireSize());
+	}
+
+	@Test
+	public void acquireAtLimitShouldQueueUntilAChannelIsOffered() throws Exception {
+		RecordingAcquireCallback first = new RecordingAcquireCallback();
+		RecordingAcquireCallback second = new RecordingAcquireCallback();
+		limitedServerPool.acquire(first);
+		limitedServerPool.acquire(second);
+
+		assertTrue(first.connectionAllowed);
+		assertFalse(second.connectionAllowed);
+		assertNull(second.channel);
+		assertEquals(1, limitedServerPool.getPendingAcquireSize());
+		verifyOnce().on(metricCallback).onServerPoolQueuedRequest("localhost", 1);
+
+		Channel channel = createStateFullChannel();
+		timeProvider.forwardMillis(20);
+		limitedServerPool.offer(channel);
+
+		assertSame(channel, second.channel);
+		assertEquals(0, limitedServerPool.getPoolSize());
+		assertEquals(0, limitedServerPool.getPendingAcquireSize());
+		verifyOnce().on(metricCallback).onServerPoolDequeuedRequest("localhost", 20, 0);
+	}
+
+	@Test
+	public void closedConnectionShouldLetQueuedAcquireConnect() throws Exception {
+		RecordingAcquireCallback first = new RecordingAcquireCallback();
+		RecordingAcquireCallback second = new RecordingAcquireCallback();
+		limitedServerPool.acquire(first);
+		limitedServerPool.acquire(second);
+
+		EmbeddedChannel channel = new EmbeddedChannel();
+		limitedServerPool.connectionCreated(channel);
+		assertFalse(second.connectionAllowed);
+
+		channel.close();
+
+		assertTrue(second.connectionAllowed);
+		assertEquals(1, limitedServerPool.getOpenConnections());
+		assertEquals(0, limitedServerPool.getPendingAcquireSize());
+	}
+
+	@Test
+	public void failedConnectionShouldReleaseTheSlot() throws Exception {
+		RecordingAcquireCallback callback = new RecordingAcquireCallback();
+		limitedServerPool.acquire(callback);
+		limitedServerPool.connectionFailed();
+
+		assertEquals(0, limitedServerPool.getOpenConnections());
+	}
+
+	@Test
+	public void queuedAcquireShouldTimeout() throws Exception {
+		limitedServerPool.acquire(new RecordingAcquireCallback());
+		RecordingAcquireCallback queued = new RecordingAcquireCallback();
+		limitedServerPool.acquire(queued);
+
+		timer.invoke();
+
+		assertNotNull(queued.throwable);
+		assertEquals(0, limitedServerPool.getPendingAcquireSize());
+
+		limitedServerPool.offer(createStateFullChannel());
+		assertNull(queued.channel);
+		assertEquals(1, limitedServerPool.getPoolSize());
+	}
+
+	@Test
+	public void connectionAttemptsAboveTheLimitShouldBeQueued() throws Exception {
+		ServerPool connectLimitedServerPool = createConnectLimitedServerPool(2);
+		RecordingAcquireCallback first = new RecordingAcquireCallback();
+		RecordingAcquireCallback second = new RecordingAcquireCallback();
+		RecordingAcquireCallback third = new RecordingAcquireCallback();
+		connectLimitedServerPool.acquire(first);
+		connectLimitedServerPool.acquire(second);
+		connectLimitedServerPool.acquire(third);
+
+		assertTrue(first.connectionAllowed);
+		assertTrue(second.connectionAllowed);
+		assertFalse(third.connectionAllowed);
+		assertEquals(2, connectLimitedServerPool.getConnectingConnections());
+		assertEquals(1, connectLimitedServerPool.getPendingAcquireSize());
+
+		connectLimitedServerPool.connectionCreated(new EmbeddedChannel());
+
+		assertTrue(third.connectionAllowed);
+		assertEquals(2, connectLimitedServerPool.getConnectingConnections());
+		assertEquals(3, connectLimitedServerPool.getOpenConnections());
+		assertEquals(0, connectLimitedServerPool.getPendingAcquireSize());
+	}
+
+	@Test
+	public void queuedConnectionAttemptShouldTakeAnOfferedChannelFirst() throws Exception {
+		ServerPool connectLimitedServerPool = createConnectLimitedServerPool(1);
+		RecordingAcquireCallback first = new RecordingAcquireCallback();
+		RecordingAcquireCallback second = new RecordingAcquireCallback();
+		connectLimitedServerPool.acquire(first);
+		connectLimitedServerPool.acquire(second);
+
+		Channel channel = createStateFullChannel();
+		connectLimitedServerPool.offer(channel);
+
+		assertSame(channel, second.channel);
+		assertFalse(second.connectionAllowed);
+
+		connectLimitedServerPool.connectionCreated(new EmbeddedChannel());
+		assertFalse(second.connectionAllowed);
+		assertEquals(0, connectLimitedServerPool.getConnectingConnections());
+	}
+
+	@Test
+	public void failedConnectionAttemptShouldLetQueuedAcquireConnect() throws Exception {
+		ServerPool connectLimitedServerPool = createConnectLimitedServerPool(1);
+		RecordingAcquireCallback first = new RecordingAcquireCallback();
+		RecordingAcquireCallback second = new RecordingAcquireCallback();
+		connectLimitedServerPool.acquire(first);
+		connectLimitedServerPool.acquire(second);
+
+		connectLimitedServerPool.connectionFailed();
+
+		assertTrue(second.connectionAllowed);
+		assertEquals(1, connectLimitedServerPool.getConnectingConnections());
+		assertEquals(1, connectLimitedServerPool.getOpenConnections());
+	}
+
+	private ServerPool createConnectLimitedServerPool(int maxConnecting) throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_MAX_CONNECTING_PER_SERVER, maxConnecting);
+		return new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, confMap, timer, timeProvider, metricCallback);
+	}
+
+	private static class RecordingAcquireCallback implements ChannelAcquireCallback {
+		private Channel channel;
+		private boolean connectionAllowed;
+		private Throwable throwable;
+
+		@Override
+		public void onAcquiredChannel(Channel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void onConnectionAllowed() {
+			connectionAllowed = true;
+		}
+
+		@Override
+		public void onAcquireFailed(Throwable throwable) {
+			this.throwable = throwable;
+		}
+	}
+
+	private class RecordingChannelConnector implements ChannelConnector {
+		private int connects;
+		private boolean fail;
+
+		@Override
+		public CompletableFuture<Channel> connect(ServerInfo serverInfo) {
+			connects++;
+			CompletableFuture<Channel> future = new CompletableFuture<>();
+			if (fail) {
+				future.completeExceptionally(new IOException("Connection refused"));
+			} else {
+				future.complete(createStateFullChannel());
+			}
+			return future;
+		}
+	}
+
+	private static class TestTimer implements Timer {
+		private final List<TimerTask> tasks = new ArrayList<>();
+
+		@Override
+		public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+			tasks.add(task);
+			return mock(Timeout.class);
+		}
+
+		@Override
+		public Set<Timeout> stop() {
+			return Collections.emptySet();
+		}
+
+		public void invoke() throws Exception {
+			TimerTask timerTask = tasks.get(0);
+			timerTask.run(mock(Timeout.class));
+		}
+	}
+
+	private ServerPool createServerPool(PoolSelectionStrategy selectionStrategy) throws Exception {
+		ConfMap confMap = new ConfMap();
+		confMap.set(ConfKeys.POOL_SELECTION_STRATEGY, selectionStrategy);
+		return new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 100, TimeUnit.SECONDS, confMap, timer, timeProvider, metricCallback);
+	}
+
 	private Channel createStateFullChannel() {
+		return createStateFullChannel(eventLoop);
+	}
+
+	private Channel createStateFullChannel(EventLoop channelEventLoop) {
 		final AtomicBoolean state = new AtomicBoolean(true);
 
 		Channel channel = mock(Channel.class);
+		final ChannelPromise closeFuture = new DefaultChannelPromise(channel, ImmediateEventExecutor.INSTANCE);
+		when(channel.eventLoop()).thenReturn(channelEventLoop);
+		when(channel.closeFuture()).thenReturn(closeFuture);
+		DefaultAttributeMap attributes = new DefaultAttributeMap();
+		when(channel.attr(IdleChannelGuard.IDLE_IN_POOL)).thenReturn(attributes.attr(IdleChannelGuard.IDLE_IN_POOL));
+		when(channel.attr(ServerPool.CONNECTED_TIME_STAMP)).thenReturn(attributes.attr(ServerPool.CONNECTED_TIME_STAMP));
 
 		CallHandler answer = new CallHandler() {
 			@Override
@@ -175,7 +802,8 @@ public class ServerPoolTest {
 			@Override
 			public Object invoke(Object obj, MethodCall call) throws Throwable {
 				state.set(false);
-				return null;
+				closeFuture.trySuccess();
+				return closeFuture;
 			}
 		});
 
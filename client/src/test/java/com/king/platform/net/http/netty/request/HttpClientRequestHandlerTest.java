@@ -0,0 +1,136 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.request;
+
+import com.king.platform.net.http.netty.HttpRequestContext;
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.eventbus.RequestEventBus;
+import com.king.platform.net.http.netty.metric.TimeStampRecorder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Before;
+import org.junit.Test;
+import se.mockachino.order.OrderingContext;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static se.mockachino.Mockachino.*;
+import static se.mockachino.matchers.Matchers.any;
+
+
+public class HttpClientRequestHandlerTest {
+	private RequestEventBus requestEventBus;
+	private EmbeddedChannel channel;
+
+	@Before
+	public void setUp() throws Exception {
+		requestEventBus = mock(RequestEventBus.class);
+
+		HttpClientRequestHandler httpClientRequestHandler = new HttpClientRequestHandler();
+		channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+			@Override
+			public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+				httpClientRequestHandler.handleRequest(ctx, msg, promise);
+			}
+		});
+	}
+
+	@Test
+	public void requestWithoutBodyShouldBeWrittenAsOneFullRequest() throws Exception {
+		channel.writeAndFlush(requestContext(HttpMethod.GET, null));
+
+		FullHttpRequest request = channel.readOutbound();
+		assertEquals(HttpMethod.GET, request.method());
+		assertEquals("/path", request.uri());
+		assertEquals("localhost", request.headers().get(HttpHeaderNames.HOST));
+		assertFalse(request.content().isReadable());
+		assertNull(channel.readOutbound());
+		request.release();
+
+		verifyOnce().on(requestEventBus).triggerEvent(Event.onWroteHeaders);
+		verifyOnce().on(requestEventBus).triggerEvent(Event.onWroteContentCompleted);
+		verifyNever().on(requestEventBus).triggerEvent(Event.onWroteContentStarted, any(Long.class));
+
+		OrderingContext order = newOrdering();
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteHeaders);
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteContentCompleted);
+	}
+
+	@Test
+	public void byteArrayBodyShouldBeWrittenInTheFullRequest() throws Exception {
+		channel.writeAndFlush(requestContext(HttpMethod.POST, new ByteArrayHttpBody("content".getBytes(StandardCharsets.UTF_8), "text/plain",
+			StandardCharsets.UTF_8)));
+
+		FullHttpRequest request = channel.readOutbound();
+		assertEquals("content", request.content().toString(StandardCharsets.UTF_8));
+		assertNull(channel.readOutbound());
+		request.release();
+
+		verifyOnce().on(requestEventBus).triggerEvent(Event.onWroteContentStarted, 7L);
+		verifyOnce().on(requestEventBus).triggerEvent(Event.onWroteContentProgressed, 7L, 7L);
+		verifyOnce().on(requestEventBus).triggerEvent(Event.onWroteContentCompleted);
+
+		OrderingContext order = newOrdering();
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteHeaders);
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteContentStarted, 7L);
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteContentProgressed, 7L, 7L);
+		order.verify().on(requestEventBus).triggerEvent(Event.onWroteContentCompleted);
+	}
+
+	@Test
+	public void fullRequestShouldBeEncodedIntoOneBuffer() throws Exception {
+		channel.pipeline().addFirst(new HttpClientCodec());
+
+		channel.writeAndFlush(requestContext(HttpMethod.POST, new ByteArrayHttpBody("content".getBytes(StandardCharsets.UTF_8), "text/plain",
+			StandardCharsets.UTF_8)));
+
+		ByteBuf encoded = channel.readOutbound();
+		String request = encoded.toString(StandardCharsets.UTF_8);
+		assertTrue(request.startsWith("POST /path HTTP/1.1\r\n"));
+		assertTrue(request.endsWith("\r\n\r\ncontent"));
+		assertNull(channel.readOutbound());
+		encoded.release();
+	}
+
+	@Test
+	public void expectContinueShouldWriteTheHeadersAlone() throws Exception {
+		HttpRequestContext httpRequestContext = requestContext(HttpMethod.POST, new ByteArrayHttpBody("content".getBytes(StandardCharsets.UTF_8),
+			"text/plain", StandardCharsets.UTF_8));
+		httpRequestContext.getNettyHttpClientRequest().getNettyHeaders().set(HttpHeaderNames.EXPECT, HttpHeaderValues.CONTINUE);
+
+		channel.writeAndFlush(httpRequestContext);
+
+		HttpRequest request = channel.readOutbound();
+		assertFalse(request instanceof HttpContent);
+		assertNull(channel.readOutbound());
+		verifyNever().on(requestEventBus).triggerEvent(Event.onWroteContentCompleted);
+	}
+
+	private HttpRequestContext requestContext(HttpMethod method, HttpBody httpBody) throws Exception {
+		HttpRequest nettyRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, "/path");
+		nettyRequest.headers().set(HttpHeaderNames.HOST, "localhost");
+		if (httpBody != null) {
+			nettyRequest.headers().set(HttpHeaderNames.CONTENT_LENGTH, httpBody.getContentLength());
+		}
+
+		NettyHttpClientRequest<String> request = new NettyHttpClientRequest<>(ServerInfo.buildFromUri("http://localhost/path"), nettyRequest, httpBody);
+		return new HttpRequestContext<>(method, request, requestEventBus, null, 0, 0, false, true, mock(TimeStampRecorder.class));
+	}
+}
@@ -0,0 +1,104 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.requestbuilder;
+
+import com.king.platform.net.http.util.Param;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.AsciiString;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+
+public class RequestTemplateTest {
+
+	@Test
+	public void uriShouldBeParsedOnce() throws Exception {
+		RequestTemplate requestTemplate = compile("http://localhost:8081/path", Collections.singletonList(new Param("a", "b")),
+			Collections.<Param>emptyList());
+
+		assertNull(requestTemplate.getUriSyntaxException());
+		assertEquals("localhost", requestTemplate.getServerInfo().getHost());
+		assertEquals(8081, requestTemplate.getServerInfo().getPort());
+		assertEquals("/path?a=b", requestTemplate.getRelativePath());
+	}
+
+	@Test
+	public void invalidUriShouldKeepTheError() throws Exception {
+		RequestTemplate requestTemplate = compile("http://local host/", Collections.<Param>emptyList(), Collections.<Param>emptyList());
+
+		assertNotNull(requestTemplate.getUriSyntaxException());
+	}
+
+	@Test
+	public void defaultHeadersShouldBeAdded() throws Exception {
+		HttpHeaders headers = compile("http://localhost/", Collections.<Param>emptyList(), Collections.<Param>emptyList()).newHeaders();
+
+		assertEquals("*/*", headers.get(HttpHeaderNames.ACCEPT));
+		assertEquals("agent", headers.get(HttpHeaderNames.USER_AGENT));
+		assertEquals(HttpHeaderValues.GZIP + "," + HttpHeaderValues.DEFLATE, headers.get(HttpHeaderNames.ACCEPT_ENCODING));
+		assertFalse(headers.contains(HttpHeaderNames.CONNECTION));
+	}
+
+	@Test
+	public void headerParametersShouldOverrideTheDefaults() throws Exception {
+		List<Param> headerParameters = Arrays.asList(new Param("Accept", "text/plain"), new Param("User-Agent", "custom"), new Param("X-Test", "1"),
+			new Param("X-Test", "2"));
+		HttpHeaders headers = compile("http://localhost/", Collections.<Param>emptyList(), headerParameters).newHeaders();
+
+		assertEquals("text/plain", headers.get(HttpHeaderNames.ACCEPT));
+		assertEquals("custom", headers.get(HttpHeaderNames.USER_AGENT));
+		assertEquals(Arrays.asList("1", "2"), headers.getAll("X-Test"));
+	}
+
+	@Test
+	public void asciiHeadersShouldBePreEncoded() throws Exception {
+		HttpHeaders headers = compile("http://localhost/", Collections.<Param>emptyList(), Arrays.asList(new Param("X-Ascii", "value"),
+			new Param("X-Latin", "värde"))).newHeaders();
+
+		Iterator<Map.Entry<CharSequence, CharSequence>> iterator = headers.iteratorCharSequence();
+		while (iterator.hasNext()) {
+			Map.Entry<CharSequence, CharSequence> header = iterator.next();
+			if ("X-Ascii".contentEquals(header.getKey())) {
+				assertTrue(header.getKey() instanceof AsciiString);
+				assertTrue(header.getValue() instanceof AsciiString);
+			}
+		}
+		assertEquals("värde", headers.get("X-Latin"));
+	}
+
+	@Test
+	public void eachExecutionShouldGetItsOwnHeaders() throws Exception {
+		RequestTemplate requestTemplate = compile("http://localhost/", Collections.<Param>emptyList(), Collections.<Param>emptyList());
+
+		HttpHeaders headers = requestTemplate.newHeaders();
+		headers.set(HttpHeaderNames.CONTENT_LENGTH, "10");
+
+		assertFalse(requestTemplate.newHeaders().contains(HttpHeaderNames.CONTENT_LENGTH));
+	}
+
+	@Test
+	public void closedConnectionShouldBeAsked() throws Exception {
+		HttpHeaders headers = RequestTemplate.compile(HttpVersion.HTTP_1_1, "http://localhost/", Collections.<Param>emptyList(),
+			Collections.<Param>emptyList(), "agent", false, false).newHeaders();
+
+		assertEquals(HttpHeaderValues.CLOSE.toString(), headers.get(HttpHeaderNames.CONNECTION));
+		assertFalse(headers.contains(HttpHeaderNames.ACCEPT_ENCODING));
+	}
+
+	private RequestTemplate compile(String uri, List<Param> queryParameters, List<Param> headerParameters) {
+		return RequestTemplate.compile(HttpVersion.HTTP_1_1, uri, queryParameters, headerParameters, "agent", true, true);
+	}
+}
@@ -0,0 +1,84 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.netty.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class TransportProvidersTest {
+
+	@Test
+	public void transportsShouldBeFoundByName() throws Exception {
+		assertSame(TransportProviders.NIO, TransportProviders.byName("nio"));
+		assertSame(TransportProviders.EPOLL, TransportProviders.byName("EPOLL"));
+		assertSame(TransportProviders.IO_URING, TransportProviders.byName("io_uring"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownTransportShouldFail() throws Exception {
+		TransportProviders.byName("kqueue");
+	}
+
+	@Test
+	public void nioShouldAlwaysBeAvailable() throws Exception {
+		assertTrue(TransportProviders.available().contains(TransportProviders.NIO));
+		assertNull(TransportProviders.NIO.unavailabilityCause());
+		assertEquals(NioSocketChannel.class, TransportProviders.NIO.getSocketChannelClass());
+		assertNull(TransportProviders.NIO.getDomainSocketChannelClass());
+	}
+
+	@Test
+	public void availableShouldOnlyListUsableTransports() throws Exception {
+		for (TransportProvider transportProvider : TransportProviders.all()) {
+			assertEquals(transportProvider.isAvailable(), transportProvider.unavailabilityCause() == null);
+			assertEquals(transportProvider.isAvailable(), TransportProviders.available().contains(transportProvider));
+		}
+	}
+
+	@Test
+	public void unavailableIoUringShouldFailToCreateEventLoops() throws Exception {
+		assumeTrue(!TransportProviders.IO_URING.isAvailable());
+
+		try {
+			TransportProviders.IO_URING.newEventLoopGroup(1, null);
+			fail("Should have failed");
+		} catch (IllegalStateException e) {
+			assertSame(TransportProviders.IO_URING.unavailabilityCause(), e.getCause());
+		}
+	}
+
+	@Test
+	public void transportShouldFollowTheEventLoopGroup() throws Exception {
+		EventLoopGroup nioEventLoopGroup = new NioEventLoopGroup(1);
+		try {
+			assertSame(TransportProviders.NIO, TransportProviders.of(nioEventLoopGroup));
+		} finally {
+			nioEventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void epollEventLoopGroupShouldGiveEpollTransport() throws Exception {
+		assumeTrue(TransportProviders.EPOLL.isAvailable());
+
+		EventLoopGroup epollEventLoopGroup = TransportProviders.EPOLL.newEventLoopGroup(1, null);
+		try {
+			assertTrue(epollEventLoopGroup instanceof EpollEventLoopGroup);
+			assertSame(TransportProviders.EPOLL, TransportProviders.of(epollEventLoopGroup));
+			assertTrue(TransportProviders.EPOLL.supportsSplice());
+		} finally {
+			epollEventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -21,6 +21,12 @@ public class UriUtilTest {
 		assertEquals("/", relativeUri);
 	}
 
+	@Test
+	public void unixDomainSocketPath() throws Exception {
+		String relativeUri = UriUtil.getRelativeUri("http+unix://%2Fvar%2Frun%2Fproxy.sock/hello?world");
+		assertEquals("/hello?world", relativeUri);
+	}
+
 	@Test
 	public void simplePath() throws Exception {
 		String relativeUri = UriUtil.getRelativeUri("http://www.king.com/hello");
@@ -0,0 +1,242 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2MultiplexCodec;
+import io.netty.handler.codec.http2.Http2MultiplexCodecBuilder;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.util.AsciiString;
+
+import javax.net.ssl.KeyManagerFactory;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A HTTP/2 server built on netty, since the jetty version of the integration tests does not speak HTTP/2.
+ * It serves h2 over tls, h2c with prior knowledge, or HTTP/1.1 with h2c upgrades.
+ * The requests are aggregated and handed to the handler registered for their path.
+ */
+public class Http2IntegrationServer {
+	private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+	private final AtomicInteger connections = new AtomicInteger();
+	private final AtomicInteger openStreams = new AtomicInteger();
+	private final AtomicInteger maxOpenStreams = new AtomicInteger();
+
+	private EventLoopGroup eventLoopGroup;
+	private Channel serverChannel;
+	private int port;
+	private long maxConcurrentStreams = 100;
+	private long responseDelayMillis;
+
+	/**
+	 * Produces the response of a request, called on the event loop of the stream.
+	 */
+	public interface Handler {
+		FullHttpResponse handle(FullHttpRequest request) throws Exception;
+	}
+
+	public void setMaxConcurrentStreams(long maxConcurrentStreams) {
+		this.maxConcurrentStreams = maxConcurrentStreams;
+	}
+
+	/**
+	 * Delay all responses, to keep the streams of concurrent requests open at the same time.
+	 */
+	public void setResponseDelayMillis(long responseDelayMillis) {
+		this.responseDelayMillis = responseDelayMillis;
+	}
+
+	public void addHandler(String path, Handler handler) {
+		handlers.put(path, handler);
+	}
+
+	/**
+	 * Respond with a fixed text body.
+	 */
+	public void addResponse(String path, String body) {
+		addHandler(path, request -> textResponse(HttpResponseStatus.OK, body));
+	}
+
+	public void startHttps() throws Exception {
+		KeyStore keyStore = KeyStore.getInstance("JKS");
+		try (InputStream inputStream = getClass().getResourceAsStream("/keystore.jks")) {
+			keyStore.load(inputStream, "changeme".toCharArray());
+		}
+		KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagerFactory.init(keyStore, "changeme".toCharArray());
+
+		SslContext sslContext = SslContextBuilder.forServer(keyManagerFactory)
+			.sslProvider(SslProvider.JDK)
+			.applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+				ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE, ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+				ApplicationProtocolNames.HTTP_2))
+			.build();
+
+		start(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				connections.incrementAndGet();
+				ch.pipeline().addLast(sslContext.newHandler(ch.alloc()));
+				ch.pipeline().addLast(newHttp2Codec());
+			}
+		});
+	}
+
+	/**
+	 * Start a plain http server that speaks HTTP/2 to clients that start with the connection preface (h2c with prior knowledge).
+	 */
+	public void startCleartext() throws Exception {
+		start(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				connections.incrementAndGet();
+				ch.pipeline().addLast(newHttp2Codec());
+			}
+		});
+	}
+
+	/**
+	 * Start a plain http server that speaks HTTP/1.1, and upgrades connections to HTTP/2 on requests with {@code Upgrade: h2c}.
+	 */
+	public void startCleartextWithUpgrade() throws Exception {
+		start(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				connections.incrementAndGet();
+				HttpServerCodec httpServerCodec = new HttpServerCodec();
+				ch.pipeline().addLast(httpServerCodec);
+				ch.pipeline().addLast(new HttpServerUpgradeHandler(httpServerCodec, protocol -> {
+					if (AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)) {
+						return new Http2ServerUpgradeCodec(newHttp2Codec());
+					}
+					return null;
+				}));
+				ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+				ch.pipeline().addLast(new RequestDispatcher());
+			}
+		});
+	}
+
+	private void start(ChannelHandler childHandler) throws Exception {
+		port = JettyIntegrationServer.findFreePort();
+		eventLoopGroup = new NioEventLoopGroup(2);
+		serverChannel = new ServerBootstrap()
+			.group(eventLoopGroup)
+			.channel(NioServerSocketChannel.class)
+			.childHandler(childHandler)
+			.bind(port).sync().channel();
+	}
+
+	private Http2MultiplexCodec newHttp2Codec() {
+		return Http2MultiplexCodecBuilder.forServer(new ChannelInitializer<Channel>() {
+			@Override
+			protected void initChannel(Channel ch) throws Exception {
+				ch.pipeline().addLast(new StreamCounter());
+				ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+				ch.pipeline().addLast(new HttpObjectAggregator(1024 * 1024));
+				ch.pipeline().addLast(new RequestDispatcher());
+			}
+		}).initialSettings(Http2Settings.defaultSettings().maxConcurrentStreams(maxConcurrentStreams)).build();
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * @return the number of connections accepted by the server
+	 */
+	public int getConnections() {
+		return connections.get();
+	}
+
+	/**
+	 * @return the highest number of streams that have been open at the same time
+	 */
+	public int getMaxOpenStreams() {
+		return maxOpenStreams.get();
+	}
+
+	public void shutdown() throws Exception {
+		if (serverChannel != null) {
+			serverChannel.close().sync();
+		}
+		if (eventLoopGroup != null) {
+			eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+		}
+	}
+
+	public static FullHttpResponse textResponse(HttpResponseStatus status, String body) {
+		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+		response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain; charset=UTF-8");
+		response.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+		return response;
+	}
+
+	private class StreamCounter extends ChannelInboundHandlerAdapter {
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			int open = openStreams.incrementAndGet();
+			maxOpenStreams.accumulateAndGet(open, Math::max);
+			super.channelActive(ctx);
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			openStreams.decrementAndGet();
+			super.channelInactive(ctx);
+		}
+	}
+
+	private class RequestDispatcher extends SimpleChannelInboundHandler<FullHttpRequest> {
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+			Handler handler = handlers.get(new QueryStringDecoder(request.uri()).path());
+			FullHttpResponse response = handler != null ? handler.handle(request) : textResponse(HttpResponseStatus.NOT_FOUND, "");
+
+			if (responseDelayMillis > 0) {
+				ctx.executor().schedule(() -> ctx.writeAndFlush(response), responseDelayMillis, TimeUnit.MILLISECONDS);
+			} else {
+				ctx.writeAndFlush(response);
+			}
+		}
+	}
+}
@@ -8,15 +8,21 @@ package com.king.platform.net.http.integration;
 import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.HttpClient;
 import com.king.platform.net.http.netty.NettyHttpClientBuilder;
+import com.king.platform.net.http.netty.SharedEventLoopGroup;
 import com.king.platform.net.http.netty.backpressure.BackPressure;
 import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
 import com.king.platform.net.http.netty.eventbus.RootEventBus;
 import com.king.platform.net.http.netty.metric.MetricCallback;
 import com.king.platform.net.http.netty.pool.ChannelPool;
 import com.king.platform.net.http.netty.pool.NoChannelPool;
+import com.king.platform.net.http.netty.transport.TransportProvider;
 import com.king.platform.net.http.netty.util.TimeProvider;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.Timer;
 
+import java.net.InetSocketAddress;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -94,6 +100,31 @@ public class TestingHttpClientFactory {
 		return this;
 	}
 
+	public TestingHttpClientFactory setAddressResolverGroup(AddressResolverGroup<InetSocketAddress> addressResolverGroup) {
+		nettyHttpClientBuilder.setAddressResolverGroup(addressResolverGroup);
+		return this;
+	}
+
+	public TestingHttpClientFactory setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+		nettyHttpClientBuilder.setEventLoopGroup(eventLoopGroup);
+		return this;
+	}
+
+	public TestingHttpClientFactory setSharedEventLoopGroup(SharedEventLoopGroup sharedEventLoopGroup) {
+		nettyHttpClientBuilder.setSharedEventLoopGroup(sharedEventLoopGroup);
+		return this;
+	}
+
+	public TestingHttpClientFactory setByteBufAllocator(ByteBufAllocator allocator) {
+		nettyHttpClientBuilder.setByteBufAllocator(allocator);
+		return this;
+	}
+
+	public TestingHttpClientFactory setTransportProvider(TransportProvider transportProvider) {
+		nettyHttpClientBuilder.setTransportProvider(transportProvider);
+		return this;
+	}
+
 	public HttpClient create() {
 		HttpClient httpClient = nettyHttpClientBuilder.createHttpClient();
 		return httpClient;
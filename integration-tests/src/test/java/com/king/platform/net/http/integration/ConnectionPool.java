@@ -8,6 +8,7 @@ package com.king.platform.net.http.integration;
 
 import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.ConfMap;
 import com.king.platform.net.http.netty.NettyHttpClientBuilder;
 import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
 import com.king.platform.net.http.netty.eventbus.Event;
@@ -28,9 +29,12 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 import static se.mockachino.Mockachino.mock;
 
 public class ConnectionPool {
@@ -63,12 +67,28 @@ public class ConnectionPool {
 
 
 	private void createHttpClient(boolean useConnectionPool) {
+		createHttpClient(useConnectionPool, 0);
+	}
+
+	private void createHttpClient(boolean useConnectionPool, int maxConnectionsPerServer) {
+		createHttpClient(useConnectionPool, maxConnectionsPerServer, false);
+	}
+
+	private void createHttpClient(boolean useConnectionPool, int maxConnectionsPerServer, boolean spreadOverResolvedAddresses) {
+		createHttpClient(useConnectionPool, maxConnectionsPerServer, 0, spreadOverResolvedAddresses);
+	}
+
+	private void createHttpClient(boolean useConnectionPool, int maxConnectionsPerServer, int maxConnectingPerServer, boolean
+		spreadOverResolvedAddresses) {
 		HashedWheelTimer cleanupTimer = new HashedWheelTimer();
 		SystemTimeProvider timeProvider = new SystemTimeProvider();
 
 		ChannelPool pool = new NoChannelPool();
 		if (useConnectionPool) {
-			pool = new PoolingChannelPool(cleanupTimer, timeProvider, 15000, mock(MetricCallback.class));
+			ConfMap confMap = new ConfMap();
+			confMap.set(ConfKeys.POOL_MAX_CONNECTIONS_PER_SERVER, maxConnectionsPerServer);
+			confMap.set(ConfKeys.POOL_MAX_CONNECTING_PER_SERVER, maxConnectingPerServer);
+			pool = new PoolingChannelPool(cleanupTimer, timeProvider, 15000, confMap, mock(MetricCallback.class));
 		}
 
 		NettyHttpClientBuilder nettyHttpClientBuilder = new NettyHttpClientBuilder()
@@ -82,6 +102,7 @@ public class ConnectionPool {
 		httpClient = nettyHttpClientBuilder
 			.setOption(ConfKeys.IDLE_TIMEOUT_MILLIS, 0)
 			.setOption(ConfKeys.TOTAL_REQUEST_TIMEOUT_MILLIS, 0)
+			.setOption(ConfKeys.POOL_SPREAD_OVER_RESOLVED_ADDRESSES, spreadOverResolvedAddresses)
 			.createHttpClient();
 
 
@@ -161,6 +182,32 @@ public class ConnectionPool {
 
 	}
 
+	@Test
+	public void secondGetWithResolvedAddressPoolsShouldReuseConnection() throws Exception {
+		createHttpClient(true, 0, true);
+
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://127.0.0.1:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://127.0.0.1:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody, httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.REUSED_CONNECTION);
+		expectedEvents.add(Event.COMPLETED);
+		expectedEvents.add(Event.POOLED_CONNECTION);
+
+		validateExpectedEvents(expectedEvents);
+
+	}
+
 	@Test
 	public void secondGetWithNoConnectionPool() throws Exception {
 		createHttpClient(false);
@@ -189,6 +236,88 @@ public class ConnectionPool {
 
 	}
 
+	@Test
+	public void parallelGetsShouldShareTheLimitedConnections() throws Exception {
+		createHttpClient(true, 1);
+
+		final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				remotePorts.add(req.getRemotePort());
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testRemotePort");
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("http://localhost:" + port + "/testRemotePort").build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			httpCallback.waitForCompletion();
+			assertEquals(okBody, httpCallback.getBody());
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, remotePorts.size());
+	}
+
+	@Test
+	public void burstOfGetsShouldBeServedWithLimitedConnectionAttempts() throws Exception {
+		createHttpClient(true, 0, 1, false);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("http://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			httpCallback.waitForCompletion();
+			assertEquals(okBody, httpCallback.getBody());
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+	}
+
+	@Test
+	public void firstGetAfterWarmUpShouldReuseConnection() throws Exception {
+		createHttpClient(true);
+
+		httpClient.warmUp("http://localhost:" + port + "/testOk", 2).get(5, TimeUnit.SECONDS);
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody, httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.REUSED_CONNECTION);
+		expectedEvents.add(Event.COMPLETED);
+		expectedEvents.add(Event.POOLED_CONNECTION);
+
+		validateExpectedEvents(expectedEvents);
+		assertFalse(rootEventBus.hasTriggered(Event.CREATED_CONNECTION));
+	}
+
+	@Test
+	public void warmUpOfUnreachableServerShouldFail() throws Exception {
+		createHttpClient(true);
+
+		try {
+			httpClient.warmUp("http://localhost:" + JettyIntegrationServer.findFreePort() + "/", 1).get(5, TimeUnit.SECONDS);
+			fail("Warm up should have failed");
+		} catch (ExecutionException e) {
+			assertNotNull(e.getCause());
+		}
+	}
+
 	private void validateExpectedEvents(List<Event> expectedEvents) {
 		List<RecordingEventBus.Interaction> filteredInteractions = rootEventBus.getFilteredInteractions(RecordingEventBus.InteractionType.TRIGGER);
 
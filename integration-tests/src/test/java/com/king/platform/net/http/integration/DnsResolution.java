@@ -0,0 +1,145 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.InetSocketAddressResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DnsResolution {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	@Test
+	public void asyncResolverShouldUseTheHostOverrides() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.DNS_ASYNC_RESOLVER, true)
+			.setOption(ConfKeys.DNS_HOST_OVERRIDES, Collections.singletonMap("Service.Test", InetAddress.getLoopbackAddress()))
+			.create();
+		httpClient.start();
+
+		HttpResponse<String> response = httpClient.createGet("http://service.test:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertEquals(200, response.getStatusCode());
+	}
+
+	@Test
+	public void asyncResolverShouldResolveLocalhost() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.DNS_ASYNC_RESOLVER, true)
+			.create();
+		httpClient.start();
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+	}
+
+	@Test
+	public void injectedResolverGroupShouldBeUsed() throws Exception {
+		AtomicInteger resolveCount = new AtomicInteger();
+		httpClient = new TestingHttpClientFactory()
+			.setAddressResolverGroup(new LoopbackResolverGroup(resolveCount))
+			.create();
+		httpClient.start();
+
+		HttpResponse<String> response = httpClient.createGet("http://backend.internal:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertEquals(1, resolveCount.get());
+	}
+
+	@Test
+	public void unknownHostShouldFail() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.DNS_ASYNC_RESOLVER, true)
+			.setOption(ConfKeys.DNS_QUERY_TIMEOUT_MILLIS, 500)
+			.create();
+		httpClient.start();
+
+		try {
+			httpClient.createGet("http://unknown.invalid:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+			fail("Should have failed to resolve");
+		} catch (ExecutionException e) {
+			assertNotNull(e.getCause());
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+
+	private static class LoopbackResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+		private final AtomicInteger resolveCount;
+
+		private LoopbackResolverGroup(AtomicInteger resolveCount) {
+			this.resolveCount = resolveCount;
+		}
+
+		@Override
+		protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) throws Exception {
+			return new InetSocketAddressResolver(executor, new InetNameResolver(executor) {
+				@Override
+				protected void doResolve(String inetHost, Promise<InetAddress> promise) throws Exception {
+					resolveCount.incrementAndGet();
+					promise.setSuccess(InetAddress.getLoopbackAddress());
+				}
+
+				@Override
+				protected void doResolveAll(String inetHost, Promise<List<InetAddress>> promise) throws Exception {
+					resolveCount.incrementAndGet();
+					promise.setSuccess(Collections.singletonList(InetAddress.getLoopbackAddress()));
+				}
+			});
+		}
+	}
+}
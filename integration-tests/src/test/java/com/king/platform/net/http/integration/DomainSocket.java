@@ -0,0 +1,147 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.*;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+import static se.mockachino.Mockachino.mock;
+
+public class DomainSocket {
+	private EventLoopGroup serverGroup;
+	private Channel serverChannel;
+	private File socketFile;
+	private HttpClient httpClient;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+	private final Set<Channel> acceptedChannels = ConcurrentHashMap.newKeySet();
+	private volatile String hostHeader;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(Epoll.isAvailable());
+
+		socketFile = new File(Files.createTempDirectory("king-http-client").toFile(), "server.sock");
+		serverGroup = new EpollEventLoopGroup(1);
+		serverChannel = new ServerBootstrap()
+			.group(serverGroup)
+			.channel(EpollServerDomainSocketChannel.class)
+			.childHandler(new ChannelInitializer<Channel>() {
+				@Override
+				protected void initChannel(Channel ch) throws Exception {
+					acceptedChannels.add(ch);
+					ch.pipeline().addLast(new HttpServerCodec(), new HttpObjectAggregator(65536), new SimpleChannelInboundHandler<FullHttpRequest>() {
+						@Override
+						protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws Exception {
+							hostHeader = request.headers().get(HttpHeaderNames.HOST);
+							FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(okBody,
+								StandardCharsets.UTF_8));
+							response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+							ctx.writeAndFlush(response);
+						}
+					});
+				}
+			})
+			.bind(new DomainSocketAddress(socketFile))
+			.sync()
+			.channel();
+	}
+
+	private String domainSocketUri(String path) throws Exception {
+		return "http+unix://" + URLEncoder.encode(socketFile.getAbsolutePath(), "UTF-8") + path;
+	}
+
+	@Test
+	public void getOverDomainSocket() throws Exception {
+		httpClient = new TestingHttpClientFactory().setOption(ConfKeys.USE_EPOLL, true).create();
+		httpClient.start();
+
+		HttpResponse<String> response = httpClient.createGet(domainSocketUri("/testOk")).build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertEquals(200, response.getStatusCode());
+		assertEquals("localhost", hostHeader);
+	}
+
+	@Test
+	public void secondGetShouldReuseThePooledConnection() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.USE_EPOLL, true)
+			.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)))
+			.create();
+		httpClient.start();
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet(domainSocketUri("/testOk")).build().execute().get(5, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+			Thread.sleep(200);  // the channel is offered back to the pool after the response has been handed to the caller
+		}
+
+		assertEquals(1, acceptedChannels.size());
+	}
+
+	@Test
+	public void domainSocketWithoutEpollShouldFail() throws Exception {
+		httpClient = new TestingHttpClientFactory().setOption(ConfKeys.USE_EPOLL, false).create();
+		httpClient.start();
+
+		try {
+			httpClient.createGet(domainSocketUri("/testOk")).build().execute().get(5, TimeUnit.SECONDS);
+			fail("Should have failed");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+		if (serverChannel != null) {
+			serverChannel.close().sync();
+		}
+		if (serverGroup != null) {
+			serverGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+		}
+		if (socketFile != null) {
+			socketFile.delete();
+			socketFile.getParentFile().delete();
+		}
+	}
+}
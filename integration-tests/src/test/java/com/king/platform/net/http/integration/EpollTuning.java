@@ -0,0 +1,94 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.EpollOptions;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollMode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class EpollTuning {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(Epoll.isAvailable());
+
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	@Test
+	public void tunedConnectionsShouldServeRequests() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.USE_EPOLL, true)
+			.setOption(ConfKeys.EPOLL_HTTP_OPTIONS, new EpollOptions().setTcpQuickAck(true).setTcpUserTimeoutMillis(5000))
+			.setOption(ConfKeys.EPOLL_OPTIONS_PER_HOST, Collections.singletonMap("localhost", new EpollOptions()
+				.setTcpFastOpenConnect(true)
+				.setEpollMode(EpollMode.LEVEL_TRIGGERED)))
+			.create();
+		httpClient.start();
+
+		HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertEquals(200, response.getStatusCode());
+	}
+
+	@Test
+	public void quickAckShouldBeKeptOverManyRequests() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.USE_EPOLL, true)
+			.setOption(ConfKeys.EPOLL_OPTIONS_PER_HOST, Collections.singletonMap("localhost", new EpollOptions().setTcpQuickAck(true)))
+			.create();
+		httpClient.start();
+
+		for (int i = 0; i < 10; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (integrationServer != null) {
+			integrationServer.shutdown();
+		}
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.EpollOptions;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static se.mockachino.Mockachino.mock;
+
+/**
+ * Measures the latency of small sequential requests over loopback for each of the {@link EpollOptions}, against the untuned epoll transport.
+ * The pooled runs reuse one connection and show the per request effect of the options, while the unpooled runs connect for every request
+ * and include the effect on the connect, which is where fast open helps.
+ * Loopback hides most of the network effects, so the numbers are a lower bound of what the options change on a real network.
+ */
+public class EpollTuningBenchmark {
+	private static final int WARMUP_REQUESTS = 2000;
+	private static final int MEASURED_REQUESTS = 10000;
+
+	IntegrationServer integrationServer;
+	private int port;
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write("OK");
+				resp.getWriter().flush();
+			}
+		}, "/small");
+	}
+
+	@Test
+	@Ignore
+	public void pooledConnection() throws Exception {
+		compareOptions(true);
+	}
+
+	@Test
+	@Ignore
+	public void connectionPerRequest() throws Exception {
+		compareOptions(false);
+	}
+
+	private void compareOptions(boolean pooled) throws Exception {
+		Map<String, EpollOptions> variants = new LinkedHashMap<>();
+		variants.put("untuned", new EpollOptions());
+		variants.put("TCP_FASTOPEN_CONNECT", new EpollOptions().setTcpFastOpenConnect(true));
+		variants.put("TCP_QUICKACK", new EpollOptions().setTcpQuickAck(true));
+		variants.put("TCP_USER_TIMEOUT", new EpollOptions().setTcpUserTimeoutMillis(1000));
+		variants.put("LEVEL_TRIGGERED", new EpollOptions().setEpollMode(EpollMode.LEVEL_TRIGGERED));
+
+		for (int round = 0; round < 2; round++) {
+			for (Map.Entry<String, EpollOptions> variant : variants.entrySet()) {
+				System.out.println(String.format("pooled=%s %s: %s", pooled, variant.getKey(), measure(variant.getValue(), pooled)));
+			}
+		}
+	}
+
+	private String measure(EpollOptions epollOptions, boolean pooled) throws Exception {
+		TestingHttpClientFactory httpClientFactory = new TestingHttpClientFactory()
+			.setOption(ConfKeys.USE_EPOLL, true)
+			.setOption(ConfKeys.NETTY_TRACE_LOGS, false)
+			.setOption(ConfKeys.EPOLL_HTTP_OPTIONS, epollOptions);
+		if (pooled) {
+			httpClientFactory.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)));
+		}
+		HttpClient httpClient = httpClientFactory.create();
+		httpClient.start();
+
+		try {
+			for (int i = 0; i < WARMUP_REQUESTS; i++) {
+				get(httpClient);
+			}
+
+			long[] latencies = new long[MEASURED_REQUESTS];
+			for (int i = 0; i < MEASURED_REQUESTS; i++) {
+				long start = System.nanoTime();
+				get(httpClient);
+				latencies[i] = System.nanoTime() - start;
+			}
+
+			Arrays.sort(latencies);
+			return String.format("p50=%d us p99=%d us p999=%d us", percentile(latencies, 0.5), percentile(latencies, 0.99),
+				percentile(latencies, 0.999));
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private void get(HttpClient httpClient) throws Exception {
+		httpClient.createGet("http://localhost:" + port + "/small").build().execute().get(5, TimeUnit.SECONDS);
+	}
+
+	private long percentile(long[] sortedLatencies, double percentile) {
+		return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[(int) (sortedLatencies.length * percentile)]);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+	}
+}
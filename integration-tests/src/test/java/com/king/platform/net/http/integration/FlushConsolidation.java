@@ -0,0 +1,136 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlushConsolidation {
+	private HttpClient httpClient;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+	private String content = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. Curabitur consectetur, mi at porta volutpat, mauris massa ";
+
+	@Before
+	public void setUp() throws Exception {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.FLUSH_CONSOLIDATION, true)
+			.setOption(ConfKeys.HTTP2_CLEARTEXT_PER_HOST, Collections.singletonMap("localhost", Http2CleartextMode.PRIOR_KNOWLEDGE))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void requestsOverHttp1ShouldBeFlushed() throws Exception {
+		JettyIntegrationServer integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(readBody(req.getInputStream()));
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		try {
+			for (int i = 0; i < 3; i++) {
+				BlockingHttpCallback getCallback = new BlockingHttpCallback();
+				httpClient.createGet("http://127.0.0.1:" + integrationServer.getPort() + "/testOk").build().withHttpCallback(getCallback).execute();
+				getCallback.waitForCompletion();
+				assertEquals(okBody, getCallback.getBody());
+
+				BlockingHttpCallback postCallback = new BlockingHttpCallback();
+				httpClient.createPost("http://127.0.0.1:" + integrationServer.getPort() + "/testOk").content(content.getBytes(StandardCharsets.UTF_8))
+					.build().withHttpCallback(postCallback).execute();
+				postCallback.waitForCompletion();
+				assertEquals(content, postCallback.getBody());
+			}
+		} finally {
+			integrationServer.shutdown();
+		}
+	}
+
+	@Test
+	public void concurrentStreamsShouldBeFlushed() throws Exception {
+		Http2IntegrationServer http2Server = new Http2IntegrationServer();
+		http2Server.addResponse("/testOk", okBody);
+		http2Server.addHandler("/echo", request -> Http2IntegrationServer.textResponse(HttpResponseStatus.OK,
+			request.content().toString(StandardCharsets.UTF_8)));
+		http2Server.setResponseDelayMillis(100);
+		http2Server.startCleartext();
+
+		try {
+			List<BlockingHttpCallback> getCallbacks = new ArrayList<>();
+			List<BlockingHttpCallback> postCallbacks = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				BlockingHttpCallback getCallback = new BlockingHttpCallback();
+				httpClient.createGet("http://localhost:" + http2Server.getPort() + "/testOk").build().withHttpCallback(getCallback).execute();
+				getCallbacks.add(getCallback);
+
+				BlockingHttpCallback postCallback = new BlockingHttpCallback();
+				httpClient.createPost("http://localhost:" + http2Server.getPort() + "/echo").content(content.getBytes(StandardCharsets.UTF_8))
+					.build().withHttpCallback(postCallback).execute();
+				postCallbacks.add(postCallback);
+			}
+
+			for (BlockingHttpCallback getCallback : getCallbacks) {
+				assertTrue(getCallback.waitForCompletion(10, TimeUnit.SECONDS));
+				assertEquals(okBody, getCallback.getBody());
+			}
+			for (BlockingHttpCallback postCallback : postCallbacks) {
+				assertTrue(postCallback.waitForCompletion(10, TimeUnit.SECONDS));
+				assertEquals(content, postCallback.getBody());
+			}
+
+			assertEquals(1, http2Server.getConnections());
+		} finally {
+			http2Server.shutdown();
+		}
+	}
+
+	private String readBody(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = inputStream.read(buffer)) != -1) {
+			outputStream.write(buffer, 0, read);
+		}
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		httpClient.shutdown();
+	}
+}
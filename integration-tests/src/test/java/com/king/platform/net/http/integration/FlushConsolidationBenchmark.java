@@ -0,0 +1,135 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static se.mockachino.Mockachino.mock;
+
+/**
+ * Measures the write syscalls per request of small requests, with and without {@link ConfKeys#FLUSH_CONSOLIDATION}.
+ * The syscalls are read from /proc/self/io, so this only runs on linux. The count covers the whole process, the server included,
+ * but the server does the same work in every run.
+ */
+public class FlushConsolidationBenchmark {
+	private static final int WARMUP_REQUESTS = 2000;
+	private static final int MEASURED_REQUESTS = 20000;
+	private static final int PARALLEL_REQUESTS = 64;
+
+	private Http2IntegrationServer http2Server;
+	private int port;
+	private byte[] content = "small request body".getBytes(StandardCharsets.UTF_8);
+
+	@Before
+	public void setUp() throws Exception {
+		http2Server = new Http2IntegrationServer();
+		http2Server.addHandler("/small", request -> Http2IntegrationServer.textResponse(HttpResponseStatus.OK, "OK"));
+	}
+
+	@Test
+	@Ignore
+	public void http1() throws Exception {
+		http2Server.startCleartextWithUpgrade();
+		port = http2Server.getPort();
+
+		for (int round = 0; round < 2; round++) {
+			measure("http/1.1", createHttpClient(false, false));
+			measure("http/1.1 consolidated", createHttpClient(false, true));
+		}
+	}
+
+	@Test
+	@Ignore
+	public void http2() throws Exception {
+		http2Server.startCleartext();
+		port = http2Server.getPort();
+
+		for (int round = 0; round < 2; round++) {
+			measure("h2c", createHttpClient(true, false));
+			measure("h2c consolidated", createHttpClient(true, true));
+		}
+	}
+
+	private void measure(String name, HttpClient httpClient) throws Exception {
+		try {
+			runParallel(httpClient, WARMUP_REQUESTS);
+
+			long startWrites = writeSyscalls();
+			long start = System.nanoTime();
+			runParallel(httpClient, MEASURED_REQUESTS);
+			long requestsPerSecond = MEASURED_REQUESTS * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+			double writesPerRequest = (double) (writeSyscalls() - startWrites) / MEASURED_REQUESTS;
+
+			System.out.println(String.format("%s: %d requests/s, %.2f write syscalls/request", name, requestsPerSecond, writesPerRequest));
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private void runParallel(HttpClient httpClient, int requests) throws Exception {
+		for (int sent = 0; sent < requests; sent += PARALLEL_REQUESTS) {
+			List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+				futures.add(httpClient.createPost("http://localhost:" + port + "/small").content(content).build().execute());
+			}
+			for (CompletableFuture<HttpResponse<String>> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	private long writeSyscalls() throws IOException {
+		for (String line : Files.readAllLines(Paths.get("/proc/self/io"))) {
+			if (line.startsWith("syscw:")) {
+				return Long.parseLong(line.substring("syscw:".length()).trim());
+			}
+		}
+		throw new IOException("No syscw in /proc/self/io");
+	}
+
+	private HttpClient createHttpClient(boolean http2, boolean flushConsolidation) {
+		TestingHttpClientFactory httpClientFactory = new TestingHttpClientFactory()
+			.setNioThreads(4)
+			.setOption(ConfKeys.NETTY_TRACE_LOGS, false)
+			.setOption(ConfKeys.FLUSH_CONSOLIDATION, flushConsolidation);
+		if (http2) {
+			httpClientFactory.setOption(ConfKeys.HTTP2_CLEARTEXT_PER_HOST, Collections.singletonMap("localhost", Http2CleartextMode.PRIOR_KNOWLEDGE));
+		} else {
+			httpClientFactory.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)));
+		}
+		HttpClient httpClient = httpClientFactory.create();
+		httpClient.start();
+		return httpClient;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		http2Server.shutdown();
+	}
+}
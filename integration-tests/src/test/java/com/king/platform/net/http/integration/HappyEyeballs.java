@@ -0,0 +1,130 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.resolver.InetSocketAddressResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HappyEyeballs {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	private void createHttpClient(InetAddress... addresses) {
+		httpClient = new TestingHttpClientFactory()
+			.setAddressResolverGroup(new FixedAddressesResolverGroup(Arrays.asList(addresses)))
+			.setOption(ConfKeys.HAPPY_EYEBALLS, true)
+			.setOption(ConfKeys.HAPPY_EYEBALLS_ATTEMPT_DELAY_MILLIS, 250)
+			.setOption(ConfKeys.CONNECT_TIMEOUT_MILLIS, 10000)
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void unreachableFirstAddressShouldNotWaitForTheConnectTimeout() throws Exception {
+		createHttpClient(InetAddress.getByName("192.0.2.1"), InetAddress.getByName("127.0.0.1"));
+
+		long startTime = System.currentTimeMillis();
+		HttpResponse<String> response = httpClient.createGet("http://backend.test:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+
+		assertEquals(okBody, response.getBody());
+		assertTrue(System.currentTimeMillis() - startTime < 5000);
+	}
+
+	@Test
+	public void dualStackServerShouldBeReachable() throws Exception {
+		createHttpClient(InetAddress.getByName("::1"), InetAddress.getByName("127.0.0.1"));
+
+		for (int i = 0; i < 3; i++) {
+			HttpResponse<String> response = httpClient.createGet("http://backend.test:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+			assertEquals(okBody, response.getBody());
+		}
+	}
+
+	@Test
+	public void allAddressesRefusingShouldFail() throws Exception {
+		createHttpClient(InetAddress.getByName("::1"), InetAddress.getByName("127.0.0.1"));
+
+		try {
+			httpClient.createGet("http://backend.test:" + JettyIntegrationServer.findFreePort() + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+			fail("Should have failed to connect");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ConnectException);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+
+	private static class FixedAddressesResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+		private final List<InetAddress> addresses;
+
+		private FixedAddressesResolverGroup(List<InetAddress> addresses) {
+			this.addresses = addresses;
+		}
+
+		@Override
+		protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) throws Exception {
+			return new InetSocketAddressResolver(executor, new InetNameResolver(executor) {
+				@Override
+				protected void doResolve(String inetHost, Promise<InetAddress> promise) throws Exception {
+					promise.setSuccess(addresses.get(0));
+				}
+
+				@Override
+				protected void doResolveAll(String inetHost, Promise<List<InetAddress>> promise) throws Exception {
+					promise.setSuccess(addresses);
+				}
+			});
+		}
+	}
+}
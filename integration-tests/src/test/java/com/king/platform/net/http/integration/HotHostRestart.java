@@ -0,0 +1,124 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.NettyHttpClientBuilder;
+import com.king.platform.net.http.netty.eventbus.DefaultEventBus;
+import com.king.platform.net.http.netty.eventbus.Event;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static se.mockachino.Mockachino.mock;
+
+public class HotHostRestart {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+	private Path snapshotFile;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+	private RecordingEventBus rootEventBus;
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+		snapshotFile = temporaryFolder.getRoot().toPath().resolve("hot-hosts");
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	private void createHttpClient() {
+		HashedWheelTimer cleanupTimer = new HashedWheelTimer();
+		SystemTimeProvider timeProvider = new SystemTimeProvider();
+		rootEventBus = new RecordingEventBus(new DefaultEventBus());
+
+		httpClient = new NettyHttpClientBuilder()
+			.setNioThreads(2)
+			.setHttpCallbackExecutorThreads(2)
+			.setRootEventBus(rootEventBus)
+			.setCleanupTimer(cleanupTimer)
+			.setChannelPool(new PoolingChannelPool(cleanupTimer, timeProvider, 15000, mock(MetricCallback.class)))
+			.setOption(ConfKeys.HOT_HOST_SNAPSHOT_FILE, snapshotFile.toString())
+			.createHttpClient();
+
+		httpClient.start();
+	}
+
+	@Test
+	public void snapshotShouldBeWrittenOnShutdown() throws Exception {
+		createHttpClient();
+		get();
+		httpClient.shutdown();
+		httpClient = null;
+
+		List<String> lines = Files.readAllLines(snapshotFile, StandardCharsets.UTF_8);
+		assertEquals(2, lines.size());
+		assertTrue(lines.get(1).startsWith("http://localhost:" + port + " 1 1 "));
+	}
+
+	@Test
+	public void restartedClientShouldReuseConnectionsOpenedFromSnapshot() throws Exception {
+		createHttpClient();
+		get();
+		httpClient.shutdown();
+
+		createHttpClient();
+		Thread.sleep(500);
+		get();
+
+		assertTrue(rootEventBus.hasTriggered(Event.REUSED_CONNECTION));
+		assertFalse(rootEventBus.hasTriggered(Event.CREATED_CONNECTION));
+	}
+
+	private void get() throws Exception {
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody, httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+	}
+}
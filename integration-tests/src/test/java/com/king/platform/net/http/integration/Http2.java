@@ -0,0 +1,198 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Http2 {
+	private Http2IntegrationServer http2Server;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		http2Server = new Http2IntegrationServer();
+		http2Server.addResponse("/testOk", okBody);
+	}
+
+	private void start() throws Exception {
+		http2Server.startHttps();
+		port = http2Server.getPort();
+
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.SSL_ALLOW_ALL_CERTIFICATES, true)
+			.setOption(ConfKeys.HTTP2, true)
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void get200() throws Exception {
+		start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody, httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+	}
+
+	@Test
+	public void sequentialRequestsShouldShareTheConnection() throws Exception {
+		start();
+
+		for (int i = 0; i < 5; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+			httpCallback.waitForCompletion();
+			assertEquals(okBody, httpCallback.getBody());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+	}
+
+	@Test
+	public void concurrentRequestsShouldBeMultiplexedOverOneConnection() throws Exception {
+		http2Server.setResponseDelayMillis(200);
+		start();
+
+		List<BlockingHttpCallback> httpCallbacks = executeConcurrently(50);
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			assertTrue(httpCallback.waitForCompletion(10, TimeUnit.SECONDS));
+			assertEquals(okBody, httpCallback.getBody());
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+		assertTrue("Streams were not concurrent: " + http2Server.getMaxOpenStreams(), http2Server.getMaxOpenStreams() > 1);
+	}
+
+	@Test
+	public void shouldRespectMaxConcurrentStreamsOfTheServer() throws Exception {
+		http2Server.setMaxConcurrentStreams(5);
+		http2Server.setResponseDelayMillis(50);
+		start();
+
+		List<BlockingHttpCallback> httpCallbacks = executeConcurrently(30);
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			assertTrue(httpCallback.waitForCompletion(10, TimeUnit.SECONDS));
+			assertEquals(okBody, httpCallback.getBody());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+		assertTrue("Too many open streams: " + http2Server.getMaxOpenStreams(), http2Server.getMaxOpenStreams() <= 5);
+	}
+
+	@Test
+	public void postBodyAndHeadersShouldReachTheServer() throws Exception {
+		AtomicReference<String> authority = new AtomicReference<>();
+		http2Server.addHandler("/echo", request -> {
+			authority.set(request.headers().get("host"));
+			FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.copiedBuffer(request.content()));
+			response.headers().set("X-Custom", request.headers().get("X-Custom"));
+			return response;
+		});
+		start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createPost("https://localhost:" + port + "/echo")
+			.addHeader("X-Custom", "value")
+			.content("posted body".getBytes(StandardCharsets.UTF_8))
+			.build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals("posted body", httpCallback.getBody());
+		assertEquals("value", httpCallback.getHeader("X-Custom"));
+		assertEquals("localhost:" + port, authority.get());
+	}
+
+	@Test
+	public void responseWithoutBody() throws Exception {
+		http2Server.addHandler("/noContent", request -> new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT));
+		start();
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("https://localhost:" + port + "/noContent").build().withHttpCallback(httpCallback).execute();
+		assertTrue(httpCallback.waitForCompletion(5, TimeUnit.SECONDS));
+
+		assertEquals(204, httpCallback.getStatusCode());
+		assertEquals("", httpCallback.getBody());
+	}
+
+	@Test
+	public void shouldFallBackToHttp1WhenTheServerDoesNotSelectH2() throws Exception {
+		JettyIntegrationServer integrationServer = new JettyIntegrationServer();
+		integrationServer.startHttps();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody + req.getProtocol());
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		start();
+
+		try {
+			for (int i = 0; i < 3; i++) {
+				BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+				httpClient.createGet("https://localhost:" + integrationServer.getPort() + "/testOk").build().withHttpCallback(httpCallback)
+					.execute();
+				httpCallback.waitForCompletion();
+
+				assertEquals(okBody + "HTTP/1.1", httpCallback.getBody());
+				assertEquals(200, httpCallback.getStatusCode());
+			}
+		} finally {
+			integrationServer.shutdown();
+		}
+	}
+
+	private List<BlockingHttpCallback> executeConcurrently(int requests) {
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+		return httpCallbacks;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+		http2Server.shutdown();
+	}
+}
@@ -0,0 +1,160 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Http2Cleartext {
+	private Http2IntegrationServer http2Server;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		http2Server = new Http2IntegrationServer();
+		http2Server.addHandler("/testOk", request -> Http2IntegrationServer.textResponse(HttpResponseStatus.OK, okBody + request.protocolVersion()));
+	}
+
+	private void startClient(Http2CleartextMode mode) {
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.HTTP2_CLEARTEXT_PER_HOST, Collections.singletonMap("localhost", mode))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void priorKnowledgeGet200() throws Exception {
+		http2Server.startCleartext();
+		port = http2Server.getPort();
+		startClient(Http2CleartextMode.PRIOR_KNOWLEDGE);
+
+		for (int i = 0; i < 3; i++) {
+			BlockingHttpCallback httpCallback = get(port);
+			httpCallback.waitForCompletion();
+			assertEquals(okBody + "HTTP/1.1", httpCallback.getBody());
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+	}
+
+	@Test
+	public void priorKnowledgeShouldMultiplexConcurrentRequests() throws Exception {
+		http2Server.setResponseDelayMillis(200);
+		http2Server.startCleartext();
+		port = http2Server.getPort();
+		startClient(Http2CleartextMode.PRIOR_KNOWLEDGE);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			httpCallbacks.add(get(port));
+		}
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			assertTrue(httpCallback.waitForCompletion(10, TimeUnit.SECONDS));
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+		assertTrue("Streams were not concurrent: " + http2Server.getMaxOpenStreams(), http2Server.getMaxOpenStreams() > 1);
+	}
+
+	@Test
+	public void upgradeShouldSwitchTheConnectionToHttp2() throws Exception {
+		http2Server.setResponseDelayMillis(100);
+		http2Server.startCleartextWithUpgrade();
+		port = http2Server.getPort();
+		startClient(Http2CleartextMode.UPGRADE);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			httpCallbacks.add(get(port));
+		}
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			assertTrue(httpCallback.waitForCompletion(10, TimeUnit.SECONDS));
+			assertEquals(200, httpCallback.getStatusCode());
+			assertEquals(okBody + "HTTP/1.1", httpCallback.getBody());
+		}
+
+		assertEquals(1, http2Server.getConnections());
+		assertTrue("Streams were not concurrent: " + http2Server.getMaxOpenStreams(), http2Server.getMaxOpenStreams() > 1);
+	}
+
+	@Test
+	public void declinedUpgradeShouldFallBackToHttp1() throws Exception {
+		JettyIntegrationServer integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody + req.getProtocol());
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+		startClient(Http2CleartextMode.UPGRADE);
+
+		try {
+			for (int i = 0; i < 3; i++) {
+				BlockingHttpCallback httpCallback = get(integrationServer.getPort());
+				httpCallback.waitForCompletion();
+
+				assertEquals(okBody + "HTTP/1.1", httpCallback.getBody());
+				assertEquals(200, httpCallback.getStatusCode());
+			}
+		} finally {
+			integrationServer.shutdown();
+		}
+	}
+
+	@Test
+	public void hostsWithoutCleartextModeShouldUseHttp1() throws Exception {
+		http2Server.startCleartextWithUpgrade();
+		port = http2Server.getPort();
+		startClient(Http2CleartextMode.PRIOR_KNOWLEDGE);
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://127.0.0.1:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody + "HTTP/1.1", httpCallback.getBody());
+		assertEquals(0, http2Server.getMaxOpenStreams());
+	}
+
+	private BlockingHttpCallback get(int port) {
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+		return httpCallback;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+		http2Server.shutdown();
+	}
+}
@@ -0,0 +1,114 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.http2.Http2CleartextMode;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static se.mockachino.Mockachino.mock;
+
+/**
+ * Compares the throughput of many concurrent requests multiplexed over one h2c connection with the HTTP/1.1 path over a pool of connections,
+ * against the same netty server. The upgrade run shares one server between both paths, so only the client side differs.
+ */
+public class Http2CleartextBenchmark {
+	private static final int WARMUP_REQUESTS = 2000;
+	private static final int MEASURED_REQUESTS = 20000;
+	private static final int PARALLEL_REQUESTS = 64;
+
+	private Http2IntegrationServer http2Server;
+	private int port;
+
+	@Before
+	public void setUp() throws Exception {
+		http2Server = new Http2IntegrationServer();
+		http2Server.addResponse("/small", "OK");
+	}
+
+	@Test
+	@Ignore
+	public void upgradeAgainstHttp1() throws Exception {
+		http2Server.startCleartextWithUpgrade();
+		port = http2Server.getPort();
+
+		for (int round = 0; round < 2; round++) {
+			System.out.println(String.format("http/1.1 pooled: %d requests/s", measureThroughput(createHttpClient(null))));
+			System.out.println(String.format("h2c upgrade: %d requests/s", measureThroughput(createHttpClient(Http2CleartextMode.UPGRADE))));
+		}
+	}
+
+	@Test
+	@Ignore
+	public void priorKnowledge() throws Exception {
+		http2Server.startCleartext();
+		port = http2Server.getPort();
+
+		for (int round = 0; round < 2; round++) {
+			System.out.println(String.format("h2c prior knowledge: %d requests/s",
+				measureThroughput(createHttpClient(Http2CleartextMode.PRIOR_KNOWLEDGE))));
+		}
+	}
+
+	private long measureThroughput(HttpClient httpClient) throws Exception {
+		try {
+			runParallel(httpClient, WARMUP_REQUESTS);
+
+			long start = System.nanoTime();
+			runParallel(httpClient, MEASURED_REQUESTS);
+			return MEASURED_REQUESTS * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private void runParallel(HttpClient httpClient, int requests) throws Exception {
+		for (int sent = 0; sent < requests; sent += PARALLEL_REQUESTS) {
+			List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+				futures.add(httpClient.createGet("http://localhost:" + port + "/small").build().execute());
+			}
+			for (CompletableFuture<HttpResponse<String>> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	private HttpClient createHttpClient(Http2CleartextMode mode) {
+		TestingHttpClientFactory httpClientFactory = new TestingHttpClientFactory()
+			.setNioThreads(4)
+			.setOption(ConfKeys.NETTY_TRACE_LOGS, false);
+		if (mode != null) {
+			httpClientFactory.setOption(ConfKeys.HTTP2_CLEARTEXT_PER_HOST, Collections.singletonMap("localhost", mode));
+		} else {
+			httpClientFactory.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)));
+		}
+		HttpClient httpClient = httpClientFactory.create();
+		httpClient.start();
+		return httpClient;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		http2Server.shutdown();
+	}
+}
@@ -0,0 +1,181 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.FileResponseConsumer;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.NioCallbackAdapter;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static se.mockachino.Mockachino.mock;
+
+public class HttpGetFileSpliced {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+	private TemporaryFile temporaryFile;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(Epoll.isAvailable());
+
+		temporaryFile = new TemporaryFile(folder);
+
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		httpClient = new TestingHttpClientFactory()
+			.setOption(ConfKeys.USE_EPOLL, true)
+			.setOption(ConfKeys.SPLICE_FILE_RESPONSES, true)
+			.setOption(ConfKeys.NETTY_TRACE_LOGS, false)
+			.setOption(ConfKeys.TOTAL_REQUEST_TIMEOUT_MILLIS, 0)
+			.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void largeFileShouldBeSplicedIntoTheTargetFile() throws Exception {
+		temporaryFile.generateContent(32 * 1024);
+		integrationServer.addServlet(new FileServingHttpServlet(temporaryFile.getFile(), true), "/getFile");
+
+		File target = folder.newFile();
+		AtomicLong decodedBytes = new AtomicLong();
+		HttpResponse<File> response = httpClient.createGet("http://localhost:" + port + "/getFile")
+			.build(() -> new FileResponseConsumer(target))
+			.withNioCallback(new NioCallbackAdapter() {
+				@Override
+				public void onReceivedContentPart(int len, ByteBuf buffer) {
+					decodedBytes.addAndGet(len);
+				}
+			})
+			.execute()
+			.get(10, TimeUnit.SECONDS);
+
+		assertEquals(200, response.getStatusCode());
+		assertEquals(32 * 1024 * 1024, target.length());
+		assertArrayEquals(temporaryFile.getFileMd5(), md5(target));
+		// Only the bytes that arrived with the headers and the tiny reads waiting for more data go through the decoder
+		assertTrue("Bytes read through the decoder: " + decodedBytes.get(), decodedBytes.get() < 64 * 1024);
+	}
+
+	@Test
+	public void smallFileShouldBeWrittenWhenTheBodyArrivesWithTheHeaders() throws Exception {
+		temporaryFile.generateContent(1);
+		integrationServer.addServlet(new FileServingHttpServlet(temporaryFile.getFile(), true), "/getFile");
+
+		File target = folder.newFile();
+		httpClient.createGet("http://localhost:" + port + "/getFile").build(() -> new FileResponseConsumer(target)).execute().get(5, TimeUnit.SECONDS);
+
+		assertArrayEquals(temporaryFile.getFileMd5(), md5(target));
+	}
+
+	@Test
+	public void chunkedResponseShouldUseTheNormalPath() throws Exception {
+		temporaryFile.generateContent(1024);
+		integrationServer.addServlet(new FileServingHttpServlet(temporaryFile.getFile(), false), "/getFile");
+
+		File target = folder.newFile();
+		httpClient.createGet("http://localhost:" + port + "/getFile").build(() -> new FileResponseConsumer(target)).execute().get(5, TimeUnit.SECONDS);
+
+		assertArrayEquals(temporaryFile.getFileMd5(), md5(target));
+	}
+
+	@Test
+	public void requestsAfterASplicedResponseShouldUseANewConnection() throws Exception {
+		temporaryFile.generateContent(4 * 1024);
+		FileServingHttpServlet servlet = new FileServingHttpServlet(temporaryFile.getFile(), true);
+		integrationServer.addServlet(servlet, "/getFile");
+
+		for (int i = 0; i < 3; i++) {
+			File target = folder.newFile();
+			httpClient.createGet("http://localhost:" + port + "/getFile").build(() -> new FileResponseConsumer(target)).execute().get(5, TimeUnit.SECONDS);
+			assertArrayEquals(temporaryFile.getFileMd5(), md5(target));
+		}
+
+		assertEquals(3, servlet.remotePorts.size());
+	}
+
+	private byte[] md5(File file) throws Exception {
+		return MessageDigest.getInstance("MD5").digest(Files.readAllBytes(file.toPath()));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (integrationServer != null) {
+			integrationServer.shutdown();
+		}
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+	}
+
+	private static class FileServingHttpServlet extends HttpServlet {
+		private final File file;
+		private final boolean withContentLength;
+		private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+		private FileServingHttpServlet(File file, boolean withContentLength) {
+			this.file = file;
+			this.withContentLength = withContentLength;
+		}
+
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+			remotePorts.add(req.getRemotePort());
+			resp.setContentType("application/octet-stream");
+			if (withContentLength) {
+				resp.setContentLength((int) file.length());
+			}
+
+			byte[] buffer = new byte[64 * 1024];
+			try (FileInputStream fis = new FileInputStream(file); OutputStream os = resp.getOutputStream()) {
+				int bytesRead;
+				while ((bytesRead = fis.read(buffer)) != -1) {
+					os.write(buffer, 0, bytesRead);
+				}
+				os.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,229 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static se.mockachino.Mockachino.mock;
+
+public class HttpPipelining {
+	private IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private final Set<Integer> remotePorts = ConcurrentHashMap.newKeySet();
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				remotePorts.add(req.getRemotePort());
+				sleep(20);
+				resp.getWriter().write("response " + req.getParameter("id"));
+				resp.getWriter().flush();
+			}
+
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				doGet(req, resp);
+			}
+		}, "/testId");
+	}
+
+	private void createHttpClient(int depth) {
+		httpClient = new TestingHttpClientFactory()
+			.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)))
+			.setOption(ConfKeys.HTTP_PIPELINING_DEPTH_PER_HOST, Collections.singletonMap("localhost", depth))
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void concurrentGetsShouldBePipelinedOnOneConnection() throws Exception {
+		createHttpClient(10);
+
+		List<BlockingHttpCallback> httpCallbacks = executeGets("/testId", 10);
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("response " + i, httpCallbacks.get(i).getBody());
+			assertEquals(200, httpCallbacks.get(i).getStatusCode());
+		}
+
+		assertEquals(1, remotePorts.size());
+	}
+
+	@Test
+	public void depthShouldLimitTheRequestsInFlightPerConnection() throws Exception {
+		createHttpClient(2);
+
+		List<BlockingHttpCallback> httpCallbacks = executeGets("/testId", 6);
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("response " + i, httpCallbacks.get(i).getBody());
+		}
+
+		assertEquals(3, remotePorts.size());
+	}
+
+	@Test
+	public void connectionShouldBeReusedAfterThePipelineDrains() throws Exception {
+		createHttpClient(4);
+
+		for (int round = 0; round < 3; round++) {
+			for (BlockingHttpCallback httpCallback : executeGets("/testId", 4)) {
+				httpCallback.waitForCompletion();
+				assertEquals(200, httpCallback.getStatusCode());
+			}
+		}
+
+		assertEquals(1, remotePorts.size());
+	}
+
+	@Test
+	public void postsShouldNotBePipelined() throws Exception {
+		createHttpClient(10);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createPost("http://localhost:" + port + "/testId?id=" + i).content(new byte[]{1}).build().withHttpCallback(httpCallback)
+				.execute();
+			httpCallbacks.add(httpCallback);
+		}
+
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("response " + i, httpCallbacks.get(i).getBody());
+		}
+
+		assertEquals(3, remotePorts.size());
+	}
+
+	@Test
+	public void requestsBehindAClosingResponseShouldBeSentAgain() throws Exception {
+		AtomicBoolean closed = new AtomicBoolean();
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				remotePorts.add(req.getRemotePort());
+				sleep(20);
+				if (closed.compareAndSet(false, true)) {
+					resp.setHeader("Connection", "close");
+				}
+				resp.getWriter().write("response " + req.getParameter("id"));
+				resp.getWriter().flush();
+			}
+		}, "/closeOnce");
+		createHttpClient(10);
+
+		List<BlockingHttpCallback> httpCallbacks = executeGets("/closeOnce", 5);
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("response " + i, httpCallbacks.get(i).getBody());
+			assertEquals(200, httpCallbacks.get(i).getStatusCode());
+		}
+
+		assertEquals(2, remotePorts.size());
+	}
+
+	@Test
+	public void requestsBehindAFailedRequestShouldBeSentAgain() throws Exception {
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				sleep(1000);
+				resp.getWriter().write("slow");
+				resp.getWriter().flush();
+			}
+		}, "/slow");
+		createHttpClient(10);
+
+		BlockingHttpCallback slowCallback = new BlockingHttpCallback();
+		httpClient.createGet("http://localhost:" + port + "/slow").idleTimeoutMillis(200).build().withHttpCallback(slowCallback).execute();
+		List<BlockingHttpCallback> httpCallbacks = executeGets("/testId", 3);
+
+		slowCallback.waitForCompletion();
+		assertNotNull(slowCallback.getException());
+
+		for (int i = 0; i < httpCallbacks.size(); i++) {
+			httpCallbacks.get(i).waitForCompletion();
+			assertEquals("response " + i, httpCallbacks.get(i).getBody());
+			assertEquals(200, httpCallbacks.get(i).getStatusCode());
+		}
+	}
+
+	@Test
+	public void headRequestsShouldBePipelined() throws Exception {
+		createHttpClient(5);
+
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createHead("http://localhost:" + port + "/testId?id=" + i).build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+		for (BlockingHttpCallback httpCallback : httpCallbacks) {
+			httpCallback.waitForCompletion();
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+
+		assertEquals(1, remotePorts.size());
+	}
+
+	private List<BlockingHttpCallback> executeGets(String path, int requests) {
+		List<BlockingHttpCallback> httpCallbacks = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("http://localhost:" + port + path + "?id=" + i).build().withHttpCallback(httpCallback).execute();
+			httpCallbacks.add(httpCallback);
+		}
+		return httpCallbacks;
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (httpClient != null) {
+			httpClient.shutdown();
+		}
+		integrationServer.shutdown();
+	}
+}
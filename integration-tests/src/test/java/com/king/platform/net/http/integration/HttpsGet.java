@@ -8,6 +8,7 @@ package com.king.platform.net.http.integration;
 
 import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.metric.MetricCallback;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -19,6 +20,10 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static se.mockachino.Mockachino.mock;
+import static se.mockachino.Mockachino.verifyOnce;
+import static se.mockachino.matchers.Matchers.anyLong;
+import static se.mockachino.matchers.Matchers.eq;
 
 public class HttpsGet {
 	IntegrationServer integrationServer;
@@ -63,6 +68,42 @@ public class HttpsGet {
 	}
 
 
+	@Test
+	public void secondConnectionShouldResumeTheSslSession() throws Exception {
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		MetricCallback metricCallback = mock(MetricCallback.class);
+		HttpClient resumingHttpClient = new TestingHttpClientFactory()
+			.setMetricCallback(metricCallback)
+			.setOption(ConfKeys.SSL_ALLOW_ALL_CERTIFICATES, true)
+			.setOption(ConfKeys.SSL_SESSION_CACHE_SIZE, 16)
+			.setOption(ConfKeys.SSL_SESSION_TIMEOUT_SECONDS, 60)
+			.create();
+		resumingHttpClient.start();
+
+		try {
+			for (int i = 0; i < 2; i++) {
+				BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+				resumingHttpClient.createGet("https://localhost:" + port + "/testOk").build().withHttpCallback(httpCallback).execute();
+				httpCallback.waitForCompletion();
+				assertEquals(okBody, httpCallback.getBody());
+			}
+		} finally {
+			resumingHttpClient.shutdown();
+		}
+
+		verifyOnce().on(metricCallback).onFullSslHandshake(eq("localhost"), anyLong());
+		verifyOnce().on(metricCallback).onResumedSslHandshake(eq("localhost"), anyLong());
+	}
+
+
 	@Test
 	public void get404() throws Exception {
 
@@ -9,39 +9,65 @@ package com.king.platform.net.http.integration;
 import com.king.platform.net.http.HttpCallback;
 import com.king.platform.net.http.HttpClient;
 import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.ConfKeys;
 import com.king.platform.net.http.netty.NettyHttpClientBuilder;
+import com.king.platform.net.http.netty.transport.TransportProvider;
+import com.king.platform.net.http.netty.transport.TransportProviders;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 
+@RunWith(Parameterized.class)
 public class Performance {
 	int NR_OF_RUNS = 400;
 
+	private final TransportProvider transportProvider;
+
 	IntegrationServer integrationServer;
 	private HttpClient httpClient;
 	private int port;
 
 	private String okBody = "EVERYTHING IS OKAY!";
 
+	public Performance(TransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
+	@Parameterized.Parameters(name = "{0}")
+	public static Collection<Object[]> transports() {
+		List<Object[]> transports = new ArrayList<>();
+		for (TransportProvider transportProvider : TransportProviders.available()) {
+			transports.add(new Object[]{transportProvider});
+		}
+		return transports;
+	}
+
 	@Before
 	public void setUp() throws Exception {
 		integrationServer = new JettyIntegrationServer(NR_OF_RUNS * 2);
 		integrationServer.start();
 		port = integrationServer.getPort();
 
-		httpClient = new NettyHttpClientBuilder().setNioThreads(10).setHttpCallbackExecutorThreads(10).createHttpClient();
+		httpClient = new NettyHttpClientBuilder().setNioThreads(10).setHttpCallbackExecutorThreads(10)
+			.setOption(ConfKeys.TRANSPORT, transportProvider.getName())
+			.createHttpClient();
 		httpClient.start();
 
 	}
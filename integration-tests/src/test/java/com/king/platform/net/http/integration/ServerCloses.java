@@ -208,6 +208,77 @@ public class ServerCloses {
 
 	}
 
+	@Test
+	public void serverClosesIdleKeepAliveConnection() throws Exception {
+		new Thread(() -> {
+			try (ServerSocket serverSocket = new ServerSocket(port)) {
+				Socket firstSocket = serverSocket.accept();
+				writeKeepAliveResponse(firstSocket, "first");
+				Thread.sleep(50);
+				firstSocket.close();
+
+				Socket secondSocket = serverSocket.accept();
+				writeKeepAliveResponse(secondSocket, "second");
+				secondSocket.close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}).start();
+
+		assertRequestsGetStatus("first", "second");
+	}
+
+	@Test
+	public void serverSendsDataOnIdleKeepAliveConnection() throws Exception {
+		new Thread(() -> {
+			try (ServerSocket serverSocket = new ServerSocket(port)) {
+				Socket firstSocket = serverSocket.accept();
+				writeKeepAliveResponse(firstSocket, "first");
+				Thread.sleep(50);
+				firstSocket.getOutputStream().write("HTTP/1.1 408 Request Timeout\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				firstSocket.getOutputStream().flush();
+
+				Socket secondSocket = serverSocket.accept();
+				writeKeepAliveResponse(secondSocket, "second");
+				secondSocket.close();
+				firstSocket.close();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}).start();
+
+		assertRequestsGetStatus("first", "second");
+	}
+
+	private void assertRequestsGetStatus(String... statuses) throws Exception {
+		for (String status : statuses) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			httpClient.createGet("http://localhost:" + port + "/").build().withHttpCallback(httpCallback).execute();
+			httpCallback.waitForCompletion();
+
+			assertNull(httpCallback.getException());
+			assertEquals(status, httpCallback.getHeader("X-Status"));
+
+			Thread.sleep(200);
+		}
+	}
+
+	private void writeKeepAliveResponse(Socket socket, String status) throws IOException {
+		InputStream inputStream = socket.getInputStream();
+		StringBuilder request = new StringBuilder();
+		while (!request.toString().endsWith("\r\n\r\n")) {
+			request.append((char) inputStream.read());
+		}
+
+		OutputStream outputStream = socket.getOutputStream();
+		outputStream.write(("HTTP/1.1 200 OK\r\n" +
+			"X-Status: " + status + "\r\n" +
+			"Content-Length: 2\r\n" +
+			"\r\n" +
+			"OK").getBytes(StandardCharsets.ISO_8859_1));
+		outputStream.flush();
+	}
+
 	@After
 	public void tearDown() throws Exception {
 
@@ -0,0 +1,174 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.netty.ConfMap;
+import com.king.platform.net.http.netty.ServerInfo;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolSelectionStrategy;
+import com.king.platform.net.http.netty.pool.ServerPool;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static se.mockachino.Mockachino.mock;
+
+/**
+ * Compares the idle channel structure of {@link ServerPool} against the ConcurrentLinkedDeque + ConcurrentHashMap layout it replaced,
+ * and the cost of each {@link PoolSelectionStrategy}.
+ * Each thread polls a channel and offers it back, and every 16th iteration discards the channel and pools a new one instead.
+ * All the channels report the same event loop, like the connections of a client with a fixed event loop group do; every
+ * EmbeddedChannel otherwise has an event loop of its own, and the replacement channels would each add a sub pool to ServerPool.
+ */
+public class ServerPoolBenchmark {
+	private static final int THREADS = 16;
+	private static final int CHANNELS = 64;
+	private static final long WARMUP_MILLIS = 2000;
+	private static final long MEASURE_MILLIS = 5000;
+	private static final EventLoop EVENT_LOOP = new EmbeddedChannel().eventLoop();
+
+	@Test
+	@Ignore
+	public void compareIdleChannelStructures() throws Exception {
+		for (int round = 0; round < 2; round++) {
+			DequeServerPool dequeServerPool = new DequeServerPool();
+			createChannels(CHANNELS).forEach(dequeServerPool::offer);
+			long dequeOps = run(dequeServerPool::poll, dequeServerPool::offer, dequeServerPool::discard);
+
+			ServerPool serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 60000, TimeUnit.MILLISECONDS, new SystemTimeProvider(),
+				mock(MetricCallback.class));
+			createChannels(CHANNELS).forEach(serverPool::offer);
+			long serverPoolOps = run(serverPool::poll, serverPool::offer, serverPool::discard);
+
+			System.out.println(String.format("threads=%d ConcurrentLinkedDeque: %d ops/ms (dead entries left: %d), ServerPool: %d ops/ms (pool size: %d)",
+				THREADS, dequeOps / MEASURE_MILLIS, dequeServerPool.deque.size() - dequeServerPool.channelsMap.size(), serverPoolOps / MEASURE_MILLIS,
+				serverPool.getPoolSize()));
+		}
+	}
+
+	@Test
+	@Ignore
+	public void compareSelectionStrategies() throws Exception {
+		for (int round = 0; round < 2; round++) {
+			StringBuilder result = new StringBuilder("threads=" + THREADS);
+			for (PoolSelectionStrategy selectionStrategy : PoolSelectionStrategy.values()) {
+				ConfMap confMap = new ConfMap();
+				confMap.set(ConfKeys.POOL_SELECTION_STRATEGY, selectionStrategy);
+				ServerPool serverPool = new ServerPool(ServerInfo.buildFromUri("http://localhost/"), 60000, TimeUnit.MILLISECONDS, confMap, null,
+					new SystemTimeProvider(), mock(MetricCallback.class));
+				createChannels(CHANNELS).forEach(serverPool::offer);
+				long ops = run(serverPool::poll, serverPool::offer, serverPool::discard);
+
+				result.append(String.format(" %s: %d ops/ms", selectionStrategy, ops / MEASURE_MILLIS));
+			}
+			System.out.println(result);
+		}
+	}
+
+	private long run(final Poller poller, final Offerer offerer, final Offerer discarder) throws Exception {
+		final AtomicBoolean measuring = new AtomicBoolean();
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicLong operations = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			new Thread(() -> {
+				long ops = 0;
+				int iteration = 0;
+				while (running.get()) {
+					Channel channel = poller.poll();
+					if (channel != null) {
+						if (++iteration % 16 == 0) {
+							discarder.offer(channel);
+							offerer.offer(new BenchmarkChannel());
+						} else {
+							offerer.offer(channel);
+						}
+					}
+					if (measuring.get()) {
+						ops++;
+					}
+				}
+				operations.addAndGet(ops);
+				done.countDown();
+			}).start();
+		}
+
+		Thread.sleep(WARMUP_MILLIS);
+		measuring.set(true);
+		Thread.sleep(MEASURE_MILLIS);
+		running.set(false);
+		done.await();
+		return operations.get();
+	}
+
+	private List<Channel> createChannels(int count) {
+		List<Channel> channels = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			channels.add(new BenchmarkChannel());
+		}
+		return channels;
+	}
+
+	private static class BenchmarkChannel extends EmbeddedChannel {
+		BenchmarkChannel() {
+			super(DefaultChannelId.newInstance());
+		}
+
+		@Override
+		public EventLoop eventLoop() {
+			return EVENT_LOOP;
+		}
+	}
+
+	private interface Poller {
+		Channel poll();
+	}
+
+	private interface Offerer {
+		void offer(Channel channel);
+	}
+
+	private static class DequeServerPool {
+		private final ConcurrentLinkedDeque<Channel> deque = new ConcurrentLinkedDeque<>();
+		private final ConcurrentHashMap<Channel, Boolean> channelsMap = new ConcurrentHashMap<>();
+
+		Channel poll() {
+			Channel channel;
+			while ((channel = deque.poll()) != null) {
+				if (channelsMap.containsKey(channel) && channel.isActive()) {
+					return channel;
+				}
+			}
+			return null;
+		}
+
+		void offer(Channel channel) {
+			channelsMap.putIfAbsent(channel, Boolean.TRUE);
+			deque.addFirst(channel);
+		}
+
+		void discard(Channel channel) {
+			channel.close();
+			channelsMap.remove(channel);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.SharedEventLoopGroup;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SharedEventLoop {
+	IntegrationServer integrationServer;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+	}
+
+	@Test
+	public void sharedGroupShouldOutliveTheFirstClient() throws Exception {
+		EventLoopGroup eventLoopGroup = new NioEventLoopGroup(2);
+		SharedEventLoopGroup sharedEventLoopGroup = new SharedEventLoopGroup(eventLoopGroup);
+
+		HttpClient first = new TestingHttpClientFactory().setSharedEventLoopGroup(sharedEventLoopGroup).create();
+		HttpClient second = new TestingHttpClientFactory().setSharedEventLoopGroup(sharedEventLoopGroup).create();
+		first.start();
+		second.start();
+		sharedEventLoopGroup.release();
+
+		assertEquals(okBody, get(first).getBody());
+		assertEquals(okBody, get(second).getBody());
+
+		first.shutdown();
+		assertFalse(eventLoopGroup.isShuttingDown());
+		assertEquals(okBody, get(second).getBody());
+
+		second.shutdown();
+		assertTrue(eventLoopGroup.awaitTermination(15, TimeUnit.SECONDS));
+		assertEquals(0, sharedEventLoopGroup.refCnt());
+	}
+
+	@Test
+	public void injectedGroupShouldNotBeShutDownByTheClient() throws Exception {
+		EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+		try {
+			HttpClient httpClient = new TestingHttpClientFactory().setEventLoopGroup(eventLoopGroup).create();
+			httpClient.start();
+
+			assertEquals(okBody, get(httpClient).getBody());
+
+			httpClient.shutdown();
+			assertFalse(eventLoopGroup.isShuttingDown());
+		} finally {
+			eventLoopGroup.shutdownGracefully();
+		}
+	}
+
+	@Test
+	public void shutdownShouldCloseTheConnectionsOnAnInjectedGroup() throws Exception {
+		CountDownLatch requestReceived = new CountDownLatch(1);
+		CountDownLatch releaseResponse = new CountDownLatch(1);
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				requestReceived.countDown();
+				try {
+					releaseResponse.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException ignored) {
+				}
+				resp.getWriter().write(okBody);
+			}
+		}, "/testSlow");
+
+		EventLoopGroup eventLoopGroup = new NioEventLoopGroup(1);
+		try {
+			HttpClient httpClient = new TestingHttpClientFactory().setEventLoopGroup(eventLoopGroup).create();
+			httpClient.start();
+
+			CompletableFuture<HttpResponse<String>> future = httpClient.createGet("http://localhost:" + port + "/testSlow").build().execute();
+			assertTrue(requestReceived.await(5, TimeUnit.SECONDS));
+
+			httpClient.shutdown();
+
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail("The request in flight should fail when the client is shut down");
+			} catch (ExecutionException ignored) {
+			}
+			assertFalse(eventLoopGroup.isShuttingDown());
+		} finally {
+			releaseResponse.countDown();
+			eventLoopGroup.shutdownGracefully();
+		}
+	}
+
+	@Test
+	public void injectedAllocatorShouldBeUsed() throws Exception {
+		HttpClient httpClient = new TestingHttpClientFactory().setByteBufAllocator(new UnpooledByteBufAllocator(false)).create();
+		httpClient.start();
+
+		try {
+			assertEquals(okBody, get(httpClient).getBody());
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private HttpResponse<String> get(HttpClient httpClient) throws Exception {
+		return httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(5, TimeUnit.SECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+	}
+}
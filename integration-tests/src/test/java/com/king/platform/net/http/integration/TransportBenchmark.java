@@ -0,0 +1,169 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.transport.TransportProvider;
+import com.king.platform.net.http.netty.transport.TransportProviders;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static se.mockachino.Mockachino.mock;
+
+/**
+ * Compares the transports available on this host, see {@link TransportProviders#available()}.
+ * The sequential runs measure the latency of small requests over one pooled connection and over a new connection per request,
+ * and the parallel run measures the throughput of many concurrent requests over a pool of connections.
+ * Loopback hides most of the network effects, so run it against a remote server for numbers that matter for a real deployment.
+ */
+public class TransportBenchmark {
+	private static final int WARMUP_REQUESTS = 2000;
+	private static final int MEASURED_REQUESTS = 10000;
+	private static final int PARALLEL_REQUESTS = 64;
+
+	IntegrationServer integrationServer;
+	private int port;
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer(PARALLEL_REQUESTS * 2);
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write("OK");
+				resp.getWriter().flush();
+			}
+		}, "/small");
+	}
+
+	@Test
+	@Ignore
+	public void pooledConnection() throws Exception {
+		for (int round = 0; round < 2; round++) {
+			for (TransportProvider transportProvider : TransportProviders.available()) {
+				System.out.println(String.format("pooled %s: %s", transportProvider.getName(), measureLatency(transportProvider, true)));
+			}
+		}
+	}
+
+	@Test
+	@Ignore
+	public void connectionPerRequest() throws Exception {
+		for (int round = 0; round < 2; round++) {
+			for (TransportProvider transportProvider : TransportProviders.available()) {
+				System.out.println(String.format("unpooled %s: %s", transportProvider.getName(), measureLatency(transportProvider, false)));
+			}
+		}
+	}
+
+	@Test
+	@Ignore
+	public void parallelRequests() throws Exception {
+		for (int round = 0; round < 2; round++) {
+			for (TransportProvider transportProvider : TransportProviders.available()) {
+				System.out.println(String.format("parallel %s: %d requests/s", transportProvider.getName(), measureThroughput(transportProvider)));
+			}
+		}
+	}
+
+	private String measureLatency(TransportProvider transportProvider, boolean pooled) throws Exception {
+		HttpClient httpClient = createHttpClient(transportProvider, pooled);
+
+		try {
+			for (int i = 0; i < WARMUP_REQUESTS; i++) {
+				get(httpClient).get(5, TimeUnit.SECONDS);
+			}
+
+			long[] latencies = new long[MEASURED_REQUESTS];
+			for (int i = 0; i < MEASURED_REQUESTS; i++) {
+				long start = System.nanoTime();
+				get(httpClient).get(5, TimeUnit.SECONDS);
+				latencies[i] = System.nanoTime() - start;
+			}
+
+			Arrays.sort(latencies);
+			return String.format("p50=%d us p99=%d us p999=%d us", percentile(latencies, 0.5), percentile(latencies, 0.99),
+				percentile(latencies, 0.999));
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private long measureThroughput(TransportProvider transportProvider) throws Exception {
+		HttpClient httpClient = createHttpClient(transportProvider, true);
+
+		try {
+			runParallel(httpClient, WARMUP_REQUESTS);
+
+			long start = System.nanoTime();
+			runParallel(httpClient, MEASURED_REQUESTS);
+			return MEASURED_REQUESTS * TimeUnit.SECONDS.toNanos(1) / (System.nanoTime() - start);
+		} finally {
+			httpClient.shutdown();
+		}
+	}
+
+	private void runParallel(HttpClient httpClient, int requests) throws Exception {
+		for (int sent = 0; sent < requests; sent += PARALLEL_REQUESTS) {
+			List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+			for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+				futures.add(get(httpClient));
+			}
+			for (CompletableFuture<HttpResponse<String>> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	private HttpClient createHttpClient(TransportProvider transportProvider, boolean pooled) {
+		TestingHttpClientFactory httpClientFactory = new TestingHttpClientFactory()
+			.setNioThreads(4)
+			.setOption(ConfKeys.TRANSPORT, transportProvider.getName())
+			.setOption(ConfKeys.NETTY_TRACE_LOGS, false);
+		if (pooled) {
+			httpClientFactory.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)));
+		}
+		HttpClient httpClient = httpClientFactory.create();
+		httpClient.start();
+		return httpClient;
+	}
+
+	private CompletableFuture<HttpResponse<String>> get(HttpClient httpClient) {
+		return httpClient.createGet("http://localhost:" + port + "/small").build().execute();
+	}
+
+	private long percentile(long[] sortedLatencies, double percentile) {
+		return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[(int) (sortedLatencies.length * percentile)]);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+	}
+}
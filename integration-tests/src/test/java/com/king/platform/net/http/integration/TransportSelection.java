@@ -0,0 +1,43 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.netty.transport.TransportProviders;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class TransportSelection {
+
+	@Test
+	public void unavailableTransportShouldFailToStart() throws Exception {
+		assumeFalse(TransportProviders.IO_URING.isAvailable());
+
+		HttpClient httpClient = new TestingHttpClientFactory().setOption(ConfKeys.TRANSPORT, "io_uring").create();
+		try {
+			httpClient.start();
+			fail("Should have failed");
+		} catch (IllegalStateException e) {
+			assertSame(TransportProviders.IO_URING.unavailabilityCause(), e.getCause());
+		}
+		assertFalse(httpClient.isStarted());
+	}
+
+	@Test
+	public void unknownTransportShouldFailToStart() throws Exception {
+		HttpClient httpClient = new TestingHttpClientFactory().setOption(ConfKeys.TRANSPORT, "kqueue").create();
+		try {
+			httpClient.start();
+			fail("Should have failed");
+		} catch (IllegalArgumentException e) {
+			assertFalse(httpClient.isStarted());
+		}
+	}
+}
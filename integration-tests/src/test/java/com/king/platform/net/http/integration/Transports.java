@@ -0,0 +1,109 @@
+// Copyright (C) king.com Ltd 2015
+// https://github.com/king/king-http-client
+// Author: Magnus Gustafsson
+// License: Apache 2.0, https://raw.github.com/king/king-http-client/LICENSE-APACHE
+
+package com.king.platform.net.http.integration;
+
+
+import com.king.platform.net.http.ConfKeys;
+import com.king.platform.net.http.HttpClient;
+import com.king.platform.net.http.HttpResponse;
+import com.king.platform.net.http.netty.metric.MetricCallback;
+import com.king.platform.net.http.netty.pool.PoolingChannelPool;
+import com.king.platform.net.http.netty.transport.TransportProvider;
+import com.king.platform.net.http.netty.transport.TransportProviders;
+import com.king.platform.net.http.netty.util.SystemTimeProvider;
+import io.netty.util.HashedWheelTimer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static se.mockachino.Mockachino.mock;
+
+@RunWith(Parameterized.class)
+public class Transports {
+	IntegrationServer integrationServer;
+	private HttpClient httpClient;
+	private int port;
+
+	private String okBody = "EVERYTHING IS OKAY!";
+
+	private final TransportProvider transportProvider;
+
+	public Transports(TransportProvider transportProvider) {
+		this.transportProvider = transportProvider;
+	}
+
+	@Parameterized.Parameters(name = "{0}")
+	public static Collection<Object[]> transports() {
+		List<Object[]> transports = new ArrayList<>();
+		for (TransportProvider transportProvider : TransportProviders.available()) {
+			transports.add(new Object[]{transportProvider});
+		}
+		return transports;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		integrationServer = new JettyIntegrationServer();
+		integrationServer.start();
+		port = integrationServer.getPort();
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		httpClient = new TestingHttpClientFactory()
+			.setChannelPool(new PoolingChannelPool(new HashedWheelTimer(), new SystemTimeProvider(), 15000, mock(MetricCallback.class)))
+			.setOption(ConfKeys.TRANSPORT, transportProvider.getName())
+			.setOption(ConfKeys.DNS_ASYNC_RESOLVER, true)
+			.create();
+		httpClient.start();
+	}
+
+	@Test
+	public void getShouldWork() throws Exception {
+		HttpResponse<String> httpResponse = httpClient.createGet("http://localhost:" + port + "/testOk").build().execute().get(5, TimeUnit
+			.SECONDS);
+
+		assertEquals(200, httpResponse.getStatusCode());
+		assertEquals(okBody, httpResponse.getBody());
+	}
+
+	@Test
+	public void parallelGetsShouldWork() throws Exception {
+		List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			futures.add(httpClient.createGet("http://localhost:" + port + "/testOk").build().execute());
+		}
+
+		for (CompletableFuture<HttpResponse<String>> future : futures) {
+			assertEquals(okBody, future.get(5, TimeUnit.SECONDS).getBody());
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		integrationServer.shutdown();
+		httpClient.shutdown();
+	}
+}
@@ -17,6 +17,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -69,6 +70,7 @@ public class TriggerCorrectEvents {
 		expectedEvents.add(Event.onConnecting);
 		expectedEvents.add(Event.CREATED_CONNECTION);
 		expectedEvents.add(Event.onConnected);
+		expectedEvents.add(Event.CONNECTED_ADDRESS);
 		expectedEvents.add(Event.POPULATE_CONNECTION_SPECIFIC_HEADERS);
 		expectedEvents.add(Event.onWroteHeaders);
 		expectedEvents.add(Event.onWroteContentCompleted);
@@ -80,6 +82,51 @@ public class TriggerCorrectEvents {
 		expectedEvents.add(Event.COMPLETED);
 		expectedEvents.add(Event.CLOSED_CONNECTION);
 
+		assertTriggeredEvents(expectedEvents);
+	}
+
+	@Test
+	public void post200() throws Exception {
+
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(okBody);
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+		httpClient.createPost("http://localhost:" + port + "/testOk").content("content".getBytes(StandardCharsets.UTF_8)).build()
+			.withHttpCallback(httpCallback).execute();
+		httpCallback.waitForCompletion();
+
+		assertEquals(okBody, httpCallback.getBody());
+		assertEquals(200, httpCallback.getStatusCode());
+
+
+		List<Event> expectedEvents = new ArrayList<>();
+		expectedEvents.add(Event.onConnecting);
+		expectedEvents.add(Event.CREATED_CONNECTION);
+		expectedEvents.add(Event.onConnected);
+		expectedEvents.add(Event.CONNECTED_ADDRESS);
+		expectedEvents.add(Event.POPULATE_CONNECTION_SPECIFIC_HEADERS);
+		expectedEvents.add(Event.onWroteHeaders);
+		expectedEvents.add(Event.onWroteContentStarted);
+		expectedEvents.add(Event.onWroteContentProgressed);
+		expectedEvents.add(Event.onWroteContentCompleted);
+		expectedEvents.add(Event.onReceivedStatus);
+		expectedEvents.add(Event.onReceivedHeaders);
+		expectedEvents.add(Event.onReceivedContentPart);
+		expectedEvents.add(Event.onReceivedCompleted);
+		expectedEvents.add(Event.onHttpResponseDone);
+		expectedEvents.add(Event.COMPLETED);
+		expectedEvents.add(Event.CLOSED_CONNECTION);
+
+		assertTriggeredEvents(expectedEvents);
+	}
+
+	private void assertTriggeredEvents(List<Event> expectedEvents) {
 		List<RecordingEventBus.Interaction> filteredInteractions = recordingEventBus.getFilteredInteractions(RecordingEventBus.InteractionType.TRIGGER, Event
 			.TOUCH);
 
@@ -93,7 +140,6 @@ public class TriggerCorrectEvents {
 			assertSame(expectedEvent, interaction.getEvent());
 
 		}
-
 	}
 
 	@After
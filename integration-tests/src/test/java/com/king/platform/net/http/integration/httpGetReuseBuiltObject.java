@@ -17,6 +17,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -74,6 +75,33 @@ public class httpGetReuseBuiltObject {
 
 	}
 
+	@Test
+	public void headersAndParametersShouldBeSentOnEveryExecution() throws Exception {
+		integrationServer.addServlet(new HttpServlet() {
+			@Override
+			protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+				resp.getWriter().write(req.getParameter("param") + ":" + Collections.list(req.getHeaders("X-Test")) + ":" +
+					Collections.list(req.getHeaders("Accept")));
+				resp.getWriter().flush();
+			}
+		}, "/testOk");
+
+		BuiltClientRequest<String> builtClientRequest = httpClient.createGet("http://localhost:" + port + "/testOk")
+			.addQueryParameter("param", "value")
+			.addHeader("X-Test", "first")
+			.addHeader("X-Test", "second")
+			.build();
+
+		for (int i = 0; i < 3; i++) {
+			BlockingHttpCallback httpCallback = new BlockingHttpCallback();
+			builtClientRequest.withHttpCallback(httpCallback).execute();
+			httpCallback.waitForCompletion();
+
+			assertEquals("value:[first, second]:[*/*]", httpCallback.getBody());
+			assertEquals(200, httpCallback.getStatusCode());
+		}
+	}
+
 	@Test
 	public void getInParallel() throws Exception {
 